@@ -0,0 +1,280 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Rect;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PositionCalculatorのベンチマークです。<br/>
+ * 1920x1080(xxhdpi)の画面で、72dpのFloatingViewをドラッグした場合の値を入力とします。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionCalculatorBenchmark {
+
+    /**
+     * 入力値の数（2のべき乗）
+     */
+    private static final int INPUT_SIZE = 1024;
+
+    /**
+     * 画面の幅
+     */
+    private static final int SCREEN_WIDTH = 1080;
+
+    /**
+     * 画面の高さ
+     */
+    private static final int SCREEN_HEIGHT = 1920;
+
+    /**
+     * 画面密度
+     */
+    private static final float DENSITY = 3.0f;
+
+    /**
+     * FloatingViewの大きさ
+     */
+    private static final int VIEW_SIZE = (int) (72 * DENSITY);
+
+    /**
+     * ステータスバーの高さ
+     */
+    private static final int STATUS_BAR_HEIGHT = (int) (24 * DENSITY);
+
+    /**
+     * 画面端をオーバーするマージン
+     */
+    private static final int OVER_MARGIN = (int) (16 * DENSITY);
+
+    /**
+     * アニメーションの時間比率
+     */
+    private float[] mTimeRates;
+
+    /**
+     * FloatingViewのX座標
+     */
+    private int[] mPositionX;
+
+    /**
+     * FloatingViewのY座標
+     */
+    private int[] mPositionY;
+
+    /**
+     * 入力値の位置
+     */
+    private int mIndex;
+
+    /**
+     * 削除アイコンの移動限界位置
+     */
+    private Rect mTrashIconLimitPosition;
+
+    /**
+     * 当たり判定用の矩形
+     */
+    private Rect mTrashViewRect;
+    private Rect mFloatingViewRect;
+
+    /**
+     * 移動限界・表示位置の限界
+     */
+    private Rect mMoveLimitRect;
+    private Rect mPositionLimitRect;
+
+    /**
+     * 画面の上半分に並べた10個のドロップ先の索引
+     */
+    private DropTargetIndex mDropTargetIndex;
+
+    /**
+     * 16x16の格子状に並べた吸着先の索引
+     */
+    private AnchorIndex mAnchorIndex;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(0);
+        mTimeRates = new float[INPUT_SIZE];
+        mPositionX = new int[INPUT_SIZE];
+        mPositionY = new int[INPUT_SIZE];
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            mTimeRates[i] = random.nextFloat();
+            mPositionX[i] = random.nextInt(SCREEN_WIDTH);
+            mPositionY[i] = random.nextInt(SCREEN_HEIGHT);
+        }
+        // TrashView.AnimationHandler#onUpdateViewLayoutと同じ計算
+        final float backgroundHeight = 164 * DENSITY;
+        final int trashIconHeight = (int) (56 * DENSITY);
+        final float offsetX = 22 * DENSITY;
+        mTrashIconLimitPosition = new Rect((int) -offsetX, (int) ((trashIconHeight - backgroundHeight) / 2 + 4 * DENSITY), (int) offsetX, trashIconHeight);
+        mTrashViewRect = new Rect();
+        mFloatingViewRect = new Rect();
+        mMoveLimitRect = new Rect();
+        mPositionLimitRect = new Rect();
+        mDropTargetIndex = new DropTargetIndex((int) (64 * DENSITY));
+        final int zoneSize = SCREEN_WIDTH / 5;
+        for (int i = 0; i < 10; i++) {
+            final int left = (i % 5) * zoneSize;
+            final int top = SCREEN_HEIGHT / 2 + (i / 5) * zoneSize;
+            mDropTargetIndex.put(i, new Rect(left, top, left + zoneSize, top + zoneSize));
+        }
+        final int gridSize = 16;
+        final float[] fractionX = new float[gridSize * gridSize];
+        final float[] fractionY = new float[gridSize * gridSize];
+        for (int i = 0; i < fractionX.length; i++) {
+            fractionX[i] = (i % gridSize) / (float) (gridSize - 1);
+            fractionY[i] = (i / gridSize) / (float) (gridSize - 1);
+        }
+        PositionCalculator.calcLimitRects(SCREEN_WIDTH, SCREEN_HEIGHT, VIEW_SIZE, VIEW_SIZE, OVER_MARGIN, STATUS_BAR_HEIGHT, mMoveLimitRect, mPositionLimitRect);
+        mAnchorIndex = new AnchorIndex();
+        mAnchorIndex.build(fractionX, fractionY, fractionX.length, mPositionLimitRect);
+    }
+
+    /**
+     * 次の入力値の位置を取得します。
+     *
+     * @return 入力値の位置
+     */
+    private int nextIndex() {
+        mIndex = (mIndex + 1) & (INPUT_SIZE - 1);
+        return mIndex;
+    }
+
+    /**
+     * FloatingAnimationHandlerの追従アニメーションの係数
+     */
+    @Benchmark
+    public float animationPosition() {
+        return PositionCalculator.calcAnimationPosition(mTimeRates[nextIndex()]);
+    }
+
+    /**
+     * TrashView.AnimationHandlerの削除アイコンの追従位置(positionX/stickyPositionY)
+     */
+    @Benchmark
+    public void trashIconPosition(Blackhole blackhole) {
+        final int index = nextIndex();
+        blackhole.consume(PositionCalculator.calcTrashIconPositionX(0, mPositionX[index], VIEW_SIZE, SCREEN_WIDTH, mTrashIconLimitPosition));
+        blackhole.consume(PositionCalculator.calcTrashIconStickyPositionY(mPositionY[index], VIEW_SIZE, SCREEN_HEIGHT, 164 * DENSITY * 0.20f, mTrashIconLimitPosition));
+    }
+
+    /**
+     * TrashView#getWindowDrawingRectとRect#intersectsによる当たり判定
+     */
+    @Benchmark
+    public boolean trashHitTest() {
+        final int index = nextIndex();
+        final float iconSize = 56 * DENSITY;
+        final float iconX = (SCREEN_WIDTH - iconSize) / 2 + mTrashIconLimitPosition.left;
+        PositionCalculator.calcTrashCaptureRect(iconX, 40 * DENSITY, iconSize, iconSize, (int) (164 * DENSITY), 30.0f * DENSITY, 4.0f * DENSITY, mTrashViewRect);
+        final int x = mPositionX[index];
+        final int y = mPositionY[index];
+        mFloatingViewRect.set(x, y, x + VIEW_SIZE, y + VIEW_SIZE);
+        return Rect.intersects(mTrashViewRect, mFloatingViewRect);
+    }
+
+    /**
+     * 円形のFloatingViewと削除アイコンの当たり判定（距離の2乗による判定）
+     */
+    @Benchmark
+    public boolean trashCircleHitTest() {
+        final int index = nextIndex();
+        final float iconSize = 56 * DENSITY;
+        final float iconX = (SCREEN_WIDTH - iconSize) / 2 + mTrashIconLimitPosition.left;
+        PositionCalculator.calcTrashCaptureRect(iconX, 40 * DENSITY, iconSize, iconSize, (int) (164 * DENSITY), 30.0f * DENSITY, 4.0f * DENSITY, mTrashViewRect);
+        final int x = mPositionX[index];
+        final int y = mPositionY[index];
+        mFloatingViewRect.set(x, y, x + VIEW_SIZE, y + VIEW_SIZE);
+        return PositionCalculator.isIntersecting(mFloatingViewRect, true, mTrashViewRect);
+    }
+
+    /**
+     * FloatingViewManager#isTrajectoryIntersectWithTrashの軌道と削除アイコンの交差判定
+     */
+    @Benchmark
+    public boolean trashTrajectoryHitTest() {
+        final int index = nextIndex();
+        final float iconSize = 56 * DENSITY;
+        final float iconX = (SCREEN_WIDTH - iconSize) / 2 + mTrashIconLimitPosition.left;
+        PositionCalculator.calcTrashCaptureRect(iconX, 40 * DENSITY, iconSize, iconSize, (int) (164 * DENSITY), 0.0f, 0.0f, mTrashViewRect);
+        final float startX = mPositionX[index] + VIEW_SIZE / 2.0f;
+        final float startY = mPositionY[index] + VIEW_SIZE / 2.0f;
+        final float endX = startX + (SCREEN_WIDTH / 2.0f - startX) * 0.2f;
+        final float endY = startY - SCREEN_HEIGHT * 0.2f;
+        final float halfSize = VIEW_SIZE / 2.0f;
+        return PositionCalculator.isSegmentIntersecting(startX, startY, endX, endY,
+                mTrashViewRect.left - halfSize, mTrashViewRect.top - halfSize, mTrashViewRect.right + halfSize, mTrashViewRect.bottom + halfSize);
+    }
+
+    /**
+     * FloatingViewManager#findDropTargetのグリッド索引による検索
+     */
+    @Benchmark
+    public int dropTargetHitTest() {
+        final int index = nextIndex();
+        final int x = mPositionX[index];
+        final int y = mPositionY[index];
+        mFloatingViewRect.set(x, y, x + VIEW_SIZE, y + VIEW_SIZE);
+        return mDropTargetIndex.findTarget(mFloatingViewRect, true);
+    }
+
+    /**
+     * FloatingView#findAnchorの最も近い吸着先の検索
+     */
+    @Benchmark
+    public int nearestAnchor() {
+        final int index = nextIndex();
+        return mAnchorIndex.findNearest(mPositionX[index], mPositionY[index]);
+    }
+
+    /**
+     * FloatingView#updateViewLayoutの移動限界の計算と縦横切替時の座標変換
+     */
+    @Benchmark
+    public void rotationLayout(Blackhole blackhole) {
+        final int index = nextIndex();
+        // 縦→横
+        PositionCalculator.calcLimitRects(SCREEN_WIDTH, SCREEN_HEIGHT, VIEW_SIZE, VIEW_SIZE, OVER_MARGIN, STATUS_BAR_HEIGHT, mMoveLimitRect, mPositionLimitRect);
+        final int oldPositionLimitWidth = mPositionLimitRect.width();
+        final int oldPositionLimitHeight = mPositionLimitRect.height();
+        PositionCalculator.calcLimitRects(SCREEN_HEIGHT, SCREEN_WIDTH, VIEW_SIZE, VIEW_SIZE, OVER_MARGIN, STATUS_BAR_HEIGHT, mMoveLimitRect, mPositionLimitRect);
+        blackhole.consume(PositionCalculator.calcRotatedPositionX(mPositionX[index], mPositionLimitRect, oldPositionLimitWidth));
+        blackhole.consume(PositionCalculator.calcRotatedPositionY(mPositionY[index], mPositionLimitRect, oldPositionLimitHeight));
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Rect;
+
+/**
+ * 吸着先の座標を2次元木（k-d tree）で索引するクラスです。<br/>
+ * 木は配列上に平坦化され、各範囲の中央の要素がその範囲の節になります。（深さが偶数の節はX軸、奇数の節はY軸で分割）<br/>
+ * JVM上のベンチマークからも利用されるため、Rect以外のAndroidのクラスを参照しないこと。
+ */
+final class AnchorIndex {
+
+    /**
+     * 吸着先が存在しない場合の位置
+     */
+    static final int NO_ANCHOR = -1;
+
+    /**
+     * 吸着先のX座標（木の順序）
+     */
+    private int[] mX;
+
+    /**
+     * 吸着先のY座標（木の順序）
+     */
+    private int[] mY;
+
+    /**
+     * 吸着先の数
+     */
+    private int mSize;
+
+    /**
+     * 検索中の最も近い吸着先の位置
+     */
+    private int mNearestIndex;
+
+    /**
+     * 検索中の最も近い吸着先までの距離の2乗
+     */
+    private long mNearestDistance;
+
+    /**
+     * コンストラクタ
+     */
+    AnchorIndex() {
+        mX = new int[0];
+        mY = new int[0];
+    }
+
+    /**
+     * 吸着先の比率を表示位置の限界に当てはめて木を構築します。
+     *
+     * @param fractionX         吸着先のX座標の比率(0.0から1.0)
+     * @param fractionY         吸着先のY座標の比率(0.0から1.0、下端が0.0)
+     * @param count             吸着先の数
+     * @param positionLimitRect 表示位置の限界を表すRect
+     */
+    void build(float[] fractionX, float[] fractionY, int count, Rect positionLimitRect) {
+        if (mX.length < count) {
+            mX = new int[count];
+            mY = new int[count];
+        }
+        final int width = positionLimitRect.width();
+        final int height = positionLimitRect.height();
+        for (int i = 0; i < count; i++) {
+            mX[i] = positionLimitRect.left + (int) (width * fractionX[i] + 0.5f);
+            mY[i] = positionLimitRect.top + (int) (height * fractionY[i] + 0.5f);
+        }
+        mSize = count;
+        buildTree(0, count, 0);
+    }
+
+    /**
+     * 吸着先の数を取得します。
+     *
+     * @return 吸着先の数
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * 吸着先のX座標を取得します。
+     *
+     * @param index 吸着先の位置
+     * @return X座標
+     */
+    int getX(int index) {
+        return mX[index];
+    }
+
+    /**
+     * 吸着先のY座標を取得します。
+     *
+     * @param index 吸着先の位置
+     * @return Y座標
+     */
+    int getY(int index) {
+        return mY[index];
+    }
+
+    /**
+     * 指定座標に最も近い吸着先を検索します。
+     *
+     * @param x X座標
+     * @param y Y座標
+     * @return 吸着先の位置（吸着先がない場合はNO_ANCHOR）
+     */
+    int findNearest(int x, int y) {
+        mNearestIndex = NO_ANCHOR;
+        mNearestDistance = Long.MAX_VALUE;
+        searchTree(0, mSize, 0, x, y);
+        return mNearestIndex;
+    }
+
+    /**
+     * 範囲の中央に分割軸の中央値が来るように並べ替え、両側を再帰的に構築します。
+     *
+     * @param from  範囲の先頭
+     * @param to    範囲の末尾（含まない）
+     * @param depth 木の深さ
+     */
+    private void buildTree(int from, int to, int depth) {
+        if (to - from <= 1) {
+            return;
+        }
+        final int median = (from + to) >>> 1;
+        select(from, to - 1, median, (depth & 1) == 0);
+        buildTree(from, median, depth + 1);
+        buildTree(median + 1, to, depth + 1);
+    }
+
+    /**
+     * k番目の要素が正しい位置に来るように範囲を部分的に並べ替えます。(quickselect)
+     *
+     * @param left    範囲の先頭
+     * @param right   範囲の末尾（含む）
+     * @param k       位置を確定させる要素
+     * @param isAxisX X軸で比較する場合はtrue
+     */
+    private void select(int left, int right, int k, boolean isAxisX) {
+        final int[] keys = isAxisX ? mX : mY;
+        while (left < right) {
+            final int pivot = keys[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 2つの吸着先を入れ替えます。
+     */
+    private void swap(int i, int j) {
+        final int x = mX[i];
+        final int y = mY[i];
+        mX[i] = mX[j];
+        mY[i] = mY[j];
+        mX[j] = x;
+        mY[j] = y;
+    }
+
+    /**
+     * 最も近い吸着先を再帰的に検索します。
+     *
+     * @param from  範囲の先頭
+     * @param to    範囲の末尾（含まない）
+     * @param depth 木の深さ
+     * @param x     X座標
+     * @param y     Y座標
+     */
+    private void searchTree(int from, int to, int depth, int x, int y) {
+        if (from >= to) {
+            return;
+        }
+        final int median = (from + to) >>> 1;
+        final long dx = mX[median] - x;
+        final long dy = mY[median] - y;
+        final long distance = dx * dx + dy * dy;
+        if (distance < mNearestDistance) {
+            mNearestDistance = distance;
+            mNearestIndex = median;
+        }
+        // 検索点側の部分木を先に探索し、分割面までの距離が最短距離より近い場合のみ反対側を探索
+        final long delta = (depth & 1) == 0 ? x - mX[median] : y - mY[median];
+        if (delta < 0) {
+            searchTree(from, median, depth + 1, x, y);
+            if (delta * delta < mNearestDistance) {
+                searchTree(median + 1, to, depth + 1, x, y);
+            }
+        } else {
+            searchTree(median + 1, to, depth + 1, x, y);
+            if (delta * delta < mNearestDistance) {
+                searchTree(from, median, depth + 1, x, y);
+            }
+        }
+    }
+}
@@ -0,0 +1,562 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * FloatingHeadViewのアバター画像を読み込むクラスです。<br/>
+ * 画像はバックグラウンドのスレッドでアバター画像の描画範囲の大きさに縮小してデコードし、全てのFloatingViewManagerで共有するキャッシュに保持します。
+ * キャッシュから外れた画像は再利用するため、多数のFloatingHeadViewを同時に表示してもメインスレッドでのデコードやメモリの確保が発生しません。<br/>
+ * 読み込みが完了するまでFloatingHeadViewは単色で描画されます。<br/>
+ * メインスレッドから呼び出します。
+ */
+public final class AvatarLoader {
+
+    /**
+     * ログのタグ
+     */
+    private static final String TAG = "AvatarLoader";
+
+    /**
+     * 最大のメモリに対するキャッシュの大きさの割合
+     */
+    private static final int CACHE_MEMORY_DIVISOR = 16;
+
+    /**
+     * キャッシュに対する再利用する画像の大きさの割合
+     */
+    private static final int REUSABLE_POOL_DIVISOR = 4;
+
+    /**
+     * 読み込み完了を表すメッセージ
+     */
+    private static final int MSG_LOADED = 1;
+
+    /**
+     * 全てのFloatingViewManagerで共有するインスタンス
+     */
+    private static AvatarLoader sInstance;
+
+    /**
+     * Resources
+     */
+    private final Resources mResources;
+
+    /**
+     * デコード済みの画像のキャッシュ（キーはソースと大きさ）
+     */
+    private final LruCache<String, Bitmap> mCache;
+
+    /**
+     * キャッシュから外れた再利用可能な画像
+     */
+    private final ArrayList<Bitmap> mReusableBitmaps;
+
+    /**
+     * 再利用可能な画像の合計の大きさの上限(byte)
+     */
+    private final int mMaxReusableBytes;
+
+    /**
+     * 再利用可能な画像の合計の大きさ(byte)
+     */
+    private int mReusableBytes;
+
+    /**
+     * FloatingHeadViewごとの表示するべき画像のキー（読み込みを取り消した場合はnull）<br/>
+     * 表示中の画像を再利用しないように、取り消した後も保持します。
+     */
+    private final WeakHashMap<FloatingHeadView, String> mBoundKeys;
+
+    /**
+     * 読み込み中の画像のキー
+     */
+    private final HashSet<String> mLoadingKeys;
+
+    /**
+     * デコードを行うスレッドのハンドラ
+     */
+    private final Handler mDecodeHandler;
+
+    /**
+     * 読み込み結果を受け取るメインスレッドのハンドラ
+     */
+    private final Handler mMainHandler;
+
+    /**
+     * 縮小描画用のPaint（デコードスレッドのみで使用）
+     */
+    private final Paint mScalePaint;
+
+    /**
+     * 縮小描画用の行列（デコードスレッドのみで使用）
+     */
+    private final Matrix mScaleMatrix;
+
+    /**
+     * 共有するインスタンスを取得します。
+     *
+     * @param context Context
+     * @return AvatarLoader
+     */
+    public static synchronized AvatarLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AvatarLoader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param context Context
+     */
+    private AvatarLoader(Context context) {
+        this(context, (int) Math.min(Runtime.getRuntime().maxMemory() / CACHE_MEMORY_DIVISOR, Integer.MAX_VALUE), createDecodeLooper());
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param context       Context
+     * @param maxCacheBytes キャッシュの大きさの上限(byte)
+     * @param decodeLooper  デコードを行うスレッドのLooper
+     */
+    AvatarLoader(Context context, int maxCacheBytes, Looper decodeLooper) {
+        mResources = context.getResources();
+        mMaxReusableBytes = maxCacheBytes / REUSABLE_POOL_DIVISOR;
+        mReusableBitmaps = new ArrayList<>();
+        mBoundKeys = new WeakHashMap<>();
+        mLoadingKeys = new HashSet<>();
+        mCache = new LruCache<String, Bitmap>(maxCacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return getBitmapBytes(value);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                // 表示中でない画像は再利用する
+                if (evicted && !isDisplayed(oldValue)) {
+                    addReusableBitmap(oldValue);
+                }
+            }
+        };
+        mScalePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        mScaleMatrix = new Matrix();
+        mDecodeHandler = new Handler(decodeLooper);
+        mMainHandler = new Handler(Looper.getMainLooper()) {
+            @Override
+            public void handleMessage(Message msg) {
+                if (msg.what == MSG_LOADED) {
+                    final Request request = (Request) msg.obj;
+                    onLoaded(request.key, request.bitmap);
+                }
+            }
+        };
+    }
+
+    /**
+     * デコードを行うスレッドを開始します。
+     *
+     * @return デコードを行うスレッドのLooper
+     */
+    private static Looper createDecodeLooper() {
+        final HandlerThread decodeThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        decodeThread.start();
+        return decodeThread.getLooper();
+    }
+
+    /**
+     * リソースの画像を読み込み、FloatingHeadViewに表示します。
+     *
+     * @param view  FloatingHeadView
+     * @param resId drawable ID（ビットマップ画像）
+     */
+    public void load(FloatingHeadView view, int resId) {
+        load(view, new Request(view, resId, null));
+    }
+
+    /**
+     * ファイルの画像を読み込み、FloatingHeadViewに表示します。
+     *
+     * @param view FloatingHeadView
+     * @param file 画像ファイル
+     */
+    public void load(FloatingHeadView view, File file) {
+        load(view, new Request(view, 0, file));
+    }
+
+    /**
+     * FloatingHeadViewの読み込みを取り消します。表示中の画像はそのままで、表示している間は再利用しません。
+     *
+     * @param view FloatingHeadView
+     */
+    public void cancel(FloatingHeadView view) {
+        if (mBoundKeys.containsKey(view)) {
+            mBoundKeys.put(view, null);
+        }
+    }
+
+    /**
+     * キャッシュと再利用する画像を破棄します。
+     */
+    public void clearCache() {
+        mCache.evictAll();
+        synchronized (mReusableBitmaps) {
+            mReusableBitmaps.clear();
+            mReusableBytes = 0;
+        }
+    }
+
+    /**
+     * 画像を読み込みます。
+     *
+     * @param view    FloatingHeadView
+     * @param request 読み込み要求
+     */
+    private void load(FloatingHeadView view, final Request request) {
+        mBoundKeys.put(view, request.key);
+        // キャッシュにある場合は即時に表示
+        final Bitmap cached = mCache.get(request.key);
+        if (cached != null) {
+            view.setAvatarBitmap(cached);
+            return;
+        }
+        // 読み込みが完了するまでは単色で表示
+        view.setAvatarBitmap(null);
+        // 同じ画像を読み込み中の場合は完了を待つ
+        if (!mLoadingKeys.add(request.key)) {
+            return;
+        }
+        mDecodeHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                request.bitmap = decode(request);
+                mMainHandler.obtainMessage(MSG_LOADED, request).sendToTarget();
+            }
+        });
+    }
+
+    /**
+     * 読み込みが完了した画像を、その画像を表示するべきFloatingHeadViewに表示します。
+     *
+     * @param key    画像のキー
+     * @param bitmap 画像（失敗した場合はnull）
+     */
+    private void onLoaded(String key, Bitmap bitmap) {
+        mLoadingKeys.remove(key);
+        if (bitmap == null) {
+            return;
+        }
+        mCache.put(key, bitmap);
+        final Iterator<Map.Entry<FloatingHeadView, String>> iterator = mBoundKeys.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<FloatingHeadView, String> entry = iterator.next();
+            final FloatingHeadView view = entry.getKey();
+            if (view != null && key.equals(entry.getValue())) {
+                view.setAvatarBitmap(bitmap);
+            }
+        }
+    }
+
+    /**
+     * 画像を表示中のFloatingHeadViewがあるかチェックします。
+     *
+     * @param bitmap 画像
+     * @return 表示中の場合はtrue（再利用しない）
+     */
+    private boolean isDisplayed(Bitmap bitmap) {
+        for (FloatingHeadView view : mBoundKeys.keySet()) {
+            if (view != null && view.getAvatarBitmap() == bitmap) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * デコードした画像の数を取得します。
+     *
+     * @return デコードした画像の数
+     */
+    int getDecodedCount() {
+        return mCache.putCount();
+    }
+
+    /**
+     * 画像を表示する大きさに縮小してデコードします。（デコードスレッドで呼び出されます）
+     *
+     * @param request 読み込み要求
+     * @return 表示する大きさの画像（失敗した場合はnull）
+     */
+    private Bitmap decode(Request request) {
+        // 画像の大きさのみを取得
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decodeSource(request, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        // 表示する大きさを下回らない範囲で縮小してデコード
+        options.inSampleSize = calcInSampleSize(options.outWidth, options.outHeight, request.width, request.height);
+        options.inJustDecodeBounds = false;
+        options.inMutable = true;
+        options.inBitmap = findReusableBitmap(options);
+        Bitmap source;
+        try {
+            source = decodeSource(request, options);
+        } catch (IllegalArgumentException e) {
+            // 再利用できなかった場合
+            addReusableBitmap(options.inBitmap);
+            options.inBitmap = null;
+            source = decodeSource(request, options);
+        }
+        if (source == null) {
+            return null;
+        }
+        // 表示する大きさに中央で切り抜いて描画
+        final Bitmap avatar = obtainBitmap(request.width, request.height);
+        final float scale = Math.max((float) request.width / source.getWidth(), (float) request.height / source.getHeight());
+        mScaleMatrix.setScale(scale, scale);
+        mScaleMatrix.postTranslate((request.width - source.getWidth() * scale) / 2, (request.height - source.getHeight() * scale) / 2);
+        final Canvas canvas = new Canvas(avatar);
+        canvas.drawBitmap(source, mScaleMatrix, mScalePaint);
+        addReusableBitmap(source);
+        return avatar;
+    }
+
+    /**
+     * 読み込み要求のソースをデコードします。
+     *
+     * @param request 読み込み要求
+     * @param options BitmapFactory.Options
+     * @return 画像（大きさのみを取得する場合や失敗した場合はnull）
+     */
+    private Bitmap decodeSource(Request request, BitmapFactory.Options options) {
+        if (request.file != null) {
+            return BitmapFactory.decodeFile(request.file.getPath(), options);
+        }
+        // 密度による拡大・縮小を行わないようにストリームからデコード
+        InputStream stream = null;
+        try {
+            stream = mResources.openRawResource(request.resId);
+            return BitmapFactory.decodeStream(stream, null, options);
+        } catch (Resources.NotFoundException e) {
+            Log.w(TAG, "Failed to open avatar resource: " + request.resId, e);
+            return null;
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                    // 読み込み済みのため無視
+                }
+            }
+        }
+    }
+
+    /**
+     * 表示する大きさを下回らない最大の縮小率(2の累乗)を計算します。
+     *
+     * @param width        画像の幅
+     * @param height       画像の高さ
+     * @param targetWidth  表示する幅
+     * @param targetHeight 表示する高さ
+     * @return BitmapFactory.Options.inSampleSize
+     */
+    static int calcInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int inSampleSize = 1;
+        while (width / (inSampleSize * 2) >= targetWidth && height / (inSampleSize * 2) >= targetHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * 指定の大きさの画像を再利用する画像から取得し、ない場合は生成します。
+     *
+     * @param width  幅
+     * @param height 高さ
+     * @return 透明な画像
+     */
+    private Bitmap obtainBitmap(int width, int height) {
+        synchronized (mReusableBitmaps) {
+            for (int i = mReusableBitmaps.size() - 1; i >= 0; i--) {
+                final Bitmap bitmap = mReusableBitmaps.get(i);
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == Bitmap.Config.ARGB_8888) {
+                    mReusableBitmaps.remove(i);
+                    mReusableBytes -= getBitmapBytes(bitmap);
+                    bitmap.eraseColor(0);
+                    return bitmap;
+                }
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * デコードに再利用できる画像を取得します。
+     *
+     * @param options 大きさと縮小率を設定したBitmapFactory.Options
+     * @return 再利用できる画像（ない場合はnull）
+     */
+    private Bitmap findReusableBitmap(BitmapFactory.Options options) {
+        final int width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+        final int height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+        synchronized (mReusableBitmaps) {
+            for (int i = mReusableBitmaps.size() - 1; i >= 0; i--) {
+                final Bitmap bitmap = mReusableBitmaps.get(i);
+                if (canReuse(bitmap, width, height, options.inSampleSize)) {
+                    mReusableBitmaps.remove(i);
+                    mReusableBytes -= getBitmapBytes(bitmap);
+                    return bitmap;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * デコードに画像を再利用できるかチェックします。
+     *
+     * @param bitmap       再利用する画像
+     * @param width        デコード後の幅
+     * @param height       デコード後の高さ
+     * @param inSampleSize 縮小率
+     * @return 再利用できる場合はtrue
+     */
+    private static boolean canReuse(Bitmap bitmap, int width, int height, int inSampleSize) {
+        // API 19未満は同じ大きさで縮小しない場合のみ
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            return inSampleSize == 1 && bitmap.getWidth() == width && bitmap.getHeight() == height;
+        }
+        return width * height * 4 <= getBitmapBytes(bitmap);
+    }
+
+    /**
+     * 画像を再利用できるように保持します。上限を超える場合は破棄します。
+     *
+     * @param bitmap 画像
+     */
+    private void addReusableBitmap(Bitmap bitmap) {
+        if (bitmap == null || !bitmap.isMutable() || bitmap.isRecycled()) {
+            return;
+        }
+        final int bytes = getBitmapBytes(bitmap);
+        synchronized (mReusableBitmaps) {
+            // 古いものから破棄
+            while (!mReusableBitmaps.isEmpty() && mReusableBytes + bytes > mMaxReusableBytes) {
+                mReusableBytes -= getBitmapBytes(mReusableBitmaps.remove(0));
+            }
+            if (mReusableBytes + bytes <= mMaxReusableBytes) {
+                mReusableBitmaps.add(bitmap);
+                mReusableBytes += bytes;
+            }
+        }
+    }
+
+    /**
+     * 画像が使用しているメモリの大きさを取得します。
+     *
+     * @param bitmap 画像
+     * @return 大きさ(byte)
+     */
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static int getBitmapBytes(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+
+    /**
+     * 読み込み要求です。
+     */
+    private static class Request {
+
+        /**
+         * キャッシュのキー
+         */
+        final String key;
+
+        /**
+         * drawable ID（ファイルの場合は0）
+         */
+        final int resId;
+
+        /**
+         * 画像ファイル（リソースの場合はnull）
+         */
+        final File file;
+
+        /**
+         * 表示する幅
+         */
+        final int width;
+
+        /**
+         * 表示する高さ
+         */
+        final int height;
+
+        /**
+         * デコードした画像
+         */
+        Bitmap bitmap;
+
+        /**
+         * コンストラクタ
+         *
+         * @param view  表示するFloatingHeadView
+         * @param resId drawable ID
+         * @param file  画像ファイル
+         */
+        Request(FloatingHeadView view, int resId, File file) {
+            this.resId = resId;
+            this.file = file;
+            width = Math.max(view.getAvatarWidth(), 1);
+            height = Math.max(view.getAvatarHeight(), 1);
+            key = (file != null ? file.getPath() : "res:" + resId) + "@" + width + "x" + height;
+        }
+    }
+}
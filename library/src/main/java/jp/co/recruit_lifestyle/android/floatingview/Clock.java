@@ -0,0 +1,43 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.os.SystemClock;
+
+/**
+ * アニメーションの経過時間の計算に使用する時計です。<br/>
+ * テストでは任意に進められる時計に差し替えます。
+ */
+interface Clock {
+
+    /**
+     * SystemClockを使用する時計
+     */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+    };
+
+    /**
+     * 起動からの経過時間を取得します。
+     *
+     * @return 起動からの経過時間(ミリ秒)
+     */
+    long uptimeMillis();
+}
@@ -0,0 +1,329 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Rect;
+
+import java.util.Arrays;
+
+/**
+ * ドロップ先の矩形を均一なグリッドで索引するクラスです。<br/>
+ * 索引は登録内容が変化した後の最初の検索時にのみ再構築され、検索時はFloatingViewと重なるセルの対象のみを判定します。<br/>
+ * JVM上のベンチマークからも利用されるため、Rect以外のAndroidのクラスを参照しないこと。
+ */
+final class DropTargetIndex {
+
+    /**
+     * 対象が見つからない場合の位置
+     */
+    static final int NO_TARGET = -1;
+
+    /**
+     * グリッドの1辺の最大セル数
+     */
+    private static final int MAX_GRID_SIZE = 32;
+
+    /**
+     * 配列の初期サイズ
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * セルの最小の大きさ(px)
+     */
+    private final int mMinCellSize;
+
+    /**
+     * 対象のID
+     */
+    private int[] mIds;
+
+    /**
+     * 対象の矩形
+     */
+    private Rect[] mRects;
+
+    /**
+     * 対象の数
+     */
+    private int mSize;
+
+    /**
+     * 索引の再構築が必要な場合はtrue
+     */
+    private boolean mIsDirty;
+
+    /**
+     * グリッドの左端
+     */
+    private int mGridLeft;
+
+    /**
+     * グリッドの上端
+     */
+    private int mGridTop;
+
+    /**
+     * グリッドの列数
+     */
+    private int mColumns;
+
+    /**
+     * グリッドの行数
+     */
+    private int mRows;
+
+    /**
+     * セルの幅
+     */
+    private int mCellWidth;
+
+    /**
+     * セルの高さ
+     */
+    private int mCellHeight;
+
+    /**
+     * セルごとの対象の位置（行優先）
+     */
+    private int[][] mCells;
+
+    /**
+     * 1回の検索で同じ対象を重複して判定しないための印
+     */
+    private int[] mVisitStamps;
+
+    /**
+     * 現在の検索の印
+     */
+    private int mStamp;
+
+    /**
+     * コンストラクタ
+     *
+     * @param minCellSize セルの最小の大きさ(px)
+     */
+    DropTargetIndex(int minCellSize) {
+        mMinCellSize = Math.max(minCellSize, 1);
+        mIds = new int[INITIAL_CAPACITY];
+        mRects = new Rect[INITIAL_CAPACITY];
+        mVisitStamps = new int[INITIAL_CAPACITY];
+        mCells = new int[0][];
+    }
+
+    /**
+     * 対象を登録します。同じIDの対象が存在する場合は矩形を置き換えます。
+     *
+     * @param id   対象のID
+     * @param rect 対象の矩形（コピーして保持します）
+     */
+    void put(int id, Rect rect) {
+        int index = indexOf(id);
+        if (index == NO_TARGET) {
+            if (mSize == mIds.length) {
+                grow();
+            }
+            index = mSize++;
+            mIds[index] = id;
+            mRects[index] = new Rect();
+        }
+        mRects[index].set(rect.left, rect.top, rect.right, rect.bottom);
+        mIsDirty = true;
+    }
+
+    /**
+     * 対象を削除します。
+     *
+     * @param id 対象のID
+     * @return 削除した場合はtrue
+     */
+    boolean remove(int id) {
+        final int index = indexOf(id);
+        if (index == NO_TARGET) {
+            return false;
+        }
+        // 登録順を保つ
+        final Rect removed = mRects[index];
+        System.arraycopy(mIds, index + 1, mIds, index, mSize - index - 1);
+        System.arraycopy(mRects, index + 1, mRects, index, mSize - index - 1);
+        mSize--;
+        mRects[mSize] = removed;
+        mIsDirty = true;
+        return true;
+    }
+
+    /**
+     * 全ての対象を削除します。
+     */
+    void clear() {
+        mSize = 0;
+        mIsDirty = true;
+    }
+
+    /**
+     * 登録されている対象の数を取得します。
+     *
+     * @return 対象の数
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * 対象のIDを取得します。
+     *
+     * @param index 対象の位置
+     * @return 対象のID
+     */
+    int getId(int index) {
+        return mIds[index];
+    }
+
+    /**
+     * FloatingViewと重なる対象を検索します。複数の対象と重なる場合は先に登録された対象を返します。
+     *
+     * @param viewRect FloatingViewの矩形
+     * @param isCircle FloatingViewが円形の場合はtrue
+     * @return 対象の位置（見つからない場合はNO_TARGET）
+     */
+    int findTarget(Rect viewRect, boolean isCircle) {
+        if (mSize == 0) {
+            return NO_TARGET;
+        }
+        if (mIsDirty) {
+            rebuild();
+        }
+
+        // FloatingViewと重なるセルの範囲
+        final int firstColumn = Math.max((viewRect.left - mGridLeft) / mCellWidth, 0);
+        final int lastColumn = Math.min((viewRect.right - 1 - mGridLeft) / mCellWidth, mColumns - 1);
+        final int firstRow = Math.max((viewRect.top - mGridTop) / mCellHeight, 0);
+        final int lastRow = Math.min((viewRect.bottom - 1 - mGridTop) / mCellHeight, mRows - 1);
+        if (viewRect.right <= mGridLeft || viewRect.bottom <= mGridTop || firstColumn > lastColumn || firstRow > lastRow) {
+            return NO_TARGET;
+        }
+
+        if (++mStamp == 0) {
+            Arrays.fill(mVisitStamps, 0);
+            mStamp = 1;
+        }
+        int found = NO_TARGET;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                final int[] cell = mCells[row * mColumns + column];
+                for (int index : cell) {
+                    // 判定済み、または既に見つかった対象より後に登録された対象は判定しない
+                    if (mVisitStamps[index] == mStamp || (found != NO_TARGET && index >= found)) {
+                        continue;
+                    }
+                    mVisitStamps[index] = mStamp;
+                    if (PositionCalculator.isIntersecting(viewRect, isCircle, mRects[index])) {
+                        found = index;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * IDから対象の位置を取得します。
+     *
+     * @param id 対象のID
+     * @return 対象の位置（見つからない場合はNO_TARGET）
+     */
+    private int indexOf(int id) {
+        for (int i = 0; i < mSize; i++) {
+            if (mIds[i] == id) {
+                return i;
+            }
+        }
+        return NO_TARGET;
+    }
+
+    /**
+     * 配列を拡張します。
+     */
+    private void grow() {
+        final int newCapacity = mIds.length * 2;
+        final int[] ids = new int[newCapacity];
+        final Rect[] rects = new Rect[newCapacity];
+        System.arraycopy(mIds, 0, ids, 0, mSize);
+        System.arraycopy(mRects, 0, rects, 0, mSize);
+        mIds = ids;
+        mRects = rects;
+        mVisitStamps = new int[newCapacity];
+        mStamp = 0;
+    }
+
+    /**
+     * 全ての対象を包む範囲をグリッドに分割し、各セルに重なる対象を登録します。
+     */
+    private void rebuild() {
+        mIsDirty = false;
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        for (int i = 0; i < mSize; i++) {
+            final Rect rect = mRects[i];
+            left = Math.min(left, rect.left);
+            top = Math.min(top, rect.top);
+            right = Math.max(right, rect.right);
+            bottom = Math.max(bottom, rect.bottom);
+        }
+        final int width = Math.max(right - left, 1);
+        final int height = Math.max(bottom - top, 1);
+        mGridLeft = left;
+        mGridTop = top;
+        mCellWidth = Math.max(mMinCellSize, (width + MAX_GRID_SIZE - 1) / MAX_GRID_SIZE);
+        mCellHeight = Math.max(mMinCellSize, (height + MAX_GRID_SIZE - 1) / MAX_GRID_SIZE);
+        mColumns = (width + mCellWidth - 1) / mCellWidth;
+        mRows = (height + mCellHeight - 1) / mCellHeight;
+
+        // セルごとの対象数を数えてから登録
+        final int[] counts = new int[mColumns * mRows];
+        for (int pass = 0; pass < 2; pass++) {
+            if (pass == 1) {
+                mCells = new int[counts.length][];
+                for (int i = 0; i < counts.length; i++) {
+                    mCells[i] = new int[counts[i]];
+                    counts[i] = 0;
+                }
+            }
+            for (int i = 0; i < mSize; i++) {
+                final Rect rect = mRects[i];
+                if (rect.left >= rect.right || rect.top >= rect.bottom) {
+                    continue;
+                }
+                final int firstColumn = (rect.left - mGridLeft) / mCellWidth;
+                final int lastColumn = Math.min((rect.right - 1 - mGridLeft) / mCellWidth, mColumns - 1);
+                final int firstRow = (rect.top - mGridTop) / mCellHeight;
+                final int lastRow = Math.min((rect.bottom - 1 - mGridTop) / mCellHeight, mRows - 1);
+                for (int row = firstRow; row <= lastRow; row++) {
+                    for (int column = firstColumn; column <= lastColumn; column++) {
+                        final int cell = row * mColumns + column;
+                        if (pass == 1) {
+                            mCells[cell][counts[cell]] = i;
+                        }
+                        counts[cell]++;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * バケット境界が固定されたヒストグラムです。<br/>
+ * 記録時にロックやメモリ確保を行わないため、アニメーション中でも使用できます。
+ */
+final class FixedBucketHistogram {
+
+    /**
+     * 各バケットの上限値（この値以下の値がバケットに入る）
+     */
+    private final long[] mUpperBounds;
+
+    /**
+     * 各バケットの件数（最後の要素は上限値を超えた件数）
+     */
+    private final AtomicLongArray mCounts;
+
+    /**
+     * 記録した値の合計
+     */
+    private final AtomicLong mSum;
+
+    /**
+     * 記録した値の最大値
+     */
+    private final AtomicLong mMax;
+
+    /**
+     * コンストラクタ
+     *
+     * @param upperBounds 昇順に並んだ各バケットの上限値
+     */
+    FixedBucketHistogram(long[] upperBounds) {
+        mUpperBounds = upperBounds;
+        mCounts = new AtomicLongArray(upperBounds.length + 1);
+        mSum = new AtomicLong();
+        mMax = new AtomicLong();
+    }
+
+    /**
+     * 値を記録します。
+     *
+     * @param value 記録する値（負の値は0として扱います）
+     */
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        mCounts.incrementAndGet(findBucket(value));
+        mSum.addAndGet(value);
+        long max = mMax.get();
+        while (value > max && !mMax.compareAndSet(max, value)) {
+            max = mMax.get();
+        }
+    }
+
+    /**
+     * 値が入るバケットの位置を二分探索で求めます。
+     *
+     * @param value 値
+     * @return バケットの位置
+     */
+    private int findBucket(long value) {
+        int low = 0;
+        int high = mUpperBounds.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mUpperBounds[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * バケットの数（上限超過のバケットを含む）を取得します。
+     *
+     * @return バケットの数
+     */
+    int getBucketCount() {
+        return mCounts.length();
+    }
+
+    /**
+     * バケットの上限値の配列を取得します。
+     *
+     * @return バケットの上限値
+     */
+    long[] getUpperBounds() {
+        return mUpperBounds;
+    }
+
+    /**
+     * 現在の値を書き出します。<br/>
+     * 記録と並行して呼び出された場合、各値の間の厳密な整合性は保証されません。
+     *
+     * @param outCounts バケットごとの件数の書き出し先（getBucketCount()以上の長さ）
+     * @param outStats  合計・最大値の書き出し先（長さ2）
+     */
+    void snapshot(long[] outCounts, long[] outStats) {
+        final int size = mCounts.length();
+        for (int i = 0; i < size; i++) {
+            outCounts[i] = mCounts.get(i);
+        }
+        outStats[0] = mSum.get();
+        outStats[1] = mMax.get();
+    }
+
+    /**
+     * 記録した値を全て破棄します。
+     */
+    void reset() {
+        final int size = mCounts.length();
+        for (int i = 0; i < size; i++) {
+            mCounts.set(i, 0);
+        }
+        mSum.set(0);
+        mMax.set(0);
+    }
+}
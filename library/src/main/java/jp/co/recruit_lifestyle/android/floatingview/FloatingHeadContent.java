@@ -0,0 +1,148 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Bitmap;
+import android.view.View;
+
+/**
+ * FloatingHeadViewに表示する内容です。<br/>
+ * 値を変更する場合は新しいインスタンスを生成するため、別のスレッドからFloatingHeadUpdaterに送信できます。
+ */
+public final class FloatingHeadContent {
+
+    /**
+     * FloatingHeadViewに内容を反映するRenderer
+     */
+    public static final FloatingHeadUpdater.Renderer<FloatingHeadContent> RENDERER = new FloatingHeadUpdater.Renderer<FloatingHeadContent>() {
+        @Override
+        public boolean isRenderedEqual(FloatingHeadContent current, FloatingHeadContent next) {
+            return current.mAvatarBitmap == next.mAvatarBitmap
+                    && getRenderedBadgeCount(current.mBadgeCount) == getRenderedBadgeCount(next.mBadgeCount)
+                    && current.mProgress == next.mProgress;
+        }
+
+        @Override
+        public boolean isSizeChanging(FloatingHeadContent current, FloatingHeadContent next) {
+            // FloatingHeadViewの大きさは内容によって変わらない
+            return false;
+        }
+
+        @Override
+        public void apply(View view, FloatingHeadContent content) {
+            final FloatingHeadView headView = (FloatingHeadView) view;
+            headView.setAvatarBitmap(content.mAvatarBitmap);
+            headView.setBadgeCount(content.mBadgeCount);
+            headView.setProgress(content.mProgress);
+        }
+    };
+
+    /**
+     * アバター画像
+     */
+    private final Bitmap mAvatarBitmap;
+
+    /**
+     * 未読数
+     */
+    private final int mBadgeCount;
+
+    /**
+     * 進捗
+     */
+    private final float mProgress;
+
+    /**
+     * コンストラクタ
+     *
+     * @param avatarBitmap アバター画像（nullの場合は単色で描画）
+     * @param badgeCount   未読数（0以下の場合はバッジを表示しない）
+     * @param progress     進捗(0.0から1.0、FloatingHeadView.NO_PROGRESSの場合は進捗リングを表示しない)
+     */
+    public FloatingHeadContent(Bitmap avatarBitmap, int badgeCount, float progress) {
+        mAvatarBitmap = avatarBitmap;
+        mBadgeCount = Math.max(badgeCount, 0);
+        mProgress = progress < 0.0f ? FloatingHeadView.NO_PROGRESS : Math.min(progress, 1.0f);
+    }
+
+    /**
+     * アバター画像を変更した内容を生成します。
+     *
+     * @param avatarBitmap アバター画像
+     * @return FloatingHeadContent
+     */
+    public FloatingHeadContent withAvatarBitmap(Bitmap avatarBitmap) {
+        return new FloatingHeadContent(avatarBitmap, mBadgeCount, mProgress);
+    }
+
+    /**
+     * 未読数を変更した内容を生成します。
+     *
+     * @param badgeCount 未読数
+     * @return FloatingHeadContent
+     */
+    public FloatingHeadContent withBadgeCount(int badgeCount) {
+        return new FloatingHeadContent(mAvatarBitmap, badgeCount, mProgress);
+    }
+
+    /**
+     * 進捗を変更した内容を生成します。
+     *
+     * @param progress 進捗
+     * @return FloatingHeadContent
+     */
+    public FloatingHeadContent withProgress(float progress) {
+        return new FloatingHeadContent(mAvatarBitmap, mBadgeCount, progress);
+    }
+
+    /**
+     * アバター画像を取得します。
+     *
+     * @return アバター画像
+     */
+    public Bitmap getAvatarBitmap() {
+        return mAvatarBitmap;
+    }
+
+    /**
+     * 未読数を取得します。
+     *
+     * @return 未読数
+     */
+    public int getBadgeCount() {
+        return mBadgeCount;
+    }
+
+    /**
+     * 進捗を取得します。
+     *
+     * @return 進捗
+     */
+    public float getProgress() {
+        return mProgress;
+    }
+
+    /**
+     * バッジに表示される未読数を取得します。（最大の数を超える場合は同じ表示）
+     *
+     * @param badgeCount 未読数
+     * @return バッジに表示される未読数
+     */
+    private static int getRenderedBadgeCount(int badgeCount) {
+        return Math.min(badgeCount, FloatingHeadView.MAX_BADGE_COUNT + 1);
+    }
+}
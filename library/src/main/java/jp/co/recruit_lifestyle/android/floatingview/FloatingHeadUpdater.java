@@ -0,0 +1,243 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * FloatingViewに貼り付けたViewの内容を更新するクラスです。<br/>
+ * 内容はどのスレッドからでも送信でき、1フレームに最新の内容を最大1回だけ反映します。
+ * 描画結果が変わらない内容は反映せず、Windowの大きさが変わる内容はFloatingViewが操作・移動されていない状態になるまで反映を待ちます。
+ *
+ * @param <T> 内容の型（送信後に変更しないこと）
+ */
+public final class FloatingHeadUpdater<T> {
+
+    /**
+     * 内容をViewに反映するインターフェースです。
+     *
+     * @param <T> 内容の型
+     */
+    public interface Renderer<T> {
+
+        /**
+         * 描画結果が同じになるかチェックします。
+         *
+         * @param current 反映済みの内容
+         * @param next    新しい内容
+         * @return 描画結果が同じ場合はtrue（反映しない）
+         */
+        boolean isRenderedEqual(T current, T next);
+
+        /**
+         * Windowの大きさが変わるかチェックします。
+         *
+         * @param current 反映済みの内容
+         * @param next    新しい内容
+         * @return Windowの大きさが変わる場合はtrue（FloatingViewが待機状態になるまで反映しない）
+         */
+        boolean isSizeChanging(T current, T next);
+
+        /**
+         * 内容をViewに反映します。（メインスレッドで呼び出されます）
+         *
+         * @param view    FloatingViewに貼り付けたView
+         * @param content 内容
+         */
+        void apply(View view, T content);
+    }
+
+    /**
+     * 内容を反映するFloatingView
+     */
+    private final FloatingView mFloatingView;
+
+    /**
+     * 内容を反映するView
+     */
+    private final View mView;
+
+    /**
+     * Renderer
+     */
+    private final Renderer<T> mRenderer;
+
+    /**
+     * メインスレッドのハンドラ
+     */
+    private final Handler mHandler;
+
+    /**
+     * FloatingViewが待機状態になった際にフレームを予約するRunnable
+     */
+    private final Runnable mIdleRunnable;
+
+    /**
+     * 反映するフレームの予約
+     */
+    private final FrameClock mFrameClock;
+
+    /**
+     * フレームを予約するRunnable
+     */
+    private final Runnable mScheduleFrameRunnable;
+
+    /**
+     * 未反映の内容のロック
+     */
+    private final Object mLock;
+
+    /**
+     * 未反映の内容
+     */
+    private T mPendingContent;
+
+    /**
+     * 未反映の内容がある場合はtrue
+     */
+    private boolean mHasPendingContent;
+
+    /**
+     * フレームの予約を依頼済みの場合はtrue
+     */
+    private final AtomicBoolean mIsScheduleRequested;
+
+    /**
+     * 反映済みの内容（メインスレッドのみで使用）
+     */
+    private T mAppliedContent;
+
+    /**
+     * 内容を反映済みの場合はtrue（メインスレッドのみで使用）
+     */
+    private boolean mHasAppliedContent;
+
+    /**
+     * コンストラクタ（メインスレッドで生成します）
+     *
+     * @param floatingView 内容を反映するFloatingView
+     * @param view         内容を反映するView
+     * @param renderer     Renderer
+     */
+    FloatingHeadUpdater(FloatingView floatingView, View view, Renderer<T> renderer) {
+        mFloatingView = floatingView;
+        mView = view;
+        mRenderer = renderer;
+        mHandler = new Handler(Looper.getMainLooper());
+        mFrameClock = new FrameClock(new FrameClock.Callback() {
+            @Override
+            public void doFrame(long frameTimeMillis) {
+                applyPendingContent();
+            }
+        });
+        mScheduleFrameRunnable = new Runnable() {
+            @Override
+            public void run() {
+                mIsScheduleRequested.set(false);
+                mFrameClock.scheduleFrame();
+            }
+        };
+        mIdleRunnable = new Runnable() {
+            @Override
+            public void run() {
+                mFrameClock.scheduleFrame();
+            }
+        };
+        mLock = new Object();
+        mIsScheduleRequested = new AtomicBoolean();
+    }
+
+    /**
+     * 内容を送信します。（どのスレッドからでも呼び出せます）<br/>
+     * 次のフレームまでに複数回送信した場合は、最後の内容のみ反映します。
+     *
+     * @param content 内容
+     */
+    public void post(T content) {
+        synchronized (mLock) {
+            mPendingContent = content;
+            mHasPendingContent = true;
+        }
+        if (mIsScheduleRequested.compareAndSet(false, true)) {
+            mHandler.post(mScheduleFrameRunnable);
+        }
+    }
+
+    /**
+     * 未反映の内容を破棄します。
+     */
+    public void cancel() {
+        synchronized (mLock) {
+            mPendingContent = null;
+            mHasPendingContent = false;
+        }
+    }
+
+    /**
+     * 未反映の内容をViewに反映します。
+     */
+    private void applyPendingContent() {
+        final T content;
+        synchronized (mLock) {
+            if (!mHasPendingContent) {
+                return;
+            }
+            content = mPendingContent;
+            mPendingContent = null;
+            mHasPendingContent = false;
+        }
+        // FloatingViewから取り外された場合は反映しない
+        if (!mFloatingView.isContentView(mView)) {
+            return;
+        }
+        if (mHasAppliedContent) {
+            // 描画結果が変わらない場合
+            if (mRenderer.isRenderedEqual(mAppliedContent, content)) {
+                mAppliedContent = content;
+                return;
+            }
+            // Windowの大きさが変わる場合は待機状態になるまで待つ
+            if (mRenderer.isSizeChanging(mAppliedContent, content) && !mFloatingView.isIdle()) {
+                deferContent(content);
+                return;
+            }
+        }
+        mRenderer.apply(mView, content);
+        mFloatingView.onContentChanged();
+        mAppliedContent = content;
+        mHasAppliedContent = true;
+    }
+
+    /**
+     * 内容の反映をFloatingViewが待機状態になるまで延期します。延期中に新しい内容が送信された場合は新しい内容を優先します。
+     *
+     * @param content 内容
+     */
+    private void deferContent(T content) {
+        synchronized (mLock) {
+            if (!mHasPendingContent) {
+                mPendingContent = content;
+                mHasPendingContent = true;
+            }
+        }
+        mFloatingView.runWhenIdle(mIdleRunnable);
+    }
+}
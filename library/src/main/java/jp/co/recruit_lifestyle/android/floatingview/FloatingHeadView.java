@@ -0,0 +1,542 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PathMeasure;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Typeface;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * FloatingViewに貼り付けるアイコン用のViewです。<br/>
+ * アバター画像・未読バッジ・進捗リングを一つのViewで描画するため、入れ子のViewを使用する場合よりも描画の負荷が小さくなります。<br/>
+ * アバター画像はFloatingViewManager.Optionsのshapeに合わせて円形または四角形に切り抜かれます。
+ */
+public class FloatingHeadView extends View {
+
+    /**
+     * 進捗リングを表示しないことを表す値
+     */
+    public static final float NO_PROGRESS = -1.0f;
+
+    /**
+     * 標準の大きさ(dp)
+     */
+    private static final int DEFAULT_SIZE_DP = 56;
+
+    /**
+     * バッジの半径(dp)
+     */
+    private static final float BADGE_RADIUS_DP = 10.0f;
+
+    /**
+     * 進捗リングの太さの初期値(dp)
+     */
+    private static final float DEFAULT_PROGRESS_WIDTH_DP = 3.0f;
+
+    /**
+     * 進捗リングとアバター画像の間隔(dp)
+     */
+    private static final float PROGRESS_GAP_DP = 2.0f;
+
+    /**
+     * バッジに表示する最大の数
+     */
+    static final int MAX_BADGE_COUNT = 99;
+
+    /**
+     * 最大の数を超えた場合のバッジの表示
+     */
+    private static final String BADGE_OVERFLOW_TEXT = MAX_BADGE_COUNT + "+";
+
+    /**
+     * 画像がない場合の色の初期値
+     */
+    private static final int DEFAULT_PLACEHOLDER_COLOR = 0xFFBDBDBD;
+
+    /**
+     * バッジの色の初期値
+     */
+    private static final int DEFAULT_BADGE_COLOR = 0xFFF44336;
+
+    /**
+     * バッジの文字色の初期値
+     */
+    private static final int DEFAULT_BADGE_TEXT_COLOR = 0xFFFFFFFF;
+
+    /**
+     * 進捗リングの色の初期値
+     */
+    private static final int DEFAULT_PROGRESS_COLOR = 0xFF2196F3;
+
+    /**
+     * 画面密度
+     */
+    private final float mDensity;
+
+    /**
+     * Viewの形状（FloatingViewManager.SHAPE_CIRCLE or FloatingViewManager.SHAPE_RECTANGLE）
+     */
+    private float mShape;
+
+    /**
+     * アバター画像
+     */
+    private Bitmap mAvatarBitmap;
+
+    /**
+     * アバター画像を描画するPaint（BitmapShaderを保持）
+     */
+    private final Paint mAvatarPaint;
+
+    /**
+     * 画像がない場合に描画するPaint
+     */
+    private final Paint mPlaceholderPaint;
+
+    /**
+     * アバター画像の拡大・移動に使用する行列
+     */
+    private final Matrix mAvatarMatrix;
+
+    /**
+     * アバター画像の描画範囲
+     */
+    private final RectF mAvatarRect;
+
+    /**
+     * 未読数（0の場合はバッジを表示しない）
+     */
+    private int mBadgeCount;
+
+    /**
+     * バッジに表示する文字列
+     */
+    private String mBadgeText;
+
+    /**
+     * バッジを描画するPaint
+     */
+    private final Paint mBadgePaint;
+
+    /**
+     * バッジの文字を描画するPaint
+     */
+    private final Paint mBadgeTextPaint;
+
+    /**
+     * バッジの描画範囲
+     */
+    private final RectF mBadgeRect;
+
+    /**
+     * バッジの文字のベースラインのY座標
+     */
+    private float mBadgeTextBaseline;
+
+    /**
+     * 進捗(0.0から1.0、NO_PROGRESSの場合は表示しない)
+     */
+    private float mProgress;
+
+    /**
+     * 進捗リングを描画するPaint
+     */
+    private final Paint mProgressPaint;
+
+    /**
+     * 進捗リングの描画範囲
+     */
+    private final RectF mProgressRect;
+
+    /**
+     * 四角形の場合の進捗リングの経路（上端中央から時計回り）
+     */
+    private final Path mProgressPath;
+
+    /**
+     * 四角形の場合の進捗リングの経路の長さの計測
+     */
+    private final PathMeasure mProgressPathMeasure;
+
+    /**
+     * 四角形の場合の進捗に応じた進捗リングの経路
+     */
+    private final Path mProgressSegmentPath;
+
+    /**
+     * 進捗に応じた経路の再計算が必要な場合はtrue
+     */
+    private boolean mIsProgressPathDirty;
+
+    /**
+     * コンストラクタ
+     *
+     * @param context Context
+     */
+    public FloatingHeadView(Context context) {
+        this(context, null);
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param context Context
+     * @param attrs   AttributeSet
+     */
+    public FloatingHeadView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        mDensity = context.getResources().getDisplayMetrics().density;
+        mShape = FloatingViewManager.SHAPE_CIRCLE;
+        mAvatarPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        mPlaceholderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mPlaceholderPaint.setColor(DEFAULT_PLACEHOLDER_COLOR);
+        mAvatarMatrix = new Matrix();
+        mAvatarRect = new RectF();
+        mBadgePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mBadgePaint.setColor(DEFAULT_BADGE_COLOR);
+        mBadgeTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mBadgeTextPaint.setColor(DEFAULT_BADGE_TEXT_COLOR);
+        mBadgeTextPaint.setTextAlign(Paint.Align.CENTER);
+        mBadgeTextPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        mBadgeTextPaint.setTextSize(BADGE_RADIUS_DP * mDensity * 1.2f);
+        mBadgeRect = new RectF();
+        mProgress = NO_PROGRESS;
+        mProgressPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mProgressPaint.setStyle(Paint.Style.STROKE);
+        mProgressPaint.setStrokeCap(Paint.Cap.ROUND);
+        mProgressPaint.setColor(DEFAULT_PROGRESS_COLOR);
+        mProgressPaint.setStrokeWidth(DEFAULT_PROGRESS_WIDTH_DP * mDensity);
+        mProgressRect = new RectF();
+        mProgressPath = new Path();
+        mProgressPathMeasure = new PathMeasure();
+        mProgressSegmentPath = new Path();
+    }
+
+    /**
+     * 形状を設定します。
+     *
+     * @param shape FloatingViewManager.SHAPE_CIRCLE or FloatingViewManager.SHAPE_RECTANGLE
+     */
+    public void setShape(float shape) {
+        if (mShape == shape) {
+            return;
+        }
+        mShape = shape;
+        updateBounds();
+        invalidate();
+    }
+
+    /**
+     * 形状を取得します。
+     *
+     * @return FloatingViewManager.SHAPE_CIRCLE or FloatingViewManager.SHAPE_RECTANGLE
+     */
+    public float getShape() {
+        return mShape;
+    }
+
+    /**
+     * アバター画像を設定します。<br/>
+     * 画像は描画範囲を埋めるように中央で切り抜かれます。
+     *
+     * @param bitmap アバター画像（nullの場合は単色で描画）
+     */
+    public void setAvatarBitmap(Bitmap bitmap) {
+        if (mAvatarBitmap == bitmap) {
+            return;
+        }
+        mAvatarBitmap = bitmap;
+        mAvatarPaint.setShader(bitmap == null ? null : new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        updateAvatarMatrix();
+        invalidate();
+    }
+
+    /**
+     * アバター画像を取得します。
+     *
+     * @return アバター画像
+     */
+    public Bitmap getAvatarBitmap() {
+        return mAvatarBitmap;
+    }
+
+    /**
+     * アバター画像の描画範囲の幅を取得します。（レイアウト前は標準の大きさ）
+     *
+     * @return アバター画像の描画範囲の幅(px)
+     */
+    int getAvatarWidth() {
+        return mAvatarRect.isEmpty() ? (int) (DEFAULT_SIZE_DP * mDensity + 0.5f) : (int) Math.ceil(mAvatarRect.width());
+    }
+
+    /**
+     * アバター画像の描画範囲の高さを取得します。（レイアウト前は標準の大きさ）
+     *
+     * @return アバター画像の描画範囲の高さ(px)
+     */
+    int getAvatarHeight() {
+        return mAvatarRect.isEmpty() ? (int) (DEFAULT_SIZE_DP * mDensity + 0.5f) : (int) Math.ceil(mAvatarRect.height());
+    }
+
+    /**
+     * アバター画像がない場合の色を設定します。
+     *
+     * @param color 色
+     */
+    public void setPlaceholderColor(int color) {
+        mPlaceholderPaint.setColor(color);
+        invalidate();
+    }
+
+    /**
+     * 未読数を設定します。
+     *
+     * @param count 未読数（0以下の場合はバッジを表示しない）
+     */
+    public void setBadgeCount(int count) {
+        final int newCount = Math.max(count, 0);
+        if (mBadgeCount == newCount) {
+            return;
+        }
+        // 最大の数を超えている間は表示が変わらないため再描画しない
+        final boolean isSameText = mBadgeCount > MAX_BADGE_COUNT && newCount > MAX_BADGE_COUNT;
+        mBadgeCount = newCount;
+        if (isSameText) {
+            return;
+        }
+        mBadgeText = newCount == 0 ? null : newCount > MAX_BADGE_COUNT ? BADGE_OVERFLOW_TEXT : String.valueOf(newCount);
+        updateBadgeBounds();
+        invalidate();
+    }
+
+    /**
+     * 未読数を取得します。
+     *
+     * @return 未読数
+     */
+    public int getBadgeCount() {
+        return mBadgeCount;
+    }
+
+    /**
+     * バッジの色を設定します。
+     *
+     * @param color 色
+     */
+    public void setBadgeColor(int color) {
+        mBadgePaint.setColor(color);
+        invalidate();
+    }
+
+    /**
+     * バッジの文字色を設定します。
+     *
+     * @param color 色
+     */
+    public void setBadgeTextColor(int color) {
+        mBadgeTextPaint.setColor(color);
+        invalidate();
+    }
+
+    /**
+     * 進捗を設定します。
+     *
+     * @param progress 進捗(0.0から1.0、NO_PROGRESSの場合は進捗リングを表示しない)
+     */
+    public void setProgress(float progress) {
+        final float newProgress = progress < 0.0f ? NO_PROGRESS : Math.min(progress, 1.0f);
+        if (mProgress == newProgress) {
+            return;
+        }
+        // 進捗リングの表示・非表示でアバター画像の大きさが変わる
+        final boolean isVisibilityChanged = (mProgress == NO_PROGRESS) != (newProgress == NO_PROGRESS);
+        mProgress = newProgress;
+        mIsProgressPathDirty = true;
+        if (isVisibilityChanged) {
+            updateBounds();
+        }
+        invalidate();
+    }
+
+    /**
+     * 進捗を取得します。
+     *
+     * @return 進捗(0.0から1.0、表示しない場合はNO_PROGRESS)
+     */
+    public float getProgress() {
+        return mProgress;
+    }
+
+    /**
+     * 進捗リングの色を設定します。
+     *
+     * @param color 色
+     */
+    public void setProgressColor(int color) {
+        mProgressPaint.setColor(color);
+        invalidate();
+    }
+
+    /**
+     * 進捗リングの太さを設定します。
+     *
+     * @param width 太さ(px)
+     */
+    public void setProgressWidth(float width) {
+        mProgressPaint.setStrokeWidth(width);
+        updateBounds();
+        invalidate();
+    }
+
+    /**
+     * 指定がない場合は標準の大きさにします。
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int defaultSize = (int) (DEFAULT_SIZE_DP * mDensity + 0.5f);
+        final int width = resolveSize(defaultSize + getPaddingLeft() + getPaddingRight(), widthMeasureSpec);
+        final int height = resolveSize(defaultSize + getPaddingTop() + getPaddingBottom(), heightMeasureSpec);
+        setMeasuredDimension(width, height);
+    }
+
+    /**
+     * 大きさに合わせて描画範囲を再計算します。
+     */
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateBounds();
+    }
+
+    /**
+     * アバター画像・進捗リング・バッジを描画します。
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        final boolean isCircle = mShape == FloatingViewManager.SHAPE_CIRCLE;
+        final Paint avatarPaint = mAvatarBitmap == null ? mPlaceholderPaint : mAvatarPaint;
+        // アバター画像
+        if (isCircle) {
+            canvas.drawCircle(mAvatarRect.centerX(), mAvatarRect.centerY(), mAvatarRect.width() / 2, avatarPaint);
+        } else {
+            canvas.drawRect(mAvatarRect, avatarPaint);
+        }
+        // 進捗リング
+        if (mProgress != NO_PROGRESS && mProgress > 0.0f) {
+            if (isCircle) {
+                canvas.drawArc(mProgressRect, -90.0f, 360.0f * mProgress, false, mProgressPaint);
+            } else {
+                if (mIsProgressPathDirty) {
+                    mIsProgressPathDirty = false;
+                    mProgressSegmentPath.rewind();
+                    mProgressPathMeasure.getSegment(0, mProgressPathMeasure.getLength() * mProgress, mProgressSegmentPath, true);
+                }
+                canvas.drawPath(mProgressSegmentPath, mProgressPaint);
+            }
+        }
+        // バッジ
+        if (mBadgeText != null) {
+            final float radius = mBadgeRect.height() / 2;
+            canvas.drawRoundRect(mBadgeRect, radius, radius, mBadgePaint);
+            canvas.drawText(mBadgeText, mBadgeRect.centerX(), mBadgeTextBaseline, mBadgeTextPaint);
+        }
+    }
+
+    /**
+     * アバター画像・進捗リング・バッジの描画範囲を再計算します。
+     */
+    private void updateBounds() {
+        final float left = getPaddingLeft();
+        final float top = getPaddingTop();
+        final float right = getWidth() - getPaddingRight();
+        final float bottom = getHeight() - getPaddingBottom();
+        // 円形の場合は正方形に収める
+        final float size = Math.min(right - left, bottom - top);
+        final boolean isCircle = mShape == FloatingViewManager.SHAPE_CIRCLE;
+        final float width = isCircle ? size : right - left;
+        final float height = isCircle ? size : bottom - top;
+        final float centerX = (left + right) / 2;
+        final float centerY = (top + bottom) / 2;
+
+        // 進捗リングは外周に描画し、アバター画像はその内側
+        final float strokeWidth = mProgressPaint.getStrokeWidth();
+        final float halfStrokeWidth = strokeWidth / 2;
+        mProgressRect.set(centerX - width / 2 + halfStrokeWidth, centerY - height / 2 + halfStrokeWidth, centerX + width / 2 - halfStrokeWidth, centerY + height / 2 - halfStrokeWidth);
+        final float inset = mProgress == NO_PROGRESS ? 0.0f : strokeWidth + PROGRESS_GAP_DP * mDensity;
+        mAvatarRect.set(centerX - width / 2 + inset, centerY - height / 2 + inset, centerX + width / 2 - inset, centerY + height / 2 - inset);
+
+        // 四角形の場合の進捗リングの経路（上端中央から時計回り）
+        mProgressPath.rewind();
+        mProgressPath.moveTo(mProgressRect.centerX(), mProgressRect.top);
+        mProgressPath.lineTo(mProgressRect.right, mProgressRect.top);
+        mProgressPath.lineTo(mProgressRect.right, mProgressRect.bottom);
+        mProgressPath.lineTo(mProgressRect.left, mProgressRect.bottom);
+        mProgressPath.lineTo(mProgressRect.left, mProgressRect.top);
+        mProgressPath.close();
+        mProgressPathMeasure.setPath(mProgressPath, false);
+        mIsProgressPathDirty = true;
+
+        updateAvatarMatrix();
+        updateBadgeBounds();
+    }
+
+    /**
+     * アバター画像を描画範囲の中央で切り抜くように行列を設定します。
+     */
+    private void updateAvatarMatrix() {
+        if (mAvatarBitmap == null || mAvatarRect.isEmpty()) {
+            return;
+        }
+        final float bitmapWidth = mAvatarBitmap.getWidth();
+        final float bitmapHeight = mAvatarBitmap.getHeight();
+        final float scale = Math.max(mAvatarRect.width() / bitmapWidth, mAvatarRect.height() / bitmapHeight);
+        mAvatarMatrix.setScale(scale, scale);
+        mAvatarMatrix.postTranslate(mAvatarRect.centerX() - bitmapWidth * scale / 2, mAvatarRect.centerY() - bitmapHeight * scale / 2);
+        mAvatarPaint.getShader().setLocalMatrix(mAvatarMatrix);
+    }
+
+    /**
+     * バッジの描画範囲を再計算します。<br/>
+     * バッジはアバター画像の右上に配置し、Viewからはみ出さないようにします。
+     */
+    private void updateBadgeBounds() {
+        if (mBadgeText == null) {
+            return;
+        }
+        final float radius = BADGE_RADIUS_DP * mDensity;
+        // 円形の場合は右上45度の位置、四角形の場合は右上の角
+        final boolean isCircle = mShape == FloatingViewManager.SHAPE_CIRCLE;
+        final float offsetX = isCircle ? (float) (mAvatarRect.width() / 2 * Math.sqrt(0.5)) : mAvatarRect.width() / 2;
+        final float offsetY = isCircle ? offsetX : mAvatarRect.height() / 2;
+        final float halfWidth = Math.max(radius, mBadgeTextPaint.measureText(mBadgeText) / 2 + radius / 2);
+        final float centerX = Math.min(mAvatarRect.centerX() + offsetX, getWidth() - halfWidth);
+        final float centerY = Math.max(mAvatarRect.centerY() - offsetY, radius);
+        mBadgeRect.set(centerX - halfWidth, centerY - radius, centerX + halfWidth, centerY + radius);
+        final Paint.FontMetrics fontMetrics = mBadgeTextPaint.getFontMetrics();
+        mBadgeTextBaseline = centerY - (fontMetrics.ascent + fontMetrics.descent) / 2;
+    }
+}
@@ -16,30 +16,41 @@
 
 package jp.co.recruit_lifestyle.android.floatingview;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.PropertyValuesHolder;
 import android.animation.TimeInterpolator;
 import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.Configuration;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Message;
-import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.util.DisplayMetrics;
 import android.view.Gravity;
 import android.view.MotionEvent;
+import android.view.SurfaceView;
+import android.view.TextureView;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
 import android.view.WindowManager;
+import android.view.animation.DecelerateInterpolator;
 import android.view.animation.OvershootInterpolator;
 import android.widget.FrameLayout;
+import android.widget.ImageView;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 
 /**
  * フローティングViewを表すクラスです。
@@ -68,6 +79,26 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      */
     private static final long MOVE_TO_EDGE_DURATION = 450L;
 
+    /**
+     * 画面端に寄せる・戻すアニメーションの時間
+     */
+    private static final long TUCK_DURATION = 300L;
+
+    /**
+     * 画面端に寄せるアニメーションの透明度のプロパティ名
+     */
+    private static final String ANIMATION_PROPERTY_ALPHA = "alpha";
+
+    /**
+     * 移動アニメーションのX座標のプロパティ名
+     */
+    private static final String ANIMATION_PROPERTY_X = "x";
+
+    /**
+     * 移動アニメーションのY座標のプロパティ名
+     */
+    private static final String ANIMATION_PROPERTY_Y = "y";
+
     /**
      * 画面端移動アニメーションの係数
      */
@@ -108,6 +139,11 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      */
     private final WindowManager mWindowManager;
 
+    /**
+     * Clock
+     */
+    private final Clock mClock;
+
     /**
      * LayoutParams
      */
@@ -176,6 +212,11 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      */
     private final TimeInterpolator mMoveEdgeInterpolator;
 
+    /**
+     * 画面端に寄せる・戻すアニメーションのInterpolator（透明度が範囲を超えないようにオーバーシュートしない）
+     */
+    private final TimeInterpolator mTuckInterpolator;
+
     /**
      * 移動限界を表すRect
      */
@@ -202,9 +243,29 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
     private final FloatingAnimationHandler mAnimationHandler;
 
     /**
-     * 長押しを判定するためのハンドラ
+     * 長押しを判定するためのタイマー
+     */
+    private final TimerWheel.Timer mLongPressTimer;
+
+    /**
+     * 操作されていない場合に画面端に寄せるためのタイマー
+     */
+    private final TimerWheel.Timer mIdleTuckTimer;
+
+    /**
+     * 待機状態になった際に一度だけ実行する処理
      */
-    private final LongPressHandler mLongPressHandler;
+    private final ArrayList<Runnable> mIdleCallbacks;
+
+    /**
+     * タイマーを管理するタイマーホイール
+     */
+    private TimerWheel mTimerWheel;
+
+    /**
+     * 操作に応じた振動
+     */
+    private HapticFeedbackDispatcher mHapticFeedbackDispatcher;
 
     /**
      * 画面端をオーバーするマージン
@@ -226,14 +287,197 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      */
     private int mMoveDirection;
 
+    /**
+     * 動作性能の計測値
+     */
+    private FloatingViewMetrics mFloatingViewMetrics;
+
+    /**
+     * アニメーションのフレーム間隔と時間
+     */
+    private FramePacing mFramePacing;
+
+    /**
+     * ハードウェアレイヤーのメモリの上限（使用しない場合はnull）
+     */
+    private HardwareLayerBudget mHardwareLayerBudget;
+
+    /**
+     * ハードウェアレイヤーを設定した子View
+     */
+    private final ArrayList<View> mHardwareLayerViews = new ArrayList<>();
+
+    /**
+     * 確保中のハードウェアレイヤーの大きさ(byte)
+     */
+    private int mHardwareLayerBytes;
+
+    /**
+     * ハードウェアレイヤーを確保した時刻
+     */
+    private long mHardwareLayerAcquiredTime;
+
+    /**
+     * 移動中・非表示中に子Viewの代わりにスナップショットを表示する場合はtrue
+     */
+    private boolean mIsSnapshotProxyEnabled;
+
+    /**
+     * 子Viewのスナップショット
+     */
+    private Bitmap mSnapshotBitmap;
+
+    /**
+     * スナップショットを撮り直す必要がある場合はtrue
+     */
+    private boolean mIsSnapshotDirty;
+
+    /**
+     * スナップショットを表示するView
+     */
+    private ImageView mSnapshotView;
+
+    /**
+     * 待機状態でスナップショットを撮り直す処理
+     */
+    private final Runnable mCaptureSnapshotTask;
+
+    /**
+     * スナップショットの撮り直しを予約するIdleWorkScheduler
+     */
+    private IdleWorkScheduler mIdleWorkScheduler;
+
+    /**
+     * スナップショットの表示中に取り外している子View（表示していない場合はnull）
+     */
+    private View mLiveView;
+
+    /**
+     * 操作されていない場合に画面端に寄せるまでの時間(ミリ秒、0の場合は寄せない)
+     */
+    private long mIdleTuckMillis;
+
+    /**
+     * 画面端に寄せた際に表示範囲の外に出す幅の割合
+     */
+    private float mIdleTuckFraction;
+
+    /**
+     * 画面端に寄せた際のWindowの透明度
+     */
+    private float mIdleTuckAlpha;
+
+    /**
+     * 画面端に寄せている（寄せるアニメーション中を含む）場合はtrue
+     */
+    private boolean mIsTucked;
+
+    /**
+     * 画面端に寄せる前のX座標
+     */
+    private int mUntuckedX;
+
+    /**
+     * 画面端に寄せる・戻すアニメーション
+     */
+    private ValueAnimator mTuckAnimator;
+
+    /**
+     * 一時停止中の場合はtrue
+     */
+    private boolean mIsSuspended;
+
+    /**
+     * Windowから取り外された場合はtrue
+     */
+    private boolean mIsRemoved;
+
+    /**
+     * 一時停止中にWindowへの反映を保留した場合はtrue
+     */
+    private boolean mIsLayoutPending;
+
+    /**
+     * ドラッグ中に発生したupdateViewLayoutの回数
+     */
+    private int mLayoutUpdateCount;
+
+    /**
+     * updateViewLayoutの回数を計測中の場合はtrue
+     */
+    private boolean mIsCountingLayoutUpdates;
+
+    /**
+     * Windowの移動に反映されていないタッチイベントの発生時間
+     */
+    private long mPendingTouchEventTime;
+
+    /**
+     * タッチ・状態遷移の記録先（記録しない場合はnull）
+     */
+    private TouchTraceRecorder mTouchTraceRecorder;
+
+    /**
+     * 記録時のFloatingViewの識別番号
+     */
+    private int mTraceTarget;
+
+    /**
+     * 状態の変化の配信先
+     */
+    private FloatingViewEventDispatcher mEventDispatcher;
+
+    /**
+     * 吸着先（設定されていない場合はnull）
+     */
+    private FloatingViewAnchors mAnchors;
+
+    /**
+     * 表示位置の限界に当てはめた吸着先の索引
+     */
+    private final AnchorIndex mAnchorIndex;
+
+    /**
+     * 吸着先の索引を構築した時の表示位置の限界
+     */
+    private final Rect mAnchorIndexRect;
+
+    /**
+     * 吸着先の索引の再構築が必要な場合はtrue
+     */
+    private boolean mIsAnchorIndexDirty;
+
+    /**
+     * タッチの速度の計測
+     */
+    private VelocityTracker mVelocityTracker;
+
+    /**
+     * 速度の上限(px/s)
+     */
+    private final int mMaximumVelocity;
+
+    /**
+     * 最後に計算したX軸方向のタッチの速度(px/s、スクリーン座標)
+     */
+    private float mVelocityX;
+
+    /**
+     * 最後に計算したY軸方向のタッチの速度(px/s、スクリーン座標)
+     */
+    private float mVelocityY;
+
     /**
      * コンストラクタ
      *
-     * @param context {@link android.content.Context}
+     * @param context       {@link android.content.Context}
+     * @param windowManager WindowManager
+     * @param clock         アニメーションの経過時間の計算に使用する時計
      */
-    FloatingView(final Context context) {
+    FloatingView(final Context context, WindowManager windowManager, Clock clock) {
         super(context);
-        mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        mWindowManager = windowManager;
+        mClock = clock;
         mParams = new WindowManager.LayoutParams();
         mMetrics = new DisplayMetrics();
         mWindowManager.getDefaultDisplay().getMetrics(mMetrics);
@@ -247,12 +491,40 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         // 左下の座標を0とする
         mParams.gravity = Gravity.LEFT | Gravity.BOTTOM;
         mAnimationHandler = new FloatingAnimationHandler(this);
-        mLongPressHandler = new LongPressHandler(this);
+        // dispatchTouchEventで全てのタッチ処理を実装しているので、長押しも独自実装しています
+        mLongPressTimer = new TimerWheel.Timer(new Runnable() {
+            @Override
+            public void run() {
+                onLongClick();
+            }
+        });
+        mIdleCallbacks = new ArrayList<>();
+        mCaptureSnapshotTask = new Runnable() {
+            @Override
+            public void run() {
+                // 操作・移動中は描画の負荷を避けるため、待機状態になってから撮り直す
+                if (!isIdle()) {
+                    runWhenIdle(this);
+                    return;
+                }
+                captureSnapshot();
+            }
+        };
+        mIdleTuckTimer = new TimerWheel.Timer(new Runnable() {
+            @Override
+            public void run() {
+                onIdleTuck();
+            }
+        });
         mMoveEdgeInterpolator = new OvershootInterpolator(MOVE_TO_EDGE_OVERSHOOT_TENSION);
+        mTuckInterpolator = new DecelerateInterpolator();
         mMoveDirection = FloatingViewManager.MOVE_DIRECTION_DEFAULT;
 
         mMoveLimitRect = new Rect();
         mPositionLimitRect = new Rect();
+        mAnchorIndex = new AnchorIndex();
+        mAnchorIndexRect = new Rect();
+        mMaximumVelocity = ViewConfiguration.get(context).getScaledMaximumFlingVelocity();
 
         // ステータスバーの高さを取得
         final Resources resources = context.getResources();
@@ -274,6 +546,8 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
         updateViewLayout();
+        mIsSnapshotDirty = true;
+        scheduleSnapshotCapture();
     }
 
     /**
@@ -295,14 +569,20 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         if (mMoveDirection == FloatingViewManager.MOVE_DIRECTION_NONE) {
             mParams.x = mInitX;
             mParams.y = mInitY;
-            moveTo(mInitX, mInitY, mInitX, mInitY, false);
+            // 吸着先がある場合は最も近い吸着先に移動
+            final int anchor = findAnchor(mInitX, mInitY, 0, 0);
+            if (anchor != AnchorIndex.NO_ANCHOR) {
+                moveTo(mInitX, mInitY, mAnchorIndex.getX(anchor), mAnchorIndex.getY(anchor), false);
+            } else {
+                moveTo(mInitX, mInitY, mInitX, mInitY, false);
+            }
         } else {
             mParams.x = 0;
             mParams.y = mMetrics.heightPixels - mStatusBarHeight - getMeasuredHeight();
             moveToEdge(false);
         }
         mIsDraggable = true;
-        mWindowManager.updateViewLayout(this, mParams);
+        commitWindowLayout();
         return true;
     }
 
@@ -311,6 +591,10 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      */
     private void updateViewLayout() {
         cancelAnimation();
+        // 画面端に寄せた位置は移動範囲の外のため、元の位置から計算する
+        untuck(false);
+        // 大きさが変わる可能性があるため、次の押下時に確保し直す
+        releaseHardwareLayer();
 
         // 前の画面座標を保存
         final int oldScreenHeight = mMetrics.heightPixels;
@@ -324,10 +608,18 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         final int height = getMeasuredHeight();
         final int newScreenWidth = mMetrics.widthPixels;
         final int newScreenHeight = mMetrics.heightPixels;
+        if (mTouchTraceRecorder != null && (oldScreenWidth != newScreenWidth || oldScreenHeight != newScreenHeight)) {
+            mTouchTraceRecorder.recordDisplay(mClock.uptimeMillis(), mMetrics);
+        }
 
         // 移動範囲の設定
-        mMoveLimitRect.set(-width, -height * 2, newScreenWidth + width, newScreenHeight + height);
-        mPositionLimitRect.set(-mOverMargin, 0, newScreenWidth - width + mOverMargin, newScreenHeight - mStatusBarHeight - height);
+        PositionCalculator.calcLimitRects(newScreenWidth, newScreenHeight, width, height, mOverMargin, mStatusBarHeight, mMoveLimitRect, mPositionLimitRect);
+        // 吸着先の索引は表示位置の限界が変わる場合のみ再構築
+        if (mAnchors != null && (mIsAnchorIndexDirty || !mAnchorIndexRect.equals(mPositionLimitRect))) {
+            mAnchorIndex.build(mAnchors.getFractionX(), mAnchors.getFractionY(), mAnchors.size(), mPositionLimitRect);
+            mAnchorIndexRect.set(mPositionLimitRect);
+            mIsAnchorIndexDirty = false;
+        }
 
         // 縦横切替の場合
         if (oldScreenWidth != newScreenWidth || oldScreenHeight != newScreenHeight) {
@@ -352,16 +644,60 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
             }
             // 画面端に移動しない場合は画面座標の比率から計算
             else {
-                final int newX = (int) (mParams.x * mPositionLimitRect.width() / (float) oldPositionLimitWidth + 0.5f);
-                mParams.x = Math.min(Math.max(mPositionLimitRect.left, newX), mPositionLimitRect.right);
+                mParams.x = PositionCalculator.calcRotatedPositionX(mParams.x, mPositionLimitRect, oldPositionLimitWidth);
             }
 
             // スクリーン位置の比率からY座標を設定(四捨五入)
-            final int newY = (int) (mParams.y * mPositionLimitRect.height() / (float) oldPositionLimitHeight + 0.5f);
-            mParams.y = Math.min(Math.max(mPositionLimitRect.top, newY), mPositionLimitRect.bottom);
+            mParams.y = PositionCalculator.calcRotatedPositionY(mParams.y, mPositionLimitRect, oldPositionLimitHeight);
+            // 吸着先がある場合は切替後の位置に最も近い吸着先に移動
+            final int anchor = findAnchor(mParams.x, mParams.y, 0, 0);
+            if (anchor != AnchorIndex.NO_ANCHOR) {
+                mParams.x = mAnchorIndex.getX(anchor);
+                mParams.y = mAnchorIndex.getY(anchor);
+            }
+            commitWindowLayout();
+        }
+
+    }
+
+    /**
+     * 現在のLayoutParamsをWindowに反映します。
+     */
+    void commitWindowLayout() {
+        // 取り外されたWindowは更新できない
+        if (mIsRemoved) {
+            return;
+        }
+        // 一時停止中は再開時にまとめて反映
+        if (mIsSuspended) {
+            mIsLayoutPending = true;
+            return;
+        }
+        FloatingViewTrace.beginSection(FloatingViewTrace.SECTION_UPDATE_VIEW_LAYOUT);
+        try {
             mWindowManager.updateViewLayout(this, mParams);
+        } finally {
+            FloatingViewTrace.endSection();
+        }
+        mLayoutUpdateCount++;
+        // タッチからWindowの移動までの遅延
+        if (mPendingTouchEventTime != 0) {
+            mFloatingViewMetrics.record(FloatingViewMetrics.HISTOGRAM_TOUCH_TO_MOVE_LATENCY, mClock.uptimeMillis() - mPendingTouchEventTime);
+            mPendingTouchEventTime = 0;
+        }
+        if (mEventDispatcher != null) {
+            mEventDispatcher.onPositionChanged(this);
         }
+    }
 
+    /**
+     * ドラッグ中のupdateViewLayoutの回数の計測を終了します。
+     */
+    private void finishCountingLayoutUpdates() {
+        if (mIsCountingLayoutUpdates) {
+            mIsCountingLayoutUpdates = false;
+            mFloatingViewMetrics.record(FloatingViewMetrics.HISTOGRAM_LAYOUT_UPDATES_PER_DRAG, mLayoutUpdateCount);
+        }
     }
 
     /**
@@ -369,10 +705,40 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      */
     @Override
     protected void onDetachedFromWindow() {
+        onRemovedFromWindow();
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        releaseHardwareLayer();
+        mAnimationHandler.cancelAnimationMessage(FloatingAnimationHandler.ANIMATION_IN_TOUCH);
+        // タイマーホイールから参照が残らないように解除
+        mTimerWheel.cancel(mLongPressTimer);
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * Windowから取り外す際の処理です。<br/>
+     * アニメーションをキャンセルし、終了時の処理（画面端に寄せるタイマーの開始など）が取り外した後に実行されないようにします。
+     */
+    void onRemovedFromWindow() {
+        if (mIsRemoved) {
+            return;
+        }
+        mIsRemoved = true;
         if (mMoveEdgeAnimator != null) {
             mMoveEdgeAnimator.removeAllUpdateListeners();
+            mMoveEdgeAnimator.cancel();
+        }
+        if (mTuckAnimator != null) {
+            mTuckAnimator.removeAllUpdateListeners();
+            mTuckAnimator.cancel();
+        }
+        cancelIdleTuck();
+        mIdleCallbacks.clear();
+        if (mIdleWorkScheduler != null) {
+            mIdleWorkScheduler.remove(mCaptureSnapshotTask);
         }
-        super.onDetachedFromWindow();
     }
 
     /**
@@ -380,13 +746,31 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      */
     @Override
     public boolean dispatchTouchEvent(@NonNull MotionEvent event) {
+        FloatingViewTrace.beginSection(FloatingViewTrace.SECTION_DISPATCH_TOUCH_EVENT);
+        try {
+            if (mTouchTraceRecorder != null) {
+                mTouchTraceRecorder.recordTouch(mTraceTarget, event);
+            }
+            return handleTouchEvent(event);
+        } finally {
+            FloatingViewTrace.endSection();
+        }
+    }
+
+    /**
+     * タッチイベントを処理します。
+     *
+     * @param event MotionEvent
+     * @return 常にtrue
+     */
+    private boolean handleTouchEvent(MotionEvent event) {
         // Viewが表示されていなければ何もしない
         if (getVisibility() != View.VISIBLE) {
             return true;
         }
 
         // タッチ不能な場合は何もしない
-        if (!mIsDraggable) {
+        if (!mIsDraggable || mIsSuspended) {
             return true;
         }
 
@@ -396,21 +780,41 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         final int action = event.getAction();
         // 押下
         if (action == MotionEvent.ACTION_DOWN) {
+            // 画面端に寄せている場合は元に戻すのみ（このタッチの移動・クリックは処理しない）
+            if (mIsTucked) {
+                untuck(true);
+                return true;
+            }
+            cancelIdleTuck();
+            FloatingViewTrace.updateCounterEnabled();
+            // 設定の読み込みはフレームの処理に含めず、メインスレッドが空いた時に行う
+            mFramePacing.requestUpdate();
             // アニメーションのキャンセル
             cancelAnimation();
+            // 拡大率の変更や移動で子Viewを再描画しないようにレイヤー化
+            acquireHardwareLayer();
             mScreenTouchDownX = mScreenTouchX;
             mScreenTouchDownY = mScreenTouchY;
             mLocalTouchX = event.getX();
             mLocalTouchY = event.getY();
             mIsMoveAccept = false;
+            if (mVelocityTracker == null) {
+                mVelocityTracker = VelocityTracker.obtain();
+            } else {
+                mVelocityTracker.clear();
+            }
+            addVelocityMovement(event);
+            mVelocityX = 0;
+            mVelocityY = 0;
+            mLayoutUpdateCount = 0;
+            mIsCountingLayoutUpdates = true;
             setScale(SCALE_PRESSED);
             // タッチトラッキングアニメーションの開始
             mAnimationHandler.updateTouchPosition(getXByTouch(), getYByTouch());
-            mAnimationHandler.removeMessages(FloatingAnimationHandler.ANIMATION_IN_TOUCH);
+            mAnimationHandler.cancelAnimationMessage(FloatingAnimationHandler.ANIMATION_IN_TOUCH);
             mAnimationHandler.sendAnimationMessage(FloatingAnimationHandler.ANIMATION_IN_TOUCH);
             // 長押し判定の開始
-            mLongPressHandler.removeMessages(LongPressHandler.LONG_PRESSED);
-            mLongPressHandler.sendEmptyMessageDelayed(LongPressHandler.LONG_PRESSED, LONG_PRESS_TIMEOUT);
+            mTimerWheel.schedule(mLongPressTimer, LONG_PRESS_TIMEOUT);
             // 押下処理の通過判定のための時間保持
             // mIsDraggableやgetVisibility()のフラグが押下後に変更された場合にMOVE等を処理させないようにするため
             mTouchDownTime = event.getDownTime();
@@ -420,19 +824,28 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
             // 移動判定の場合は長押しの解除
             if (mIsMoveAccept) {
                 mIsLongPressed = false;
-                mLongPressHandler.removeMessages(LongPressHandler.LONG_PRESSED);
+                mTimerWheel.cancel(mLongPressTimer);
             }
             // 押下処理が行われていない場合は処理しない
             if (mTouchDownTime != event.getDownTime()) {
                 return true;
             }
+            addVelocityMovement(event);
             final float moveThreshold = MOVE_THRESHOLD_DP * mMetrics.density;
             // 移動受付状態でない、かつX,Y軸ともにしきい値よりも小さい場合
             if (!mIsMoveAccept && Math.abs(mScreenTouchX - mScreenTouchDownX) < moveThreshold && Math.abs(mScreenTouchY - mScreenTouchDownY) < moveThreshold) {
                 return true;
             }
+            if (!mIsMoveAccept) {
+                dispatchEvent(FloatingViewEvent.TYPE_DRAG_START);
+                // 移動中は子Viewの代わりにスナップショットを描画するため、レイヤーは不要（撮り直しはこのフレームでは行わない）
+                if (showSnapshot(false)) {
+                    releaseHardwareLayer();
+                }
+            }
             mIsMoveAccept = true;
             mAnimationHandler.updateTouchPosition(getXByTouch(), getYByTouch());
+            mPendingTouchEventTime = event.getEventTime();
         }
         // 押上、キャンセル
         else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
@@ -440,22 +853,37 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
             final boolean tmpIsLongPressed = mIsLongPressed;
             // 長押しの解除
             mIsLongPressed = false;
-            mLongPressHandler.removeMessages(LongPressHandler.LONG_PRESSED);
+            mTimerWheel.cancel(mLongPressTimer);
             // 押下処理が行われていない場合は処理しない
             if (mTouchDownTime != event.getDownTime()) {
                 return true;
             }
+            // 離した時の速度
+            addVelocityMovement(event);
+            if (action == MotionEvent.ACTION_UP) {
+                updateVelocity();
+            } else {
+                mVelocityX = 0;
+                mVelocityY = 0;
+            }
             // アニメーションの削除
-            mAnimationHandler.removeMessages(FloatingAnimationHandler.ANIMATION_IN_TOUCH);
+            mAnimationHandler.cancelAnimationMessage(FloatingAnimationHandler.ANIMATION_IN_TOUCH);
             // 拡大率をもとに戻す
             setScale(SCALE_NORMAL);
 
             // 動かされていれば画面端に戻す
             if (mIsMoveAccept) {
+                dispatchEvent(FloatingViewEvent.TYPE_DRAG_END);
                 moveToEdge(true);
             }
             // 動かされていなければ、クリックイベントを発行
             else {
+                finishCountingLayoutUpdates();
+                releaseHardwareLayer();
+                // 移動アニメーション中に押下された場合はスナップショットを表示しているため元に戻す
+                restoreLiveView();
+                scheduleIdleTuck();
+                runIdleCallbacks();
                 if (!tmpIsLongPressed) {
                     final int size = getChildCount();
                     for (int i = 0; i < size; i++) {
@@ -473,11 +901,59 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         return true;
     }
 
+    /**
+     * スクリーン座標でタッチの速度を計測します。<br/>
+     * タッチに合わせてWindowが移動するため、View内の座標では速度を計測できません。
+     *
+     * @param event MotionEvent
+     */
+    private void addVelocityMovement(MotionEvent event) {
+        if (mVelocityTracker == null) {
+            return;
+        }
+        final float offsetX = event.getRawX() - event.getX();
+        final float offsetY = event.getRawY() - event.getY();
+        event.offsetLocation(offsetX, offsetY);
+        mVelocityTracker.addMovement(event);
+        event.offsetLocation(-offsetX, -offsetY);
+    }
+
+    /**
+     * 現在のタッチの速度を計算します。
+     */
+    void updateVelocity() {
+        if (mVelocityTracker == null) {
+            return;
+        }
+        mVelocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
+        mVelocityX = mVelocityTracker.getXVelocity();
+        mVelocityY = mVelocityTracker.getYVelocity();
+    }
+
+    /**
+     * 最後に計算したX軸方向のタッチの速度を取得します。（離した後は離した時の速度）
+     *
+     * @return 速度(px/s、スクリーン座標)
+     */
+    float getVelocityX() {
+        return mVelocityX;
+    }
+
+    /**
+     * 最後に計算したY軸方向のタッチの速度を取得します。（離した後は離した時の速度）
+     *
+     * @return 速度(px/s、スクリーン座標、下方向が正)
+     */
+    float getVelocityY() {
+        return mVelocityY;
+    }
+
     /**
      * 長押しされた場合の処理です。
      */
     private void onLongClick() {
         mIsLongPressed = true;
+        restoreLiveView();
         // 長押し処理
         final int size = getChildCount();
         for (int i = 0; i < size; i++) {
@@ -492,16 +968,104 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
     public void setVisibility(int visibility) {
         // 画面表示時
         if (visibility != View.VISIBLE) {
-            // 画面から消す時は長押しをキャンセルし、画面端に強制的に移動します。
-            cancelLongPress();
-            setScale(SCALE_NORMAL);
-            if (mIsMoveAccept) {
-                moveToEdge(false);
-            }
-            mAnimationHandler.removeMessages(FloatingAnimationHandler.ANIMATION_IN_TOUCH);
-            mLongPressHandler.removeMessages(LongPressHandler.LONG_PRESSED);
+            prepareToHide();
         }
+        final boolean isChanged = getVisibility() != visibility;
         super.setVisibility(visibility);
+        // 移動中でなければ子Viewに戻す
+        if (visibility == View.VISIBLE && !mIsMoveAccept && (mMoveEdgeAnimator == null || !mMoveEdgeAnimator.isStarted())) {
+            restoreLiveView();
+            scheduleIdleTuck();
+        }
+        if (isChanged) {
+            dispatchEvent(FloatingViewEvent.TYPE_VISIBILITY);
+        }
+    }
+
+    /**
+     * 画面から消す前の処理です。長押しをキャンセルし、画面端に強制的に移動します。
+     */
+    void prepareToHide() {
+        cancelIdleTuck();
+        untuck(false);
+        cancelLongPress();
+        setScale(SCALE_NORMAL);
+        if (mIsMoveAccept) {
+            moveToEdge(false);
+        }
+        releaseHardwareLayer();
+        // 非表示中はスナップショットのみを保持（削除する場合は不要）
+        if (getState() != STATE_FINISHING) {
+            showSnapshot(true);
+        }
+        mAnimationHandler.cancelAnimationMessage(FloatingAnimationHandler.ANIMATION_IN_TOUCH);
+        mTimerWheel.cancel(mLongPressTimer);
+    }
+
+    /**
+     * アニメーション・タイマーを全て停止し、一時停止状態にします。<br/>
+     * 操作中の場合は操作を終了し、移動アニメーション中の場合は移動先に移動します。Windowへの反映は再開時にまとめて行います。
+     */
+    void suspend() {
+        if (mIsSuspended) {
+            return;
+        }
+        mIsSuspended = true;
+        cancelIdleTuck();
+        mIsLongPressed = false;
+        mTimerWheel.cancel(mLongPressTimer);
+        mAnimationHandler.cancelAnimationMessage(FloatingAnimationHandler.ANIMATION_IN_TOUCH);
+        // 操作中のタッチイベントは以降処理しない
+        mTouchDownTime = -1;
+        setScale(SCALE_NORMAL);
+        if (mIsMoveAccept) {
+            moveToEdge(false);
+        }
+        if (mMoveEdgeAnimator != null && mMoveEdgeAnimator.isStarted()) {
+            mMoveEdgeAnimator.end();
+        }
+        if (mTuckAnimator != null && mTuckAnimator.isStarted()) {
+            mTuckAnimator.end();
+        }
+        releaseHardwareLayer();
+    }
+
+    /**
+     * 一時停止状態から再開します。停止中の位置・透明度の変化を1回のレイアウトでWindowに反映します。
+     */
+    void resume() {
+        if (!mIsSuspended) {
+            return;
+        }
+        mIsSuspended = false;
+        if (mIsLayoutPending) {
+            mIsLayoutPending = false;
+            commitWindowLayout();
+        }
+        if (getVisibility() == View.VISIBLE) {
+            scheduleIdleTuck();
+        }
+    }
+
+    /**
+     * Windowの透明度を設定します。透明度はWindowの合成時に適用されるため、Viewは再描画されません。
+     *
+     * @param alpha 透明度(0.0fから1.0f)
+     */
+    void setWindowAlpha(float alpha) {
+        if (mParams.alpha != alpha) {
+            mParams.alpha = alpha;
+            commitWindowLayout();
+        }
+    }
+
+    /**
+     * Windowの透明度を取得します。
+     *
+     * @return 透明度(0.0fから1.0f)
+     */
+    float getWindowAlpha() {
+        return mParams.alpha;
     }
 
     /**
@@ -522,6 +1086,12 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         // X・Y座標と移動方向を設定
         final int currentX = getXByTouch();
         final int currentY = getYByTouch();
+        // 吸着先がある場合は離した時の速度から予測した位置に最も近い吸着先に移動
+        final int anchor = findAnchor(currentX, currentY, mVelocityX, mVelocityY);
+        if (anchor != AnchorIndex.NO_ANCHOR) {
+            moveTo(currentX, currentY, mAnchorIndex.getX(anchor), mAnchorIndex.getY(anchor), withAnimation);
+            return;
+        }
         final int goalPositionX;
         // 画面端に移動する場合は画面端の座標を設定
         if (mMoveDirection == FloatingViewManager.MOVE_DIRECTION_DEFAULT) {
@@ -562,28 +1132,70 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         goalPositionY = Math.min(Math.max(mPositionLimitRect.top, goalPositionY), mPositionLimitRect.bottom);
         // アニメーションを行う場合
         if (withAnimation) {
-            // TODO:Y座標もアニメーションさせる
-            mParams.y = goalPositionY;
-
-            mMoveEdgeAnimator = ValueAnimator.ofInt(currentX, goalPositionX);
+            mMoveEdgeAnimator = ValueAnimator.ofPropertyValuesHolder(
+                    PropertyValuesHolder.ofInt(ANIMATION_PROPERTY_X, currentX, goalPositionX),
+                    PropertyValuesHolder.ofInt(ANIMATION_PROPERTY_Y, currentY, goalPositionY));
             mMoveEdgeAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
                 @Override
                 public void onAnimationUpdate(ValueAnimator animation) {
-                    mParams.x = (Integer) animation.getAnimatedValue();
-                    mWindowManager.updateViewLayout(FloatingView.this, mParams);
+                    mParams.x = (Integer) animation.getAnimatedValue(ANIMATION_PROPERTY_X);
+                    mParams.y = (Integer) animation.getAnimatedValue(ANIMATION_PROPERTY_Y);
+                    commitWindowLayout();
                 }
             });
-            // X軸のアニメーション設定
-            mMoveEdgeAnimator.setDuration(MOVE_TO_EDGE_DURATION);
-            mMoveEdgeAnimator.setInterpolator(mMoveEdgeInterpolator);
-            mMoveEdgeAnimator.start();
-        } else {
-            // 位置が変化した時のみ更新
-            if (mParams.x != goalPositionX || mParams.y != goalPositionY) {
-                mParams.x = goalPositionX;
-                mParams.y = goalPositionY;
-                mWindowManager.updateViewLayout(FloatingView.this, mParams);
+            mMoveEdgeAnimator.addListener(new AnimatorListenerAdapter() {
+                /**
+                 * キャンセルされた場合はtrue
+                 */
+                private boolean mIsCanceled;
+
+                @Override
+                public void onAnimationStart(Animator animation) {
+                    FloatingViewTrace.onAnimationStateChanged(true);
+                }
+
+                @Override
+                public void onAnimationCancel(Animator animation) {
+                    mIsCanceled = true;
+                }
+
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    FloatingViewTrace.onAnimationStateChanged(false);
+                    finishCountingLayoutUpdates();
+                    // キャンセルされた場合は再度押下されているため、レイヤーを維持
+                    if (!mIsCanceled) {
+                        releaseHardwareLayer();
+                        restoreLiveView();
+                        scheduleIdleTuck();
+                        // 一時停止で移動先に移動させた場合は振動させない
+                        if (!mIsSuspended) {
+                            mHapticFeedbackDispatcher.perform(FloatingViewManager.HAPTIC_SNAP);
+                        }
+                        dispatchEvent(FloatingViewEvent.TYPE_SETTLE);
+                        runIdleCallbacks();
+                    }
+                }
+            });
+            // X軸のアニメーション設定
+            mMoveEdgeAnimator.setDuration(MOVE_TO_EDGE_DURATION);
+            mMoveEdgeAnimator.setInterpolator(mMoveEdgeInterpolator);
+            mMoveEdgeAnimator.start();
+        } else {
+            // 位置が変化した時のみ更新
+            if (mParams.x != goalPositionX || mParams.y != goalPositionY) {
+                mParams.x = goalPositionX;
+                mParams.y = goalPositionY;
+                commitWindowLayout();
             }
+            finishCountingLayoutUpdates();
+            releaseHardwareLayer();
+            if (getVisibility() == View.VISIBLE) {
+                restoreLiveView();
+                scheduleIdleTuck();
+            }
+            dispatchEvent(FloatingViewEvent.TYPE_SETTLE);
+            runIdleCallbacks();
         }
         // タッチ座標を初期化
         mLocalTouchX = 0;
@@ -593,6 +1205,27 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         mIsMoveAccept = false;
     }
 
+    /**
+     * 速度から予測した位置に最も近い吸着先を検索します。
+     *
+     * @param x         現在のX座標
+     * @param y         現在のY座標
+     * @param velocityX X軸方向の速度(px/s、スクリーン座標)
+     * @param velocityY Y軸方向の速度(px/s、スクリーン座標)
+     * @return 吸着先の位置（吸着先がない場合はAnchorIndex.NO_ANCHOR）
+     */
+    private int findAnchor(int x, int y, float velocityX, float velocityY) {
+        if (mAnchors == null || mAnchorIndex.size() == 0) {
+            return AnchorIndex.NO_ANCHOR;
+        }
+        final float projectionSeconds = mAnchors.getVelocityProjectionMillis() / 1000.0f;
+        // Windowの座標はY軸が上向き
+        final int projectedX = x + (int) (velocityX * projectionSeconds);
+        final int projectedY = y - (int) (velocityY * projectionSeconds);
+        return mAnchorIndex.findNearest(Math.min(Math.max(mPositionLimitRect.left, projectedX), mPositionLimitRect.right),
+                Math.min(Math.max(mPositionLimitRect.top, projectedY), mPositionLimitRect.bottom));
+    }
+
     /**
      * アニメーションをキャンセルします。
      */
@@ -623,6 +1256,396 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         }
     }
 
+    /**
+     * 押下中と移動アニメーション中に子Viewをハードウェアレイヤーに描画します。<br/>
+     * 既にレイヤーが設定されている子Viewはそのままにします。
+     */
+    private void acquireHardwareLayer() {
+        // スナップショットの表示中はレイヤー化しなくても再描画されない
+        if (mHardwareLayerBudget == null || mHardwareLayerBytes != 0 || mLiveView != null) {
+            return;
+        }
+        int bytes = 0;
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            if (child.getLayerType() == LAYER_TYPE_NONE) {
+                bytes += HardwareLayerBudget.calcLayerBytes(child.getWidth(), child.getHeight());
+            }
+        }
+        if (!mHardwareLayerBudget.acquire(bytes)) {
+            return;
+        }
+        mHardwareLayerBytes = bytes;
+        mHardwareLayerAcquiredTime = mClock.uptimeMillis();
+        final boolean canBuildLayer = getWindowToken() != null && isHardwareAccelerated();
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            if (child.getLayerType() == LAYER_TYPE_NONE) {
+                child.setLayerType(LAYER_TYPE_HARDWARE, null);
+                // 最初の移動のフレームでレイヤーを描画しないように先に構築
+                if (canBuildLayer) {
+                    child.buildLayer();
+                }
+                mHardwareLayerViews.add(child);
+            }
+        }
+    }
+
+    /**
+     * ハードウェアレイヤーを解放します。
+     */
+    private void releaseHardwareLayer() {
+        if (mHardwareLayerBytes == 0) {
+            return;
+        }
+        final int size = mHardwareLayerViews.size();
+        for (int i = 0; i < size; i++) {
+            mHardwareLayerViews.get(i).setLayerType(LAYER_TYPE_NONE, null);
+        }
+        mHardwareLayerViews.clear();
+        mHardwareLayerBudget.release(mHardwareLayerBytes, mClock.uptimeMillis() - mHardwareLayerAcquiredTime);
+        mHardwareLayerBytes = 0;
+    }
+
+    /**
+     * 操作されていない場合に画面端に寄せるタイマーを開始します。
+     */
+    private void scheduleIdleTuck() {
+        if (mIdleTuckMillis > 0 && !mIsTucked && !mIsSuspended && !mIsRemoved) {
+            mTimerWheel.schedule(mIdleTuckTimer, mIdleTuckMillis);
+        } else {
+            mTimerWheel.cancel(mIdleTuckTimer);
+        }
+    }
+
+    /**
+     * 画面端に寄せるタイマーを停止します。
+     */
+    private void cancelIdleTuck() {
+        mTimerWheel.cancel(mIdleTuckTimer);
+    }
+
+    /**
+     * 画面端にいる場合は、表示範囲の外に一部を出して透明度を下げます。<br/>
+     * 寄せている間はタイマー・アニメーションを全て停止し、タッチまたは内容の更新で元に戻します。
+     */
+    private void onIdleTuck() {
+        if (mIsRemoved || mIsTucked || getVisibility() != View.VISIBLE || !isIdle()) {
+            return;
+        }
+        final int tuckedX;
+        final int tuckWidth = (int) (getWidth() * mIdleTuckFraction);
+        if (mParams.x == mPositionLimitRect.left) {
+            tuckedX = mParams.x - tuckWidth;
+        } else if (mParams.x == mPositionLimitRect.right) {
+            tuckedX = mParams.x + tuckWidth;
+        } else {
+            // 画面端にいない場合は寄せない
+            return;
+        }
+        mIsTucked = true;
+        mUntuckedX = mParams.x;
+        // 寄せている間は子Viewを取り外す
+        showSnapshot(true);
+        startTuckAnimation(tuckedX, mIdleTuckAlpha);
+    }
+
+    /**
+     * 画面端に寄せている場合は元の位置・透明度に戻します。
+     *
+     * @param withAnimation アニメーションを行う場合はtrue
+     */
+    private void untuck(boolean withAnimation) {
+        if (!mIsTucked) {
+            return;
+        }
+        mIsTucked = false;
+        if (mTuckAnimator != null && mTuckAnimator.isStarted()) {
+            mTuckAnimator.cancel();
+        }
+        if (withAnimation) {
+            startTuckAnimation(mUntuckedX, 1.0f);
+        } else {
+            mTuckAnimator = null;
+            mParams.x = mUntuckedX;
+            mParams.alpha = 1.0f;
+            commitWindowLayout();
+            onUntucked();
+        }
+    }
+
+    /**
+     * 画面端に寄せる・戻すアニメーションを開始します。
+     *
+     * @param goalPositionX 移動先のX座標
+     * @param goalAlpha     移動後の透明度
+     */
+    private void startTuckAnimation(int goalPositionX, float goalAlpha) {
+        mTuckAnimator = ValueAnimator.ofPropertyValuesHolder(
+                PropertyValuesHolder.ofInt(ANIMATION_PROPERTY_X, mParams.x, goalPositionX),
+                PropertyValuesHolder.ofFloat(ANIMATION_PROPERTY_ALPHA, mParams.alpha, goalAlpha));
+        mTuckAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                mParams.x = (Integer) animation.getAnimatedValue(ANIMATION_PROPERTY_X);
+                mParams.alpha = (Float) animation.getAnimatedValue(ANIMATION_PROPERTY_ALPHA);
+                commitWindowLayout();
+            }
+        });
+        mTuckAnimator.addListener(new AnimatorListenerAdapter() {
+            /**
+             * キャンセルされた場合はtrue
+             */
+            private boolean mIsCanceled;
+
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                mIsCanceled = true;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                mTuckAnimator = null;
+                if (mIsCanceled) {
+                    return;
+                }
+                if (mIsTucked) {
+                    runIdleCallbacks();
+                } else {
+                    onUntucked();
+                }
+            }
+        });
+        mTuckAnimator.setDuration(TUCK_DURATION);
+        mTuckAnimator.setInterpolator(mTuckInterpolator);
+        mTuckAnimator.start();
+    }
+
+    /**
+     * 元の位置に戻った際の処理です。
+     */
+    private void onUntucked() {
+        if (getVisibility() == View.VISIBLE) {
+            restoreLiveView();
+            scheduleIdleTuck();
+        }
+        runIdleCallbacks();
+    }
+
+    /**
+     * 待機状態になった際に一度だけ実行する処理を登録します。<br/>
+     * 既に待機状態の場合はすぐに実行します。
+     *
+     * @param callback 実行する処理（同じ処理は重複して登録しません）
+     */
+    void runWhenIdle(Runnable callback) {
+        if (isIdle()) {
+            callback.run();
+        } else if (!mIdleCallbacks.contains(callback)) {
+            mIdleCallbacks.add(callback);
+        }
+    }
+
+    /**
+     * 待機状態の場合は、登録されている処理を実行します。
+     */
+    private void runIdleCallbacks() {
+        if (mIdleCallbacks.isEmpty() || !isIdle()) {
+            return;
+        }
+        final Runnable[] callbacks = mIdleCallbacks.toArray(new Runnable[mIdleCallbacks.size()]);
+        mIdleCallbacks.clear();
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+
+    /**
+     * 子Viewの内容が変わったことを通知します。<br/>
+     * 画面端に寄せている場合は元に戻し、スナップショットは待機状態でメインスレッドが空いた時に撮り直します。
+     */
+    void onContentChanged() {
+        mIsSnapshotDirty = true;
+        scheduleSnapshotCapture();
+        if (mIsTucked) {
+            untuck(true);
+        } else if (mIdleTuckMillis > 0 && mIdleTuckTimer.isScheduled()) {
+            scheduleIdleTuck();
+        }
+    }
+
+    /**
+     * 操作されていない場合に画面端に寄せる設定を行います。
+     *
+     * @param idleMillis 画面端に寄せるまでの時間(ミリ秒、0の場合は寄せない)
+     * @param fraction   表示範囲の外に出す幅の割合
+     * @param alpha      寄せた際のWindowの透明度
+     */
+    void setIdleTuck(long idleMillis, float fraction, float alpha) {
+        mIdleTuckMillis = idleMillis;
+        mIdleTuckFraction = fraction;
+        mIdleTuckAlpha = alpha;
+        if (idleMillis <= 0) {
+            cancelIdleTuck();
+            untuck(false);
+        }
+    }
+
+    /**
+     * スナップショットの撮り直しが必要な場合は、メインスレッドが空いた時に撮り直すよう予約します。
+     */
+    private void scheduleSnapshotCapture() {
+        if (mIsSnapshotProxyEnabled && mIsSnapshotDirty && !mIsRemoved && mIdleWorkScheduler != null) {
+            mIdleWorkScheduler.post(mCaptureSnapshotTask, IdleWorkScheduler.PRIORITY_LOW);
+        }
+    }
+
+    /**
+     * 表示中の子Viewのスナップショットを撮り直します。<br/>
+     * ソフトウェアで描画するため、操作・移動中には呼び出しません。
+     */
+    private void captureSnapshot() {
+        if (!mIsSnapshotProxyEnabled || !mIsSnapshotDirty || mIsRemoved || mLiveView != null || getChildCount() != 1) {
+            return;
+        }
+        final View liveView = getChildAt(0);
+        final int width = liveView.getWidth();
+        final int height = liveView.getHeight();
+        if (width == 0 || height == 0 || hasSurface(liveView)) {
+            return;
+        }
+        if (mSnapshotBitmap == null || mSnapshotBitmap.getWidth() != width || mSnapshotBitmap.getHeight() != height) {
+            mSnapshotBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        mSnapshotBitmap.eraseColor(Color.TRANSPARENT);
+        liveView.draw(new Canvas(mSnapshotBitmap));
+        mIsSnapshotDirty = false;
+    }
+
+    /**
+     * Surfaceに描画するViewを含むかチェックします。（SurfaceView・TextureViewはソフトウェアの描画でスナップショットを撮れません）
+     *
+     * @param view View
+     * @return SurfaceViewまたはTextureViewを含む場合はtrue
+     */
+    private static boolean hasSurface(View view) {
+        if (view instanceof SurfaceView || view instanceof TextureView) {
+            return true;
+        }
+        if (view instanceof ViewGroup) {
+            final ViewGroup group = (ViewGroup) view;
+            final int size = group.getChildCount();
+            for (int i = 0; i < size; i++) {
+                if (hasSurface(group.getChildAt(i))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 子Viewを取り外し、代わりにスナップショットを表示します。<br/>
+     * 撮り直しが必要なスナップショットは表示しません。
+     *
+     * @param canCapture 撮り直しが必要な場合にこの場で撮り直す場合はtrue（操作中はfalse）
+     * @return スナップショットを表示した場合はtrue
+     */
+    private boolean showSnapshot(boolean canCapture) {
+        if (!mIsSnapshotProxyEnabled || mLiveView != null || getChildCount() != 1) {
+            return false;
+        }
+        if (canCapture) {
+            captureSnapshot();
+        }
+        final View liveView = getChildAt(0);
+        final int width = liveView.getWidth();
+        final int height = liveView.getHeight();
+        if (mIsSnapshotDirty || mSnapshotBitmap == null || mSnapshotBitmap.getWidth() != width || mSnapshotBitmap.getHeight() != height || hasSurface(liveView)) {
+            return false;
+        }
+        if (mSnapshotView == null) {
+            mSnapshotView = new ImageView(getContext());
+            mSnapshotView.setScaleType(ImageView.ScaleType.FIT_XY);
+        }
+        mSnapshotView.setImageBitmap(mSnapshotBitmap);
+        // 子Viewと同じ位置・大きさで表示
+        final FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(width, height);
+        final ViewGroup.LayoutParams liveParams = liveView.getLayoutParams();
+        if (liveParams instanceof FrameLayout.LayoutParams) {
+            final FrameLayout.LayoutParams frameParams = (FrameLayout.LayoutParams) liveParams;
+            params.gravity = frameParams.gravity;
+            params.setMargins(frameParams.leftMargin, frameParams.topMargin, frameParams.rightMargin, frameParams.bottomMargin);
+        }
+        removeView(liveView);
+        addView(mSnapshotView, params);
+        mLiveView = liveView;
+        return true;
+    }
+
+    /**
+     * スナップショットを取り外し、子Viewを元に戻します。
+     */
+    private void restoreLiveView() {
+        if (mLiveView == null) {
+            return;
+        }
+        removeView(mSnapshotView);
+        mSnapshotView.setImageDrawable(null);
+        addView(mLiveView);
+        mLiveView = null;
+        scheduleSnapshotCapture();
+    }
+
+    /**
+     * 移動中・非表示中に子Viewの代わりにスナップショットを表示するかを設定します。
+     *
+     * @param enabled スナップショットを表示する場合はtrue
+     */
+    void setSnapshotProxyEnabled(boolean enabled) {
+        mIsSnapshotProxyEnabled = enabled;
+        if (enabled) {
+            mIsSnapshotDirty = true;
+            scheduleSnapshotCapture();
+        } else {
+            restoreLiveView();
+            mSnapshotBitmap = null;
+        }
+    }
+
+    /**
+     * 表示しているViewかどうかを取得します。（スナップショットの表示中に取り外している子Viewを含む）
+     *
+     * @param view View
+     * @return 子Viewまたはスナップショットの表示中に取り外している子Viewの場合はtrue
+     */
+    boolean isContentView(View view) {
+        return view.getParent() == this || (mLiveView != null && view == mLiveView);
+    }
+
+    /**
+     * 貼り付けたViewを取得します。（スナップショットの表示中は取り外している子View）
+     *
+     * @return 貼り付けたView（子Viewがない場合はnull）
+     */
+    View getContentView() {
+        if (mLiveView != null) {
+            return mLiveView;
+        }
+        return getChildCount() > 0 ? getChildAt(0) : null;
+    }
+
+    /**
+     * 押下中と移動アニメーション中にハードウェアレイヤーを使用するかを設定します。
+     *
+     * @param budget ハードウェアレイヤーのメモリの上限（使用しない場合はnull）
+     */
+    void setHardwareLayerBudget(HardwareLayerBudget budget) {
+        releaseHardwareLayer();
+        mHardwareLayerBudget = budget;
+    }
+
     /**
      * ドラッグ可能フラグ
      *
@@ -632,6 +1655,101 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         mIsDraggable = isDraggable;
     }
 
+    /**
+     * 動作性能の計測値の記録先を設定します。
+     *
+     * @param metrics FloatingViewMetrics
+     */
+    void setMetrics(FloatingViewMetrics metrics) {
+        mFloatingViewMetrics = metrics;
+    }
+
+    /**
+     * アニメーションのフレーム間隔と時間を設定します。
+     *
+     * @param framePacing FramePacing
+     */
+    void setFramePacing(FramePacing framePacing) {
+        mFramePacing = framePacing;
+    }
+
+    /**
+     * 長押し・画面端に寄せるタイマーを管理するタイマーホイールを設定します。
+     *
+     * @param timerWheel TimerWheel
+     */
+    void setTimerWheel(TimerWheel timerWheel) {
+        mTimerWheel = timerWheel;
+    }
+
+    /**
+     * スナップショットの撮り直しを予約するIdleWorkSchedulerを設定します。
+     *
+     * @param idleWorkScheduler IdleWorkScheduler
+     */
+    void setIdleWorkScheduler(IdleWorkScheduler idleWorkScheduler) {
+        mIdleWorkScheduler = idleWorkScheduler;
+    }
+
+    /**
+     * 画面端へ移動し終わった時に振動させるためのHapticFeedbackDispatcherを設定します。
+     *
+     * @param hapticFeedbackDispatcher HapticFeedbackDispatcher
+     */
+    void setHapticFeedbackDispatcher(HapticFeedbackDispatcher hapticFeedbackDispatcher) {
+        mHapticFeedbackDispatcher = hapticFeedbackDispatcher;
+    }
+
+    /**
+     * タッチ追従のアニメーション中にメインスレッドの停止を検出するStallWatchdogを設定します。
+     *
+     * @param stallWatchdog StallWatchdog
+     */
+    void setStallWatchdog(StallWatchdog stallWatchdog) {
+        mAnimationHandler.setStallWatchdog(stallWatchdog);
+    }
+
+    /**
+     * 状態の変化の配信先を設定します。
+     *
+     * @param dispatcher FloatingViewEventDispatcher
+     */
+    void setEventDispatcher(FloatingViewEventDispatcher dispatcher) {
+        mEventDispatcher = dispatcher;
+    }
+
+    /**
+     * 状態の変化を配信します。
+     *
+     * @param type FloatingViewEvent.TYPE_XXX
+     */
+    void dispatchEvent(int type) {
+        dispatchEvent(type, FloatingViewEvent.NO_DROP_TARGET);
+    }
+
+    /**
+     * ドロップ先に関する状態の変化を配信します。
+     *
+     * @param type         FloatingViewEvent.TYPE_XXX
+     * @param dropTargetId ドロップ先のID
+     */
+    void dispatchEvent(int type, int dropTargetId) {
+        if (mEventDispatcher != null) {
+            mEventDispatcher.dispatchEvent(this, type, dropTargetId);
+        }
+    }
+
+    /**
+     * タッチ・状態遷移の記録先を設定します。
+     *
+     * @param recorder    TouchTraceRecorder（記録しない場合はnull）
+     * @param traceTarget 記録時のFloatingViewの識別番号
+     */
+    void setTouchTraceRecorder(TouchTraceRecorder recorder, int traceTarget) {
+        mTouchTraceRecorder = recorder;
+        mTraceTarget = traceTarget;
+    }
+
     /**
      * Viewの形を表す定数
      *
@@ -673,6 +1791,16 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         }
     }
 
+    /**
+     * 吸着先を設定します。
+     *
+     * @param anchors FloatingViewAnchors（画面端に移動する場合はnull）
+     */
+    void setAnchors(FloatingViewAnchors anchors) {
+        mAnchors = anchors;
+        mIsAnchorIndexDirty = true;
+    }
+
     /**
      * 初期座標を設定します。
      *
@@ -724,6 +1852,7 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      * 通常状態に変更します。
      */
     void setNormal() {
+        recordStateTransition(STATE_NORMAL);
         mAnimationHandler.setState(STATE_NORMAL);
         mAnimationHandler.updateTouchPosition(getXByTouch(), getYByTouch());
     }
@@ -735,6 +1864,7 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      * @param centerY 対象の中心座標Y
      */
     void setIntersecting(int centerX, int centerY) {
+        recordStateTransition(STATE_INTERSECTING);
         mAnimationHandler.setState(STATE_INTERSECTING);
         mAnimationHandler.updateTargetPosition(centerX, centerY);
     }
@@ -743,6 +1873,7 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      * 終了状態に変更します。
      */
     void setFinishing() {
+        recordStateTransition(STATE_FINISHING);
         mAnimationHandler.setState(STATE_FINISHING);
         setVisibility(View.GONE);
     }
@@ -751,16 +1882,37 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         return mAnimationHandler.getState();
     }
 
+    /**
+     * 操作・移動されていない待機状態かどうかを取得します。
+     *
+     * @return 押下中・移動アニメーション中・削除Viewと重なっている場合はfalse
+     */
+    boolean isIdle() {
+        if (mAnimationHandler.mIsRunning || getState() != STATE_NORMAL) {
+            return false;
+        }
+        if (mTuckAnimator != null && mTuckAnimator.isStarted()) {
+            return false;
+        }
+        return mMoveEdgeAnimator == null || !mMoveEdgeAnimator.isStarted();
+    }
+
+    /**
+     * 状態が変わる場合のみ状態遷移を記録します。
+     *
+     * @param newState 遷移後の状態
+     */
+    private void recordStateTransition(int newState) {
+        if (mTouchTraceRecorder != null && mAnimationHandler.getState() != newState) {
+            mTouchTraceRecorder.recordState(mTraceTarget, mClock.uptimeMillis(), newState);
+        }
+    }
+
     /**
      * アニメーションの制御を行うハンドラです。
      */
     static class FloatingAnimationHandler extends Handler {
 
-        /**
-         * アニメーションをリフレッシュするミリ秒
-         */
-        private static final long ANIMATION_REFRESH_TIME_MILLIS = 17L;
-
         /**
          * FloatingViewの吸着の着脱時間
          */
@@ -835,11 +1987,36 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
          */
         private float mTargetPositionY;
 
+        /**
+         * 前回のフレームを処理した時間
+         */
+        private long mLastFrameTime;
+
+        /**
+         * アニメーション実行中の場合はtrue
+         */
+        private boolean mIsRunning;
+
         /**
          * FloatingView
          */
         private final WeakReference<FloatingView> mFloatingView;
 
+        /**
+         * メインスレッドの停止の検出
+         */
+        private StallWatchdog mStallWatchdog;
+
+        /**
+         * 2フレーム目以降を垂直同期に合わせて処理するFrameClock
+         */
+        private final FrameClock mFrameClock;
+
+        /**
+         * 次のフレームで処理するアニメーションのコード（予約していない場合はANIMATION_NONE）
+         */
+        private int mFrameAnimationCode;
+
         /**
          * コンストラクタ
          */
@@ -847,6 +2024,15 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
             mFloatingView = new WeakReference<>(floatingView);
             mStartedCode = ANIMATION_NONE;
             mState = STATE_NORMAL;
+            mFrameAnimationCode = ANIMATION_NONE;
+            mFrameClock = new FrameClock(new FrameClock.Callback() {
+                @Override
+                public void doFrame(long frameTimeMillis) {
+                    final int animationCode = mFrameAnimationCode;
+                    mFrameAnimationCode = ANIMATION_NONE;
+                    handleAnimationFrame(animationCode, TYPE_UPDATE);
+                }
+            });
         }
 
         /**
@@ -854,33 +2040,67 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
          */
         @Override
         public void handleMessage(Message msg) {
+            handleAnimationFrame(msg.what, msg.arg1);
+        }
+
+        /**
+         * アニメーションの1フレーム分の処理を行います。
+         *
+         * @param animationCode ANIMATION_IN_TOUCH
+         * @param animationType TYPE_FIRST,TYPE_UPDATE
+         */
+        private void handleAnimationFrame(int animationCode, int animationType) {
+            FloatingViewTrace.beginSection(FloatingViewTrace.SECTION_FLOATING_ANIMATION);
+            try {
+                handleAnimation(animationCode, animationType);
+            } finally {
+                FloatingViewTrace.endSection();
+            }
+        }
+
+        /**
+         * アニメーションの1フレーム分の処理を行います。
+         *
+         * @param animationCode ANIMATION_IN_TOUCH
+         * @param animationType TYPE_FIRST,TYPE_UPDATE
+         */
+        private void handleAnimation(int animationCode, int animationType) {
             final FloatingView floatingView = mFloatingView.get();
             if (floatingView == null) {
-                removeMessages(ANIMATION_IN_TOUCH);
+                cancelAnimationMessage(ANIMATION_IN_TOUCH);
                 return;
             }
 
-            final int animationCode = msg.what;
-            final int animationType = msg.arg1;
             final WindowManager.LayoutParams params = floatingView.mParams;
-            final WindowManager windowManager = floatingView.mWindowManager;
+
+            // フレーム間隔の揺らぎを記録
+            final long frameTime = floatingView.mClock.uptimeMillis();
+            final FramePacing framePacing = floatingView.mFramePacing;
+            final long frameIntervalMillis = framePacing.getFrameIntervalMillis();
+            if (animationType == TYPE_UPDATE) {
+                final long jitter = Math.abs(frameTime - mLastFrameTime - frameIntervalMillis);
+                floatingView.mFloatingViewMetrics.record(FloatingViewMetrics.HISTOGRAM_FRAME_JITTER, jitter);
+            }
+            mLastFrameTime = frameTime;
+            mStallWatchdog.onFrame(frameIntervalMillis);
 
             // 状態変更またはアニメーションを開始した場合の初期化
             if (mIsChangeState || animationType == TYPE_FIRST) {
                 // 状態変更時のみアニメーション時間を使う
-                mStartTime = mIsChangeState ? SystemClock.uptimeMillis() : 0;
+                mStartTime = mIsChangeState ? frameTime : 0;
                 mStartX = params.x;
                 mStartY = params.y;
                 mStartedCode = animationCode;
                 mIsChangeState = false;
+                setRunning(true);
             }
             // 経過時間
-            final float elapsedTime = SystemClock.uptimeMillis() - mStartTime;
-            final float trackingTargetTimeRate = Math.min(elapsedTime / CAPTURE_DURATION_MILLIS, 1.0f);
+            final float elapsedTime = frameTime - mStartTime;
+            final float trackingTargetTimeRate = FramePacing.calcProgress(elapsedTime, framePacing.scaleDuration(CAPTURE_DURATION_MILLIS));
 
             // 重なっていない場合のアニメーション
             if (mState == FloatingView.STATE_NORMAL) {
-                final float basePosition = calcAnimationPosition(trackingTargetTimeRate);
+                final float basePosition = PositionCalculator.calcAnimationPosition(trackingTargetTimeRate);
                 // 画面外へのオーバーを認める
                 final Rect moveLimitRect = floatingView.mMoveLimitRect;
                 // 最終的な到達点
@@ -888,41 +2108,77 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
                 final float targetPositionY = Math.min(Math.max(moveLimitRect.top, (int) mTouchPositionY), moveLimitRect.bottom);
                 params.x = (int) (mStartX + (targetPositionX - mStartX) * basePosition);
                 params.y = (int) (mStartY + (targetPositionY - mStartY) * basePosition);
-                windowManager.updateViewLayout(floatingView, params);
-                sendMessageAtTime(newMessage(animationCode, TYPE_UPDATE), SystemClock.uptimeMillis() + ANIMATION_REFRESH_TIME_MILLIS);
+                floatingView.commitWindowLayout();
+                scheduleNextFrame(animationCode, framePacing);
             }
             // 重なった場合のアニメーション
             else if (mState == FloatingView.STATE_INTERSECTING) {
-                final float basePosition = calcAnimationPosition(trackingTargetTimeRate);
+                final float basePosition = PositionCalculator.calcAnimationPosition(trackingTargetTimeRate);
                 // 最終的な到達点
                 final float targetPositionX = mTargetPositionX - floatingView.getWidth() / 2;
                 final float targetPositionY = mTargetPositionY - floatingView.getHeight() / 2;
                 // 現在地からの移動
                 params.x = (int) (mStartX + (targetPositionX - mStartX) * basePosition);
                 params.y = (int) (mStartY + (targetPositionY - mStartY) * basePosition);
-                windowManager.updateViewLayout(floatingView, params);
-                sendMessageAtTime(newMessage(animationCode, TYPE_UPDATE), SystemClock.uptimeMillis() + ANIMATION_REFRESH_TIME_MILLIS);
+                floatingView.commitWindowLayout();
+                scheduleNextFrame(animationCode, framePacing);
+            }
+            // 終了状態の場合はアニメーションを続けない
+            else {
+                setRunning(false);
             }
 
         }
 
         /**
-         * アニメーション時間から求められる位置を計算します。
+         * メインスレッドの停止を検出するStallWatchdogを設定します。
          *
-         * @param timeRate 時間比率
-         * @return ベースとなる係数(0.0から1.0＋α)
+         * @param stallWatchdog StallWatchdog
          */
-        private static float calcAnimationPosition(float timeRate) {
-            final float position;
-            // y=0.55sin(8.0564x-π/2)+0.55
-            if (timeRate <= 0.4) {
-                position = (float) (0.55 * Math.sin(8.0564 * timeRate - Math.PI / 2) + 0.55);
+        void setStallWatchdog(StallWatchdog stallWatchdog) {
+            mStallWatchdog = stallWatchdog;
+        }
+
+        /**
+         * 次のフレームを垂直同期に合わせて予約します。
+         *
+         * @param animation   ANIMATION_IN_TOUCH
+         * @param framePacing フレーム間隔
+         */
+        private void scheduleNextFrame(int animation, FramePacing framePacing) {
+            mFrameAnimationCode = animation;
+            mFrameClock.scheduleFrameDelayed(framePacing.getFrameDelayMillis());
+        }
+
+        /**
+         * アニメーションのメッセージと予約したフレームを削除し、アニメーションを停止します。
+         *
+         * @param animation ANIMATION_IN_TOUCH
+         */
+        void cancelAnimationMessage(int animation) {
+            removeMessages(animation);
+            if (mFrameAnimationCode == animation) {
+                mFrameAnimationCode = ANIMATION_NONE;
+                mFrameClock.cancelFrame();
             }
-            // y=4(0.417x-0.341)^2-4(0.417-0.341)^2+1
-            else {
-                position = (float) (4 * Math.pow(0.417 * timeRate - 0.341, 2) - 4 * Math.pow(0.417 - 0.341, 2) + 1);
+            setRunning(false);
+        }
+
+        /**
+         * アニメーションの実行状態を更新します。
+         *
+         * @param isRunning 実行中の場合はtrue
+         */
+        private void setRunning(boolean isRunning) {
+            if (mIsRunning != isRunning) {
+                mIsRunning = isRunning;
+                FloatingViewTrace.onAnimationStateChanged(isRunning);
+                if (isRunning) {
+                    mStallWatchdog.onAnimationStarted();
+                } else {
+                    mStallWatchdog.onAnimationStopped();
+                }
             }
-            return position;
         }
 
         /**
@@ -932,7 +2188,7 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
          * @param delayMillis メッセージの送信時間
          */
         void sendAnimationMessageDelayed(int animation, long delayMillis) {
-            sendMessageAtTime(newMessage(animation, TYPE_FIRST), SystemClock.uptimeMillis() + delayMillis);
+            sendMessageDelayed(newMessage(animation, TYPE_FIRST), delayMillis);
         }
 
         /**
@@ -1002,41 +2258,4 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
             return mState;
         }
     }
-
-    /**
-     * 長押し処理を制御するハンドラです。<br/>
-     * dispatchTouchEventで全てのタッチ処理を実装しているので、長押しも独自実装しています。
-     */
-    static class LongPressHandler extends Handler {
-
-        /**
-         * TrashView
-         */
-        private WeakReference<FloatingView> mFloatingView;
-
-        /**
-         * アニメーションなしの状態を表す定数
-         */
-        private static final int LONG_PRESSED = 0;
-
-        /**
-         * コンストラクタ
-         *
-         * @param view FloatingView
-         */
-        LongPressHandler(FloatingView view) {
-            mFloatingView = new WeakReference<>(view);
-        }
-
-        @Override
-        public void handleMessage(Message msg) {
-            FloatingView view = mFloatingView.get();
-            if (view == null) {
-                removeMessages(LONG_PRESSED);
-                return;
-            }
-
-            view.onLongClick();
-        }
-    }
 }
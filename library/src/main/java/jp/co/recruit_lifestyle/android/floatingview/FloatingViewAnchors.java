@@ -0,0 +1,186 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import java.util.Arrays;
+
+/**
+ * FloatingViewが離された時に吸着する位置の集合です。<br/>
+ * 位置は表示位置の限界に対する比率で指定します。X座標は左端が0.0、Y座標は下端が0.0です。<br/>
+ * 画面サイズが変化した場合は比率から位置が再計算されます。
+ */
+public class FloatingViewAnchors {
+
+    /**
+     * 離した時の速度から移動先を予測する時間のデフォルト値(ミリ秒)
+     */
+    public static final int DEFAULT_VELOCITY_PROJECTION_MILLIS = 150;
+
+    /**
+     * 配列の初期サイズ
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * 吸着先のX座標の比率
+     */
+    private float[] mFractionX;
+
+    /**
+     * 吸着先のY座標の比率
+     */
+    private float[] mFractionY;
+
+    /**
+     * 吸着先の数
+     */
+    private int mSize;
+
+    /**
+     * 離した時の速度から移動先を予測する時間(ミリ秒)
+     */
+    private int mVelocityProjectionMillis;
+
+    /**
+     * コンストラクタ
+     */
+    public FloatingViewAnchors() {
+        mFractionX = new float[INITIAL_CAPACITY];
+        mFractionY = new float[INITIAL_CAPACITY];
+        mVelocityProjectionMillis = DEFAULT_VELOCITY_PROJECTION_MILLIS;
+    }
+
+    /**
+     * 吸着先を追加します。
+     *
+     * @param fractionX X座標の比率(0.0から1.0、左端が0.0)
+     * @param fractionY Y座標の比率(0.0から1.0、下端が0.0)
+     * @return FloatingViewAnchors
+     */
+    public FloatingViewAnchors addPoint(float fractionX, float fractionY) {
+        if (mSize == mFractionX.length) {
+            mFractionX = Arrays.copyOf(mFractionX, mSize * 2);
+            mFractionY = Arrays.copyOf(mFractionY, mSize * 2);
+        }
+        mFractionX[mSize] = Math.min(Math.max(fractionX, 0.0f), 1.0f);
+        mFractionY[mSize] = Math.min(Math.max(fractionY, 0.0f), 1.0f);
+        mSize++;
+        return this;
+    }
+
+    /**
+     * 画面の四隅を吸着先に追加します。（ピクチャーインピクチャーのような配置）
+     *
+     * @return FloatingViewAnchors
+     */
+    public FloatingViewAnchors addCorners() {
+        addPoint(0.0f, 0.0f);
+        addPoint(1.0f, 0.0f);
+        addPoint(0.0f, 1.0f);
+        addPoint(1.0f, 1.0f);
+        return this;
+    }
+
+    /**
+     * 左右の画面端に等間隔の吸着先を追加します。
+     *
+     * @param slotCount 片側の吸着先の数
+     * @return FloatingViewAnchors
+     */
+    public FloatingViewAnchors addEdgeSlots(int slotCount) {
+        for (int i = 0; i < slotCount; i++) {
+            final float fractionY = calcFraction(i, slotCount);
+            addPoint(0.0f, fractionY);
+            addPoint(1.0f, fractionY);
+        }
+        return this;
+    }
+
+    /**
+     * 格子状の吸着先を追加します。
+     *
+     * @param columns 列数
+     * @param rows    行数
+     * @return FloatingViewAnchors
+     */
+    public FloatingViewAnchors addGrid(int columns, int rows) {
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                addPoint(calcFraction(column, columns), calcFraction(row, rows));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 離した時の速度から移動先を予測する時間を設定します。0の場合は離した位置に最も近い吸着先に移動します。
+     *
+     * @param millis 予測する時間(ミリ秒)
+     * @return FloatingViewAnchors
+     */
+    public FloatingViewAnchors setVelocityProjectionMillis(int millis) {
+        mVelocityProjectionMillis = Math.max(millis, 0);
+        return this;
+    }
+
+    /**
+     * 吸着先の数を取得します。
+     *
+     * @return 吸着先の数
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * 離した時の速度から移動先を予測する時間を取得します。
+     *
+     * @return 予測する時間(ミリ秒)
+     */
+    int getVelocityProjectionMillis() {
+        return mVelocityProjectionMillis;
+    }
+
+    /**
+     * 吸着先のX座標の比率の配列を取得します。
+     *
+     * @return size()以上の長さの配列
+     */
+    float[] getFractionX() {
+        return mFractionX;
+    }
+
+    /**
+     * 吸着先のY座標の比率の配列を取得します。
+     *
+     * @return size()以上の長さの配列
+     */
+    float[] getFractionY() {
+        return mFractionY;
+    }
+
+    /**
+     * 等間隔に並べた場合の比率を計算します。1つの場合は中央になります。
+     *
+     * @param index 位置
+     * @param count 数
+     * @return 比率(0.0から1.0)
+     */
+    private static float calcFraction(int index, int count) {
+        return count <= 1 ? 0.5f : index / (float) (count - 1);
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.view.View;
+
+/**
+ * FloatingViewの状態の変化を表すクラスです。<br/>
+ * インスタンスは再利用されるため、{@link FloatingViewEventListener#onFloatingViewEvent(FloatingViewEvent)}の外で参照を保持しないでください。
+ */
+public class FloatingViewEvent {
+
+    /**
+     * ドラッグを開始
+     */
+    public static final int TYPE_DRAG_START = 1;
+
+    /**
+     * ドラッグを終了
+     */
+    public static final int TYPE_DRAG_END = 2;
+
+    /**
+     * 画面端などへの移動が完了
+     */
+    public static final int TYPE_SETTLE = 3;
+
+    /**
+     * 削除Viewと重なり始めた
+     */
+    public static final int TYPE_TRASH_ENTER = 4;
+
+    /**
+     * 削除Viewと重なり終わった
+     */
+    public static final int TYPE_TRASH_EXIT = 5;
+
+    /**
+     * 表示状態が変化
+     */
+    public static final int TYPE_VISIBILITY = 6;
+
+    /**
+     * 位置が変化（1フレームに1回まで）
+     */
+    public static final int TYPE_POSITION = 7;
+
+    /**
+     * ドロップ先と重なり始めた
+     */
+    public static final int TYPE_DROP_TARGET_ENTER = 8;
+
+    /**
+     * ドロップ先と重なり終わった
+     */
+    public static final int TYPE_DROP_TARGET_EXIT = 9;
+
+    /**
+     * ドロップ先と重なった状態で離された
+     */
+    public static final int TYPE_DROP = 10;
+
+    /**
+     * ドロップ先がないことを表すID
+     */
+    public static final int NO_DROP_TARGET = -1;
+
+    /**
+     * イベントの種類
+     */
+    private int mType;
+
+    /**
+     * 対象のView
+     */
+    private View mView;
+
+    /**
+     * X座標
+     */
+    private int mX;
+
+    /**
+     * Y座標
+     */
+    private int mY;
+
+    /**
+     * 表示状態
+     */
+    private int mVisibility;
+
+    /**
+     * イベントの時刻
+     */
+    private long mEventTime;
+
+    /**
+     * ドロップ先のID
+     */
+    private int mDropTargetId;
+
+    /**
+     * コンストラクタ
+     */
+    FloatingViewEvent() {
+    }
+
+    /**
+     * 内容を設定します。
+     *
+     * @param type         イベントの種類
+     * @param view         対象のView
+     * @param x            X座標
+     * @param y            Y座標
+     * @param visibility   表示状態
+     * @param eventTime    イベントの時刻
+     * @param dropTargetId ドロップ先のID
+     */
+    void set(int type, View view, int x, int y, int visibility, long eventTime, int dropTargetId) {
+        mType = type;
+        mView = view;
+        mX = x;
+        mY = y;
+        mVisibility = visibility;
+        mEventTime = eventTime;
+        mDropTargetId = dropTargetId;
+    }
+
+    /**
+     * 参照を破棄します。
+     */
+    void clear() {
+        mView = null;
+    }
+
+    /**
+     * イベントの種類を取得します。
+     *
+     * @return TYPE_DRAG_START etc.
+     */
+    public int getType() {
+        return mType;
+    }
+
+    /**
+     * 対象のViewを取得します。
+     *
+     * @return {@link FloatingViewManager#addViewToWindow(View, FloatingViewManager.Options)}で貼り付けたView
+     */
+    public View getView() {
+        return mView;
+    }
+
+    /**
+     * X座標を取得します。
+     *
+     * @return 画面左端からのWindowのX座標
+     */
+    public int getX() {
+        return mX;
+    }
+
+    /**
+     * Y座標を取得します。
+     *
+     * @return 画面下端からのWindowのY座標
+     */
+    public int getY() {
+        return mY;
+    }
+
+    /**
+     * 表示状態を取得します。
+     *
+     * @return View.VISIBLE or View.INVISIBLE or View.GONE
+     */
+    public int getVisibility() {
+        return mVisibility;
+    }
+
+    /**
+     * イベントの時刻を取得します。
+     *
+     * @return uptimeMillis
+     */
+    public long getEventTime() {
+        return mEventTime;
+    }
+
+    /**
+     * ドロップ先のIDを取得します。
+     *
+     * @return {@link FloatingViewManager#addDropTarget(int, android.graphics.Rect)}で登録したID（TYPE_DROP_TARGET_XXX・TYPE_DROP以外はNO_DROP_TARGET）
+     */
+    public int getDropTargetId() {
+        return mDropTargetId;
+    }
+}
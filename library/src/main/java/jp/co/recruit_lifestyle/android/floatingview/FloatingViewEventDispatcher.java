@@ -0,0 +1,214 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.view.View;
+import android.view.WindowManager;
+
+import java.util.ArrayList;
+
+/**
+ * FloatingViewEventをリスナに配信するクラスです。<br/>
+ * 位置の変化はフレームごとにまとめ、FloatingViewごとに最新の位置のみを配信します。<br/>
+ * リスナが登録されていない場合は何もしません。
+ */
+class FloatingViewEventDispatcher implements FrameClock.Callback {
+
+    /**
+     * 事前に確保するイベントの数（リスナ内で別のイベントが発生した場合の入れ子の深さ）
+     */
+    private static final int EVENT_POOL_SIZE = 4;
+
+    /**
+     * 空のリスナ配列
+     */
+    private static final FloatingViewEventListener[] EMPTY_LISTENERS = new FloatingViewEventListener[0];
+
+    /**
+     * 登録されているリスナ（変更時に配列を作り直す）
+     */
+    private FloatingViewEventListener[] mListeners;
+
+    /**
+     * 再利用するイベント
+     */
+    private final FloatingViewEvent[] mEventPool;
+
+    /**
+     * 配信中のイベントの入れ子の深さ
+     */
+    private int mDispatchDepth;
+
+    /**
+     * 位置の変化を配信待ちのFloatingView
+     */
+    private final ArrayList<FloatingView> mPendingPositionViews;
+
+    /**
+     * 位置の変化を配信するフレームの時計
+     */
+    private final FrameClock mFrameClock;
+
+    /**
+     * イベントの時刻の取得に使用する時計
+     */
+    private final Clock mClock;
+
+    /**
+     * コンストラクタ
+     *
+     * @param clock イベントの時刻の取得に使用する時計
+     */
+    FloatingViewEventDispatcher(Clock clock) {
+        mClock = clock;
+        mListeners = EMPTY_LISTENERS;
+        mEventPool = new FloatingViewEvent[EVENT_POOL_SIZE];
+        for (int i = 0; i < EVENT_POOL_SIZE; i++) {
+            mEventPool[i] = new FloatingViewEvent();
+        }
+        mPendingPositionViews = new ArrayList<>();
+        mFrameClock = new FrameClock(this);
+    }
+
+    /**
+     * リスナを登録します。
+     *
+     * @param listener FloatingViewEventListener
+     */
+    void addListener(FloatingViewEventListener listener) {
+        for (FloatingViewEventListener registered : mListeners) {
+            if (registered == listener) {
+                return;
+            }
+        }
+        final FloatingViewEventListener[] listeners = new FloatingViewEventListener[mListeners.length + 1];
+        System.arraycopy(mListeners, 0, listeners, 0, mListeners.length);
+        listeners[mListeners.length] = listener;
+        mListeners = listeners;
+    }
+
+    /**
+     * リスナの登録を解除します。
+     *
+     * @param listener FloatingViewEventListener
+     */
+    void removeListener(FloatingViewEventListener listener) {
+        final int size = mListeners.length;
+        for (int i = 0; i < size; i++) {
+            if (mListeners[i] == listener) {
+                final FloatingViewEventListener[] listeners = new FloatingViewEventListener[size - 1];
+                System.arraycopy(mListeners, 0, listeners, 0, i);
+                System.arraycopy(mListeners, i + 1, listeners, i, size - i - 1);
+                mListeners = listeners;
+                break;
+            }
+        }
+        // 配信先がなくなった場合は配信待ちを破棄
+        if (mListeners.length == 0) {
+            mPendingPositionViews.clear();
+            mFrameClock.cancelFrame();
+        }
+    }
+
+    /**
+     * イベントを直ちに配信します。
+     *
+     * @param floatingView 対象のFloatingView
+     * @param type         FloatingViewEvent.TYPE_XXX
+     */
+    void dispatchEvent(FloatingView floatingView, int type) {
+        dispatchEvent(floatingView, type, FloatingViewEvent.NO_DROP_TARGET);
+    }
+
+    /**
+     * ドロップ先に関するイベントを直ちに配信します。
+     *
+     * @param floatingView 対象のFloatingView
+     * @param type         FloatingViewEvent.TYPE_XXX
+     * @param dropTargetId ドロップ先のID
+     */
+    void dispatchEvent(FloatingView floatingView, int type, int dropTargetId) {
+        if (mListeners.length == 0) {
+            return;
+        }
+        dispatchEvent(floatingView, type, mClock.uptimeMillis(), dropTargetId);
+    }
+
+    /**
+     * FloatingViewの位置が変化したことを通知します。配信は次のフレームで行われます。
+     *
+     * @param floatingView 対象のFloatingView
+     */
+    void onPositionChanged(FloatingView floatingView) {
+        if (mListeners.length == 0) {
+            return;
+        }
+        if (!mPendingPositionViews.contains(floatingView)) {
+            mPendingPositionViews.add(floatingView);
+        }
+        mFrameClock.scheduleFrame();
+    }
+
+    /**
+     * 取り外されたFloatingViewの配信待ちを破棄します。
+     *
+     * @param floatingView 対象のFloatingView
+     */
+    void onFloatingViewRemoved(FloatingView floatingView) {
+        mPendingPositionViews.remove(floatingView);
+    }
+
+    /**
+     * 配信待ちの位置の変化を配信します。
+     *
+     * @param frameTimeMillis フレームの時刻(uptimeMillis)
+     */
+    @Override
+    public void doFrame(long frameTimeMillis) {
+        // 配信中に追加されたものは次のフレームで配信
+        final int size = mPendingPositionViews.size();
+        for (int i = 0; i < size && !mPendingPositionViews.isEmpty(); i++) {
+            dispatchEvent(mPendingPositionViews.remove(0), FloatingViewEvent.TYPE_POSITION, frameTimeMillis, FloatingViewEvent.NO_DROP_TARGET);
+        }
+    }
+
+    /**
+     * 事前に確保したイベントに内容を設定して配信します。
+     *
+     * @param floatingView 対象のFloatingView
+     * @param type         FloatingViewEvent.TYPE_XXX
+     * @param eventTime    イベントの時刻
+     * @param dropTargetId ドロップ先のID
+     */
+    private void dispatchEvent(FloatingView floatingView, int type, long eventTime, int dropTargetId) {
+        final FloatingViewEvent event = mDispatchDepth < EVENT_POOL_SIZE ? mEventPool[mDispatchDepth] : new FloatingViewEvent();
+        final WindowManager.LayoutParams params = floatingView.getWindowLayoutParams();
+        final View contentView = floatingView.getContentView();
+        final View view = contentView != null ? contentView : floatingView;
+        event.set(type, view, params.x, params.y, floatingView.getVisibility(), eventTime, dropTargetId);
+        final FloatingViewEventListener[] listeners = mListeners;
+        mDispatchDepth++;
+        try {
+            for (FloatingViewEventListener listener : listeners) {
+                listener.onFloatingViewEvent(event);
+            }
+        } finally {
+            mDispatchDepth--;
+            event.clear();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+/**
+ * FloatingViewの状態の変化を受け取るリスナです。
+ */
+public interface FloatingViewEventListener {
+
+    /**
+     * FloatingViewの状態が変化した時に呼ばれます。<br/>
+     * 位置の変化は1フレームに1回、最新の位置のみ通知されます。<br/>
+     * eventは再利用されるため、このメソッドの外で参照を保持しないでください。
+     *
+     * @param event FloatingViewEvent
+     */
+    void onFloatingViewEvent(FloatingViewEvent event);
+}
@@ -16,16 +16,24 @@
 
 package jp.co.recruit_lifestyle.android.floatingview;
 
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
-import android.os.Vibrator;
+import android.os.Build;
+import android.os.PowerManager;
+import android.util.DisplayMetrics;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewTreeObserver;
 import android.view.WindowManager;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * FloatingViewを扱うクラスです。
@@ -66,6 +74,31 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      */
     public static final int MOVE_DIRECTION_NONE = 3;
 
+    /**
+     * 移動を始めるとすぐに削除Viewを表示する方式
+     */
+    public static final int TRASH_REVEAL_IMMEDIATE = 0;
+
+    /**
+     * 削除Viewへ向かって移動した場合か、一定時間移動し続けた場合に削除Viewを表示する方式
+     */
+    public static final int TRASH_REVEAL_PREDICTIVE = 1;
+
+    /**
+     * 振動の種類：削除Viewと重なった場合（デフォルトはVIBRATE_INTERSECTS_MILLISの振動）
+     */
+    public static final int HAPTIC_TRASH_ENTER = 0;
+
+    /**
+     * 振動の種類：ドロップ先と重なった場合（デフォルトは振動なし）
+     */
+    public static final int HAPTIC_DROP_TARGET_ENTER = 1;
+
+    /**
+     * 振動の種類：離した後に画面端へ移動し終わった場合（デフォルトは振動なし）
+     */
+    public static final int HAPTIC_SNAP = 2;
+
     /**
      * FloatingViewと削除ボタンが重なった時のバイブレーション時間(ミリ秒)
      */
@@ -81,6 +114,61 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      */
     public static final float SHAPE_RECTANGLE = 1.4142f;
 
+    /**
+     * ドロップ先の索引のセルの最小の大きさ(dp)
+     */
+    private static final int DROP_TARGET_CELL_SIZE_DP = 64;
+
+    /**
+     * 移動中に削除Viewへの到達を予測する時間(ミリ秒)
+     */
+    private static final long TRASH_CAPTURE_LOOKAHEAD_MILLIS = 60;
+
+    /**
+     * 押上時に削除Viewへの到達を予測する時間(ミリ秒)
+     */
+    private static final long TRASH_FLING_LOOKAHEAD_MILLIS = 200;
+
+    /**
+     * 取り込む領域を使用しない（実際に重なる必要がある）削除Viewへの接近速度(dp/s)
+     */
+    private static final float TRASH_CAPTURE_SLOW_SPEED_DP = 300;
+
+    /**
+     * 取り込む領域が最大になる削除Viewへの接近速度(dp/s)
+     */
+    private static final float TRASH_CAPTURE_FAST_SPEED_DP = 1500;
+
+    /**
+     * 取り込む領域の最大の倍率
+     */
+    private static final float TRASH_CAPTURE_MAX_SCALE = 2.0f;
+
+    /**
+     * 重なっている状態から外れる際の取り込む領域の倍率(境界でのばたつき防止)
+     */
+    private static final float TRASH_CAPTURE_EXIT_SCALE = 1.5f;
+
+    /**
+     * 投げて削除するのに必要な削除Viewへの接近速度(dp/s)
+     */
+    private static final float TRASH_FLING_MIN_SPEED_DP = 1000;
+
+    /**
+     * 削除Viewを表示する削除Viewへの接近速度の初期値(dp/s)
+     */
+    private static final float DEFAULT_TRASH_REVEAL_MIN_SPEED_DP = 400;
+
+    /**
+     * 削除Viewを表示する移動方向と削除Viewの方向のなす角の初期値(度)
+     */
+    private static final float DEFAULT_TRASH_REVEAL_MAX_ANGLE_DEGREES = 35;
+
+    /**
+     * 全てのFloatingViewのハードウェアレイヤーのメモリの上限の初期値(byte)
+     */
+    private static final int DEFAULT_HARDWARE_LAYER_BUDGET_BYTES = 4 * 1024 * 1024;
+
     /**
      * Context
      */
@@ -91,6 +179,11 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      */
     private final WindowManager mWindowManager;
 
+    /**
+     * アニメーションの経過時間の計算に使用する時計
+     */
+    private final Clock mClock;
+
     /**
      * 操作状態のFloatingView
      */
@@ -122,9 +215,14 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
     private final Rect mTrashViewRect;
 
     /**
-     * Vibrator
+     * 操作に応じた振動
      */
-    private final Vibrator mVibrator;
+    private final HapticFeedbackDispatcher mHapticFeedbackDispatcher;
+
+    /**
+     * アニメーション中のメインスレッドの停止の検出
+     */
+    private final StallWatchdog mStallWatchdog;
 
     /**
      * タッチの移動を許可するフラグ
@@ -143,6 +241,106 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      */
     private final ArrayList<FloatingView> mFloatingViewList;
 
+    /**
+     * 動作性能の計測値
+     */
+    private final FloatingViewMetrics mFloatingViewMetrics;
+
+    /**
+     * FloatingViewのハードウェアレイヤーのメモリの上限
+     */
+    private final HardwareLayerBudget mHardwareLayerBudget;
+
+    /**
+     * アニメーションのフレーム間隔と時間
+     */
+    private final FramePacing mFramePacing;
+
+    /**
+     * 長押し・削除Viewの表示待ち・画面端に寄せるまでの時間など、全てのタイムアウトを管理するタイマーホイール
+     */
+    private final TimerWheel mTimerWheel;
+
+    /**
+     * フレーム内で行う必要のない処理を、メインスレッドが空いた時に実行するスケジューラ
+     */
+    private final IdleWorkScheduler mIdleWorkScheduler;
+
+    /**
+     * FloatingViewが全て取り外されたことを通知する処理
+     */
+    private final Runnable mFinishTask;
+
+    /**
+     * ホストにより一時停止されている場合はtrue
+     */
+    private boolean mIsPausedByHost;
+
+    /**
+     * 画面がオフのため一時停止されている場合はtrue
+     */
+    private boolean mIsScreenOff;
+
+    /**
+     * 一時停止中の場合はtrue
+     */
+    private boolean mIsSuspended;
+
+    /**
+     * 画面のオン・オフを受け取るレシーバ（登録していない場合はnull）
+     */
+    private BroadcastReceiver mScreenStateReceiver;
+
+    /**
+     * FloatingViewの表示・非表示のフェード
+     */
+    private final WindowFader mWindowFader;
+
+    /**
+     * タッチ・状態遷移の記録先（記録していない場合はnull）
+     */
+    private TouchTraceRecorder mTouchTraceRecorder;
+
+    /**
+     * FloatingViewの状態の変化の配信
+     */
+    private final FloatingViewEventDispatcher mEventDispatcher;
+
+    /**
+     * ドロップ先の索引
+     */
+    private final DropTargetIndex mDropTargetIndex;
+
+    /**
+     * 操作中のFloatingViewと重なっているドロップ先のID
+     */
+    private int mDropTargetId;
+
+    /**
+     * 画面密度
+     */
+    private final float mDensity;
+
+    /**
+     * 速度から削除Viewへの到達を予測する場合はtrue
+     */
+    private boolean mIsTrashCapturePredictionEnabled;
+
+    /**
+     * 削除Viewの表示方式
+     */
+    private int mTrashRevealPolicy;
+
+    /**
+     * 削除Viewを表示する削除Viewへの接近速度(px/s)
+     */
+    private float mTrashRevealMinSpeed;
+
+    /**
+     * 削除Viewを表示する移動方向と削除Viewの方向のなす角の余弦
+     */
+    private float mTrashRevealMinCosine;
+
     /**
      * コンストラクタ
      *
@@ -150,23 +348,65 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      * @param listener FloatingViewListener
      */
     public FloatingViewManager(Context context, FloatingViewListener listener) {
+        this(context, listener, (WindowManager) context.getSystemService(Context.WINDOW_SERVICE), Clock.SYSTEM);
+    }
+
+    /**
+     * コンストラクタ（WindowManagerと時計を差し替える場合）
+     *
+     * @param context       Context
+     * @param listener      FloatingViewListener
+     * @param windowManager WindowManager
+     * @param clock         アニメーションの経過時間の計算に使用する時計
+     */
+    FloatingViewManager(Context context, FloatingViewListener listener, WindowManager windowManager, Clock clock) {
         mContext = context;
-        mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        mWindowManager = windowManager;
+        mClock = clock;
         mFloatingViewListener = listener;
         mFloatingViewRect = new Rect();
         mTrashViewRect = new Rect();
-        mVibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
+        mHapticFeedbackDispatcher = new HapticFeedbackDispatcher(context, clock);
+        mHapticFeedbackDispatcher.setEffect(HAPTIC_TRASH_ENTER, new long[]{VIBRATE_INTERSECTS_MILLIS});
+        mStallWatchdog = new StallWatchdog(clock);
         mIsMoveAccept = false;
         mDisplayMode = DISPLAY_MODE_HIDE_FULLSCREEN;
+        mFloatingViewMetrics = new FloatingViewMetrics();
+        mHardwareLayerBudget = new HardwareLayerBudget(DEFAULT_HARDWARE_LAYER_BUDGET_BYTES, mFloatingViewMetrics);
+        mEventDispatcher = new FloatingViewEventDispatcher(clock);
+        mFramePacing = new FramePacing(context, windowManager, mFloatingViewMetrics);
+        mWindowFader = new WindowFader(clock, mFramePacing);
+        mTimerWheel = new TimerWheel(clock);
+        mIdleWorkScheduler = new IdleWorkScheduler(clock, mTimerWheel);
+        mFramePacing.setIdleWorkScheduler(mIdleWorkScheduler);
+        mFinishTask = new Runnable() {
+            @Override
+            public void run() {
+                // 通知までの間に再び貼り付けられた場合は通知しない
+                if (mFloatingViewList.isEmpty() && mFloatingViewListener != null) {
+                    mFloatingViewListener.onFinishFloatingView();
+                }
+            }
+        };
+        mDensity = context.getResources().getDisplayMetrics().density;
+        mDropTargetIndex = new DropTargetIndex((int) (DROP_TARGET_CELL_SIZE_DP * mDensity));
+        mDropTargetId = FloatingViewEvent.NO_DROP_TARGET;
+        mTrashRevealPolicy = TRASH_REVEAL_IMMEDIATE;
+        mTrashRevealMinSpeed = DEFAULT_TRASH_REVEAL_MIN_SPEED_DP * mDensity;
+        mTrashRevealMinCosine = (float) Math.cos(Math.toRadians(DEFAULT_TRASH_REVEAL_MAX_ANGLE_DEGREES));
 
         // FloatingViewと連携するViewの構築
         mFloatingViewList = new ArrayList<>();
         mFullscreenObserverView = new FullscreenObserverView(context, this);
-        mTrashView = new TrashView(context);
+        mTrashView = new TrashView(context, windowManager, clock);
+        mTrashView.setMetrics(mFloatingViewMetrics);
+        mTrashView.setFramePacing(mFramePacing);
+        mTrashView.setTimerWheel(mTimerWheel);
     }
 
     /**
-     * 削除Viewと重なっているかチェックします。
+     * 削除Viewと重なっているかチェックします。<br/>
+     * 操作中のFloatingViewの矩形は事前にmFloatingViewRectに取得しておく必要があります。
      *
      * @return 削除Viewと重なっている場合はtrue
      */
@@ -175,10 +415,131 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
         if (!mTrashView.isTrashEnabled()) {
             return false;
         }
-        // INFO:TrashViewとFloatingViewは同じGravityにする必要があります
-        mTrashView.getWindowDrawingRect(mTrashViewRect);
+        // 移動方向から表示する場合は、表示されるまで重なり判定を行わない
+        if (mTrashRevealPolicy == TRASH_REVEAL_PREDICTIVE && !mTrashView.isOpening()) {
+            return false;
+        }
+        FloatingViewTrace.beginSection(FloatingViewTrace.SECTION_INTERSECT_WITH_TRASH);
+        try {
+            // INFO:TrashViewとFloatingViewは同じGravityにする必要があります
+            mTrashView.getWindowDrawingRect(mTrashViewRect);
+            return PositionCalculator.isIntersecting(mFloatingViewRect, mTargetFloatingView.getShape() == SHAPE_CIRCLE, mTrashViewRect);
+        } finally {
+            FloatingViewTrace.endSection();
+        }
+    }
+
+    /**
+     * 速度から予測して削除Viewに取り込むかチェックします。<br/>
+     * 削除Viewへ速く近づいている場合は取り込む領域を広げ、軌道の先に削除Viewがある場合も取り込みます。
+     * 遅い場合は実際に重なる必要があります。<br/>
+     * 操作中のFloatingViewの矩形は事前にmFloatingViewRectに取得しておく必要があります。
+     *
+     * @param wasIntersecting これまで重なっていた場合はtrue
+     * @return 削除Viewに取り込む場合はtrue
+     */
+    private boolean isCapturedByTrash(boolean wasIntersecting) {
+        // 無効の場合は重なり判定を行わない
+        if (!mTrashView.isTrashEnabled()) {
+            return false;
+        }
+        // 移動方向から表示する場合は、表示されるまで重なり判定を行わない
+        if (mTrashRevealPolicy == TRASH_REVEAL_PREDICTIVE && !mTrashView.isOpening()) {
+            return false;
+        }
+        FloatingViewTrace.beginSection(FloatingViewTrace.SECTION_INTERSECT_WITH_TRASH);
+        try {
+            final float approachSpeed = getTrashApproachSpeed();
+            final float slowSpeed = TRASH_CAPTURE_SLOW_SPEED_DP * mDensity;
+            final float fastSpeed = TRASH_CAPTURE_FAST_SPEED_DP * mDensity;
+            float captureScale = TRASH_CAPTURE_MAX_SCALE * Math.min(1.0f, Math.max(0.0f, approachSpeed - slowSpeed) / (fastSpeed - slowSpeed));
+            // 一度重なった場合は外れにくくする
+            if (wasIntersecting) {
+                captureScale = Math.max(captureScale, TRASH_CAPTURE_EXIT_SCALE);
+            }
+            // INFO:TrashViewとFloatingViewは同じGravityにする必要があります
+            mTrashView.getWindowDrawingRect(mTrashViewRect, captureScale);
+            if (PositionCalculator.isIntersecting(mFloatingViewRect, mTargetFloatingView.getShape() == SHAPE_CIRCLE, mTrashViewRect)) {
+                return true;
+            }
+            return approachSpeed >= slowSpeed && isTrajectoryIntersectWithTrash(TRASH_CAPTURE_LOOKAHEAD_MILLIS);
+        } finally {
+            FloatingViewTrace.endSection();
+        }
+    }
+
+    /**
+     * 押上時の速度で削除Viewへ投げられたかチェックします。
+     *
+     * @return 削除Viewへ投げられた場合はtrue
+     */
+    private boolean isFlungIntoTrash() {
+        // 削除Viewが表示されていない場合は投げても削除しない
+        if (!mTrashView.isTrashEnabled() || !mTrashView.isOpening()) {
+            return false;
+        }
         mTargetFloatingView.getWindowDrawingRect(mFloatingViewRect);
-        return Rect.intersects(mTrashViewRect, mFloatingViewRect);
+        if (getTrashApproachSpeed() < TRASH_FLING_MIN_SPEED_DP * mDensity) {
+            return false;
+        }
+        mTrashView.getWindowDrawingRect(mTrashViewRect, 0.0f);
+        return isTrajectoryIntersectWithTrash(TRASH_FLING_LOOKAHEAD_MILLIS);
+    }
+
+    /**
+     * 移動方向と速度から削除Viewを表示するべきかチェックします。<br/>
+     * 操作中のFloatingViewの矩形と速度は事前に取得しておく必要があります。
+     *
+     * @return 削除Viewへ向かって十分な速度で移動している場合はtrue
+     */
+    private boolean isTrashRevealIntended() {
+        if (mTrashRevealPolicy == TRASH_REVEAL_IMMEDIATE) {
+            return true;
+        }
+        final float approachSpeed = getTrashApproachSpeed();
+        if (approachSpeed < mTrashRevealMinSpeed) {
+            return false;
+        }
+        // 接近速度は速さと方向の余弦の積
+        final float speed = (float) Math.hypot(mTargetFloatingView.getVelocityX(), mTargetFloatingView.getVelocityY());
+        return approachSpeed >= speed * mTrashRevealMinCosine;
+    }
+
+    /**
+     * 操作中のFloatingViewの削除アイコンの中心へ近づく速度を取得します。
+     *
+     * @return 接近速度(px/s、遠ざかる場合は負)
+     */
+    private float getTrashApproachSpeed() {
+        // スクリーン座標の速度をWindowの座標(上方向が正)に変換
+        final float velocityX = mTargetFloatingView.getVelocityX();
+        final float velocityY = -mTargetFloatingView.getVelocityY();
+        final float dx = mTrashView.getTrashIconCenterX() - mFloatingViewRect.exactCenterX();
+        final float dy = mTrashView.getTrashIconCenterY() - mFloatingViewRect.exactCenterY();
+        final float distance = (float) Math.hypot(dx, dy);
+        if (distance < 1.0f) {
+            return (float) Math.hypot(velocityX, velocityY);
+        }
+        return (velocityX * dx + velocityY * dy) / distance;
+    }
+
+    /**
+     * 操作中のFloatingViewの中心の軌道が削除Viewを通過するかチェックします。<br/>
+     * 削除Viewの矩形は事前にmTrashViewRectに取得しておく必要があります。
+     *
+     * @param lookaheadMillis 予測する時間(ミリ秒)
+     * @return 軌道が削除Viewを通過する場合はtrue
+     */
+    private boolean isTrajectoryIntersectWithTrash(long lookaheadMillis) {
+        final float startX = mFloatingViewRect.exactCenterX();
+        final float startY = mFloatingViewRect.exactCenterY();
+        final float endX = startX + mTargetFloatingView.getVelocityX() * lookaheadMillis / 1000;
+        final float endY = startY - mTargetFloatingView.getVelocityY() * lookaheadMillis / 1000;
+        // 中心の軌道で判定するため、削除Viewの矩形をFloatingViewの半分の大きさだけ広げる
+        final float halfWidth = mFloatingViewRect.width() / 2.0f;
+        final float halfHeight = mFloatingViewRect.height() / 2.0f;
+        return PositionCalculator.isSegmentIntersecting(startX, startY, endX, endY,
+                mTrashViewRect.left - halfWidth, mTrashViewRect.top - halfHeight, mTrashViewRect.right + halfWidth, mTrashViewRect.bottom + halfHeight);
     }
 
     /**
@@ -191,21 +552,27 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
             return;
         }
 
-        mIsMoveAccept = false;
-        final int state = mTargetFloatingView.getState();
-        // 重なっていない場合は全て非表示処理
-        if (state == FloatingView.STATE_NORMAL) {
-            final int size = mFloatingViewList.size();
-            for (int i = 0; i < size; i++) {
-                final FloatingView floatingView = mFloatingViewList.get(i);
-                floatingView.setVisibility(isFullscreen ? View.GONE : View.VISIBLE);
+        FloatingViewTrace.beginSection(FloatingViewTrace.SECTION_SCREEN_CHANGED);
+        try {
+            mIsMoveAccept = false;
+            final int state = mTargetFloatingView.getState();
+            // 重なっていない場合は全て非表示処理
+            if (state == FloatingView.STATE_NORMAL) {
+                mFramePacing.update();
+                final int size = mFloatingViewList.size();
+                for (int i = 0; i < size; i++) {
+                    final FloatingView floatingView = mFloatingViewList.get(i);
+                    mWindowFader.setVisibility(floatingView, isFullscreen ? View.GONE : View.VISIBLE);
+                }
+                mTrashView.dismiss();
             }
-            mTrashView.dismiss();
-        }
-        // 重なっている場合は削除
-        else if (state == FloatingView.STATE_INTERSECTING) {
-            mTargetFloatingView.setFinishing();
-            mTrashView.dismiss();
+            // 重なっている場合は削除
+            else if (state == FloatingView.STATE_INTERSECTING) {
+                mTargetFloatingView.setFinishing();
+                mTrashView.dismiss();
+            }
+        } finally {
+            FloatingViewTrace.endSection();
         }
     }
 
@@ -214,6 +581,9 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      */
     @Override
     public void onTrashAnimationStarted(int animationCode) {
+        if (mTouchTraceRecorder != null) {
+            mTouchTraceRecorder.recordTrashAnimation(mClock.uptimeMillis(), animationCode, true);
+        }
         // クローズまたは強制クローズの場合はすべてのFloatingViewをタッチさせない
         if (animationCode == TrashView.ANIMATION_CLOSE || animationCode == TrashView.ANIMATION_FORCE_CLOSE) {
             final int size = mFloatingViewList.size();
@@ -229,6 +599,9 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      */
     @Override
     public void onTrashAnimationEnd(int animationCode) {
+        if (mTouchTraceRecorder != null) {
+            mTouchTraceRecorder.recordTrashAnimation(mClock.uptimeMillis(), animationCode, false);
+        }
 
         final int state = mTargetFloatingView.getState();
         // 終了していたらViewを削除する
@@ -250,6 +623,22 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      */
     @Override
     public boolean onTouch(View v, MotionEvent event) {
+        FloatingViewTrace.beginSection(FloatingViewTrace.SECTION_MANAGER_TOUCH);
+        try {
+            return handleTouch(v, event);
+        } finally {
+            FloatingViewTrace.endSection();
+        }
+    }
+
+    /**
+     * FloatingViewのタッチイベントを処理します。
+     *
+     * @param v     タッチされたFloatingView
+     * @param event MotionEvent
+     * @return 常にfalse
+     */
+    private boolean handleTouch(View v, MotionEvent event) {
         final int action = event.getAction();
 
         // 押下状態でないのに移動許可が出ていない場合はなにもしない(回転直後にACTION_MOVEが来て、FloatingViewが消えてしまう現象に対応)
@@ -259,32 +648,44 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
 
         final int state = mTargetFloatingView.getState();
         mTargetFloatingView = (FloatingView) v;
+        // 削除Viewを表示するべきか
+        boolean isTrashRevealIntended = true;
 
         // 押下
         if (action == MotionEvent.ACTION_DOWN) {
-            // 処理なし
             mIsMoveAccept = true;
+            // 最初のオープンアニメーションで描画の負荷が集中しないように事前に準備
+            mTrashView.prepare(mTargetFloatingView.getMeasuredWidth(), mTargetFloatingView.getMeasuredHeight(), mTargetFloatingView.getShape());
         }
         // 移動
         else if (action == MotionEvent.ACTION_MOVE) {
-            // 今回の状態
-            final boolean isIntersecting = isIntersectWithTrash();
+            mTargetFloatingView.getWindowDrawingRect(mFloatingViewRect);
+            if (mIsTrashCapturePredictionEnabled || mTrashRevealPolicy == TRASH_REVEAL_PREDICTIVE) {
+                mTargetFloatingView.updateVelocity();
+            }
+            isTrashRevealIntended = isTrashRevealIntended();
             // これまでの状態
             final boolean isIntersect = state == FloatingView.STATE_INTERSECTING;
+            // 今回の状態
+            final boolean isIntersecting = mIsTrashCapturePredictionEnabled ? isCapturedByTrash(isIntersect) : isIntersectWithTrash();
             // 重なっている場合は、FloatingViewをTrashViewに追従させる
             if (isIntersecting) {
                 mTargetFloatingView.setIntersecting((int) mTrashView.getTrashIconCenterX(), (int) mTrashView.getTrashIconCenterY());
             }
             // 重なり始めの場合
             if (isIntersecting && !isIntersect) {
-                mVibrator.vibrate(VIBRATE_INTERSECTS_MILLIS);
+                mHapticFeedbackDispatcher.perform(HAPTIC_TRASH_ENTER);
                 mTrashView.setScaleTrashIcon(true);
+                mTargetFloatingView.dispatchEvent(FloatingViewEvent.TYPE_TRASH_ENTER);
             }
             // 重なり終わりの場合
             else if (!isIntersecting && isIntersect) {
                 mTargetFloatingView.setNormal();
                 mTrashView.setScaleTrashIcon(false);
+                mTargetFloatingView.dispatchEvent(FloatingViewEvent.TYPE_TRASH_EXIT);
             }
+            // 削除Viewと重なっていない場合のみドロップ先を判定
+            updateDropTarget(isIntersecting ? FloatingViewEvent.NO_DROP_TARGET : findDropTarget());
 
         }
         // 押上、キャンセル
@@ -295,6 +696,20 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
                 mTargetFloatingView.setFinishing();
                 mTrashView.setScaleTrashIcon(false);
             }
+            // 削除Viewへ投げられた場合
+            else if (mIsTrashCapturePredictionEnabled && action == MotionEvent.ACTION_UP && isFlungIntoTrash()) {
+                mHapticFeedbackDispatcher.perform(HAPTIC_TRASH_ENTER);
+                mTargetFloatingView.setFinishing();
+                mTargetFloatingView.dispatchEvent(FloatingViewEvent.TYPE_TRASH_ENTER);
+                updateDropTarget(FloatingViewEvent.NO_DROP_TARGET);
+            }
+            // ドロップ先と重なっている場合はドロップを通知
+            if (mDropTargetId != FloatingViewEvent.NO_DROP_TARGET && action == MotionEvent.ACTION_UP) {
+                mTargetFloatingView.dispatchEvent(FloatingViewEvent.TYPE_DROP, mDropTargetId);
+                mDropTargetId = FloatingViewEvent.NO_DROP_TARGET;
+            } else {
+                updateDropTarget(FloatingViewEvent.NO_DROP_TARGET);
+            }
             mIsMoveAccept = false;
         }
 
@@ -302,15 +717,75 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
         // 通常状態の場合は指の位置を渡す
         // 重なっている場合はTrashViewの位置を渡す
         if (state == FloatingView.STATE_INTERSECTING) {
-            mTrashView.onTouchFloatingView(event, mFloatingViewRect.left, mFloatingViewRect.top);
+            mTrashView.onTouchFloatingView(event, mFloatingViewRect.left, mFloatingViewRect.top, true);
         } else {
             final WindowManager.LayoutParams params = mTargetFloatingView.getWindowLayoutParams();
-            mTrashView.onTouchFloatingView(event, params.x, params.y);
+            mTrashView.onTouchFloatingView(event, params.x, params.y, isTrashRevealIntended);
         }
 
         return false;
     }
 
+    /**
+     * 操作中のFloatingViewと重なっているドロップ先を検索します。
+     *
+     * @return ドロップ先のID（重なっていない場合はNO_DROP_TARGET）
+     */
+    private int findDropTarget() {
+        final int index = mDropTargetIndex.findTarget(mFloatingViewRect, mTargetFloatingView.getShape() == SHAPE_CIRCLE);
+        return index == DropTargetIndex.NO_TARGET ? FloatingViewEvent.NO_DROP_TARGET : mDropTargetIndex.getId(index);
+    }
+
+    /**
+     * 重なっているドロップ先を更新し、変化した場合は通知します。
+     *
+     * @param dropTargetId 重なっているドロップ先のID
+     */
+    private void updateDropTarget(int dropTargetId) {
+        if (dropTargetId == mDropTargetId) {
+            return;
+        }
+        if (mDropTargetId != FloatingViewEvent.NO_DROP_TARGET) {
+            mTargetFloatingView.dispatchEvent(FloatingViewEvent.TYPE_DROP_TARGET_EXIT, mDropTargetId);
+        }
+        mDropTargetId = dropTargetId;
+        if (dropTargetId != FloatingViewEvent.NO_DROP_TARGET) {
+            mHapticFeedbackDispatcher.perform(HAPTIC_DROP_TARGET_ENTER);
+            mTargetFloatingView.dispatchEvent(FloatingViewEvent.TYPE_DROP_TARGET_ENTER, dropTargetId);
+        }
+    }
+
+    /**
+     * ドロップ先を登録します。同じIDのドロップ先が存在する場合は矩形を置き換えます。<br/>
+     * FloatingViewが重なった場合・離された場合は{@link FloatingViewEventListener}に通知されます。<br/>
+     * 矩形は画面左下を原点とし、右方向・上方向を正とする座標で指定します。
+     *
+     * @param id     ドロップ先のID（0以上）
+     * @param bounds ドロップ先の矩形
+     */
+    public void addDropTarget(int id, Rect bounds) {
+        if (id < 0) {
+            throw new IllegalArgumentException("id must be 0 or greater");
+        }
+        mDropTargetIndex.put(id, bounds);
+    }
+
+    /**
+     * ドロップ先を削除します。
+     *
+     * @param id ドロップ先のID
+     */
+    public void removeDropTarget(int id) {
+        mDropTargetIndex.remove(id);
+    }
+
+    /**
+     * 全てのドロップ先を削除します。
+     */
+    public void clearDropTargets() {
+        mDropTargetIndex.clear();
+    }
+
     /**
      * 固定削除アイコンの画像を設定します。
      *
@@ -354,16 +829,17 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      */
     public void setDisplayMode(int displayMode) {
         mDisplayMode = displayMode;
+        mFramePacing.update();
         // 常に表示/フルスクリーン時に非表示にするモードの場合
         if (mDisplayMode == DISPLAY_MODE_SHOW_ALWAYS || mDisplayMode == DISPLAY_MODE_HIDE_FULLSCREEN) {
             for (FloatingView floatingView : mFloatingViewList) {
-                floatingView.setVisibility(View.VISIBLE);
+                mWindowFader.setVisibility(floatingView, View.VISIBLE);
             }
         }
         // 常に非表示にするモードの場合
         else if (mDisplayMode == DISPLAY_MODE_HIDE_ALWAYS) {
             for (FloatingView floatingView : mFloatingViewList) {
-                floatingView.setVisibility(View.GONE);
+                mWindowFader.setVisibility(floatingView, View.GONE);
             }
             mTrashView.dismiss();
         }
@@ -387,6 +863,244 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
         return mTrashView.isTrashEnabled();
     }
 
+    /**
+     * TrashViewを子Viewを使用せずに一つのViewで描画するかを設定します。<br/>
+     * 背景・削除アイコンの表示と当たり判定は変わらず、計測・レイアウト・描画の対象が一つになります。
+     *
+     * @param enabled trueの場合は一つのViewで描画（デフォルトはfalse）
+     */
+    public void setTrashViewFlatRenderingEnabled(boolean enabled) {
+        mTrashView.setFlatRenderingEnabled(enabled);
+    }
+
+    /**
+     * 表示モードやフルスクリーンの切替でFloatingViewを表示・非表示にする際のフェードの時間を設定します。<br/>
+     * フェードはWindowの透明度で行うため、フェード中にViewは再描画されません。フェードアウトの完了時に非表示になります。
+     *
+     * @param durationMillis フェードの時間(ミリ秒、デフォルトは0でフェードしない)
+     */
+    public void setVisibilityFadeDuration(long durationMillis) {
+        mWindowFader.setDuration(durationMillis);
+    }
+
+    /**
+     * ドラッグ中の追従と削除Viewのアニメーションの上限のフレームレートを設定します。<br/>
+     * フレーム間隔はディスプレイのリフレッシュレートに合わせるため、上限を設定しない場合は高リフレッシュレートの端末ではより短い間隔で更新します。
+     *
+     * @param frameRate 上限のフレームレート（0の場合は上限なし、デフォルトは0）
+     */
+    public void setMaxFrameRate(int frameRate) {
+        mFramePacing.setMaxFrameRate(frameRate);
+    }
+
+    /**
+     * 省電力モード中の上限のフレームレートを設定します。（API 21以上）
+     *
+     * @param frameRate 上限のフレームレート（0の場合は上限なし、デフォルトは30）
+     */
+    public void setPowerSaveFrameRate(int frameRate) {
+        mFramePacing.setPowerSaveFrameRate(frameRate);
+    }
+
+    /**
+     * Options.useHardwareLayerを指定したFloatingViewが同時に使用するハードウェアレイヤーのメモリの上限を設定します。<br/>
+     * 上限を超える場合はレイヤーを使用せずに描画します。使用量はFloatingViewMetricsに記録されます。
+     *
+     * @param maxBytes 上限(byte、デフォルトは4MB)
+     */
+    public void setHardwareLayerBudget(int maxBytes) {
+        mHardwareLayerBudget.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * 速度から削除Viewへの到達を予測するかを設定します。<br/>
+     * 有効の場合、削除Viewへ速く近づくと早めに取り込み、削除Viewへ向けて投げて離すと削除します。
+     * ゆっくり近づいた場合は実際に重なる必要があります。
+     *
+     * @param enabled trueの場合は予測する（デフォルトはfalse）
+     */
+    public void setTrashCapturePredictionEnabled(boolean enabled) {
+        mIsTrashCapturePredictionEnabled = enabled;
+    }
+
+    /**
+     * 削除Viewの表示方式を設定します。<br/>
+     * TRASH_REVEAL_PREDICTIVEの場合、位置の調整のための移動では削除Viewのアニメーションを行いません。
+     *
+     * @param policy TRASH_REVEAL_IMMEDIATE or TRASH_REVEAL_PREDICTIVE
+     */
+    public void setTrashRevealPolicy(int policy) {
+        mTrashRevealPolicy = policy;
+        mTrashView.setRevealPredictive(policy == TRASH_REVEAL_PREDICTIVE);
+    }
+
+    /**
+     * TRASH_REVEAL_PREDICTIVEで削除Viewを表示する条件を設定します。
+     *
+     * @param minSpeedDp      削除Viewへの接近速度の下限(dp/s)
+     * @param maxAngleDegrees 移動方向と削除Viewの方向のなす角の上限(度)
+     * @param dwellMillis     押下から条件を満たさずに削除Viewを表示するまでの時間(ミリ秒)
+     */
+    public void setTrashRevealThresholds(float minSpeedDp, float maxAngleDegrees, long dwellMillis) {
+        mTrashRevealMinSpeed = minSpeedDp * mDensity;
+        mTrashRevealMinCosine = (float) Math.cos(Math.toRadians(Math.min(180, Math.max(0, maxAngleDegrees))));
+        mTrashView.setRevealDwellMillis(dwellMillis);
+    }
+
+    /**
+     * 振動のパターンを設定します。振動はメインスレッド以外から発生させます。
+     *
+     * @param type    HAPTIC_TRASH_ENTER or HAPTIC_DROP_TARGET_ENTER or HAPTIC_SNAP
+     * @param pattern 振動させる時間(ミリ秒)の1要素の配列、またはVibrator#vibrate(long[], int)の形式のパターン（nullの場合は振動させない）
+     */
+    public void setHapticEffect(int type, long[] pattern) {
+        mHapticFeedbackDispatcher.setEffect(type, pattern);
+    }
+
+    /**
+     * 同じ種類の振動を繰り返さない時間を設定します。<br/>
+     * 削除Viewやドロップ先の境界付近で重なり判定が揺れた場合に、振動が連続しないようにします。
+     *
+     * @param minIntervalMillis 同じ種類の振動を繰り返さない時間(ミリ秒、デフォルトは100)
+     */
+    public void setHapticMinInterval(long minIntervalMillis) {
+        mHapticFeedbackDispatcher.setMinIntervalMillis(minIntervalMillis);
+    }
+
+    /**
+     * FloatingViewのタッチ追従のアニメーション中に、メインスレッドの停止を検出するか設定します。<br/>
+     * 有効の場合、予定のフレームから一定時間以上遅れた時に別スレッドからメインスレッドのスタックトレースを取得し、{@link #getStalls()}で取得できるよう保持します。
+     * removeAllViewToWindowを呼び出すと無効になります。
+     *
+     * @param enabled trueの場合は検出する（デフォルトはfalse）
+     */
+    public void setStallWatchdogEnabled(boolean enabled) {
+        mStallWatchdog.setEnabled(enabled);
+    }
+
+    /**
+     * メインスレッドの停止とみなす、予定のフレームからの遅れを設定します。
+     *
+     * @param thresholdMillis 停止とみなす遅れ(ミリ秒、デフォルトは100)
+     */
+    public void setStallThreshold(long thresholdMillis) {
+        mStallWatchdog.setThresholdMillis(thresholdMillis);
+    }
+
+    /**
+     * 検出したメインスレッドの停止を古い順に取得します。最新の16件まで保持します。
+     *
+     * @return 検出したメインスレッドの停止
+     */
+    public List<FloatingViewStall> getStalls() {
+        return mStallWatchdog.getStalls();
+    }
+
+    /**
+     * 検出したメインスレッドの停止を破棄します。
+     */
+    public void clearStalls() {
+        mStallWatchdog.clearStalls();
+    }
+
+    /**
+     * 動作性能の計測値を取得します。
+     *
+     * @return FloatingViewMetrics
+     */
+    public FloatingViewMetrics getMetrics() {
+        return mFloatingViewMetrics;
+    }
+
+    /**
+     * FloatingViewの状態の変化を受け取るリスナを登録します。<br/>
+     * ドラッグの開始・終了、移動の完了、削除Viewとの重なり、表示状態は発生時に、位置の変化は1フレームに1回通知されます。
+     *
+     * @param listener FloatingViewEventListener
+     */
+    public void addFloatingViewEventListener(FloatingViewEventListener listener) {
+        mEventDispatcher.addListener(listener);
+    }
+
+    /**
+     * FloatingViewの状態の変化を受け取るリスナの登録を解除します。
+     *
+     * @param listener FloatingViewEventListener
+     */
+    public void removeFloatingViewEventListener(FloatingViewEventListener listener) {
+        mEventDispatcher.removeListener(listener);
+    }
+
+    /**
+     * タッチ・画面情報・状態遷移の記録を開始します。<br/>
+     * 記録はリングバッファに行われ、最大件数を超えると古い順に上書きされます。
+     *
+     * @param capacity 記録できる最大件数（1以上）
+     */
+    public void startTouchTrace(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be 1 or greater");
+        }
+        stopTouchTrace();
+        mTouchTraceRecorder = new TouchTraceRecorder(capacity);
+        final DisplayMetrics metrics = new DisplayMetrics();
+        mWindowManager.getDefaultDisplay().getMetrics(metrics);
+        mTouchTraceRecorder.recordDisplay(mClock.uptimeMillis(), metrics);
+        final int size = mFloatingViewList.size();
+        for (int i = 0; i < size; i++) {
+            mFloatingViewList.get(i).setTouchTraceRecorder(mTouchTraceRecorder, i);
+        }
+    }
+
+    /**
+     * タッチ・画面情報・状態遷移の記録を終了します。<br/>
+     * 書き出し中のファイルは書き込みが完了します。
+     */
+    public void stopTouchTrace() {
+        if (mTouchTraceRecorder == null) {
+            return;
+        }
+        final int size = mFloatingViewList.size();
+        for (int i = 0; i < size; i++) {
+            mFloatingViewList.get(i).setTouchTraceRecorder(null, 0);
+        }
+        mTouchTraceRecorder.release();
+        mTouchTraceRecorder = null;
+    }
+
+    /**
+     * 記録した内容をファイルに書き出します。ファイルへの書き込みは別スレッドで行われます。<br/>
+     * 書き出したファイルは{@link TouchTracePlayer}で再生できます。
+     *
+     * @param file 書き出し先のファイル
+     * @return 書き出しを開始した場合はtrue（記録していない場合・前回の書き出しが終わっていない場合はfalse）
+     */
+    public boolean flushTouchTrace(File file) {
+        return mTouchTraceRecorder != null && mTouchTraceRecorder.flush(file);
+    }
+
+    /**
+     * 再生対象のFloatingViewを取得します。
+     *
+     * @param traceTarget 記録時のFloatingViewの識別番号
+     * @return FloatingView（存在しない場合・識別番号を記録できなかった場合はnull）
+     */
+    FloatingView getTraceTargetFloatingView(int traceTarget) {
+        if (traceTarget < 0 || traceTarget > TouchTraceRecorder.MAX_TARGET || traceTarget >= mFloatingViewList.size()) {
+            return null;
+        }
+        return mFloatingViewList.get(traceTarget);
+    }
+
+    /**
+     * 画面情報を取得します。
+     *
+     * @param outMetrics 書き出し先のDisplayMetrics
+     */
+    void getDisplayMetrics(DisplayMetrics outMetrics) {
+        mWindowManager.getDefaultDisplay().getMetrics(outMetrics);
+    }
+
     /**
      * ViewをWindowに貼り付けます。
      * This method was deprecated in 1.2. Use #addViewToWindow(View, Options)
@@ -411,17 +1125,38 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      */
     public void addViewToWindow(View view, Options options) {
         final boolean isFirstAttach = mFloatingViewList.isEmpty();
+        // 最初の描画までの時間計測用
+        final long attachTime = mClock.uptimeMillis();
         // FloatingView
-        final FloatingView floatingView = new FloatingView(mContext);
+        final FloatingView floatingView = new FloatingView(mContext, mWindowManager, mClock);
+        floatingView.setMetrics(mFloatingViewMetrics);
+        floatingView.setFramePacing(mFramePacing);
+        floatingView.setTimerWheel(mTimerWheel);
+        floatingView.setIdleWorkScheduler(mIdleWorkScheduler);
+        floatingView.setHapticFeedbackDispatcher(mHapticFeedbackDispatcher);
+        floatingView.setStallWatchdog(mStallWatchdog);
+        floatingView.setEventDispatcher(mEventDispatcher);
+        if (mTouchTraceRecorder != null) {
+            floatingView.setTouchTraceRecorder(mTouchTraceRecorder, mFloatingViewList.size());
+        }
         floatingView.setInitCoords(options.floatingViewX, options.floatingViewY);
         floatingView.setOnTouchListener(this);
         floatingView.setShape(options.shape);
+        // 組み込みのアイコン用Viewは形状を合わせる
+        if (view instanceof FloatingHeadView) {
+            ((FloatingHeadView) view).setShape(options.shape);
+        }
         floatingView.setOverMargin(options.overMargin);
         floatingView.setMoveDirection(options.moveDirection);
+        floatingView.setAnchors(options.anchors);
+        floatingView.setHardwareLayerBudget(options.useHardwareLayer ? mHardwareLayerBudget : null);
+        floatingView.setSnapshotProxyEnabled(options.useSnapshotProxy);
+        floatingView.setIdleTuck(options.idleTuckMillis, options.idleTuckFraction, options.idleTuckAlpha);
         floatingView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
             @Override
             public boolean onPreDraw() {
                 floatingView.getViewTreeObserver().removeOnPreDrawListener(this);
+                mFloatingViewMetrics.record(FloatingViewMetrics.HISTOGRAM_TIME_TO_FIRST_FRAME, mClock.uptimeMillis() - attachTime);
                 mTrashView.calcActionTrashIconPadding(floatingView.getMeasuredWidth(), floatingView.getMeasuredHeight(), floatingView.getShape());
                 return false;
             }
@@ -432,20 +1167,27 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
             floatingView.setVisibility(View.GONE);
         }
         mFloatingViewList.add(floatingView);
+        // 一時停止中は再開時に表示
+        if (mIsSuspended) {
+            floatingView.suspend();
+        }
         // TrashView
         mTrashView.setTrashViewListener(this);
 
         // Viewの貼り付け
-        mWindowManager.addView(floatingView, floatingView.getWindowLayoutParams());
+        addWindow(floatingView, floatingView.getWindowLayoutParams());
         // 最初の貼り付け時の場合のみ、フルスクリーン監視Viewと削除Viewを貼り付け
         if (isFirstAttach) {
-            mWindowManager.addView(mFullscreenObserverView, mFullscreenObserverView.getWindowLayoutParams());
+            addWindow(mFullscreenObserverView, mFullscreenObserverView.getWindowLayoutParams());
             mTargetFloatingView = floatingView;
+            mFramePacing.update();
+            mHapticFeedbackDispatcher.prepare();
+            registerScreenStateReceiver();
         } else {
-            mWindowManager.removeViewImmediate(mTrashView);
+            removeWindow(mTrashView);
         }
         // 必ずトップに来て欲しいので毎回貼り付け
-        mWindowManager.addView(mTrashView, mTrashView.getWindowLayoutParams());
+        addWindow(mTrashView, mTrashView.getWindowLayoutParams());
     }
 
     /**
@@ -457,34 +1199,242 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
         final int matchIndex = mFloatingViewList.indexOf(floatingView);
         // 見つかった場合は表示とリストから削除
         if (matchIndex != -1) {
-            mWindowManager.removeViewImmediate(floatingView);
+            mWindowFader.cancel(floatingView);
+            floatingView.onRemovedFromWindow();
+            removeWindow(floatingView);
             mFloatingViewList.remove(matchIndex);
+            mEventDispatcher.onFloatingViewRemoved(floatingView);
+            // 記録中の場合は識別番号を詰める
+            if (mTouchTraceRecorder != null) {
+                final int size = mFloatingViewList.size();
+                for (int i = matchIndex; i < size; i++) {
+                    mFloatingViewList.get(i).setTouchTraceRecorder(mTouchTraceRecorder, i);
+                }
+            }
         }
 
         // 残りのViewをチェック
         if (mFloatingViewList.isEmpty()) {
-            // 終了を通知
+            unregisterScreenStateReceiver();
+            // 終了を通知（取り外しのフレームの処理が終わってから行う）
             if (mFloatingViewListener != null) {
-                mFloatingViewListener.onFinishFloatingView();
+                mIdleWorkScheduler.post(mFinishTask, IdleWorkScheduler.PRIORITY_NORMAL);
+            }
+        }
+    }
+
+    /**
+     * 貼り付けたViewの内容を更新するFloatingHeadUpdaterを生成します。（メインスレッドで呼び出します）<br/>
+     * 生成したFloatingHeadUpdaterにはどのスレッドからでも内容を送信でき、1フレームに最大1回だけ反映されます。
+     *
+     * @param view     addViewToWindowで貼り付けたView
+     * @param renderer 内容をViewに反映するRenderer（FloatingHeadViewの場合はFloatingHeadContent.RENDERER）
+     * @param <T>      内容の型
+     * @return FloatingHeadUpdater
+     */
+    public <T> FloatingHeadUpdater<T> createHeadUpdater(View view, FloatingHeadUpdater.Renderer<T> renderer) {
+        final int size = mFloatingViewList.size();
+        for (int i = 0; i < size; i++) {
+            final FloatingView floatingView = mFloatingViewList.get(i);
+            if (floatingView.isContentView(view)) {
+                return new FloatingHeadUpdater<>(floatingView, view, renderer);
+            }
+        }
+        throw new IllegalArgumentException("view is not added to window");
+    }
+
+    /**
+     * Viewの内容が変わったことを通知します。<br/>
+     * Options.useSnapshotProxyのスナップショットは次に表示する際に撮り直し、Options.idleTuckMillisで画面端に寄せている場合は元に戻します。
+     * createHeadUpdaterで反映した内容は自動的に通知されます。
+     *
+     * @param view addViewToWindowで貼り付けたView
+     */
+    public void notifyContentChanged(View view) {
+        final int size = mFloatingViewList.size();
+        for (int i = 0; i < size; i++) {
+            final FloatingView floatingView = mFloatingViewList.get(i);
+            if (floatingView.isContentView(view)) {
+                floatingView.onContentChanged();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Viewの内容が変わったことを通知します。
+     * This method was deprecated. Use #notifyContentChanged(View)
+     *
+     * @param view addViewToWindowで貼り付けたView
+     */
+    @Deprecated
+    public void invalidateSnapshot(View view) {
+        notifyContentChanged(view);
+    }
+
+    /**
+     * FloatingViewの全てのアニメーション・タイマー・画面の監視を停止します。（ホストのサービスが表示を必要としない間に呼び出します）<br/>
+     * 実行中のアニメーションは完了させ、操作中の場合は操作を終了します。画面がオフになった場合も自動的に一時停止します。
+     */
+    public void pause() {
+        mIsPausedByHost = true;
+        updateSuspended();
+    }
+
+    /**
+     * pauseで停止した処理を再開します。停止中の変化は1回のレイアウトで反映します。
+     */
+    public void resume() {
+        mIsPausedByHost = false;
+        updateSuspended();
+    }
+
+    /**
+     * 一時停止中かどうかを取得します。
+     *
+     * @return pauseの呼び出し中または画面がオフの場合はtrue
+     */
+    public boolean isSuspended() {
+        return mIsSuspended;
+    }
+
+    /**
+     * 一時停止の状態を更新します。
+     */
+    private void updateSuspended() {
+        final boolean isSuspended = mIsPausedByHost || mIsScreenOff;
+        if (mIsSuspended == isSuspended) {
+            return;
+        }
+        mIsSuspended = isSuspended;
+        if (isSuspended) {
+            // フェードを完了させ、操作を終了
+            mWindowFader.finishAll();
+            mIsMoveAccept = false;
+            if (mTargetFloatingView != null && mTargetFloatingView.getState() == FloatingView.STATE_INTERSECTING) {
+                mTargetFloatingView.setNormal();
+            }
+            for (FloatingView floatingView : mFloatingViewList) {
+                floatingView.suspend();
+            }
+            mTrashView.dismiss();
+            mFullscreenObserverView.setObserving(false);
+        } else {
+            for (FloatingView floatingView : mFloatingViewList) {
+                floatingView.resume();
+            }
+            // 停止中のフルスクリーンの変化を反映
+            mFullscreenObserverView.setObserving(true);
+        }
+    }
+
+    /**
+     * 画面のオン・オフを受け取るレシーバを登録します。
+     */
+    private void registerScreenStateReceiver() {
+        if (mScreenStateReceiver != null) {
+            return;
+        }
+        mScreenStateReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                mIsScreenOff = Intent.ACTION_SCREEN_OFF.equals(intent.getAction());
+                updateSuspended();
             }
+        };
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        mContext.registerReceiver(mScreenStateReceiver, filter);
+        // 登録時点で画面がオフの場合
+        mIsScreenOff = !isInteractive();
+        updateSuspended();
+    }
+
+    /**
+     * 画面のオン・オフを受け取るレシーバの登録を解除します。
+     */
+    private void unregisterScreenStateReceiver() {
+        if (mScreenStateReceiver == null) {
+            return;
+        }
+        mContext.unregisterReceiver(mScreenStateReceiver);
+        mScreenStateReceiver = null;
+        mIsScreenOff = false;
+        updateSuspended();
+    }
+
+    /**
+     * 画面がオンで操作可能かどうかを取得します。
+     *
+     * @return 操作可能な場合はtrue
+     */
+    @SuppressWarnings("deprecation")
+    @TargetApi(Build.VERSION_CODES.KITKAT_WATCH)
+    private boolean isInteractive() {
+        final PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+        if (powerManager == null) {
+            return true;
         }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT_WATCH) {
+            return powerManager.isInteractive();
+        }
+        return powerManager.isScreenOn();
     }
 
     /**
      * ViewをWindowから全て取り外します。
      */
     public void removeAllViewToWindow() {
-        mWindowManager.removeViewImmediate(mFullscreenObserverView);
-        mWindowManager.removeViewImmediate(mTrashView);
+        mWindowFader.cancelAll();
+        mTimerWheel.cancelAll();
+        mHapticFeedbackDispatcher.release();
+        mStallWatchdog.setEnabled(false);
+        unregisterScreenStateReceiver();
+        removeWindow(mFullscreenObserverView);
+        removeWindow(mTrashView);
         // FloatingViewの削除
         final int size = mFloatingViewList.size();
         for (int i = 0; i < size; i++) {
             final FloatingView floatingView = mFloatingViewList.get(i);
-            mWindowManager.removeViewImmediate(floatingView);
+            floatingView.onRemovedFromWindow();
+            removeWindow(floatingView);
+            mEventDispatcher.onFloatingViewRemoved(floatingView);
         }
         mFloatingViewList.clear();
     }
 
+    /**
+     * ViewをWindowManagerに追加します。
+     *
+     * @param view   View
+     * @param params WindowManager.LayoutParams
+     */
+    private void addWindow(View view, WindowManager.LayoutParams params) {
+        FloatingViewTrace.beginSection(FloatingViewTrace.SECTION_ADD_VIEW);
+        try {
+            mWindowManager.addView(view, params);
+        } finally {
+            FloatingViewTrace.endSection();
+        }
+        FloatingViewTrace.onWindowStateChanged(true);
+    }
+
+    /**
+     * ViewをWindowManagerから即時に取り外します。
+     *
+     * @param view View
+     */
+    private void removeWindow(View view) {
+        FloatingViewTrace.beginSection(FloatingViewTrace.SECTION_REMOVE_VIEW);
+        try {
+            mWindowManager.removeViewImmediate(view);
+        } finally {
+            FloatingViewTrace.endSection();
+        }
+        FloatingViewTrace.onWindowStateChanged(false);
+    }
+
     /**
      * FloatingViewを貼り付ける際のオプションを表すクラスです。
      */
@@ -516,6 +1466,40 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
          */
         public int moveDirection;
 
+        /**
+         * FloatingViewが離された時に吸着する位置
+         * ※設定するとmoveDirectionより優先されます
+         */
+        public FloatingViewAnchors anchors;
+
+        /**
+         * 押下中と移動アニメーション中にViewをハードウェアレイヤーに描画する場合はtrue
+         * ※複雑なViewのドラッグ中の再描画を抑えます。メモリの上限は{@link #setHardwareLayerBudget(int)}で設定します
+         */
+        public boolean useHardwareLayer;
+
+        /**
+         * 移動中・非表示中にViewを取り外し、代わりにViewのスナップショットを表示する場合はtrue
+         * ※Viewの内容を変更した場合は{@link #notifyContentChanged(View)}を呼び出してください。SurfaceView・TextureViewを含むViewには適用されません
+         */
+        public boolean useSnapshotProxy;
+
+        /**
+         * 画面端で操作されていない場合に、表示範囲の外に寄せるまでの時間(ミリ秒)
+         * ※0の場合は寄せません。タッチまたは{@link #notifyContentChanged(View)}で元に戻ります
+         */
+        public long idleTuckMillis;
+
+        /**
+         * 表示範囲の外に寄せる際に外に出すViewの幅の割合(0.0fから1.0f)
+         */
+        public float idleTuckFraction;
+
+        /**
+         * 表示範囲の外に寄せた際の透明度(0.0fから1.0f)
+         */
+        public float idleTuckAlpha;
+
         /**
          * オプションのデフォルト値を設定します。
          */
@@ -525,6 +1509,12 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
             floatingViewX = FloatingView.DEFAULT_X;
             floatingViewY = FloatingView.DEFAULT_Y;
             moveDirection = MOVE_DIRECTION_DEFAULT;
+            anchors = null;
+            useHardwareLayer = false;
+            useSnapshotProxy = false;
+            idleTuckMillis = 0;
+            idleTuckFraction = 0.5f;
+            idleTuckAlpha = 0.5f;
         }
 
     }
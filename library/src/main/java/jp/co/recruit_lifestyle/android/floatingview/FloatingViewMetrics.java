@@ -0,0 +1,280 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+/**
+ * FloatingViewの動作性能を計測するクラスです。<br/>
+ * 各値は固定バケットのヒストグラムに記録され、任意のタイミングでスナップショットを取得できます。
+ */
+public class FloatingViewMetrics {
+
+    /**
+     * 1回のドラッグで発生したupdateViewLayoutの回数
+     */
+    public static final int HISTOGRAM_LAYOUT_UPDATES_PER_DRAG = 0;
+
+    /**
+     * 追従アニメーションのフレーム間隔の揺らぎ(ミリ秒)
+     */
+    public static final int HISTOGRAM_FRAME_JITTER = 1;
+
+    /**
+     * タッチからWindowの移動までの遅延(ミリ秒)
+     */
+    public static final int HISTOGRAM_TOUCH_TO_MOVE_LATENCY = 2;
+
+    /**
+     * addViewToWindowから最初の描画までの時間(ミリ秒)
+     */
+    public static final int HISTOGRAM_TIME_TO_FIRST_FRAME = 3;
+
+    /**
+     * 削除Viewのオープンアニメーションの時間(ミリ秒)
+     */
+    public static final int HISTOGRAM_TRASH_OPEN_DURATION = 4;
+
+    /**
+     * 削除Viewのクローズアニメーションの時間(ミリ秒)
+     */
+    public static final int HISTOGRAM_TRASH_CLOSE_DURATION = 5;
+
+    /**
+     * ハードウェアレイヤーを確保した時点のレイヤーの合計の大きさ(KB)
+     */
+    public static final int HISTOGRAM_HARDWARE_LAYER_KILOBYTES = 6;
+
+    /**
+     * ハードウェアレイヤーを保持していた時間(ミリ秒)
+     */
+    public static final int HISTOGRAM_HARDWARE_LAYER_DURATION = 7;
+
+    /**
+     * 操作の開始時に決定したアニメーションのフレーム間隔(ミリ秒)
+     */
+    public static final int HISTOGRAM_FRAME_INTERVAL = 8;
+
+    /**
+     * ヒストグラムの数
+     */
+    public static final int HISTOGRAM_COUNT = 9;
+
+    /**
+     * 時間を記録するヒストグラムのバケット上限値(ミリ秒)
+     */
+    private static final long[] TIME_BUCKET_UPPER_BOUNDS = {0, 1, 2, 4, 6, 8, 12, 16, 20, 25, 33, 50, 75, 100, 150, 200, 300, 500, 750, 1000, 2000};
+
+    /**
+     * 回数を記録するヒストグラムのバケット上限値
+     */
+    private static final long[] COUNT_BUCKET_UPPER_BOUNDS = {0, 1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024};
+
+    /**
+     * メモリの大きさを記録するヒストグラムのバケット上限値(KB)
+     */
+    private static final long[] MEMORY_BUCKET_UPPER_BOUNDS = {0, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096, 8192, 16384};
+
+    /**
+     * ヒストグラム
+     */
+    private final FixedBucketHistogram[] mHistograms;
+
+    /**
+     * コンストラクタ
+     */
+    FloatingViewMetrics() {
+        mHistograms = new FixedBucketHistogram[HISTOGRAM_COUNT];
+        mHistograms[HISTOGRAM_LAYOUT_UPDATES_PER_DRAG] = new FixedBucketHistogram(COUNT_BUCKET_UPPER_BOUNDS);
+        mHistograms[HISTOGRAM_FRAME_JITTER] = new FixedBucketHistogram(TIME_BUCKET_UPPER_BOUNDS);
+        mHistograms[HISTOGRAM_TOUCH_TO_MOVE_LATENCY] = new FixedBucketHistogram(TIME_BUCKET_UPPER_BOUNDS);
+        mHistograms[HISTOGRAM_TIME_TO_FIRST_FRAME] = new FixedBucketHistogram(TIME_BUCKET_UPPER_BOUNDS);
+        mHistograms[HISTOGRAM_TRASH_OPEN_DURATION] = new FixedBucketHistogram(TIME_BUCKET_UPPER_BOUNDS);
+        mHistograms[HISTOGRAM_TRASH_CLOSE_DURATION] = new FixedBucketHistogram(TIME_BUCKET_UPPER_BOUNDS);
+        mHistograms[HISTOGRAM_HARDWARE_LAYER_KILOBYTES] = new FixedBucketHistogram(MEMORY_BUCKET_UPPER_BOUNDS);
+        mHistograms[HISTOGRAM_HARDWARE_LAYER_DURATION] = new FixedBucketHistogram(TIME_BUCKET_UPPER_BOUNDS);
+        mHistograms[HISTOGRAM_FRAME_INTERVAL] = new FixedBucketHistogram(TIME_BUCKET_UPPER_BOUNDS);
+    }
+
+    /**
+     * 値を記録します。
+     *
+     * @param histogram HISTOGRAM_LAYOUT_UPDATES_PER_DRAG etc.
+     * @param value     記録する値
+     */
+    void record(int histogram, long value) {
+        mHistograms[histogram].record(value);
+    }
+
+    /**
+     * スナップショットを書き込むためのオブジェクトを生成します。<br/>
+     * 生成したオブジェクトは{@link #snapshot(Snapshot)}で使い回してください。
+     *
+     * @return Snapshot
+     */
+    public Snapshot createSnapshot() {
+        return new Snapshot(mHistograms);
+    }
+
+    /**
+     * 現在の計測値を書き出します。このメソッドはメモリ確保を行いません。
+     *
+     * @param outSnapshot {@link #createSnapshot()}で生成したSnapshot
+     */
+    public void snapshot(Snapshot outSnapshot) {
+        for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            mHistograms[i].snapshot(outSnapshot.mCounts[i], outSnapshot.mStats[i]);
+        }
+    }
+
+    /**
+     * 計測値を全て破棄します。
+     */
+    public void reset() {
+        for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            mHistograms[i].reset();
+        }
+    }
+
+    /**
+     * ある時点の計測値を表すクラスです。
+     */
+    public static class Snapshot {
+
+        /**
+         * 各ヒストグラムのバケット上限値
+         */
+        private final long[][] mUpperBounds;
+
+        /**
+         * 各ヒストグラムのバケットごとの件数
+         */
+        private final long[][] mCounts;
+
+        /**
+         * 各ヒストグラムの合計・最大値
+         */
+        private final long[][] mStats;
+
+        /**
+         * コンストラクタ
+         *
+         * @param histograms 書き出し元のヒストグラム
+         */
+        Snapshot(FixedBucketHistogram[] histograms) {
+            final int size = histograms.length;
+            mUpperBounds = new long[size][];
+            mCounts = new long[size][];
+            mStats = new long[size][];
+            for (int i = 0; i < size; i++) {
+                mUpperBounds[i] = histograms[i].getUpperBounds();
+                mCounts[i] = new long[histograms[i].getBucketCount()];
+                mStats[i] = new long[2];
+            }
+        }
+
+        /**
+         * バケットの数を取得します。最後のバケットは上限値を超えた値の件数です。
+         *
+         * @param histogram HISTOGRAM_LAYOUT_UPDATES_PER_DRAG etc.
+         * @return バケットの数
+         */
+        public int getBucketCount(int histogram) {
+            return mCounts[histogram].length;
+        }
+
+        /**
+         * バケットの上限値を取得します。
+         *
+         * @param histogram HISTOGRAM_LAYOUT_UPDATES_PER_DRAG etc.
+         * @param bucket    バケットの位置
+         * @return 上限値（上限値を超えたバケットの場合はLong.MAX_VALUE）
+         */
+        public long getBucketUpperBound(int histogram, int bucket) {
+            final long[] upperBounds = mUpperBounds[histogram];
+            return bucket < upperBounds.length ? upperBounds[bucket] : Long.MAX_VALUE;
+        }
+
+        /**
+         * バケットの件数を取得します。
+         *
+         * @param histogram HISTOGRAM_LAYOUT_UPDATES_PER_DRAG etc.
+         * @param bucket    バケットの位置
+         * @return 件数
+         */
+        public long getBucketValue(int histogram, int bucket) {
+            return mCounts[histogram][bucket];
+        }
+
+        /**
+         * 記録された件数を取得します。
+         *
+         * @param histogram HISTOGRAM_LAYOUT_UPDATES_PER_DRAG etc.
+         * @return 件数
+         */
+        public long getCount(int histogram) {
+            final long[] counts = mCounts[histogram];
+            long count = 0;
+            for (long value : counts) {
+                count += value;
+            }
+            return count;
+        }
+
+        /**
+         * 記録された値の合計を取得します。
+         *
+         * @param histogram HISTOGRAM_LAYOUT_UPDATES_PER_DRAG etc.
+         * @return 合計
+         */
+        public long getSum(int histogram) {
+            return mStats[histogram][0];
+        }
+
+        /**
+         * 記録された値の最大値を取得します。
+         *
+         * @param histogram HISTOGRAM_LAYOUT_UPDATES_PER_DRAG etc.
+         * @return 最大値
+         */
+        public long getMax(int histogram) {
+            return mStats[histogram][1];
+        }
+
+        /**
+         * パーセンタイル値をバケットの上限値で近似して取得します。
+         *
+         * @param histogram  HISTOGRAM_LAYOUT_UPDATES_PER_DRAG etc.
+         * @param percentile パーセンタイル(0.0から1.0)
+         * @return 近似値（記録がない場合は0）
+         */
+        public long getPercentile(int histogram, float percentile) {
+            final long count = getCount(histogram);
+            if (count == 0) {
+                return 0;
+            }
+            final long threshold = (long) Math.ceil(count * Math.min(Math.max(percentile, 0.0f), 1.0f));
+            final long[] counts = mCounts[histogram];
+            long accumulated = 0;
+            for (int i = 0; i < counts.length; i++) {
+                accumulated += counts[i];
+                if (accumulated >= threshold) {
+                    return Math.min(getBucketUpperBound(histogram, i), getMax(histogram));
+                }
+            }
+            return getMax(histogram);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+/**
+ * FloatingViewのアニメーション中に検出したメインスレッドの停止を表すクラスです。<br/>
+ * {@link FloatingViewManager#getStalls()}で取得します。
+ */
+public class FloatingViewStall {
+
+    /**
+     * 停止を検出した時刻
+     */
+    private final long mUptimeMillis;
+
+    /**
+     * 予定のフレームからの遅れ(ミリ秒)
+     */
+    private final long mDurationMillis;
+
+    /**
+     * 停止中のメインスレッドのスタックトレース
+     */
+    private final StackTraceElement[] mStackTrace;
+
+    /**
+     * コンストラクタ
+     *
+     * @param uptimeMillis   停止を検出した時刻
+     * @param durationMillis 予定のフレームからの遅れ(ミリ秒)
+     * @param stackTrace     停止中のメインスレッドのスタックトレース
+     */
+    FloatingViewStall(long uptimeMillis, long durationMillis, StackTraceElement[] stackTrace) {
+        mUptimeMillis = uptimeMillis;
+        mDurationMillis = durationMillis;
+        mStackTrace = stackTrace;
+    }
+
+    /**
+     * 停止を検出した時刻を取得します。
+     *
+     * @return 停止を検出した時刻(SystemClock#uptimeMillis)
+     */
+    public long getUptimeMillis() {
+        return mUptimeMillis;
+    }
+
+    /**
+     * 予定のフレームからの遅れを取得します。
+     *
+     * @return 予定のフレームからの遅れ(ミリ秒)
+     */
+    public long getDurationMillis() {
+        return mDurationMillis;
+    }
+
+    /**
+     * 停止中のメインスレッドのスタックトレースを取得します。
+     *
+     * @return 停止中のメインスレッドのスタックトレース（停止中に取得できなかった場合は空）
+     */
+    public StackTraceElement[] getStackTrace() {
+        return mStackTrace.clone();
+    }
+}
@@ -0,0 +1,235 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+import java.lang.reflect.Method;
+
+/**
+ * systrace/Perfetto向けのトレース区間とカウンタを出力するクラスです。<br/>
+ * トレースが無効な場合はほぼコストがかかりません。<br/>
+ * カウンタはトレース中かどうかの確認に非公開APIの呼び出しが必要なため、確認結果を保持し、操作の開始時とWindowの貼り付け・取り外し時にのみ確認し直します。
+ */
+final class FloatingViewTrace {
+
+    /**
+     * FloatingView#dispatchTouchEvent
+     */
+    static final String SECTION_DISPATCH_TOUCH_EVENT = "FloatingView#dispatchTouchEvent";
+
+    /**
+     * FloatingAnimationHandler#handleMessage
+     */
+    static final String SECTION_FLOATING_ANIMATION = "FloatingAnimationHandler#handleMessage";
+
+    /**
+     * TrashView.AnimationHandler#handleMessage
+     */
+    static final String SECTION_TRASH_ANIMATION = "TrashView.AnimationHandler#handleMessage";
+
+    /**
+     * TrashView#prepare
+     */
+    static final String SECTION_TRASH_PREPARE = "TrashView#prepare";
+
+    /**
+     * FloatingViewManager#onTouch
+     */
+    static final String SECTION_MANAGER_TOUCH = "FloatingViewManager#onTouch";
+
+    /**
+     * FloatingViewManager#isIntersectWithTrash
+     */
+    static final String SECTION_INTERSECT_WITH_TRASH = "FloatingViewManager#isIntersectWithTrash";
+
+    /**
+     * FloatingViewManager#onScreenChanged
+     */
+    static final String SECTION_SCREEN_CHANGED = "FloatingViewManager#onScreenChanged";
+
+    /**
+     * WindowManager#addView
+     */
+    static final String SECTION_ADD_VIEW = "WindowManager#addView";
+
+    /**
+     * WindowManager#updateViewLayout
+     */
+    static final String SECTION_UPDATE_VIEW_LAYOUT = "WindowManager#updateViewLayout";
+
+    /**
+     * WindowManager#removeViewImmediate
+     */
+    static final String SECTION_REMOVE_VIEW = "WindowManager#removeViewImmediate";
+
+    /**
+     * 実行中のアニメーション数のカウンタ名
+     */
+    private static final String COUNTER_ACTIVE_ANIMATIONS = "FloatingView:activeAnimations";
+
+    /**
+     * 貼り付けられているWindow数のカウンタ名
+     */
+    private static final String COUNTER_ATTACHED_WINDOWS = "FloatingView:attachedWindows";
+
+    /**
+     * android.os.Trace.TRACE_TAG_APP
+     */
+    private static final long TRACE_TAG_APP = 1L << 12;
+
+    /**
+     * Trace#isTagEnabled(long)の引数（呼び出しごとに確保しないよう保持）
+     */
+    private static final Object[] IS_TAG_ENABLED_ARGS = {TRACE_TAG_APP};
+
+    /**
+     * トレース区間を出力できるAPIレベルの場合はtrue
+     */
+    private static final boolean IS_SECTION_SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+    /**
+     * Trace#isTagEnabled(long)（非公開API）
+     */
+    private static final Method IS_TAG_ENABLED_METHOD;
+
+    /**
+     * Trace#traceCounter(long, String, int)（非公開API）
+     */
+    private static final Method TRACE_COUNTER_METHOD;
+
+    static {
+        Method isTagEnabledMethod = null;
+        Method traceCounterMethod = null;
+        if (IS_SECTION_SUPPORTED) {
+            try {
+                isTagEnabledMethod = Trace.class.getMethod("isTagEnabled", long.class);
+                traceCounterMethod = Trace.class.getMethod("traceCounter", long.class, String.class, int.class);
+            } catch (Exception e) {
+                // カウンタは出力しない
+                isTagEnabledMethod = null;
+                traceCounterMethod = null;
+            }
+        }
+        IS_TAG_ENABLED_METHOD = isTagEnabledMethod;
+        TRACE_COUNTER_METHOD = traceCounterMethod;
+    }
+
+    /**
+     * 実行中のアニメーション数（メインスレッドのみで更新）
+     */
+    private static int sActiveAnimationCount;
+
+    /**
+     * 貼り付けられているWindow数（メインスレッドのみで更新）
+     */
+    private static int sAttachedWindowCount;
+
+    /**
+     * トレース中でカウンタを出力する場合はtrue（メインスレッドのみで更新）
+     */
+    private static boolean sIsCounterEnabled;
+
+    /**
+     * インスタンス化しません。
+     */
+    private FloatingViewTrace() {
+    }
+
+    /**
+     * トレース区間を開始します。
+     *
+     * @param sectionName 区間名（SECTION_XXX）
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static void beginSection(String sectionName) {
+        if (IS_SECTION_SUPPORTED) {
+            Trace.beginSection(sectionName);
+        }
+    }
+
+    /**
+     * トレース区間を終了します。<br/>
+     * beginSectionと同じスレッドで呼び出してください。
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static void endSection() {
+        if (IS_SECTION_SUPPORTED) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * 実行中のアニメーション数を増減します。
+     *
+     * @param isStarted アニメーションが開始した場合はtrue、終了した場合はfalse
+     */
+    static void onAnimationStateChanged(boolean isStarted) {
+        sActiveAnimationCount += isStarted ? 1 : -1;
+        setCounter(COUNTER_ACTIVE_ANIMATIONS, sActiveAnimationCount);
+    }
+
+    /**
+     * 貼り付けられているWindow数を増減します。
+     *
+     * @param isAttached Windowを貼り付けた場合はtrue、取り外した場合はfalse
+     */
+    static void onWindowStateChanged(boolean isAttached) {
+        updateCounterEnabled();
+        sAttachedWindowCount += isAttached ? 1 : -1;
+        setCounter(COUNTER_ATTACHED_WINDOWS, sAttachedWindowCount);
+    }
+
+    /**
+     * トレース中かどうかを確認し直します。（操作の開始時に呼び出します）<br/>
+     * トレースを開始した場合は、現在のカウンタの値を出力し直します。
+     */
+    static void updateCounterEnabled() {
+        if (TRACE_COUNTER_METHOD == null) {
+            return;
+        }
+        final boolean wasEnabled = sIsCounterEnabled;
+        try {
+            sIsCounterEnabled = (Boolean) IS_TAG_ENABLED_METHOD.invoke(null, IS_TAG_ENABLED_ARGS);
+        } catch (Exception e) {
+            sIsCounterEnabled = false;
+        }
+        if (sIsCounterEnabled && !wasEnabled) {
+            setCounter(COUNTER_ACTIVE_ANIMATIONS, sActiveAnimationCount);
+            setCounter(COUNTER_ATTACHED_WINDOWS, sAttachedWindowCount);
+        }
+    }
+
+    /**
+     * カウンタを出力します。トレース中でない場合は何もしません。
+     *
+     * @param counterName カウンタ名
+     * @param value       値
+     */
+    private static void setCounter(String counterName, int value) {
+        if (!sIsCounterEnabled) {
+            return;
+        }
+        try {
+            TRACE_COUNTER_METHOD.invoke(null, TRACE_TAG_APP, counterName, value);
+        } catch (Exception e) {
+            // カウンタの出力失敗は無視する
+        }
+    }
+}
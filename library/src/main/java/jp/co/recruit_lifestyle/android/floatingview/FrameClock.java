@@ -0,0 +1,189 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+/**
+ * 描画フレームに合わせてコールバックを1回呼び出すクラスです。<br/>
+ * Choreographerが使用できる場合は垂直同期に合わせ、それ以外の場合は一定間隔で呼び出します。<br/>
+ * 生成したスレッドのLooperで動作します。
+ */
+class FrameClock {
+
+    /**
+     * Choreographerが使用できない場合のフレーム間隔(ミリ秒)
+     */
+    private static final long FALLBACK_FRAME_INTERVAL_MILLIS = 16;
+
+    /**
+     * ナノ秒からミリ秒への変換
+     */
+    private static final long NANOS_PER_MILLIS = 1000000;
+
+    /**
+     * フレームごとに呼び出されるコールバックです。
+     */
+    interface Callback {
+
+        /**
+         * フレームの描画時に呼び出されます。
+         *
+         * @param frameTimeMillis フレームの時刻(uptimeMillis)
+         */
+        void doFrame(long frameTimeMillis);
+    }
+
+    /**
+     * 呼び出すコールバック
+     */
+    private final Callback mCallback;
+
+    /**
+     * Choreographerが使用できない場合のハンドラ
+     */
+    private final Handler mHandler;
+
+    /**
+     * Choreographerが使用できない場合のRunnable
+     */
+    private final Runnable mFallbackRunnable;
+
+    /**
+     * Choreographer.FrameCallback（Choreographerが使用できない場合はnull）
+     */
+    private final Object mFrameCallback;
+
+    /**
+     * コールバックの呼び出しを予約中の場合はtrue
+     */
+    private boolean mIsScheduled;
+
+    /**
+     * コンストラクタ
+     *
+     * @param callback フレームごとに呼び出されるコールバック
+     */
+    FrameClock(Callback callback) {
+        mCallback = callback;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mHandler = null;
+            mFallbackRunnable = null;
+            mFrameCallback = createFrameCallback();
+        } else {
+            mHandler = new Handler(Looper.myLooper());
+            mFallbackRunnable = new Runnable() {
+                @Override
+                public void run() {
+                    onFrame(SystemClock.uptimeMillis());
+                }
+            };
+            mFrameCallback = null;
+        }
+    }
+
+    /**
+     * Choreographer.FrameCallbackを生成します。
+     *
+     * @return Choreographer.FrameCallback
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private Object createFrameCallback() {
+        return new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                onFrame(frameTimeNanos / NANOS_PER_MILLIS);
+            }
+        };
+    }
+
+    /**
+     * 次のフレームでコールバックを呼び出します。予約済みの場合は何もしません。
+     */
+    void scheduleFrame() {
+        postFrame(0, FALLBACK_FRAME_INTERVAL_MILLIS);
+    }
+
+    /**
+     * 指定の時間が経過した後の最初のフレームでコールバックを呼び出します。予約済みの場合は何もしません。<br/>
+     * Choreographerが使用できない場合は、垂直同期を待つ時間の代わりにフレーム間隔の半分を加えた時間で呼び出します。
+     *
+     * @param delayMillis 予約してからの待ち時間(ミリ秒)
+     */
+    void scheduleFrameDelayed(long delayMillis) {
+        postFrame(delayMillis, delayMillis + FALLBACK_FRAME_INTERVAL_MILLIS / 2);
+    }
+
+    /**
+     * コールバックの呼び出しを予約します。
+     *
+     * @param delayMillis         Choreographerに予約する待ち時間(ミリ秒)
+     * @param fallbackDelayMillis Choreographerが使用できない場合の待ち時間(ミリ秒)
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrame(long delayMillis, long fallbackDelayMillis) {
+        if (mIsScheduled) {
+            return;
+        }
+        mIsScheduled = true;
+        if (mFrameCallback != null) {
+            Choreographer.getInstance().postFrameCallbackDelayed((Choreographer.FrameCallback) mFrameCallback, delayMillis);
+        } else {
+            mHandler.postDelayed(mFallbackRunnable, fallbackDelayMillis);
+        }
+    }
+
+    /**
+     * 予約したコールバックの呼び出しを取り消します。
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    void cancelFrame() {
+        if (!mIsScheduled) {
+            return;
+        }
+        mIsScheduled = false;
+        if (mFrameCallback != null) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+        } else {
+            mHandler.removeCallbacks(mFallbackRunnable);
+        }
+    }
+
+    /**
+     * コールバックの呼び出しを予約中かどうかを取得します。
+     *
+     * @return 予約中の場合はtrue
+     */
+    boolean isScheduled() {
+        return mIsScheduled;
+    }
+
+    /**
+     * フレームの描画時の処理です。
+     *
+     * @param frameTimeMillis フレームの時刻(uptimeMillis)
+     */
+    private void onFrame(long frameTimeMillis) {
+        mIsScheduled = false;
+        mCallback.doFrame(frameTimeMillis);
+    }
+}
@@ -0,0 +1,300 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.annotation.TargetApi;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import android.provider.Settings;
+import android.view.WindowManager;
+
+/**
+ * アニメーションのフレーム間隔と時間を決めるクラスです。<br/>
+ * フレーム間隔はディスプレイのリフレッシュレートに合わせ、上限のフレームレート（省電力モード中は省電力用の上限）を超えないようにします。
+ * アニメーションの時間はシステムのアニメーション速度の設定に合わせ、アニメーションがオフの場合は直ちに完了させます。<br/>
+ * 設定は最初の貼り付け時と上限の変更時に読み込み、以降は操作の開始後、メインスレッドが空いた時に読み込み直します。メインスレッドから呼び出します。
+ */
+class FramePacing {
+
+    /**
+     * ミリ秒あたりの秒
+     */
+    private static final float MILLIS_PER_SECOND = 1000.0f;
+
+    /**
+     * リフレッシュレートを取得できない場合のリフレッシュレート
+     */
+    private static final float DEFAULT_REFRESH_RATE = 60.0f;
+
+    /**
+     * 省電力モード中の上限のフレームレートの初期値
+     */
+    private static final int DEFAULT_POWER_SAVE_FRAME_RATE = 30;
+
+    /**
+     * 上限なしを表す値
+     */
+    static final int NO_FRAME_RATE_LIMIT = 0;
+
+    /**
+     * WindowManager
+     */
+    private final WindowManager mWindowManager;
+
+    /**
+     * ContentResolver
+     */
+    private final ContentResolver mContentResolver;
+
+    /**
+     * PowerManager
+     */
+    private final PowerManager mPowerManager;
+
+    /**
+     * 動作性能の計測値
+     */
+    private final FloatingViewMetrics mFloatingViewMetrics;
+
+    /**
+     * 上限のフレームレート（NO_FRAME_RATE_LIMITの場合は上限なし）
+     */
+    private int mMaxFrameRate;
+
+    /**
+     * 省電力モード中の上限のフレームレート（NO_FRAME_RATE_LIMITの場合は上限なし）
+     */
+    private int mPowerSaveFrameRate;
+
+    /**
+     * フレーム間隔(ミリ秒)
+     */
+    private long mFrameIntervalMillis;
+
+    /**
+     * フレームの処理後に次のフレームを予約するまでの待ち時間(ミリ秒)
+     */
+    private long mFrameDelayMillis;
+
+    /**
+     * アニメーションの時間の倍率
+     */
+    private float mDurationScale;
+
+    /**
+     * 設定を読み込み直す処理
+     */
+    private final Runnable mUpdateTask;
+
+    /**
+     * 設定を読み込み直す処理を実行するスケジューラ（nullの場合は直ちに読み込み直します）
+     */
+    private IdleWorkScheduler mIdleWorkScheduler;
+
+    /**
+     * コンストラクタ
+     *
+     * @param context       Context
+     * @param windowManager WindowManager
+     * @param metrics       動作性能の計測値
+     */
+    FramePacing(Context context, WindowManager windowManager, FloatingViewMetrics metrics) {
+        mWindowManager = windowManager;
+        mContentResolver = context.getContentResolver();
+        mPowerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        mFloatingViewMetrics = metrics;
+        mMaxFrameRate = NO_FRAME_RATE_LIMIT;
+        mPowerSaveFrameRate = DEFAULT_POWER_SAVE_FRAME_RATE;
+        mFrameIntervalMillis = calcFrameIntervalMillis(DEFAULT_REFRESH_RATE, NO_FRAME_RATE_LIMIT);
+        mFrameDelayMillis = calcFrameDelayMillis(DEFAULT_REFRESH_RATE, mFrameIntervalMillis);
+        mDurationScale = 1.0f;
+        mUpdateTask = new Runnable() {
+            @Override
+            public void run() {
+                update();
+            }
+        };
+    }
+
+    /**
+     * 設定を読み込み直す処理を実行するスケジューラを設定します。
+     *
+     * @param idleWorkScheduler IdleWorkScheduler
+     */
+    void setIdleWorkScheduler(IdleWorkScheduler idleWorkScheduler) {
+        mIdleWorkScheduler = idleWorkScheduler;
+    }
+
+    /**
+     * 設定の読み込みを、メインスレッドが空いた時に行うよう予約します。（操作の開始時に呼び出します）<br/>
+     * 読み込むまでの間は前回の設定を使用します。
+     */
+    void requestUpdate() {
+        if (mIdleWorkScheduler == null) {
+            update();
+            return;
+        }
+        mIdleWorkScheduler.post(mUpdateTask, IdleWorkScheduler.PRIORITY_LOW);
+    }
+
+    /**
+     * リフレッシュレート・省電力モード・アニメーション速度の設定を読み込み直します。
+     */
+    void update() {
+        float refreshRate = mWindowManager.getDefaultDisplay().getRefreshRate();
+        if (refreshRate <= 0) {
+            refreshRate = DEFAULT_REFRESH_RATE;
+        }
+        final int maxFrameRate = isPowerSaveMode() ? minFrameRate(mMaxFrameRate, mPowerSaveFrameRate) : mMaxFrameRate;
+        mFrameIntervalMillis = calcFrameIntervalMillis(refreshRate, maxFrameRate);
+        mFrameDelayMillis = calcFrameDelayMillis(refreshRate, mFrameIntervalMillis);
+        mDurationScale = readDurationScale();
+        mFloatingViewMetrics.record(FloatingViewMetrics.HISTOGRAM_FRAME_INTERVAL, mFrameIntervalMillis);
+    }
+
+    /**
+     * フレーム間隔を計算します。
+     *
+     * @param refreshRate  ディスプレイのリフレッシュレート
+     * @param maxFrameRate 上限のフレームレート（NO_FRAME_RATE_LIMITの場合は上限なし）
+     * @return フレーム間隔(ミリ秒)
+     */
+    static long calcFrameIntervalMillis(float refreshRate, int maxFrameRate) {
+        final float frameRate = maxFrameRate > 0 ? Math.min(refreshRate, maxFrameRate) : refreshRate;
+        return Math.max(Math.round(MILLIS_PER_SECOND / frameRate), 1);
+    }
+
+    /**
+     * 次のフレームを予約するまでの待ち時間を計算します。<br/>
+     * フレーム間隔からリフレッシュ間隔の半分を引くことで、フレーム間隔に最も近い垂直同期で次のフレームを処理します。
+     *
+     * @param refreshRate         ディスプレイのリフレッシュレート
+     * @param frameIntervalMillis フレーム間隔(ミリ秒)
+     * @return 待ち時間(ミリ秒)
+     */
+    static long calcFrameDelayMillis(float refreshRate, long frameIntervalMillis) {
+        return Math.max(frameIntervalMillis - Math.round(MILLIS_PER_SECOND / refreshRate / 2), 1);
+    }
+
+    /**
+     * 二つの上限のフレームレートのうち小さい方を取得します。
+     *
+     * @param frameRate1 上限のフレームレート（NO_FRAME_RATE_LIMITの場合は上限なし）
+     * @param frameRate2 上限のフレームレート（NO_FRAME_RATE_LIMITの場合は上限なし）
+     * @return 小さい方の上限のフレームレート
+     */
+    private static int minFrameRate(int frameRate1, int frameRate2) {
+        if (frameRate1 <= 0) {
+            return frameRate2;
+        }
+        if (frameRate2 <= 0) {
+            return frameRate1;
+        }
+        return Math.min(frameRate1, frameRate2);
+    }
+
+    /**
+     * 省電力モードかどうかを取得します。
+     *
+     * @return 省電力モードの場合はtrue（API 21未満は常にfalse）
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private boolean isPowerSaveMode() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && mPowerManager != null && mPowerManager.isPowerSaveMode();
+    }
+
+    /**
+     * システムのアニメーション速度の設定を読み込みます。
+     *
+     * @return アニメーションの時間の倍率（取得できない場合は1.0f）
+     */
+    @SuppressWarnings("deprecation")
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private float readDurationScale() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return Settings.Global.getFloat(mContentResolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1.0f);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            return Settings.System.getFloat(mContentResolver, Settings.System.ANIMATOR_DURATION_SCALE, 1.0f);
+        }
+        return 1.0f;
+    }
+
+    /**
+     * フレーム間隔を取得します。
+     *
+     * @return フレーム間隔(ミリ秒)
+     */
+    long getFrameIntervalMillis() {
+        return mFrameIntervalMillis;
+    }
+
+    /**
+     * フレームの処理後に次のフレームを予約するまでの待ち時間を取得します。
+     *
+     * @return 待ち時間(ミリ秒)
+     */
+    long getFrameDelayMillis() {
+        return mFrameDelayMillis;
+    }
+
+    /**
+     * システムのアニメーション速度に合わせたアニメーションの時間を取得します。
+     *
+     * @param durationMillis 標準のアニメーションの時間(ミリ秒)
+     * @return アニメーションの時間(ミリ秒、アニメーションがオフの場合は0)
+     */
+    long scaleDuration(long durationMillis) {
+        return (long) (durationMillis * mDurationScale);
+    }
+
+    /**
+     * アニメーションの進捗を計算します。
+     *
+     * @param elapsedMillis  経過時間(ミリ秒)
+     * @param durationMillis アニメーションの時間(ミリ秒)
+     * @return 進捗(0.0fから1.0f、アニメーションの時間が0の場合は1.0f)
+     */
+    static float calcProgress(float elapsedMillis, long durationMillis) {
+        if (durationMillis <= 0) {
+            return 1.0f;
+        }
+        return Math.min(elapsedMillis / durationMillis, 1.0f);
+    }
+
+    /**
+     * 上限のフレームレートを設定します。
+     *
+     * @param frameRate 上限のフレームレート（NO_FRAME_RATE_LIMITの場合は上限なし）
+     */
+    void setMaxFrameRate(int frameRate) {
+        mMaxFrameRate = frameRate;
+        update();
+    }
+
+    /**
+     * 省電力モード中の上限のフレームレートを設定します。
+     *
+     * @param frameRate 上限のフレームレート（NO_FRAME_RATE_LIMITの場合は上限なし）
+     */
+    void setPowerSaveFrameRate(int frameRate) {
+        mPowerSaveFrameRate = frameRate;
+        update();
+    }
+}
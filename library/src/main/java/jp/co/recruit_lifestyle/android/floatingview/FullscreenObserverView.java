@@ -52,6 +52,11 @@ class FullscreenObserverView extends View implements ViewTreeObserver.OnGlobalLa
      */
     private final Rect mWindowRect;
 
+    /**
+     * 画面の変化を監視している場合はtrue
+     */
+    private boolean mIsObserving;
+
 
     /**
      * コンストラクタ
@@ -73,13 +78,15 @@ class FullscreenObserverView extends View implements ViewTreeObserver.OnGlobalLa
         mParams.format = PixelFormat.TRANSLUCENT;
 
         mWindowRect = new Rect();
+        mIsObserving = true;
     }
 
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        getViewTreeObserver().addOnGlobalLayoutListener(this);
-        setOnSystemUiVisibilityChangeListener(this);
+        if (mIsObserving) {
+            addListeners();
+        }
     }
 
     /**
@@ -87,7 +94,44 @@ class FullscreenObserverView extends View implements ViewTreeObserver.OnGlobalLa
      */
     @Override
     protected void onDetachedFromWindow() {
-        // レイアウトの変化通知を削除
+        removeListeners();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * 画面の変化を監視するかを設定します。<br/>
+     * 監視を再開した場合は、停止中の変化を反映するため現在の状態を直ちに通知します。
+     *
+     * @param isObserving 監視する場合はtrue
+     */
+    void setObserving(boolean isObserving) {
+        if (mIsObserving == isObserving) {
+            return;
+        }
+        mIsObserving = isObserving;
+        if (getWindowToken() == null) {
+            return;
+        }
+        if (isObserving) {
+            addListeners();
+            onGlobalLayout();
+        } else {
+            removeListeners();
+        }
+    }
+
+    /**
+     * レイアウトの変化通知を登録します。
+     */
+    private void addListeners() {
+        getViewTreeObserver().addOnGlobalLayoutListener(this);
+        setOnSystemUiVisibilityChangeListener(this);
+    }
+
+    /**
+     * レイアウトの変化通知を削除します。
+     */
+    private void removeListeners() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
             getViewTreeObserver().removeOnGlobalLayoutListener(this);
         } else {
@@ -95,7 +139,6 @@ class FullscreenObserverView extends View implements ViewTreeObserver.OnGlobalLa
             getViewTreeObserver().removeGlobalOnLayoutListener(this);
         }
         setOnSystemUiVisibilityChangeListener(null);
-        super.onDetachedFromWindow();
     }
 
     /**
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
+import android.os.Vibrator;
+
+/**
+ * 操作に応じた振動を、メインスレッド以外から発生させるクラスです。<br/>
+ * 振動の種類ごとにパターンを設定でき、同じ種類の振動が一定時間内に繰り返された場合は発生させません。
+ * これにより、削除Viewの境界付近で重なり判定が揺れても振動が連続しません。<br/>
+ * メインスレッドから呼び出します。
+ */
+final class HapticFeedbackDispatcher {
+
+    /**
+     * 振動を発生させるスレッドの名前
+     */
+    private static final String TAG = "FloatingViewHaptics";
+
+    /**
+     * 振動の種類の数
+     */
+    static final int HAPTIC_TYPE_COUNT = 3;
+
+    /**
+     * 同じ種類の振動を繰り返さない時間の初期値(ミリ秒)
+     */
+    private static final long DEFAULT_MIN_INTERVAL_MILLIS = 100;
+
+    /**
+     * 振動を発生させていないことを表す時刻
+     */
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    /**
+     * Vibrator
+     */
+    private final Vibrator mVibrator;
+
+    /**
+     * 時計
+     */
+    private final Clock mClock;
+
+    /**
+     * 振動の種類ごとのパターン（nullの場合は振動させない）
+     */
+    private final long[][] mEffects;
+
+    /**
+     * 振動の種類ごとの最後に振動させた時刻
+     */
+    private final long[] mLastTimes;
+
+    /**
+     * 同じ種類の振動を繰り返さない時間(ミリ秒)
+     */
+    private long mMinIntervalMillis;
+
+    /**
+     * スレッドを終了した場合はtrue（prepareを呼び出すまで振動させない）
+     */
+    private boolean mIsReleased;
+
+    /**
+     * 振動を発生させるスレッド（未使用の場合はnull）
+     */
+    private HandlerThread mVibrateThread;
+
+    /**
+     * 振動を発生させるスレッドのハンドラ
+     */
+    private Handler mVibrateHandler;
+
+    /**
+     * コンストラクタ
+     *
+     * @param context Context
+     * @param clock   時計
+     */
+    HapticFeedbackDispatcher(Context context, Clock clock) {
+        mVibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
+        mClock = clock;
+        mEffects = new long[HAPTIC_TYPE_COUNT][];
+        mLastTimes = new long[HAPTIC_TYPE_COUNT];
+        for (int i = 0; i < HAPTIC_TYPE_COUNT; i++) {
+            mLastTimes[i] = NO_TIME;
+        }
+        mMinIntervalMillis = DEFAULT_MIN_INTERVAL_MILLIS;
+    }
+
+    /**
+     * 振動のパターンを設定します。
+     *
+     * @param type    振動の種類
+     * @param pattern 振動させる時間(ミリ秒)、またはVibrator#vibrate(long[], int)の形式のパターン（nullまたは空の場合は振動させない）
+     */
+    void setEffect(int type, long[] pattern) {
+        // 振動を発生させるスレッドで参照するため、変更されないように複製
+        mEffects[type] = pattern == null || pattern.length == 0 ? null : pattern.clone();
+    }
+
+    /**
+     * 同じ種類の振動を繰り返さない時間を設定します。
+     *
+     * @param minIntervalMillis 同じ種類の振動を繰り返さない時間(ミリ秒)
+     */
+    void setMinIntervalMillis(long minIntervalMillis) {
+        mMinIntervalMillis = minIntervalMillis;
+    }
+
+    /**
+     * 振動させます。パターンが設定されていない場合、同じ種類の振動から一定時間が経過していない場合、スレッドを終了した場合は何もしません。
+     *
+     * @param type 振動の種類
+     * @return 振動を依頼した場合はtrue
+     */
+    boolean perform(int type) {
+        final long[] effect = mEffects[type];
+        if (effect == null || mVibrator == null || mIsReleased) {
+            return false;
+        }
+        final long now = mClock.uptimeMillis();
+        if (mLastTimes[type] != NO_TIME && now - mLastTimes[type] < mMinIntervalMillis) {
+            return false;
+        }
+        mLastTimes[type] = now;
+        if (mVibrateThread == null) {
+            mVibrateThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            mVibrateThread.start();
+            mVibrateHandler = new Handler(mVibrateThread.getLooper()) {
+                @Override
+                public void handleMessage(Message msg) {
+                    vibrate((long[]) msg.obj);
+                }
+            };
+        }
+        mVibrateHandler.obtainMessage(type, effect).sendToTarget();
+        return true;
+    }
+
+    /**
+     * 終了したスレッドを再度使用できるようにします。スレッドは次に振動させる際に作り直します。
+     */
+    void prepare() {
+        mIsReleased = false;
+    }
+
+    /**
+     * 振動を発生させるスレッドを終了します。prepareを呼び出すまでは振動させません。
+     */
+    void release() {
+        mIsReleased = true;
+        if (mVibrateThread != null) {
+            mVibrateThread.quit();
+            mVibrateThread = null;
+            mVibrateHandler = null;
+        }
+        for (int i = 0; i < HAPTIC_TYPE_COUNT; i++) {
+            mLastTimes[i] = NO_TIME;
+        }
+    }
+
+    /**
+     * 振動させます。（振動を発生させるスレッドで呼び出します）
+     *
+     * @param effect 振動させる時間(ミリ秒)、またはVibrator#vibrate(long[], int)の形式のパターン
+     */
+    private void vibrate(long[] effect) {
+        if (effect.length == 1) {
+            mVibrator.vibrate(effect[0]);
+        } else {
+            mVibrator.vibrate(effect, -1);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+/**
+ * FloatingViewが使用するハードウェアレイヤーのメモリの上限を管理するクラスです。<br/>
+ * 上限を超える場合はレイヤーを確保せず、通常の描画を行います。<br/>
+ * メインスレッドから呼び出します。
+ */
+final class HardwareLayerBudget {
+
+    /**
+     * レイヤーの1ピクセルあたりの大きさ(byte)
+     */
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /**
+     * 動作性能の計測値
+     */
+    private final FloatingViewMetrics mFloatingViewMetrics;
+
+    /**
+     * 上限(byte)
+     */
+    private int mMaxBytes;
+
+    /**
+     * 確保中のレイヤーの合計の大きさ(byte)
+     */
+    private int mUsedBytes;
+
+    /**
+     * コンストラクタ
+     *
+     * @param maxBytes 上限(byte)
+     * @param metrics  動作性能の計測値
+     */
+    HardwareLayerBudget(int maxBytes, FloatingViewMetrics metrics) {
+        mMaxBytes = maxBytes;
+        mFloatingViewMetrics = metrics;
+    }
+
+    /**
+     * 指定の大きさのレイヤーの大きさを計算します。
+     *
+     * @param width  幅(px)
+     * @param height 高さ(px)
+     * @return 大きさ(byte)
+     */
+    static int calcLayerBytes(int width, int height) {
+        return width * height * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * 上限を設定します。確保中のレイヤーには影響しません。
+     *
+     * @param maxBytes 上限(byte)
+     */
+    void setMaxBytes(int maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * レイヤーを確保します。
+     *
+     * @param bytes レイヤーの大きさ(byte)
+     * @return 上限の範囲内で確保できた場合はtrue
+     */
+    boolean acquire(int bytes) {
+        if (bytes <= 0 || mUsedBytes + bytes > mMaxBytes) {
+            return false;
+        }
+        mUsedBytes += bytes;
+        mFloatingViewMetrics.record(FloatingViewMetrics.HISTOGRAM_HARDWARE_LAYER_KILOBYTES, mUsedBytes / 1024);
+        return true;
+    }
+
+    /**
+     * レイヤーを解放します。
+     *
+     * @param bytes          確保したレイヤーの大きさ(byte)
+     * @param heldTimeMillis レイヤーを保持していた時間(ミリ秒)
+     */
+    void release(int bytes, long heldTimeMillis) {
+        mUsedBytes = Math.max(mUsedBytes - bytes, 0);
+        mFloatingViewMetrics.record(FloatingViewMetrics.HISTOGRAM_HARDWARE_LAYER_DURATION, heldTimeMillis);
+    }
+
+    /**
+     * 確保中のレイヤーの合計の大きさを取得します。
+     *
+     * @return 大きさ(byte)
+     */
+    int getUsedBytes() {
+        return mUsedBytes;
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * フレーム内で行う必要のない処理を、メインスレッドのメッセージキューが空いた時に実行するクラスです。<br/>
+ * 処理は優先度の高い順に実行し、1回の空き時間で実行する時間には上限を設けます。
+ * 描画が続いてキューが空かない場合も、一定時間が経過した時点で実行します。<br/>
+ * メインスレッドから呼び出します。
+ */
+final class IdleWorkScheduler {
+
+    /**
+     * 優先度：高（触覚フィードバックなど、操作への応答）
+     */
+    static final int PRIORITY_HIGH = 0;
+
+    /**
+     * 優先度：通常（リスナーへの通知など）
+     */
+    static final int PRIORITY_NORMAL = 1;
+
+    /**
+     * 優先度：低（設定の再読み込みなど）
+     */
+    static final int PRIORITY_LOW = 2;
+
+    /**
+     * 優先度の数
+     */
+    private static final int PRIORITY_COUNT = 3;
+
+    /**
+     * 1回の空き時間で処理を実行する時間の上限の初期値(ミリ秒)
+     */
+    private static final long DEFAULT_BUDGET_MILLIS = 4;
+
+    /**
+     * キューが空かない場合に実行するまでの最大の待ち時間(ミリ秒)
+     */
+    static final long MAX_DELAY_MILLIS = 500;
+
+    /**
+     * 優先度ごとの未実行の処理
+     */
+    private final ArrayList<ArrayDeque<Runnable>> mQueues;
+
+    /**
+     * 時計
+     */
+    private final Clock mClock;
+
+    /**
+     * キューが空かない場合のタイマーを管理するタイマーホイール
+     */
+    private final TimerWheel mTimerWheel;
+
+    /**
+     * キューが空かない場合に実行するタイマー
+     */
+    private final TimerWheel.Timer mDeadlineTimer;
+
+    /**
+     * キューが空いた時に処理を実行するIdleHandler
+     */
+    private final MessageQueue.IdleHandler mIdleHandler;
+
+    /**
+     * IdleHandlerを登録中の場合はtrue
+     */
+    private boolean mIsIdleHandlerAdded;
+
+    /**
+     * 1回の空き時間で処理を実行する時間の上限(ミリ秒)
+     */
+    private long mBudgetMillis;
+
+    /**
+     * コンストラクタ
+     *
+     * @param clock      時計
+     * @param timerWheel キューが空かない場合のタイマーを管理するタイマーホイール
+     */
+    IdleWorkScheduler(Clock clock, TimerWheel timerWheel) {
+        mClock = clock;
+        mTimerWheel = timerWheel;
+        mQueues = new ArrayList<>(PRIORITY_COUNT);
+        for (int i = 0; i < PRIORITY_COUNT; i++) {
+            mQueues.add(new ArrayDeque<Runnable>());
+        }
+        mBudgetMillis = DEFAULT_BUDGET_MILLIS;
+        mDeadlineTimer = new TimerWheel.Timer(new Runnable() {
+            @Override
+            public void run() {
+                if (runTasks()) {
+                    mTimerWheel.schedule(mDeadlineTimer, MAX_DELAY_MILLIS);
+                }
+            }
+        });
+        mIdleHandler = new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                final boolean hasPendingTask = runTasks();
+                mIsIdleHandlerAdded = hasPendingTask;
+                return hasPendingTask;
+            }
+        };
+    }
+
+    /**
+     * 処理を予約します。同じ処理が未実行の場合は予約しません。
+     *
+     * @param task     処理
+     * @param priority PRIORITY_HIGH or PRIORITY_NORMAL or PRIORITY_LOW
+     */
+    void post(Runnable task, int priority) {
+        final ArrayDeque<Runnable> queue = mQueues.get(priority);
+        if (queue.contains(task)) {
+            return;
+        }
+        queue.add(task);
+        if (!mIsIdleHandlerAdded) {
+            Looper.myQueue().addIdleHandler(mIdleHandler);
+            mIsIdleHandlerAdded = true;
+        }
+        if (!mDeadlineTimer.isScheduled()) {
+            mTimerWheel.schedule(mDeadlineTimer, MAX_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * 未実行の処理の予約を取り消します。
+     *
+     * @param task 処理
+     */
+    void remove(Runnable task) {
+        for (int i = 0; i < PRIORITY_COUNT; i++) {
+            mQueues.get(i).remove(task);
+        }
+    }
+
+    /**
+     * 1回の空き時間で処理を実行する時間の上限を設定します。<br/>
+     * 上限を超えた場合は次の空き時間に実行しますが、1回に最低1つの処理は実行します。
+     *
+     * @param budgetMillis 1回の空き時間で処理を実行する時間の上限(ミリ秒)
+     */
+    void setBudgetMillis(long budgetMillis) {
+        mBudgetMillis = budgetMillis;
+    }
+
+    /**
+     * 未実行の処理を優先度の高い順に、時間の上限まで実行します。
+     *
+     * @return 未実行の処理が残っている場合はtrue
+     */
+    private boolean runTasks() {
+        final long startTime = mClock.uptimeMillis();
+        for (int i = 0; i < PRIORITY_COUNT; i++) {
+            final ArrayDeque<Runnable> queue = mQueues.get(i);
+            Runnable task;
+            while ((task = queue.poll()) != null) {
+                task.run();
+                if (mClock.uptimeMillis() - startTime >= mBudgetMillis) {
+                    return hasPendingTask();
+                }
+            }
+        }
+        // 実行中に予約された処理を考慮
+        return hasPendingTask();
+    }
+
+    /**
+     * 未実行の処理が残っているか確認します。残っていない場合はタイマーを解除します。
+     *
+     * @return 未実行の処理が残っている場合はtrue
+     */
+    private boolean hasPendingTask() {
+        for (int i = 0; i < PRIORITY_COUNT; i++) {
+            if (!mQueues.get(i).isEmpty()) {
+                return true;
+            }
+        }
+        mTimerWheel.cancel(mDeadlineTimer);
+        return false;
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Rect;
+
+/**
+ * FloatingView・TrashViewの位置計算を行うクラスです。<br/>
+ * Viewに依存しない計算のみを扱うため、JVM上のベンチマークからも利用されます。（Rect以外のAndroidのクラスを参照しないこと）
+ */
+final class PositionCalculator {
+
+    /**
+     * インスタンス化しません。
+     */
+    private PositionCalculator() {
+    }
+
+    /**
+     * アニメーション時間から求められる位置を計算します。
+     *
+     * @param timeRate 時間比率
+     * @return ベースとなる係数(0.0から1.0＋α)
+     */
+    static float calcAnimationPosition(float timeRate) {
+        final float position;
+        // y=0.55sin(8.0564x-π/2)+0.55
+        if (timeRate <= 0.4) {
+            position = (float) (0.55 * Math.sin(8.0564 * timeRate - Math.PI / 2) + 0.55);
+        }
+        // y=4(0.417x-0.341)^2-4(0.417-0.341)^2+1
+        else {
+            position = (float) (4 * Math.pow(0.417 * timeRate - 0.341, 2) - 4 * Math.pow(0.417 - 0.341, 2) + 1);
+        }
+        return position;
+    }
+
+    /**
+     * 削除アイコンのX座標を計算します。<br/>
+     * アイコンが左右に全部はみ出たらそれぞれ0%、100%の計算
+     *
+     * @param trashViewX        TrashViewのX座標
+     * @param targetPositionX   追従対象のX座標
+     * @param targetWidth       追従対象の幅
+     * @param screenWidth       画面の幅
+     * @param iconLimitPosition 削除アイコンの移動限界位置
+     * @return 削除アイコンのX座標(TranslationX)
+     */
+    static float calcTrashIconPositionX(float trashViewX, float targetPositionX, float targetWidth, float screenWidth, Rect iconLimitPosition) {
+        return trashViewX + (targetPositionX + targetWidth) / (screenWidth + targetWidth) * iconLimitPosition.width() + iconLimitPosition.left;
+    }
+
+    /**
+     * 削除アイコンのY軸の追従位置を計算します。<br/>
+     * targetPositionYRateは、ターゲットのY座標が完全に画面外になると0%、画面の半分以降は100%<br/>
+     * stickyPositionYは移動限界の下端が原点で上端まで移動する。moveStickyYRangeが追従の範囲
+     *
+     * @param targetPositionY   追従対象のY座標
+     * @param targetHeight      追従対象の高さ
+     * @param screenHeight      画面の高さ
+     * @param moveStickyYRange  Y軸の追従の範囲
+     * @param iconLimitPosition 削除アイコンの移動限界位置
+     * @return 移動限界の下端からの追従位置
+     */
+    static float calcTrashIconStickyPositionY(float targetPositionY, float targetHeight, float screenHeight, float moveStickyYRange, Rect iconLimitPosition) {
+        final float targetPositionYRate = Math.min(2 * (targetPositionY + targetHeight) / (screenHeight + targetHeight), 1.0f);
+        return moveStickyYRange * targetPositionYRate + iconLimitPosition.height() - moveStickyYRange;
+    }
+
+    /**
+     * 削除アイコンの当たり判定の矩形を計算します。<br/>
+     * Gravityが逆向きなので、矩形の当たり判定も上下逆転(top/bottom)し、top(画面上で下方向)の判定を多めに設定します。
+     *
+     * @param iconX                  削除アイコンの左端のX座標
+     * @param iconY                  削除アイコンの上端のY座標（TrashViewの下端が原点）
+     * @param iconWidth              削除アイコンの幅
+     * @param iconHeight             削除アイコンの高さ
+     * @param rootHeight             TrashViewの高さ
+     * @param captureHorizontalPixel ターゲットを取り込む水平領域(px)
+     * @param captureVerticalPixel   ターゲットを取り込む垂直領域(px)
+     * @param outRect                変更を加えるRect
+     */
+    static void calcTrashCaptureRect(float iconX, float iconY, float iconWidth, float iconHeight, int rootHeight, float captureHorizontalPixel, float captureVerticalPixel, Rect outRect) {
+        final int left = (int) (iconX - captureHorizontalPixel);
+        final int top = -rootHeight;
+        final int right = (int) (iconX + iconWidth + captureHorizontalPixel);
+        final int bottom = (int) (iconY + iconHeight + captureVerticalPixel);
+        outRect.set(left, top, right, bottom);
+    }
+
+    /**
+     * FloatingViewと対象の矩形が重なっているかを判定します。<br/>
+     * 円形の場合は矩形内の最も近い点との距離の2乗で判定します。
+     *
+     * @param viewRect   FloatingViewの矩形
+     * @param isCircle   FloatingViewが円形の場合はtrue
+     * @param targetRect 対象の矩形
+     * @return 重なっている場合はtrue
+     */
+    static boolean isIntersecting(Rect viewRect, boolean isCircle, Rect targetRect) {
+        // 外接矩形が重なっていない場合
+        if (viewRect.left >= targetRect.right || targetRect.left >= viewRect.right || viewRect.top >= targetRect.bottom || targetRect.top >= viewRect.bottom) {
+            return false;
+        }
+        if (!isCircle) {
+            return true;
+        }
+        final float radius = Math.min(viewRect.width(), viewRect.height()) / 2.0f;
+        final float centerX = (viewRect.left + viewRect.right) / 2.0f;
+        final float centerY = (viewRect.top + viewRect.bottom) / 2.0f;
+        final float dx = centerX - Math.min(Math.max(centerX, targetRect.left), targetRect.right);
+        final float dy = centerY - Math.min(Math.max(centerY, targetRect.top), targetRect.bottom);
+        return dx * dx + dy * dy < radius * radius;
+    }
+
+    /**
+     * 線分が矩形を通過するかを判定します。(スラブ法)
+     *
+     * @param startX 始点のX座標
+     * @param startY 始点のY座標
+     * @param endX   終点のX座標
+     * @param endY   終点のY座標
+     * @param left   矩形の左端
+     * @param top    矩形の上端
+     * @param right  矩形の右端
+     * @param bottom 矩形の下端
+     * @return 線分の一部が矩形の内側にある場合はtrue
+     */
+    static boolean isSegmentIntersecting(float startX, float startY, float endX, float endY, float left, float top, float right, float bottom) {
+        // 線分上の位置を始点0.0から終点1.0の比率で表し、X・Y軸それぞれで矩形の内側にある範囲を求める
+        float enter = 0.0f;
+        float exit = 1.0f;
+        final float dx = endX - startX;
+        if (dx == 0.0f) {
+            if (startX < left || startX > right) {
+                return false;
+            }
+        } else {
+            final float t1 = (left - startX) / dx;
+            final float t2 = (right - startX) / dx;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        final float dy = endY - startY;
+        if (dy == 0.0f) {
+            if (startY < top || startY > bottom) {
+                return false;
+            }
+        } else {
+            final float t1 = (top - startY) / dy;
+            final float t2 = (bottom - startY) / dy;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        return enter <= exit;
+    }
+
+    /**
+     * 画面サイズから移動範囲と表示位置の限界を計算します。
+     *
+     * @param screenWidth          画面の幅
+     * @param screenHeight         画面の高さ
+     * @param width                FloatingViewの幅
+     * @param height               FloatingViewの高さ
+     * @param overMargin           画面端をオーバーするマージン
+     * @param statusBarHeight      ステータスバーの高さ
+     * @param outMoveLimitRect     移動限界を表すRect
+     * @param outPositionLimitRect 表示位置（画面端）の限界を表すRect
+     */
+    static void calcLimitRects(int screenWidth, int screenHeight, int width, int height, int overMargin, int statusBarHeight, Rect outMoveLimitRect, Rect outPositionLimitRect) {
+        outMoveLimitRect.set(-width, -height * 2, screenWidth + width, screenHeight + height);
+        outPositionLimitRect.set(-overMargin, 0, screenWidth - width + overMargin, screenHeight - statusBarHeight - height);
+    }
+
+    /**
+     * 縦横切替後のX座標を画面座標の比率から計算します。(四捨五入)
+     *
+     * @param x                     切替前のX座標
+     * @param positionLimitRect     切替後の表示位置の限界を表すRect
+     * @param oldPositionLimitWidth 切替前の表示位置の限界の幅
+     * @return 切替後のX座標
+     */
+    static int calcRotatedPositionX(int x, Rect positionLimitRect, int oldPositionLimitWidth) {
+        final int newX = (int) (x * positionLimitRect.width() / (float) oldPositionLimitWidth + 0.5f);
+        return Math.min(Math.max(positionLimitRect.left, newX), positionLimitRect.right);
+    }
+
+    /**
+     * 縦横切替後のY座標をスクリーン位置の比率から計算します。(四捨五入)
+     *
+     * @param y                      切替前のY座標
+     * @param positionLimitRect      切替後の表示位置の限界を表すRect
+     * @param oldPositionLimitHeight 切替前の表示位置の限界の高さ
+     * @return 切替後のY座標
+     */
+    static int calcRotatedPositionY(int y, Rect positionLimitRect, int oldPositionLimitHeight) {
+        final int newY = (int) (y * positionLimitRect.height() / (float) oldPositionLimitHeight + 0.5f);
+        return Math.min(Math.max(positionLimitRect.top, newY), positionLimitRect.bottom);
+    }
+}
@@ -0,0 +1,308 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * アニメーション中にメインスレッドが停止したことを検出するクラスです。<br/>
+ * アニメーションの各フレームで次のフレームの予定時刻を記録し、予定から一定時間以上遅れた場合を停止とみなします。
+ * 停止中は別スレッドからメインスレッドのスタックトレースを取得し、遅れの時間と合わせて一定数まで保持します。<br/>
+ * 監視用のスレッドはアニメーション中のみ動作します。onFrame・onAnimationStarted・onAnimationStoppedはメインスレッドから呼び出します。
+ */
+final class StallWatchdog {
+
+    /**
+     * 監視用のスレッドの名前
+     */
+    private static final String TAG = "FloatingViewWatchdog";
+
+    /**
+     * 停止とみなす遅れの初期値(ミリ秒)
+     */
+    private static final long DEFAULT_THRESHOLD_MILLIS = 100;
+
+    /**
+     * 保持する停止の数
+     */
+    private static final int CAPACITY = 16;
+
+    /**
+     * 予定時刻がないことを表す値
+     */
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    /**
+     * 空のスタックトレース
+     */
+    private static final StackTraceElement[] EMPTY_STACK_TRACE = new StackTraceElement[0];
+
+    /**
+     * 時計
+     */
+    private final Clock mClock;
+
+    /**
+     * メインスレッド
+     */
+    private final Thread mMainThread;
+
+    /**
+     * 以下の状態のロック
+     */
+    private final Object mLock;
+
+    /**
+     * 検出した停止（古い順、CAPACITYを超えた場合は古いものから削除）
+     */
+    private final ArrayList<FloatingViewStall> mStalls;
+
+    /**
+     * 監視する処理
+     */
+    private final Runnable mCheckRunnable;
+
+    /**
+     * 有効な場合はtrue
+     */
+    private boolean mIsEnabled;
+
+    /**
+     * 停止とみなす遅れ(ミリ秒)
+     */
+    private long mThresholdMillis;
+
+    /**
+     * 次のフレームの予定時刻
+     */
+    private long mExpectedFrameTime;
+
+    /**
+     * 現在の停止中に取得したスタックトレース（取得していない場合はnull）
+     */
+    private StackTraceElement[] mPendingStackTrace;
+
+    /**
+     * 実行中のアニメーションの数
+     */
+    private int mRunningCount;
+
+    /**
+     * 監視中の場合はtrue
+     */
+    private boolean mIsChecking;
+
+    /**
+     * 監視用のスレッド（使用していない場合はnull）
+     */
+    private HandlerThread mCheckThread;
+
+    /**
+     * 監視用のスレッドのハンドラ
+     */
+    private Handler mCheckHandler;
+
+    /**
+     * コンストラクタ
+     *
+     * @param clock 時計
+     */
+    StallWatchdog(Clock clock) {
+        mClock = clock;
+        mMainThread = Looper.getMainLooper().getThread();
+        mLock = new Object();
+        mStalls = new ArrayList<>(CAPACITY);
+        mThresholdMillis = DEFAULT_THRESHOLD_MILLIS;
+        mExpectedFrameTime = NO_TIME;
+        mCheckRunnable = new Runnable() {
+            @Override
+            public void run() {
+                check();
+            }
+        };
+    }
+
+    /**
+     * 検出の有効・無効を設定します。無効にした場合は監視用のスレッドを終了します。
+     *
+     * @param enabled 有効にする場合はtrue
+     */
+    void setEnabled(boolean enabled) {
+        synchronized (mLock) {
+            if (mIsEnabled == enabled) {
+                return;
+            }
+            mIsEnabled = enabled;
+            mExpectedFrameTime = NO_TIME;
+            mPendingStackTrace = null;
+            if (enabled) {
+                mCheckThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+                mCheckThread.start();
+                mCheckHandler = new Handler(mCheckThread.getLooper());
+                startChecking();
+            } else {
+                mCheckThread.quit();
+                mCheckThread = null;
+                mCheckHandler = null;
+                mIsChecking = false;
+            }
+        }
+    }
+
+    /**
+     * 停止とみなす遅れを設定します。
+     *
+     * @param thresholdMillis 停止とみなす遅れ(ミリ秒)
+     */
+    void setThresholdMillis(long thresholdMillis) {
+        synchronized (mLock) {
+            mThresholdMillis = Math.max(1, thresholdMillis);
+        }
+    }
+
+    /**
+     * アニメーションのフレームを処理したことを通知します。<br/>
+     * 前のフレームで予定した時刻から一定時間以上遅れていた場合は停止を記録します。
+     *
+     * @param frameIntervalMillis 次のフレームまでの間隔(ミリ秒)
+     */
+    void onFrame(long frameIntervalMillis) {
+        final long now = mClock.uptimeMillis();
+        synchronized (mLock) {
+            if (!mIsEnabled) {
+                return;
+            }
+            recordStallIfDelayed(now);
+            mExpectedFrameTime = now + frameIntervalMillis;
+        }
+    }
+
+    /**
+     * アニメーションを開始したことを通知します。
+     */
+    void onAnimationStarted() {
+        synchronized (mLock) {
+            mRunningCount++;
+            if (mIsEnabled) {
+                startChecking();
+            }
+        }
+    }
+
+    /**
+     * アニメーションを停止したことを通知します。<br/>
+     * 全てのアニメーションが停止した場合は、次のフレームの予定を破棄します。
+     */
+    void onAnimationStopped() {
+        synchronized (mLock) {
+            mRunningCount = Math.max(0, mRunningCount - 1);
+            if (mRunningCount == 0) {
+                // 停止中にアニメーションが取り消された場合も記録
+                if (mIsEnabled && mPendingStackTrace != null) {
+                    recordStallIfDelayed(mClock.uptimeMillis());
+                }
+                mExpectedFrameTime = NO_TIME;
+                mPendingStackTrace = null;
+            }
+        }
+    }
+
+    /**
+     * 検出した停止を古い順に取得します。
+     *
+     * @return 検出した停止
+     */
+    List<FloatingViewStall> getStalls() {
+        synchronized (mLock) {
+            return new ArrayList<>(mStalls);
+        }
+    }
+
+    /**
+     * 検出した停止を破棄します。
+     */
+    void clearStalls() {
+        synchronized (mLock) {
+            mStalls.clear();
+        }
+    }
+
+    /**
+     * 予定時刻から一定時間以上遅れている場合は停止を記録します。（mLockを取得して呼び出します）
+     *
+     * @param now 現在時刻
+     */
+    private void recordStallIfDelayed(long now) {
+        if (mExpectedFrameTime != NO_TIME) {
+            final long delay = now - mExpectedFrameTime;
+            if (delay >= mThresholdMillis) {
+                if (mStalls.size() == CAPACITY) {
+                    mStalls.remove(0);
+                }
+                mStalls.add(new FloatingViewStall(now, delay, mPendingStackTrace != null ? mPendingStackTrace : EMPTY_STACK_TRACE));
+            }
+        }
+        mPendingStackTrace = null;
+    }
+
+    /**
+     * 監視を開始します。（mLockを取得して呼び出します）
+     */
+    private void startChecking() {
+        if (!mIsChecking && mRunningCount > 0) {
+            mIsChecking = true;
+            mCheckHandler.post(mCheckRunnable);
+        }
+    }
+
+    /**
+     * 予定時刻から一定時間以上遅れている場合は、メインスレッドのスタックトレースを取得します。（監視用のスレッドで呼び出します）
+     */
+    private void check() {
+        final long expectedFrameTime;
+        final long thresholdMillis;
+        synchronized (mLock) {
+            if (!mIsEnabled || mRunningCount == 0) {
+                mIsChecking = false;
+                return;
+            }
+            expectedFrameTime = mExpectedFrameTime;
+            thresholdMillis = mThresholdMillis;
+            mCheckHandler.postDelayed(mCheckRunnable, Math.max(1, thresholdMillis / 2));
+            if (expectedFrameTime == NO_TIME || mPendingStackTrace != null) {
+                return;
+            }
+        }
+        if (mClock.uptimeMillis() - expectedFrameTime < thresholdMillis) {
+            return;
+        }
+        // メインスレッドが停止している間に取得する
+        final StackTraceElement[] stackTrace = mMainThread.getStackTrace();
+        synchronized (mLock) {
+            // 取得中にフレームが処理された場合は破棄
+            if (mExpectedFrameTime == expectedFrameTime) {
+                mPendingStackTrace = stackTrace;
+            }
+        }
+    }
+}
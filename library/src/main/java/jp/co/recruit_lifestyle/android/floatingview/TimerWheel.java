@@ -0,0 +1,362 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * ライブラリ内の全てのタイムアウトを管理するタイマーホイールです。<br/>
+ * 期限の時刻をスロット数で割った余りのスロットにタイマーを連結するため、登録・解除は定数時間で行えます。
+ * タイマーは利用側が事前に生成して使い回すので、登録時にメモリを確保しません。<br/>
+ * Looperには次に期限を迎えるタイマーのためのメッセージを1つだけ送信するので、FloatingViewの数が増えてもメッセージキューは長くなりません。<br/>
+ * メインスレッドから呼び出します。
+ */
+final class TimerWheel {
+
+    /**
+     * 1スロットの時間(ミリ秒)
+     */
+    private static final long TICK_MILLIS = 10;
+
+    /**
+     * スロット数（2の累乗）
+     */
+    private static final int WHEEL_SIZE = 256;
+
+    /**
+     * スロット番号を求めるマスク
+     */
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /**
+     * 登録されていないことを表すスロット番号
+     */
+    private static final int NO_SLOT = -1;
+
+    /**
+     * 期限を迎えて実行を待っていることを表すスロット番号
+     */
+    private static final int EXPIRED = -2;
+
+    /**
+     * 次のメッセージの送信予定がないことを表す時刻
+     */
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * スロット（各スロットの先頭のタイマー）
+     */
+    private final Timer[] mSlots;
+
+    /**
+     * 期限を迎えたタイマー（実行中に確保しないよう使い回します）
+     */
+    private Timer[] mExpired;
+
+    /**
+     * 時計
+     */
+    private final Clock mClock;
+
+    /**
+     * 期限を迎えたタイマーを処理するハンドラ
+     */
+    private final TickHandler mHandler;
+
+    /**
+     * 登録中のタイマーの数
+     */
+    private int mCount;
+
+    /**
+     * 最後に処理したスロットの時刻(TICK_MILLIS単位)
+     */
+    private long mCurrentTick;
+
+    /**
+     * 送信済みのメッセージで処理する時刻(送信していない場合はNO_DEADLINE)
+     */
+    private long mScheduledDeadline;
+
+    /**
+     * コンストラクタ
+     *
+     * @param clock 時計
+     */
+    TimerWheel(Clock clock) {
+        mClock = clock;
+        mSlots = new Timer[WHEEL_SIZE];
+        mExpired = new Timer[8];
+        mHandler = new TickHandler(this);
+        mScheduledDeadline = NO_DEADLINE;
+    }
+
+    /**
+     * タイマーを登録します。登録中の場合は期限を更新します。
+     *
+     * @param timer       タイマー
+     * @param delayMillis 期限までの時間(ミリ秒)
+     */
+    void schedule(Timer timer, long delayMillis) {
+        cancel(timer);
+        final long now = mClock.uptimeMillis();
+        if (mCount == 0) {
+            mCurrentTick = now / TICK_MILLIS;
+        }
+        final long deadline = now + Math.max(0, delayMillis);
+        final int slot = (int) ((deadline / TICK_MILLIS) & WHEEL_MASK);
+        timer.mDeadline = deadline;
+        timer.mSlot = slot;
+        timer.mPrev = null;
+        timer.mNext = mSlots[slot];
+        if (timer.mNext != null) {
+            timer.mNext.mPrev = timer;
+        }
+        mSlots[slot] = timer;
+        mCount++;
+        if (deadline < mScheduledDeadline) {
+            sendTickMessage(deadline, now);
+        }
+    }
+
+    /**
+     * タイマーを解除します。登録されていない場合は何もしません。
+     *
+     * @param timer タイマー
+     */
+    void cancel(Timer timer) {
+        // 期限を迎えて実行待ちの場合は実行しない
+        if (timer.mSlot == EXPIRED) {
+            timer.mSlot = NO_SLOT;
+            return;
+        }
+        if (timer.mSlot == NO_SLOT) {
+            return;
+        }
+        if (timer.mPrev != null) {
+            timer.mPrev.mNext = timer.mNext;
+        } else {
+            mSlots[timer.mSlot] = timer.mNext;
+        }
+        if (timer.mNext != null) {
+            timer.mNext.mPrev = timer.mPrev;
+        }
+        timer.mPrev = null;
+        timer.mNext = null;
+        timer.mSlot = NO_SLOT;
+        mCount--;
+        // 送信済みのメッセージはそのまま残し、処理時に次の期限を求め直す
+        if (mCount == 0) {
+            mHandler.removeMessages(TickHandler.TICK);
+            mScheduledDeadline = NO_DEADLINE;
+        }
+    }
+
+    /**
+     * 全てのタイマーを解除します。
+     */
+    void cancelAll() {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            while (mSlots[i] != null) {
+                cancel(mSlots[i]);
+            }
+        }
+    }
+
+    /**
+     * 登録中のタイマーの数を取得します。
+     *
+     * @return 登録中のタイマーの数
+     */
+    int getScheduledCount() {
+        return mCount;
+    }
+
+    /**
+     * 期限を迎えたタイマーを実行し、次の期限のメッセージを送信します。
+     */
+    private void onTick() {
+        mScheduledDeadline = NO_DEADLINE;
+        final long now = mClock.uptimeMillis();
+        final long nowTick = now / TICK_MILLIS;
+        // 前回の処理から経過したスロットを順に処理（1周以上経過した場合は全スロット）
+        int expiredCount = 0;
+        final long ticks = Math.min(nowTick - mCurrentTick, WHEEL_MASK);
+        for (long i = 0; i <= ticks; i++) {
+            final int slot = (int) ((mCurrentTick + i) & WHEEL_MASK);
+            Timer timer = mSlots[slot];
+            while (timer != null) {
+                final Timer next = timer.mNext;
+                if (timer.mDeadline <= now) {
+                    cancel(timer);
+                    timer.mSlot = EXPIRED;
+                    if (expiredCount == mExpired.length) {
+                        final Timer[] expired = new Timer[expiredCount * 2];
+                        System.arraycopy(mExpired, 0, expired, 0, expiredCount);
+                        mExpired = expired;
+                    }
+                    mExpired[expiredCount++] = timer;
+                }
+                timer = next;
+            }
+        }
+        mCurrentTick = nowTick;
+
+        // 実行中のタイマーから登録・解除されても良いように、取り出してから実行
+        for (int i = 0; i < expiredCount; i++) {
+            final Timer timer = mExpired[i];
+            mExpired[i] = null;
+            if (timer.mSlot == EXPIRED) {
+                timer.mSlot = NO_SLOT;
+                timer.mTask.run();
+            }
+        }
+
+        // 実行中に登録されたタイマーより先に期限を迎えるタイマーがある場合を考慮して求め直す
+        if (mCount > 0) {
+            final long nextDeadline = findNextDeadline();
+            if (nextDeadline != mScheduledDeadline) {
+                sendTickMessage(nextDeadline, mClock.uptimeMillis());
+            }
+        }
+    }
+
+    /**
+     * 次に期限を迎えるタイマーの時刻を求めます。<br/>
+     * 現在のスロットから順に探し、その周回で期限を迎えるタイマーが見つかった時点で終了します。
+     *
+     * @return 次に期限を迎えるタイマーの時刻
+     */
+    private long findNextDeadline() {
+        long nextDeadline = NO_DEADLINE;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            final long tick = mCurrentTick + i;
+            Timer timer = mSlots[(int) (tick & WHEEL_MASK)];
+            while (timer != null) {
+                nextDeadline = Math.min(nextDeadline, timer.mDeadline);
+                timer = timer.mNext;
+            }
+            if (nextDeadline / TICK_MILLIS <= tick) {
+                break;
+            }
+        }
+        return nextDeadline;
+    }
+
+    /**
+     * 指定時刻に処理するメッセージを送信します。送信済みのメッセージは取り消します。
+     *
+     * @param deadline 処理する時刻
+     * @param now      現在時刻
+     */
+    private void sendTickMessage(long deadline, long now) {
+        mHandler.removeMessages(TickHandler.TICK);
+        mHandler.sendEmptyMessageDelayed(TickHandler.TICK, Math.max(0, deadline - now));
+        mScheduledDeadline = deadline;
+    }
+
+    /**
+     * タイマーホイールに登録するタイマーです。<br/>
+     * 1つのタイマーは同時に1つの期限のみ持ちます。
+     */
+    static final class Timer {
+
+        /**
+         * 期限を迎えた時に実行する処理
+         */
+        private final Runnable mTask;
+
+        /**
+         * 期限の時刻
+         */
+        private long mDeadline;
+
+        /**
+         * 登録中のスロット番号
+         */
+        private int mSlot;
+
+        /**
+         * 同じスロットの前のタイマー
+         */
+        private Timer mPrev;
+
+        /**
+         * 同じスロットの次のタイマー
+         */
+        private Timer mNext;
+
+        /**
+         * コンストラクタ
+         *
+         * @param task 期限を迎えた時に実行する処理
+         */
+        Timer(Runnable task) {
+            mTask = task;
+            mSlot = NO_SLOT;
+        }
+
+        /**
+         * 登録中か確認します。
+         *
+         * @return 登録中で、まだ実行されていない場合はtrue
+         */
+        boolean isScheduled() {
+            return mSlot >= 0;
+        }
+    }
+
+    /**
+     * 期限を迎えたタイマーを処理するハンドラです。
+     */
+    private static class TickHandler extends Handler {
+
+        /**
+         * 期限を迎えたタイマーの処理を表す定数
+         */
+        private static final int TICK = 0;
+
+        /**
+         * TimerWheel
+         */
+        private final WeakReference<TimerWheel> mTimerWheel;
+
+        /**
+         * コンストラクタ
+         *
+         * @param timerWheel TimerWheel
+         */
+        TickHandler(TimerWheel timerWheel) {
+            super(Looper.getMainLooper());
+            mTimerWheel = new WeakReference<>(timerWheel);
+        }
+
+        @Override
+        public void handleMessage(Message msg) {
+            final TimerWheel timerWheel = mTimerWheel.get();
+            if (timerWheel == null) {
+                removeMessages(TICK);
+                return;
+            }
+            timerWheel.onTick();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
+import android.view.MotionEvent;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link FloatingViewManager#flushTouchTrace(File)}で書き出したファイルを読み込み、記録時と同じ間隔でタッチイベントを再生するクラスです。<br/>
+ * 記録時と画面サイズが異なる場合は座標を画面サイズの比率で変換します。
+ */
+public class TouchTracePlayer {
+
+    /**
+     * タッチイベントのレコード
+     */
+    public static final int RECORD_TOUCH = TouchTraceRecorder.RECORD_TOUCH;
+
+    /**
+     * 画面情報のレコード
+     */
+    public static final int RECORD_DISPLAY = TouchTraceRecorder.RECORD_DISPLAY;
+
+    /**
+     * FloatingViewの状態遷移のレコード
+     */
+    public static final int RECORD_STATE = TouchTraceRecorder.RECORD_STATE;
+
+    /**
+     * 削除Viewのアニメーション開始のレコード
+     */
+    public static final int RECORD_TRASH_ANIMATION_START = TouchTraceRecorder.RECORD_TRASH_ANIMATION_START;
+
+    /**
+     * 削除Viewのアニメーション終了のレコード
+     */
+    public static final int RECORD_TRASH_ANIMATION_END = TouchTraceRecorder.RECORD_TRASH_ANIMATION_END;
+
+    /**
+     * レコードの件数
+     */
+    private final int mRecordCount;
+
+    /**
+     * 記録時に上書きされたレコードの件数
+     */
+    private final int mDroppedCount;
+
+    /**
+     * レコードの種類
+     */
+    private final byte[] mTypes;
+
+    /**
+     * 対象のFloatingView
+     */
+    private final byte[] mTargets;
+
+    /**
+     * 値
+     */
+    private final int[] mValues;
+
+    /**
+     * 時刻
+     */
+    private final long[] mTimes;
+
+    /**
+     * X座標など
+     */
+    private final float[] mX;
+
+    /**
+     * Y座標など
+     */
+    private final float[] mY;
+
+    /**
+     * View内のX座標
+     */
+    private final float[] mLocalX;
+
+    /**
+     * View内のY座標
+     */
+    private final float[] mLocalY;
+
+    /**
+     * 再生を行うハンドラ
+     */
+    private final Handler mHandler;
+
+    /**
+     * 次のイベントを再生するRunnable
+     */
+    private final Runnable mPlayRunnable;
+
+    /**
+     * 再生先のFloatingViewManager
+     */
+    private FloatingViewManager mManager;
+
+    /**
+     * 次に再生するレコードの位置
+     */
+    private int mPlayIndex;
+
+    /**
+     * 再生開始時刻
+     */
+    private long mStartTime;
+
+    /**
+     * 最初のレコードの時刻
+     */
+    private long mBaseTime;
+
+    /**
+     * 再生中のタッチの押下時刻
+     */
+    private long mDownTime;
+
+    /**
+     * X座標の変換比率
+     */
+    private float mScaleX;
+
+    /**
+     * Y座標の変換比率
+     */
+    private float mScaleY;
+
+    /**
+     * コンストラクタ
+     *
+     * @param buffer ファイルの内容
+     * @throws IOException ファイル形式が正しくない場合
+     */
+    private TouchTracePlayer(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < TouchTraceRecorder.HEADER_SIZE || buffer.getInt() != TouchTraceRecorder.MAGIC) {
+            throw new IOException("Not a touch trace file");
+        }
+        final short version = buffer.getShort();
+        if (version != TouchTraceRecorder.VERSION) {
+            throw new IOException("Unsupported touch trace version: " + version);
+        }
+        final int recordSize = buffer.getShort();
+        final int recordCount = buffer.getInt();
+        mDroppedCount = buffer.getInt();
+        if (recordSize < TouchTraceRecorder.RECORD_SIZE || recordCount < 0 || buffer.remaining() < (long) recordSize * recordCount) {
+            throw new IOException("Truncated touch trace file");
+        }
+
+        mRecordCount = recordCount;
+        mTypes = new byte[recordCount];
+        mTargets = new byte[recordCount];
+        mValues = new int[recordCount];
+        mTimes = new long[recordCount];
+        mX = new float[recordCount];
+        mY = new float[recordCount];
+        mLocalX = new float[recordCount];
+        mLocalY = new float[recordCount];
+        for (int i = 0; i < recordCount; i++) {
+            final int start = buffer.position();
+            mTypes[i] = buffer.get();
+            mTargets[i] = buffer.get();
+            buffer.getShort();
+            mValues[i] = buffer.getInt();
+            mTimes[i] = buffer.getLong();
+            mX[i] = buffer.getFloat();
+            mY[i] = buffer.getFloat();
+            mLocalX[i] = buffer.getFloat();
+            mLocalY[i] = buffer.getFloat();
+            // 新しいバージョンで拡張された領域は読み飛ばす
+            buffer.position(start + recordSize);
+        }
+
+        mHandler = new Handler(Looper.getMainLooper());
+        mPlayRunnable = new Runnable() {
+            @Override
+            public void run() {
+                playPendingRecords();
+            }
+        };
+    }
+
+    /**
+     * ファイルを読み込みます。
+     *
+     * @param file {@link FloatingViewManager#flushTouchTrace(File)}で書き出したファイル
+     * @return TouchTracePlayer
+     * @throws IOException 読み込みに失敗した場合・ファイル形式が正しくない場合
+     */
+    public static TouchTracePlayer load(File file) throws IOException {
+        final byte[] data = new byte[(int) file.length()];
+        final DataInputStream inputStream = new DataInputStream(new FileInputStream(file));
+        try {
+            inputStream.readFully(data);
+        } finally {
+            inputStream.close();
+        }
+        return new TouchTracePlayer(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /**
+     * レコードの件数を取得します。
+     *
+     * @return レコードの件数
+     */
+    public int getRecordCount() {
+        return mRecordCount;
+    }
+
+    /**
+     * 記録時にバッファが一杯になり、上書きされたレコードの件数を取得します。
+     *
+     * @return 上書きされたレコードの件数
+     */
+    public int getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    /**
+     * レコードの種類を取得します。
+     *
+     * @param index レコードの位置
+     * @return RECORD_TOUCH etc.
+     */
+    public int getRecordType(int index) {
+        return mTypes[index];
+    }
+
+    /**
+     * レコードの時刻を取得します。
+     *
+     * @param index レコードの位置
+     * @return 記録時のuptimeMillis
+     */
+    public long getRecordTime(int index) {
+        return mTimes[index];
+    }
+
+    /**
+     * レコードの値を取得します。<br/>
+     * タッチイベントはアクション、画面情報は幅、状態遷移は遷移後の状態、削除Viewのアニメーションはアニメーションコードです。
+     *
+     * @param index レコードの位置
+     * @return 値
+     */
+    public int getRecordValue(int index) {
+        return mValues[index];
+    }
+
+    /**
+     * 記録時と同じ間隔でタッチイベントを再生します。メインスレッドから呼び出してください。<br/>
+     * 記録時のFloatingViewは貼り付けた順番で再生先のFloatingViewに対応付けられます。
+     *
+     * @param manager 再生先のFloatingViewManager
+     */
+    public void play(FloatingViewManager manager) {
+        cancel();
+        mManager = manager;
+        mPlayIndex = 0;
+        mBaseTime = mRecordCount > 0 ? mTimes[0] : 0;
+        mStartTime = SystemClock.uptimeMillis();
+        mScaleX = 1.0f;
+        mScaleY = 1.0f;
+        playPendingRecords();
+    }
+
+    /**
+     * 再生を中止します。
+     */
+    public void cancel() {
+        mHandler.removeCallbacks(mPlayRunnable);
+        mManager = null;
+    }
+
+    /**
+     * 再生中かどうかを取得します。
+     *
+     * @return 再生中の場合はtrue
+     */
+    public boolean isPlaying() {
+        return mManager != null;
+    }
+
+    /**
+     * 再生時刻に達したレコードを再生し、次のレコードの再生を予約します。
+     */
+    private void playPendingRecords() {
+        final FloatingViewManager manager = mManager;
+        if (manager == null) {
+            return;
+        }
+        final long now = SystemClock.uptimeMillis();
+        while (mPlayIndex < mRecordCount) {
+            final int index = mPlayIndex;
+            final long playTime = mStartTime + mTimes[index] - mBaseTime;
+            if (playTime > now) {
+                mHandler.postAtTime(mPlayRunnable, playTime);
+                return;
+            }
+            mPlayIndex++;
+            if (mTypes[index] == RECORD_DISPLAY) {
+                updateScale(manager, index);
+            } else if (mTypes[index] == RECORD_TOUCH) {
+                dispatchTouch(manager, index, playTime);
+            }
+        }
+        mManager = null;
+    }
+
+    /**
+     * 記録時の画面サイズから座標の変換比率を更新します。
+     *
+     * @param manager FloatingViewManager
+     * @param index   画面情報のレコードの位置
+     */
+    private void updateScale(FloatingViewManager manager, int index) {
+        final DisplayMetrics metrics = new DisplayMetrics();
+        manager.getDisplayMetrics(metrics);
+        mScaleX = mValues[index] > 0 ? metrics.widthPixels / (float) mValues[index] : 1.0f;
+        mScaleY = mX[index] > 0 ? metrics.heightPixels / mX[index] : 1.0f;
+    }
+
+    /**
+     * タッチイベントをFloatingViewに送ります。
+     *
+     * @param manager   FloatingViewManager
+     * @param index     タッチイベントのレコードの位置
+     * @param eventTime 再生時のイベント時刻
+     */
+    private void dispatchTouch(FloatingViewManager manager, int index, long eventTime) {
+        // 識別番号は符号なしで記録されている
+        final FloatingView floatingView = manager.getTraceTargetFloatingView(mTargets[index] & 0xFF);
+        if (floatingView == null) {
+            return;
+        }
+        final int action = mValues[index];
+        if ((action & MotionEvent.ACTION_MASK) == MotionEvent.ACTION_DOWN) {
+            mDownTime = eventTime;
+        }
+        final float rawX = mX[index] * mScaleX;
+        final float rawY = mY[index] * mScaleY;
+        final MotionEvent event = MotionEvent.obtain(mDownTime, eventTime, action, rawX, rawY, 0);
+        // getRawX/getRawYは記録時のスクリーン座標、getX/getYはView内の座標
+        event.offsetLocation(mLocalX[index] - rawX, mLocalY[index] - rawY);
+        floatingView.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}
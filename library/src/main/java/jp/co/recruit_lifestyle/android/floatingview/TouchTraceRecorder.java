@@ -0,0 +1,406 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.MotionEvent;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * タッチの生データ・画面情報・状態遷移を記録するクラスです。<br/>
+ * 記録はメインスレッドで事前確保したリングバッファに行い、ファイルへの書き出しは別スレッドで行います。<br/>
+ * ファイル形式（リトルエンディアン）<br/>
+ * ヘッダ(16byte)：magic(int) version(short) recordSize(short) recordCount(int) droppedCount(int)<br/>
+ * レコード(32byte)：type(byte) target(unsigned byte) reserved(short) value(int) time(long) x(float) y(float) localX(float) localY(float)<br/>
+ * targetはMAX_TARGETまでの識別番号を記録し、それ以外はNO_TARGETとして記録します。<br/>
+ * 画面情報のレコードが上書きされている場合は、残っている最も古いレコードの時点の画面情報を先頭のレコードとして書き出します。
+ */
+class TouchTraceRecorder {
+
+    /**
+     * ログのタグ
+     */
+    private static final String TAG = "TouchTraceRecorder";
+
+    /**
+     * ファイルの識別子("FVTR")
+     */
+    static final int MAGIC = 0x52545646;
+
+    /**
+     * ファイル形式のバージョン
+     */
+    static final short VERSION = 1;
+
+    /**
+     * ヘッダのサイズ(byte)
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * レコードのサイズ(byte)
+     */
+    static final int RECORD_SIZE = 32;
+
+    /**
+     * タッチイベント（value:アクション、x/y:スクリーン座標、localX/localY:View内の座標）
+     */
+    static final byte RECORD_TOUCH = 1;
+
+    /**
+     * 画面情報（value:幅、x:高さ、y:密度）
+     */
+    static final byte RECORD_DISPLAY = 2;
+
+    /**
+     * FloatingViewの状態遷移（value:STATE_NORMAL/STATE_INTERSECTING/STATE_FINISHING）
+     */
+    static final byte RECORD_STATE = 3;
+
+    /**
+     * 削除Viewのアニメーション開始（value:アニメーションコード）
+     */
+    static final byte RECORD_TRASH_ANIMATION_START = 4;
+
+    /**
+     * 削除Viewのアニメーション終了（value:アニメーションコード）
+     */
+    static final byte RECORD_TRASH_ANIMATION_END = 5;
+
+    /**
+     * 記録できるFloatingViewの識別番号の最大値
+     */
+    static final int MAX_TARGET = 254;
+
+    /**
+     * 識別番号を記録できなかったことを表す値
+     */
+    static final int NO_TARGET = 255;
+
+    /**
+     * 記録できる最大件数
+     */
+    private final int mCapacity;
+
+    /**
+     * レコードの種類
+     */
+    private final byte[] mTypes;
+
+    /**
+     * 対象のFloatingView
+     */
+    private final byte[] mTargets;
+
+    /**
+     * 値
+     */
+    private final int[] mValues;
+
+    /**
+     * 時刻
+     */
+    private final long[] mTimes;
+
+    /**
+     * X座標など
+     */
+    private final float[] mX;
+
+    /**
+     * Y座標など
+     */
+    private final float[] mY;
+
+    /**
+     * View内のX座標
+     */
+    private final float[] mLocalX;
+
+    /**
+     * View内のY座標
+     */
+    private final float[] mLocalY;
+
+    /**
+     * 次に書き込む位置
+     */
+    private int mNext;
+
+    /**
+     * 記録されている件数
+     */
+    private int mSize;
+
+    /**
+     * 古いレコードを上書きした件数
+     */
+    private int mDroppedCount;
+
+    /**
+     * 上書きされた画面情報のレコードがある場合はtrue
+     */
+    private boolean mHasDroppedDisplay;
+
+    /**
+     * 上書きされた最新の画面情報の幅
+     */
+    private int mDroppedDisplayWidth;
+
+    /**
+     * 上書きされた最新の画面情報の高さ
+     */
+    private float mDroppedDisplayHeight;
+
+    /**
+     * 上書きされた最新の画面情報の密度
+     */
+    private float mDroppedDisplayDensity;
+
+    /**
+     * ファイル書き出し用のバッファ
+     */
+    private final ByteBuffer mBuffer;
+
+    /**
+     * ファイル書き出し中の場合はtrue
+     */
+    private final AtomicBoolean mIsWriting;
+
+    /**
+     * ファイル書き出しを行うスレッド
+     */
+    private HandlerThread mWriterThread;
+
+    /**
+     * ファイル書き出しを行うハンドラ
+     */
+    private Handler mWriterHandler;
+
+    /**
+     * コンストラクタ
+     *
+     * @param capacity 記録できる最大件数
+     */
+    TouchTraceRecorder(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be 1 or greater");
+        }
+        mCapacity = capacity;
+        mTypes = new byte[capacity];
+        mTargets = new byte[capacity];
+        mValues = new int[capacity];
+        mTimes = new long[capacity];
+        mX = new float[capacity];
+        mY = new float[capacity];
+        mLocalX = new float[capacity];
+        mLocalY = new float[capacity];
+        // 先頭に書き出す画面情報の分を含めて確保
+        mBuffer = ByteBuffer.allocateDirect(HEADER_SIZE + RECORD_SIZE * (capacity + 1)).order(ByteOrder.LITTLE_ENDIAN);
+        mIsWriting = new AtomicBoolean(false);
+    }
+
+    /**
+     * レコードを追加します。バッファが一杯の場合は最も古いレコードを上書きします。
+     */
+    private void record(byte type, int target, int value, long time, float x, float y, float localX, float localY) {
+        final int index = mNext;
+        // 上書きされる画面情報は書き出し時に先頭へ補うため保持
+        if (mSize == mCapacity && mTypes[index] == RECORD_DISPLAY) {
+            mHasDroppedDisplay = true;
+            mDroppedDisplayWidth = mValues[index];
+            mDroppedDisplayHeight = mX[index];
+            mDroppedDisplayDensity = mY[index];
+        }
+        mTypes[index] = type;
+        mTargets[index] = (byte) (target >= 0 && target <= MAX_TARGET ? target : NO_TARGET);
+        mValues[index] = value;
+        mTimes[index] = time;
+        mX[index] = x;
+        mY[index] = y;
+        mLocalX[index] = localX;
+        mLocalY[index] = localY;
+        mNext = (index + 1) % mCapacity;
+        if (mSize < mCapacity) {
+            mSize++;
+        } else {
+            mDroppedCount++;
+        }
+    }
+
+    /**
+     * タッチイベントを記録します。
+     *
+     * @param target FloatingViewの識別番号
+     * @param event  MotionEvent
+     */
+    void recordTouch(int target, MotionEvent event) {
+        record(RECORD_TOUCH, target, event.getAction(), event.getEventTime(), event.getRawX(), event.getRawY(), event.getX(), event.getY());
+    }
+
+    /**
+     * 画面情報を記録します。
+     *
+     * @param time    時刻
+     * @param metrics DisplayMetrics
+     */
+    void recordDisplay(long time, DisplayMetrics metrics) {
+        record(RECORD_DISPLAY, 0, metrics.widthPixels, time, metrics.heightPixels, metrics.density, 0, 0);
+    }
+
+    /**
+     * FloatingViewの状態遷移を記録します。
+     *
+     * @param target FloatingViewの識別番号
+     * @param time   時刻
+     * @param state  遷移後の状態
+     */
+    void recordState(int target, long time, int state) {
+        record(RECORD_STATE, target, state, time, 0, 0, 0, 0);
+    }
+
+    /**
+     * 削除Viewのアニメーションを記録します。
+     *
+     * @param time          時刻
+     * @param animationCode アニメーションコード
+     * @param isStarted     開始の場合はtrue、終了の場合はfalse
+     */
+    void recordTrashAnimation(long time, int animationCode, boolean isStarted) {
+        record(isStarted ? RECORD_TRASH_ANIMATION_START : RECORD_TRASH_ANIMATION_END, 0, animationCode, time, 0, 0, 0, 0);
+    }
+
+    /**
+     * 記録されている内容をファイルに書き出します。<br/>
+     * バッファへのコピーのみ呼び出し元のスレッドで行い、ファイルへの書き込みは別スレッドで行います。
+     *
+     * @param file 書き出し先のファイル
+     * @return 前回の書き出しが終わっていない場合はfalse
+     */
+    boolean flush(final File file) {
+        if (!mIsWriting.compareAndSet(false, true)) {
+            return false;
+        }
+
+        // 古い順にバッファにコピー
+        final ByteBuffer buffer = mBuffer;
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) RECORD_SIZE);
+        buffer.putInt(mHasDroppedDisplay ? mSize + 1 : mSize);
+        buffer.putInt(mDroppedCount);
+        final int start = (mNext - mSize + mCapacity) % mCapacity;
+        if (mHasDroppedDisplay) {
+            // 再生開始時刻がずれないよう、残っている最も古いレコードの時刻で書き出す
+            buffer.put(RECORD_DISPLAY);
+            buffer.put((byte) 0);
+            buffer.putShort((short) 0);
+            buffer.putInt(mDroppedDisplayWidth);
+            buffer.putLong(mTimes[start]);
+            buffer.putFloat(mDroppedDisplayHeight);
+            buffer.putFloat(mDroppedDisplayDensity);
+            buffer.putFloat(0);
+            buffer.putFloat(0);
+        }
+        for (int i = 0; i < mSize; i++) {
+            final int index = (start + i) % mCapacity;
+            buffer.put(mTypes[index]);
+            buffer.put(mTargets[index]);
+            buffer.putShort((short) 0);
+            buffer.putInt(mValues[index]);
+            buffer.putLong(mTimes[index]);
+            buffer.putFloat(mX[index]);
+            buffer.putFloat(mY[index]);
+            buffer.putFloat(mLocalX[index]);
+            buffer.putFloat(mLocalY[index]);
+        }
+        buffer.flip();
+
+        if (mWriterThread == null) {
+            mWriterThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            mWriterThread.start();
+            mWriterHandler = new Handler(mWriterThread.getLooper());
+        }
+        mWriterHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                write(file, buffer);
+                mIsWriting.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * バッファの内容をファイルに書き込みます。
+     *
+     * @param file   書き出し先のファイル
+     * @param buffer 書き込む内容
+     */
+    private static void write(File file, ByteBuffer buffer) {
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(file);
+            final FileChannel channel = outputStream.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write touch trace: " + file, e);
+        } finally {
+            if (outputStream != null) {
+                try {
+                    outputStream.close();
+                } catch (IOException e) {
+                    // 何もしない
+                }
+            }
+        }
+    }
+
+    /**
+     * 記録を終了し、書き出し用のスレッドを終了します。<br/>
+     * 書き出し中の内容は書き込まれた後に終了します。
+     */
+    void release() {
+        if (mWriterThread != null) {
+            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                mWriterThread.quitSafely();
+            } else {
+                // 書き込み中のメッセージを処理した後に終了
+                mWriterHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mWriterThread.quit();
+                    }
+                });
+            }
+        }
+    }
+}
@@ -20,17 +20,23 @@ import android.animation.ObjectAnimator;
 import android.animation.PropertyValuesHolder;
 import android.content.Context;
 import android.content.res.Configuration;
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
+import android.graphics.Shader;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Message;
-import android.os.SystemClock;
 import android.util.DisplayMetrics;
+import android.util.Property;
 import android.view.Gravity;
 import android.view.MotionEvent;
+import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
@@ -44,13 +50,23 @@ import java.lang.ref.WeakReference;
 /**
  * FloatingViewを消すためのViewです。
  */
-class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListener {
+class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListener, View.OnLayoutChangeListener {
 
     /**
      * 背景の高さ(dp)
      */
     private static final int BACKGROUND_HEIGHT = 164;
 
+    /**
+     * 背景のグラデーションの上端の色
+     */
+    private static final int BACKGROUND_START_COLOR = 0x00000000;
+
+    /**
+     * 背景のグラデーションの下端の色
+     */
+    private static final int BACKGROUND_END_COLOR = 0x50000000;
+
     /**
      * ターゲットを取り込む水平領域(dp)
      */
@@ -89,11 +105,41 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      */
     private static final int LONG_PRESS_TIMEOUT = ViewConfiguration.getLongPressTimeout();
 
+    /**
+     * 一つのViewで描画する場合のアクションする削除アイコンの拡大率
+     */
+    private static final Property<TrashView, Float> FLAT_ACTION_TRASH_ICON_SCALE = new Property<TrashView, Float>(Float.class, "flatActionTrashIconScale") {
+        @Override
+        public Float get(TrashView trashView) {
+            return trashView.mFlatActionTrashIconScale;
+        }
+
+        @Override
+        public void set(TrashView trashView, Float value) {
+            trashView.setActionTrashIconScale(value);
+        }
+    };
+
     /**
      * WindowManager
      */
     private final WindowManager mWindowManager;
 
+    /**
+     * 移動方向から削除Viewを表示するかを判定する場合はtrue
+     */
+    private boolean mIsRevealPredictive;
+
+    /**
+     * 押下から削除Viewを表示するまでの時間(ミリ秒)
+     */
+    private long mRevealDwellMillis;
+
+    /**
+     * Clock
+     */
+    private final Clock mClock;
+
     /**
      * LayoutParams
      */
@@ -154,6 +200,61 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      */
     private ObjectAnimator mExitScaleAnimator;
 
+    /**
+     * 拡大・縮小アニメーションの作成時の対象となるViewの形状
+     */
+    private float mScaleAnimatorTargetShape;
+
+    /**
+     * 拡大・縮小アニメーションの作り直しが必要な場合はtrue
+     */
+    private boolean mIsScaleAnimatorDirty;
+
+    /**
+     * 表示の準備としてハードウェアレイヤーを使用している場合はtrue
+     */
+    private boolean mIsPrepared;
+
+    /**
+     * 子Viewを使用せずに一つのViewで描画する場合はtrue
+     */
+    private boolean mIsFlatRendering;
+
+    /**
+     * 一つのViewで描画する場合の背景のPaint（グラデーションのShaderを保持）
+     */
+    private Paint mFlatBackgroundPaint;
+
+    /**
+     * 一つのViewで描画する場合の背景の高さ
+     */
+    private final int mFlatBackgroundHeight;
+
+    /**
+     * 一つのViewで描画する場合の背景のアルファ値
+     */
+    private float mFlatBackgroundAlpha;
+
+    /**
+     * 一つのViewで描画する場合の移動していない状態の削除アイコンのルートの矩形
+     */
+    private final Rect mFlatTrashIconRootRect;
+
+    /**
+     * 一つのViewで描画する場合の削除アイコンのX軸方向の移動量
+     */
+    private float mFlatTrashIconTranslationX;
+
+    /**
+     * 一つのViewで描画する場合の削除アイコンのY軸方向の移動量
+     */
+    private float mFlatTrashIconTranslationY;
+
+    /**
+     * 一つのViewで描画する場合のアクションする削除アイコンの拡大率
+     */
+    private float mFlatActionTrashIconScale;
+
     /**
      * アニメーションを行うハンドラ
      */
@@ -169,17 +270,77 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      */
     private boolean mIsEnabled;
 
+    /**
+     * 動作性能の計測値
+     */
+    private FloatingViewMetrics mFloatingViewMetrics;
+
+    /**
+     * アニメーションのフレーム間隔と時間
+     */
+    private FramePacing mFramePacing;
+
+    /**
+     * 押下から一定時間後に表示するためのタイマー
+     */
+    private final TimerWheel.Timer mOpenTimer;
+
+    /**
+     * タイマーを管理するタイマーホイール
+     */
+    private TimerWheel mTimerWheel;
+
+    /**
+     * 当たり判定の計算に使用する削除アイコンの位置・大きさの再計算が必要な場合はtrue
+     */
+    private boolean mIsIconBoundsDirty;
+
+    /**
+     * 移動していない状態の削除アイコンの左端のX座標
+     */
+    private float mIconBaseX;
+
+    /**
+     * 移動していない状態の削除アイコンの上端のY座標（TrashViewの下端が原点）
+     */
+    private float mIconBaseY;
+
+    /**
+     * 削除アイコンの幅（パディングを除く）
+     */
+    private float mIconWidth;
+
+    /**
+     * 削除アイコンの高さ（パディングを除く）
+     */
+    private float mIconHeight;
+
+    /**
+     * 削除アイコンのルートViewの高さ
+     */
+    private int mIconRootHeight;
+
     /**
      * コンストラクタ
      *
-     * @param context Context
+     * @param context       Context
+     * @param windowManager WindowManager
+     * @param clock         アニメーションの経過時間の計算に使用する時計
      */
-    TrashView(Context context) {
+    TrashView(Context context, WindowManager windowManager, Clock clock) {
         super(context);
-        mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        mWindowManager = windowManager;
+        mRevealDwellMillis = LONG_PRESS_TIMEOUT;
+        mClock = clock;
         mMetrics = new DisplayMetrics();
         mWindowManager.getDefaultDisplay().getMetrics(mMetrics);
         mAnimationHandler = new AnimationHandler(this);
+        mOpenTimer = new TimerWheel.Timer(new Runnable() {
+            @Override
+            public void run() {
+                mAnimationHandler.sendAnimationMessage(ANIMATION_OPEN);
+            }
+        });
         mIsEnabled = true;
 
         mParams = new WindowManager.LayoutParams();
@@ -203,7 +364,7 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         // 背景View
         mBackgroundView = new FrameLayout(context);
         mBackgroundView.setAlpha(0.0f);
-        final GradientDrawable gradientDrawable = new GradientDrawable(GradientDrawable.Orientation.TOP_BOTTOM, new int[]{0x00000000, 0x50000000});
+        final GradientDrawable gradientDrawable = new GradientDrawable(GradientDrawable.Orientation.TOP_BOTTOM, new int[]{BACKGROUND_START_COLOR, BACKGROUND_END_COLOR});
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
             //noinspection deprecation
             mBackgroundView.setBackgroundDrawable(gradientDrawable);
@@ -212,7 +373,10 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         }
 
         // 背景Viewの貼り付け
-        final FrameLayout.LayoutParams backgroundParams = new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, (int) (BACKGROUND_HEIGHT * mMetrics.density));
+        mFlatBackgroundHeight = (int) (BACKGROUND_HEIGHT * mMetrics.density);
+        mFlatTrashIconRootRect = new Rect();
+        mFlatActionTrashIconScale = 1.0f;
+        final FrameLayout.LayoutParams backgroundParams = new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, mFlatBackgroundHeight);
         mRootView.addView(mBackgroundView, backgroundParams);
         // アクションアイコンの貼り付け
         final FrameLayout.LayoutParams actionTrashIconParams = new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
@@ -230,6 +394,14 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         // TrashViewに貼り付け
         addView(mRootView);
 
+        // 当たり判定の位置・大きさはレイアウトが変化した場合のみ再計算
+        mIsIconBoundsDirty = true;
+        mIsScaleAnimatorDirty = true;
+        mRootView.addOnLayoutChangeListener(this);
+        mTrashIconRootView.addOnLayoutChangeListener(this);
+        mFixedTrashIconView.addOnLayoutChangeListener(this);
+        mActionTrashIconView.addOnLayoutChangeListener(this);
+
         // 初回描画処理用
         getViewTreeObserver().addOnPreDrawListener(this);
     }
@@ -252,6 +424,23 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         updateViewLayout();
     }
 
+    /**
+     * Windowから取り外された場合は、表示の準備で使用したハードウェアレイヤーを解放します。
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        releasePreparedLayers();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * 削除アイコンのレイアウトが変化した場合に当たり判定の再計算を予約します。
+     */
+    @Override
+    public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft, int oldTop, int oldRight, int oldBottom) {
+        mIsIconBoundsDirty = true;
+    }
+
     /**
      * 初回描画時の座標設定を行います。<br/>
      * 初回表示時に一瞬だけ削除アイコンが表示される事象があるため。
@@ -259,10 +448,244 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
     @Override
     public boolean onPreDraw() {
         getViewTreeObserver().removeOnPreDrawListener(this);
-        mTrashIconRootView.setTranslationY(mTrashIconRootView.getMeasuredHeight());
+        setTrashIconTranslationY(getTrashIconRootHeight());
         return true;
     }
 
+    /**
+     * 一つのViewで描画する場合は、子Viewの代わりに背景と削除アイコンの大きさを計算します。
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (!mIsFlatRendering) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+        final int width = MeasureSpec.getSize(widthMeasureSpec);
+        // FrameLayoutのレイアウトと同じく、削除アイコンのルートは下端中央に配置
+        final Drawable actionDrawable = mActionTrashIconView.getDrawable();
+        final Drawable fixedDrawable = mFixedTrashIconView.getDrawable();
+        final int actionWidth = actionDrawable == null ? 0 : actionDrawable.getIntrinsicWidth() + mActionTrashIconView.getPaddingLeft() + mActionTrashIconView.getPaddingRight();
+        final int actionHeight = actionDrawable == null ? 0 : actionDrawable.getIntrinsicHeight() + mActionTrashIconView.getPaddingTop() + mActionTrashIconView.getPaddingBottom();
+        final int iconRootWidth = Math.max(actionWidth, fixedDrawable == null ? 0 : fixedDrawable.getIntrinsicWidth());
+        final int iconRootHeight = Math.max(actionHeight, fixedDrawable == null ? 0 : fixedDrawable.getIntrinsicHeight());
+        final int height = Math.max(mFlatBackgroundHeight, iconRootHeight);
+        final int iconRootLeft = (width - iconRootWidth) / 2;
+        mFlatTrashIconRootRect.set(iconRootLeft, height - iconRootHeight, iconRootLeft + iconRootWidth, height);
+        // ImageViewと同じく画像は固有の大きさで描画
+        setIntrinsicBounds(actionDrawable);
+        setIntrinsicBounds(fixedDrawable);
+        mIsIconBoundsDirty = true;
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    /**
+     * 画像の描画範囲を固有の大きさに設定します。
+     *
+     * @param drawable Drawable
+     */
+    private static void setIntrinsicBounds(Drawable drawable) {
+        if (drawable != null) {
+            drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+        }
+    }
+
+    /**
+     * 削除アイコンのルートの中心に配置した画像の左端を取得します。
+     *
+     * @param drawable Drawable
+     * @return 削除アイコンのルートの左端からの距離
+     */
+    private int getFlatIconLeft(Drawable drawable) {
+        return (mFlatTrashIconRootRect.width() - drawable.getIntrinsicWidth()) / 2;
+    }
+
+    /**
+     * 削除アイコンのルートの中心に配置した画像の上端を取得します。
+     *
+     * @param drawable Drawable
+     * @return 削除アイコンのルートの上端からの距離
+     */
+    private int getFlatIconTop(Drawable drawable) {
+        return (mFlatTrashIconRootRect.height() - drawable.getIntrinsicHeight()) / 2;
+    }
+
+    /**
+     * 一つのViewで描画する場合は、背景のグラデーションと削除アイコンを直接描画します。
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (!mIsFlatRendering) {
+            return;
+        }
+        // 背景
+        if (mFlatBackgroundAlpha > 0.0f) {
+            mFlatBackgroundPaint.setAlpha((int) (mFlatBackgroundAlpha * 255 + 0.5f));
+            canvas.drawRect(0, 0, getWidth(), mFlatBackgroundHeight, mFlatBackgroundPaint);
+        }
+        // 削除アイコンが隠れている場合は描画しない
+        if (mFlatTrashIconTranslationY >= mFlatTrashIconRootRect.height()) {
+            return;
+        }
+        final int saveCount = canvas.save();
+        canvas.translate(mFlatTrashIconRootRect.left + mFlatTrashIconTranslationX, mFlatTrashIconRootRect.top + mFlatTrashIconTranslationY);
+        final Drawable actionDrawable = mActionTrashIconView.getDrawable();
+        if (actionDrawable != null) {
+            final int actionSaveCount = canvas.save();
+            canvas.scale(mFlatActionTrashIconScale, mFlatActionTrashIconScale, mFlatTrashIconRootRect.width() / 2.0f, mFlatTrashIconRootRect.height() / 2.0f);
+            canvas.translate(getFlatIconLeft(actionDrawable), getFlatIconTop(actionDrawable));
+            actionDrawable.draw(canvas);
+            canvas.restoreToCount(actionSaveCount);
+        }
+        final Drawable fixedDrawable = mFixedTrashIconView.getDrawable();
+        if (fixedDrawable != null) {
+            canvas.translate(getFlatIconLeft(fixedDrawable), getFlatIconTop(fixedDrawable));
+            fixedDrawable.draw(canvas);
+        }
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 子Viewを使用せずに一つのViewで描画するかを設定します。<br/>
+     * 背景のグラデーション・削除アイコンを一つのViewで描画するため、計測・レイアウト・描画の対象が一つになります。
+     *
+     * @param enabled trueの場合は一つのViewで描画
+     */
+    void setFlatRenderingEnabled(boolean enabled) {
+        if (mIsFlatRendering == enabled) {
+            return;
+        }
+        cancelScaleTrashAnimation();
+        releasePreparedLayers();
+        // 表示状態を引き継ぐ
+        final float backgroundAlpha = getBackgroundAlpha();
+        final float translationX = getTrashIconTranslationX();
+        final float translationY = getTrashIconTranslationY();
+        final float actionScale = mIsFlatRendering ? mFlatActionTrashIconScale : mActionTrashIconView.getScaleX();
+        mIsFlatRendering = enabled;
+        if (enabled) {
+            if (mFlatBackgroundPaint == null) {
+                mFlatBackgroundPaint = new Paint();
+                mFlatBackgroundPaint.setShader(new LinearGradient(0, 0, 0, mFlatBackgroundHeight, BACKGROUND_START_COLOR, BACKGROUND_END_COLOR, Shader.TileMode.CLAMP));
+            }
+            removeView(mRootView);
+        } else {
+            addView(mRootView);
+        }
+        setWillNotDraw(!enabled);
+        setBackgroundAlpha(backgroundAlpha);
+        setTrashIconTranslationX(translationX);
+        setTrashIconTranslationY(translationY);
+        setActionTrashIconScale(actionScale);
+        // 拡大・縮小アニメーションの対象が変わるため
+        mIsScaleAnimatorDirty = true;
+        invalidateIconBounds();
+        requestLayout();
+    }
+
+    /**
+     * 背景のアルファ値を取得します。
+     *
+     * @return 背景のアルファ値
+     */
+    private float getBackgroundAlpha() {
+        return mIsFlatRendering ? mFlatBackgroundAlpha : mBackgroundView.getAlpha();
+    }
+
+    /**
+     * 背景のアルファ値を設定します。
+     *
+     * @param alpha 背景のアルファ値
+     */
+    private void setBackgroundAlpha(float alpha) {
+        if (!mIsFlatRendering) {
+            mBackgroundView.setAlpha(alpha);
+        } else if (mFlatBackgroundAlpha != alpha) {
+            mFlatBackgroundAlpha = alpha;
+            invalidate();
+        }
+    }
+
+    /**
+     * 削除アイコンのX軸方向の移動量を取得します。
+     *
+     * @return 削除アイコンのX軸方向の移動量
+     */
+    private float getTrashIconTranslationX() {
+        return mIsFlatRendering ? mFlatTrashIconTranslationX : mTrashIconRootView.getTranslationX();
+    }
+
+    /**
+     * 削除アイコンのX軸方向の移動量を設定します。
+     *
+     * @param translationX 削除アイコンのX軸方向の移動量
+     */
+    private void setTrashIconTranslationX(float translationX) {
+        if (!mIsFlatRendering) {
+            mTrashIconRootView.setTranslationX(translationX);
+        } else if (mFlatTrashIconTranslationX != translationX) {
+            mFlatTrashIconTranslationX = translationX;
+            invalidate();
+        }
+    }
+
+    /**
+     * 削除アイコンのY軸方向の移動量を取得します。
+     *
+     * @return 削除アイコンのY軸方向の移動量
+     */
+    private float getTrashIconTranslationY() {
+        return mIsFlatRendering ? mFlatTrashIconTranslationY : mTrashIconRootView.getTranslationY();
+    }
+
+    /**
+     * 削除アイコンのY軸方向の移動量を設定します。
+     *
+     * @param translationY 削除アイコンのY軸方向の移動量
+     */
+    private void setTrashIconTranslationY(float translationY) {
+        if (!mIsFlatRendering) {
+            mTrashIconRootView.setTranslationY(translationY);
+        } else if (mFlatTrashIconTranslationY != translationY) {
+            mFlatTrashIconTranslationY = translationY;
+            invalidate();
+        }
+    }
+
+    /**
+     * アクションする削除アイコンの拡大率を設定します。
+     *
+     * @param scale 拡大率
+     */
+    private void setActionTrashIconScale(float scale) {
+        if (!mIsFlatRendering) {
+            mActionTrashIconView.setScaleX(scale);
+            mActionTrashIconView.setScaleY(scale);
+        } else if (mFlatActionTrashIconScale != scale) {
+            mFlatActionTrashIconScale = scale;
+            invalidate();
+        }
+    }
+
+    /**
+     * 背景の高さを取得します。
+     *
+     * @return 背景の高さ
+     */
+    private int getBackgroundHeight() {
+        return mIsFlatRendering ? mFlatBackgroundHeight : mBackgroundView.getMeasuredHeight();
+    }
+
+    /**
+     * 削除アイコンのルートの高さを取得します。
+     *
+     * @return 削除アイコンのルートの高さ
+     */
+    private int getTrashIconRootHeight() {
+        return mIsFlatRendering ? mFlatTrashIconRootRect.height() : mTrashIconRootView.getMeasuredHeight();
+    }
+
     /**
      * 画面サイズから自位置を決定します。
      */
@@ -274,7 +697,12 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         // アニメーション側情報を更新
         mAnimationHandler.onUpdateViewLayout();
 
-        mWindowManager.updateViewLayout(this, mParams);
+        FloatingViewTrace.beginSection(FloatingViewTrace.SECTION_UPDATE_VIEW_LAYOUT);
+        try {
+            mWindowManager.updateViewLayout(this, mParams);
+        } finally {
+            FloatingViewTrace.endSection();
+        }
     }
 
     /**
@@ -282,8 +710,9 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      */
     void dismiss() {
         // アニメーション停止
-        mAnimationHandler.removeMessages(ANIMATION_OPEN);
-        mAnimationHandler.removeMessages(ANIMATION_CLOSE);
+        mTimerWheel.cancel(mOpenTimer);
+        mAnimationHandler.removeAnimationMessage(ANIMATION_OPEN);
+        mAnimationHandler.removeAnimationMessage(ANIMATION_CLOSE);
         mAnimationHandler.sendAnimationMessage(ANIMATION_FORCE_CLOSE);
         // 拡大アニメーションの停止
         setScaleTrashIconImmediately(false);
@@ -296,20 +725,50 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      * @param outRect 変更を加えるRect
      */
     void getWindowDrawingRect(Rect outRect) {
-        // Gravityが逆向きなので、矩形の当たり判定も上下逆転(top/bottom)
-        // top(画面上で下方向)の判定を多めに設定
+        getWindowDrawingRect(outRect, 1.0f);
+    }
+
+    /**
+     * 取り込む領域の大きさを変更した当たり判定の矩形を取得します。
+     *
+     * @param outRect      変更を加えるRect
+     * @param captureScale 取り込む領域の倍率（0の場合は削除アイコンの矩形のみ）
+     */
+    void getWindowDrawingRect(Rect outRect, float captureScale) {
+        updateIconBounds();
+        // 移動していない状態の位置に現在の移動量を加える
+        final float x = mIconBaseX + getTrashIconTranslationX();
+        final float y = mIconBaseY - getTrashIconTranslationY();
+        PositionCalculator.calcTrashCaptureRect(x, y, mIconWidth, mIconHeight, mIconRootHeight,
+                TARGET_CAPTURE_HORIZONTAL_REGION * mMetrics.density * captureScale, TARGET_CAPTURE_VERTICAL_REGION * mMetrics.density * captureScale, outRect);
+    }
+
+    /**
+     * レイアウトが変化していた場合、移動していない状態の削除アイコンの位置・大きさを再計算します。
+     */
+    private void updateIconBounds() {
+        if (!mIsIconBoundsDirty) {
+            return;
+        }
+        mIsIconBoundsDirty = false;
         final ImageView iconView = hasActionTrashIcon() ? mActionTrashIconView : mFixedTrashIconView;
+        // 一つのViewで描画する場合は画像の配置から計算
+        if (mIsFlatRendering) {
+            final Drawable drawable = iconView.getDrawable();
+            mIconWidth = drawable == null ? 0 : drawable.getIntrinsicWidth();
+            mIconHeight = drawable == null ? 0 : drawable.getIntrinsicHeight();
+            mIconRootHeight = getMeasuredHeight();
+            mIconBaseX = mFlatTrashIconRootRect.left + (drawable == null ? 0 : getFlatIconLeft(drawable));
+            mIconBaseY = mIconRootHeight - mFlatTrashIconRootRect.top - (drawable == null ? 0 : getFlatIconTop(drawable)) - mIconHeight;
+            return;
+        }
         final float iconPaddingLeft = iconView.getPaddingLeft();
         final float iconPaddingTop = iconView.getPaddingTop();
-        final float iconWidth = iconView.getWidth() - iconPaddingLeft - iconView.getPaddingRight();
-        final float iconHeight = iconView.getHeight() - iconPaddingTop - iconView.getPaddingBottom();
-        final float x = mTrashIconRootView.getX() + iconPaddingLeft;
-        final float y = mRootView.getHeight() - mTrashIconRootView.getY() - iconPaddingTop - iconHeight;
-        final int left = (int) (x - TARGET_CAPTURE_HORIZONTAL_REGION * mMetrics.density);
-        final int top = -mRootView.getHeight();
-        final int right = (int) (x + iconWidth + TARGET_CAPTURE_HORIZONTAL_REGION * mMetrics.density);
-        final int bottom = (int) (y + iconHeight + TARGET_CAPTURE_VERTICAL_REGION * mMetrics.density);
-        outRect.set(left, top, right, bottom);
+        mIconWidth = iconView.getWidth() - iconPaddingLeft - iconView.getPaddingRight();
+        mIconHeight = iconView.getHeight() - iconPaddingTop - iconView.getPaddingBottom();
+        mIconRootHeight = mRootView.getHeight();
+        mIconBaseX = mTrashIconRootView.getLeft() + iconPaddingLeft;
+        mIconBaseY = mIconRootHeight - mTrashIconRootView.getTop() - iconPaddingTop - mIconHeight;
     }
 
     /**
@@ -324,18 +783,28 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         if (!hasActionTrashIcon()) {
             return;
         }
+        // 対象となるViewの大きさ・形状が変わっていない場合は作成済みのアニメーションを使用
+        if (!mIsScaleAnimatorDirty && width == mAnimationHandler.mTargetWidth && height == mAnimationHandler.mTargetHeight && shape == mScaleAnimatorTargetShape) {
+            return;
+        }
+        mIsScaleAnimatorDirty = false;
+        mScaleAnimatorTargetShape = shape;
         // 拡大率の設定
         mAnimationHandler.mTargetWidth = width;
         mAnimationHandler.mTargetHeight = height;
         final float newWidthScale = width / mActionTrashIconBaseWidth * shape;
         final float newHeightScale = height / mActionTrashIconBaseHeight * shape;
         mActionTrashIconMaxScale = Math.max(newWidthScale, newHeightScale);
-        // ENTERアニメーション作成
-        mEnterScaleAnimator = ObjectAnimator.ofPropertyValuesHolder(mActionTrashIconView, PropertyValuesHolder.ofFloat(ImageView.SCALE_X, mActionTrashIconMaxScale), PropertyValuesHolder.ofFloat(ImageView.SCALE_Y, mActionTrashIconMaxScale));
+        // ENTER・Exitアニメーション作成（一つのViewで描画する場合はTrashViewの拡大率を変化させる）
+        if (mIsFlatRendering) {
+            mEnterScaleAnimator = ObjectAnimator.ofFloat(this, FLAT_ACTION_TRASH_ICON_SCALE, mActionTrashIconMaxScale);
+            mExitScaleAnimator = ObjectAnimator.ofFloat(this, FLAT_ACTION_TRASH_ICON_SCALE, 1.0f);
+        } else {
+            mEnterScaleAnimator = ObjectAnimator.ofPropertyValuesHolder(mActionTrashIconView, PropertyValuesHolder.ofFloat(ImageView.SCALE_X, mActionTrashIconMaxScale), PropertyValuesHolder.ofFloat(ImageView.SCALE_Y, mActionTrashIconMaxScale));
+            mExitScaleAnimator = ObjectAnimator.ofPropertyValuesHolder(mActionTrashIconView, PropertyValuesHolder.ofFloat(ImageView.SCALE_X, 1.0f), PropertyValuesHolder.ofFloat(ImageView.SCALE_Y, 1.0f));
+        }
         mEnterScaleAnimator.setInterpolator(new OvershootInterpolator());
         mEnterScaleAnimator.setDuration(TRASH_ICON_SCALE_DURATION_MILLIS);
-        // Exitアニメーション作成
-        mExitScaleAnimator = ObjectAnimator.ofPropertyValuesHolder(mActionTrashIconView, PropertyValuesHolder.ofFloat(ImageView.SCALE_X, 1.0f), PropertyValuesHolder.ofFloat(ImageView.SCALE_Y, 1.0f));
         mExitScaleAnimator.setInterpolator(new OvershootInterpolator());
         mExitScaleAnimator.setDuration(TRASH_ICON_SCALE_DURATION_MILLIS);
 
@@ -343,6 +812,8 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         final int horizontalPadding = Math.max((int) ((mActionTrashIconMaxScale - 1.0f) * mActionTrashIconBaseWidth / 2 + 0.5f), 0);
         final int verticalPadding = Math.max((int) ((mActionTrashIconMaxScale - 1.0f) * mActionTrashIconBaseHeight / 2 + 0.5f), 0);
         mActionTrashIconView.setPadding(horizontalPadding, verticalPadding, horizontalPadding, verticalPadding);
+        // パディングのみの変化ではレイアウトの変化が通知されないため
+        invalidateIconBounds();
     }
 
     /**
@@ -351,11 +822,8 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      * @return 削除アイコンの中心X座標
      */
     float getTrashIconCenterX() {
-        final ImageView iconView = hasActionTrashIcon() ? mActionTrashIconView : mFixedTrashIconView;
-        final float iconViewPaddingLeft = iconView.getPaddingLeft();
-        final float iconWidth = iconView.getWidth() - iconViewPaddingLeft - iconView.getPaddingRight();
-        final float x = mTrashIconRootView.getX() + iconViewPaddingLeft;
-        return x + iconWidth / 2;
+        updateIconBounds();
+        return mIconBaseX + getTrashIconTranslationX() + mIconWidth / 2;
     }
 
     /**
@@ -364,12 +832,8 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      * @return 削除アイコンの中心Y座標
      */
     float getTrashIconCenterY() {
-        final ImageView iconView = hasActionTrashIcon() ? mActionTrashIconView : mFixedTrashIconView;
-        final float iconViewHeight = iconView.getHeight();
-        final float iconViewPaddingBottom = iconView.getPaddingBottom();
-        final float iconHeight = iconViewHeight - iconView.getPaddingTop() - iconViewPaddingBottom;
-        final float y = mRootView.getHeight() - mTrashIconRootView.getY() - iconViewHeight + iconViewPaddingBottom;
-        return y + iconHeight / 2;
+        updateIconBounds();
+        return mIconBaseY - getTrashIconTranslationY() + mIconHeight / 2;
     }
 
 
@@ -390,6 +854,7 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      */
     void setFixedTrashIconImage(int resId) {
         mFixedTrashIconView.setImageResource(resId);
+        invalidateIconBounds();
     }
 
     /**
@@ -405,6 +870,9 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
             mActionTrashIconBaseWidth = drawable.getIntrinsicWidth();
             mActionTrashIconBaseHeight = drawable.getIntrinsicHeight();
         }
+        // 当たり判定に使用するアイコンが切り替わる場合があるため
+        invalidateIconBounds();
+        mIsScaleAnimatorDirty = true;
     }
 
     /**
@@ -415,6 +883,19 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      */
     void setFixedTrashIconImage(Drawable drawable) {
         mFixedTrashIconView.setImageDrawable(drawable);
+        invalidateIconBounds();
+    }
+
+    /**
+     * 削除アイコンの位置・大きさの再計算を予約します。
+     */
+    private void invalidateIconBounds() {
+        mIsIconBoundsDirty = true;
+        // 一つのViewで描画する場合は削除アイコンのViewがレイアウトされないため
+        if (mIsFlatRendering) {
+            requestLayout();
+            invalidate();
+        }
     }
 
     /**
@@ -429,6 +910,77 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
             mActionTrashIconBaseWidth = drawable.getIntrinsicWidth();
             mActionTrashIconBaseHeight = drawable.getIntrinsicHeight();
         }
+        // 当たり判定に使用するアイコンが切り替わる場合があるため
+        invalidateIconBounds();
+        mIsScaleAnimatorDirty = true;
+    }
+
+    /**
+     * 表示の準備を行います。（押下時に呼び出します）<br/>
+     * 背景と削除アイコンをハードウェアレイヤーに事前に描画し、拡大・縮小アニメーションと画像を準備します。
+     * オープンアニメーションではレイヤーのプロパティのみを変更するため、最初のフレームで描画の負荷が集中しません。
+     *
+     * @param width  対象となるViewの幅
+     * @param height 対象となるViewの高さ
+     * @param shape  対象となるViewの形状
+     */
+    void prepare(float width, float height, float shape) {
+        FloatingViewTrace.beginSection(FloatingViewTrace.SECTION_TRASH_PREPARE);
+        try {
+            calcActionTrashIconPadding(width, height, shape);
+            prepareToDraw(mFixedTrashIconView.getDrawable());
+            prepareToDraw(mActionTrashIconView.getDrawable());
+            // 表示中の場合はレイヤーを作成済み
+            // 一つのViewで描画する場合は毎フレーム内容が変わるためレイヤーを使用しない
+            if (mIsPrepared || !mIsEnabled || mIsFlatRendering || !isHardwareAccelerated()) {
+                return;
+            }
+            mIsPrepared = true;
+            mBackgroundView.setLayerType(LAYER_TYPE_HARDWARE, null);
+            mTrashIconRootView.setLayerType(LAYER_TYPE_HARDWARE, null);
+            // 配置済みの場合は表示前にレイヤーを描画
+            if (getWindowToken() != null && mRootView.getWidth() > 0) {
+                mBackgroundView.buildLayer();
+                mTrashIconRootView.buildLayer();
+            }
+        } finally {
+            FloatingViewTrace.endSection();
+        }
+    }
+
+    /**
+     * 表示の準備でハードウェアレイヤーを作成済みか確認します。
+     *
+     * @return 作成済みの場合はtrue
+     */
+    boolean isPrepared() {
+        return mIsPrepared;
+    }
+
+    /**
+     * 表示の準備で使用したハードウェアレイヤーを解放します。（閉じた後・Windowから取り外された時に呼び出します）
+     */
+    private void releasePreparedLayers() {
+        if (!mIsPrepared) {
+            return;
+        }
+        mIsPrepared = false;
+        mBackgroundView.setLayerType(LAYER_TYPE_NONE, null);
+        mTrashIconRootView.setLayerType(LAYER_TYPE_NONE, null);
+    }
+
+    /**
+     * 画像のビットマップを描画前にGPUへ転送します。
+     *
+     * @param drawable Drawable
+     */
+    private static void prepareToDraw(Drawable drawable) {
+        if (drawable instanceof BitmapDrawable) {
+            final BitmapDrawable bitmapDrawable = (BitmapDrawable) drawable;
+            if (bitmapDrawable.getBitmap() != null) {
+                bitmapDrawable.getBitmap().prepareToDraw();
+            }
+        }
     }
 
     /**
@@ -439,8 +991,7 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
     private void setScaleTrashIconImmediately(boolean isEnter) {
         cancelScaleTrashAnimation();
 
-        mActionTrashIconView.setScaleX(isEnter ? mActionTrashIconMaxScale : 1.0f);
-        mActionTrashIconView.setScaleY(isEnter ? mActionTrashIconMaxScale : 1.0f);
+        setActionTrashIconScale(isEnter ? mActionTrashIconMaxScale : 1.0f);
     }
 
     /**
@@ -492,6 +1043,15 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         return mIsEnabled;
     }
 
+    /**
+     * オープンアニメーション中（表示中）かどうかを取得します。
+     *
+     * @return オープンアニメーション中の場合はtrue
+     */
+    boolean isOpening() {
+        return mAnimationHandler.isAnimationStarted(ANIMATION_OPEN);
+    }
+
     /**
      * 削除アイコンの拡大・縮小アニメーションのキャンセル
      */
@@ -516,6 +1076,33 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         mTrashViewListener = listener;
     }
 
+    /**
+     * 動作性能の計測値の記録先を設定します。
+     *
+     * @param metrics FloatingViewMetrics
+     */
+    void setMetrics(FloatingViewMetrics metrics) {
+        mFloatingViewMetrics = metrics;
+    }
+
+    /**
+     * アニメーションのフレーム間隔と時間を設定します。
+     *
+     * @param framePacing FramePacing
+     */
+    void setFramePacing(FramePacing framePacing) {
+        mFramePacing = framePacing;
+    }
+
+    /**
+     * 押下から一定時間後に表示するタイマーを管理するタイマーホイールを設定します。
+     *
+     * @param timerWheel TimerWheel
+     */
+    void setTimerWheel(TimerWheel timerWheel) {
+        mTimerWheel = timerWheel;
+    }
+
     /**
      * WindowManager.LayoutParams
      *
@@ -525,37 +1112,58 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         return mParams;
     }
 
+    /**
+     * 移動方向から削除Viewを表示するかを判定するかを設定します。
+     *
+     * @param predictive trueの場合は削除Viewへ向かう移動か、一定時間の経過で表示
+     */
+    void setRevealPredictive(boolean predictive) {
+        mIsRevealPredictive = predictive;
+    }
+
+    /**
+     * 移動方向から判定する場合に、押下から削除Viewを表示するまでの時間を設定します。
+     *
+     * @param dwellMillis 押下から削除Viewを表示するまでの時間(ミリ秒)
+     */
+    void setRevealDwellMillis(long dwellMillis) {
+        mRevealDwellMillis = dwellMillis;
+    }
+
     /**
      * FloatingViewに関連する処理を行います。
      *
-     * @param event MotionEvent
-     * @param x     FloatingViewのX座標
-     * @param y     FloatingViewのY座標
+     * @param event            MotionEvent
+     * @param x                FloatingViewのX座標
+     * @param y                FloatingViewのY座標
+     * @param isRevealIntended 移動時に削除Viewを表示するべき場合はtrue
      */
-    void onTouchFloatingView(MotionEvent event, float x, float y) {
+    void onTouchFloatingView(MotionEvent event, float x, float y, boolean isRevealIntended) {
         final int action = event.getAction();
         // 押下
         if (action == MotionEvent.ACTION_DOWN) {
             mAnimationHandler.updateTargetPosition(x, y);
-            // 長押し処理待ち
-            mAnimationHandler.removeMessages(ANIMATION_CLOSE);
-            mAnimationHandler.sendAnimationMessageDelayed(ANIMATION_OPEN, LONG_PRESS_TIMEOUT);
+            // 長押し処理待ち（移動方向から判定する場合は一定時間の経過待ち）
+            mAnimationHandler.removeAnimationMessage(ANIMATION_CLOSE);
+            mTimerWheel.schedule(mOpenTimer, mIsRevealPredictive ? mRevealDwellMillis : LONG_PRESS_TIMEOUT);
         }
         // 移動
         else if (action == MotionEvent.ACTION_MOVE) {
             mAnimationHandler.updateTargetPosition(x, y);
             // まだオープンアニメーションが開始していない場合のみ実行
-            if (!mAnimationHandler.isAnimationStarted(ANIMATION_OPEN)) {
-                // 長押しのメッセージを削除
-                mAnimationHandler.removeMessages(ANIMATION_OPEN);
+            // 移動方向から判定する場合は、表示するべきでなければ押下時の経過待ちを継続
+            if (!mAnimationHandler.isAnimationStarted(ANIMATION_OPEN) && (!mIsRevealPredictive || isRevealIntended)) {
+                // 長押しのタイマーを解除
+                mTimerWheel.cancel(mOpenTimer);
                 // オープン
                 mAnimationHandler.sendAnimationMessage(ANIMATION_OPEN);
             }
         }
         // 押上、キャンセル
         else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
-            // 長押しのメッセージを削除
-            mAnimationHandler.removeMessages(ANIMATION_OPEN);
+            // 長押しのタイマーを解除
+            mTimerWheel.cancel(mOpenTimer);
+            mAnimationHandler.removeAnimationMessage(ANIMATION_OPEN);
             mAnimationHandler.sendAnimationMessage(ANIMATION_CLOSE);
         }
     }
@@ -565,11 +1173,6 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      */
     static class AnimationHandler extends Handler {
 
-        /**
-         * アニメーションをリフレッシュするミリ秒
-         */
-        private static final long ANIMATION_REFRESH_TIME_MILLIS = 17L;
-
         /**
          * 背景のアニメーション時間
          */
@@ -644,6 +1247,11 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
          */
         private int mStartedCode;
 
+        /**
+         * オープンアニメーションの時間を記録済みの場合はtrue
+         */
+        private boolean mIsOpenDurationRecorded;
+
         /**
          * 追従対象のX座標
          */
@@ -685,6 +1293,16 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
          */
         private final WeakReference<TrashView> mTrashView;
 
+        /**
+         * 2フレーム目以降を垂直同期に合わせて処理するFrameClock
+         */
+        private final FrameClock mFrameClock;
+
+        /**
+         * 次のフレームで処理するアニメーションのコード（予約していない場合はANIMATION_NONE）
+         */
+        private int mFrameAnimationCode;
+
         /**
          * コンストラクタ
          */
@@ -693,6 +1311,15 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
             mStartedCode = ANIMATION_NONE;
             mTrashIconLimitPosition = new Rect();
             mOvershootInterpolator = new OvershootInterpolator(OVERSHOOT_TENSION);
+            mFrameAnimationCode = ANIMATION_NONE;
+            mFrameClock = new FrameClock(new FrameClock.Callback() {
+                @Override
+                public void doFrame(long frameTimeMillis) {
+                    final int animationCode = mFrameAnimationCode;
+                    mFrameAnimationCode = ANIMATION_NONE;
+                    handleAnimationFrame(animationCode, TYPE_UPDATE);
+                }
+            });
         }
 
         /**
@@ -700,11 +1327,36 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
          */
         @Override
         public void handleMessage(Message msg) {
+            handleAnimationFrame(msg.what, msg.arg1);
+        }
+
+        /**
+         * アニメーションの1フレーム分の処理を行います。
+         *
+         * @param animationCode ANIMATION_OPEN,ANIMATION_CLOSE,ANIMATION_FORCE_CLOSE
+         * @param animationType TYPE_FIRST,TYPE_UPDATE
+         */
+        private void handleAnimationFrame(int animationCode, int animationType) {
+            FloatingViewTrace.beginSection(FloatingViewTrace.SECTION_TRASH_ANIMATION);
+            try {
+                handleAnimation(animationCode, animationType);
+            } finally {
+                FloatingViewTrace.endSection();
+            }
+        }
+
+        /**
+         * アニメーションの1フレーム分の処理を行います。
+         *
+         * @param animationCode ANIMATION_OPEN,ANIMATION_CLOSE,ANIMATION_FORCE_CLOSE
+         * @param animationType TYPE_FIRST,TYPE_UPDATE
+         */
+        private void handleAnimation(int animationCode, int animationType) {
             final TrashView trashView = mTrashView.get();
             if (trashView == null) {
-                removeMessages(ANIMATION_OPEN);
-                removeMessages(ANIMATION_CLOSE);
-                removeMessages(ANIMATION_FORCE_CLOSE);
+                removeAnimationMessage(ANIMATION_OPEN);
+                removeAnimationMessage(ANIMATION_CLOSE);
+                removeAnimationMessage(ANIMATION_FORCE_CLOSE);
                 return;
             }
 
@@ -713,74 +1365,79 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
                 return;
             }
 
-            final int animationCode = msg.what;
-            final int animationType = msg.arg1;
-            final FrameLayout backgroundView = trashView.mBackgroundView;
-            final FrameLayout trashIconRootView = trashView.mTrashIconRootView;
             final TrashViewListener listener = trashView.mTrashViewListener;
             final float screenWidth = trashView.mMetrics.widthPixels;
             final float trashViewX = trashView.mParams.x;
+            final long frameTime = trashView.mClock.uptimeMillis();
+            final FramePacing framePacing = trashView.mFramePacing;
+            final long backgroundDuration = framePacing.scaleDuration(BACKGROUND_DURATION_MILLIS);
 
             // アニメーションを開始した場合の初期化
             if (animationType == TYPE_FIRST) {
-                mStartTime = SystemClock.uptimeMillis();
-                mStartAlpha = backgroundView.getAlpha();
-                mStartTransitionY = trashIconRootView.getTranslationY();
-                mStartedCode = animationCode;
+                mStartTime = frameTime;
+                mStartAlpha = trashView.getBackgroundAlpha();
+                mStartTransitionY = trashView.getTrashIconTranslationY();
+                setStartedCode(animationCode);
+                mIsOpenDurationRecorded = false;
                 if (listener != null) {
                     listener.onTrashAnimationStarted(mStartedCode);
                 }
             }
             // 経過時間
-            final float elapsedTime = SystemClock.uptimeMillis() - mStartTime;
+            final float elapsedTime = frameTime - mStartTime;
 
             // 表示アニメーション
             if (animationCode == ANIMATION_OPEN) {
-                final float currentAlpha = backgroundView.getAlpha();
+                final float currentAlpha = trashView.getBackgroundAlpha();
                 // 最大のアルファ値に達していない場合
                 if (currentAlpha < MAX_ALPHA) {
-                    final float alphaTimeRate = Math.min(elapsedTime / BACKGROUND_DURATION_MILLIS, 1.0f);
+                    final float alphaTimeRate = FramePacing.calcProgress(elapsedTime, backgroundDuration);
                     final float alpha = Math.min(mStartAlpha + alphaTimeRate, MAX_ALPHA);
-                    backgroundView.setAlpha(alpha);
+                    trashView.setBackgroundAlpha(alpha);
                 }
 
                 // DelayTimeを超えていたらアニメーション開始
-                if (elapsedTime >= TRASH_OPEN_START_DELAY_MILLIS) {
+                final long openStartDelay = framePacing.scaleDuration(TRASH_OPEN_START_DELAY_MILLIS);
+                if (elapsedTime >= openStartDelay) {
                     final float screenHeight = trashView.mMetrics.heightPixels;
-                    // アイコンが左右に全部はみ出たらそれぞれ0%、100%の計算
-                    final float positionX = trashViewX + (mTargetPositionX + mTargetWidth) / (screenWidth + mTargetWidth) * mTrashIconLimitPosition.width() + mTrashIconLimitPosition.left;
+                    final float positionX = PositionCalculator.calcTrashIconPositionX(trashViewX, mTargetPositionX, mTargetWidth, screenWidth, mTrashIconLimitPosition);
                     // 削除アイコンのY座標アニメーションと追従（上方向がマイナス）
-                    // targetPositionYRateは、ターゲットのY座標が完全に画面外になると0%、画面の半分以降は100%
-                    // stickyPositionYは移動限界の下端が原点で上端まで移動する。mMoveStickyRangeが追従の範囲
                     // positionYの計算により時間経過とともに移動する
-                    final float targetPositionYRate = Math.min(2 * (mTargetPositionY + mTargetHeight) / (screenHeight + mTargetHeight), 1.0f);
-                    final float stickyPositionY = mMoveStickyYRange * targetPositionYRate + mTrashIconLimitPosition.height() - mMoveStickyYRange;
-                    final float translationYTimeRate = Math.min((elapsedTime - TRASH_OPEN_START_DELAY_MILLIS) / TRASH_OPEN_DURATION_MILLIS, 1.0f);
+                    final float stickyPositionY = PositionCalculator.calcTrashIconStickyPositionY(mTargetPositionY, mTargetHeight, screenHeight, mMoveStickyYRange, mTrashIconLimitPosition);
+                    final float translationYTimeRate = FramePacing.calcProgress(elapsedTime - openStartDelay, framePacing.scaleDuration(TRASH_OPEN_DURATION_MILLIS));
                     final float positionY = mTrashIconLimitPosition.bottom - stickyPositionY * mOvershootInterpolator.getInterpolation(translationYTimeRate);
-                    trashIconRootView.setTranslationX(positionX);
-                    trashIconRootView.setTranslationY(positionY);
+                    trashView.setTrashIconTranslationX(positionX);
+                    trashView.setTrashIconTranslationY(positionY);
+
+                    // 削除アイコンが表示されきった時点でオープンアニメーションの時間を記録
+                    if (translationYTimeRate >= 1.0f && !mIsOpenDurationRecorded) {
+                        mIsOpenDurationRecorded = true;
+                        trashView.mFloatingViewMetrics.record(FloatingViewMetrics.HISTOGRAM_TRASH_OPEN_DURATION, (long) elapsedTime);
+                    }
                 }
 
-                sendMessageAtTime(newMessage(animationCode, TYPE_UPDATE), SystemClock.uptimeMillis() + ANIMATION_REFRESH_TIME_MILLIS);
+                scheduleNextFrame(animationCode, framePacing);
             }
             // 非表示アニメーション
             else if (animationCode == ANIMATION_CLOSE) {
                 // アルファ値の計算
-                final float alphaElapseTimeRate = Math.min(elapsedTime / BACKGROUND_DURATION_MILLIS, 1.0f);
+                final float alphaElapseTimeRate = FramePacing.calcProgress(elapsedTime, backgroundDuration);
                 final float alpha = Math.max(mStartAlpha - alphaElapseTimeRate, MIN_ALPHA);
-                backgroundView.setAlpha(alpha);
+                trashView.setBackgroundAlpha(alpha);
 
                 // 削除アイコンのY座標アニメーション
-                final float translationYTimeRate = Math.min(elapsedTime / TRASH_CLOSE_DURATION_MILLIS, 1.0f);
+                final float translationYTimeRate = FramePacing.calcProgress(elapsedTime, framePacing.scaleDuration(TRASH_CLOSE_DURATION_MILLIS));
                 // アニメーションが最後まで到達していない場合
                 if (alphaElapseTimeRate < 1.0f || translationYTimeRate < 1.0f) {
                     final float position = mStartTransitionY + mTrashIconLimitPosition.height() * translationYTimeRate;
-                    trashIconRootView.setTranslationY(position);
-                    sendMessageAtTime(newMessage(animationCode, TYPE_UPDATE), SystemClock.uptimeMillis() + ANIMATION_REFRESH_TIME_MILLIS);
+                    trashView.setTrashIconTranslationY(position);
+                    scheduleNextFrame(animationCode, framePacing);
                 } else {
                     // 位置を強制的に調整
-                    trashIconRootView.setTranslationY(mTrashIconLimitPosition.bottom);
-                    mStartedCode = ANIMATION_NONE;
+                    trashView.setTrashIconTranslationY(mTrashIconLimitPosition.bottom);
+                    setStartedCode(ANIMATION_NONE);
+                    trashView.releasePreparedLayers();
+                    trashView.mFloatingViewMetrics.record(FloatingViewMetrics.HISTOGRAM_TRASH_CLOSE_DURATION, (long) elapsedTime);
                     if (listener != null) {
                         listener.onTrashAnimationEnd(ANIMATION_CLOSE);
                     }
@@ -788,9 +1445,10 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
             }
             // 即時非表示
             else if (animationCode == ANIMATION_FORCE_CLOSE) {
-                backgroundView.setAlpha(0.0f);
-                trashIconRootView.setTranslationY(mTrashIconLimitPosition.bottom);
-                mStartedCode = ANIMATION_NONE;
+                trashView.setBackgroundAlpha(0.0f);
+                trashView.setTrashIconTranslationY(mTrashIconLimitPosition.bottom);
+                setStartedCode(ANIMATION_NONE);
+                trashView.releasePreparedLayers();
                 if (listener != null) {
                     listener.onTrashAnimationEnd(ANIMATION_FORCE_CLOSE);
                 }
@@ -798,13 +1456,41 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         }
 
         /**
-         * アニメーションのメッセージを送信します。
+         * 実行中のアニメーションのコードを更新します。
+         *
+         * @param animationCode 実行中のアニメーションのコード
+         */
+        private void setStartedCode(int animationCode) {
+            final boolean wasRunning = mStartedCode != ANIMATION_NONE;
+            final boolean isRunning = animationCode != ANIMATION_NONE;
+            mStartedCode = animationCode;
+            if (wasRunning != isRunning) {
+                FloatingViewTrace.onAnimationStateChanged(isRunning);
+            }
+        }
+
+        /**
+         * 次のフレームを垂直同期に合わせて予約します。
+         *
+         * @param animation   ANIMATION_OPEN,ANIMATION_CLOSE
+         * @param framePacing フレーム間隔
+         */
+        private void scheduleNextFrame(int animation, FramePacing framePacing) {
+            mFrameAnimationCode = animation;
+            mFrameClock.scheduleFrameDelayed(framePacing.getFrameDelayMillis());
+        }
+
+        /**
+         * アニメーションのメッセージと予約したフレームを削除します。
          *
-         * @param animation   ANIMATION_OPEN,ANIMATION_CLOSE,ANIMATION_FORCE_CLOSE
-         * @param delayMillis メッセージの送信時間
+         * @param animation ANIMATION_OPEN,ANIMATION_CLOSE,ANIMATION_FORCE_CLOSE
          */
-        void sendAnimationMessageDelayed(int animation, long delayMillis) {
-            sendMessageAtTime(newMessage(animation, TYPE_FIRST), SystemClock.uptimeMillis() + delayMillis);
+        void removeAnimationMessage(int animation) {
+            removeMessages(animation);
+            if (mFrameAnimationCode == animation) {
+                mFrameAnimationCode = ANIMATION_NONE;
+                mFrameClock.cancelFrame();
+            }
         }
 
         /**
@@ -862,9 +1548,9 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
             // 削除アイコン(TrashIconRootView)の移動限界設定(Gravityの基準位置を元に計算）
             // 左下原点（画面下端（パディング含む）：0、上方向：マイナス、下方向：プラス）で、Y軸上限は削除アイコンが背景の中心に来る位置、下限はTrashIconRootViewが全部隠れる位置
             final float density = trashView.mMetrics.density;
-            final float backgroundHeight = trashView.mBackgroundView.getMeasuredHeight();
+            final float backgroundHeight = trashView.getBackgroundHeight();
             final float offsetX = TRASH_MOVE_LIMIT_OFFSET_X * density;
-            final int trashIconHeight = trashView.mTrashIconRootView.getMeasuredHeight();
+            final int trashIconHeight = trashView.getTrashIconRootHeight();
             final int left = (int) -offsetX;
             final int top = (int) ((trashIconHeight - backgroundHeight) / 2 - TRASH_MOVE_LIMIT_TOP_OFFSET * density);
             final int right = (int) offsetX;
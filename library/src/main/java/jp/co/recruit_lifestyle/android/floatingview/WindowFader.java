@@ -0,0 +1,252 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * FloatingViewの表示・非表示をWindowの透明度でフェードさせるクラスです。<br/>
+ * 透明度はWindowの合成時に適用されるため、フェード中にViewの再描画は発生しません。
+ * フェード中の全てのFloatingViewは1フレームにまとめて更新し、フェードアウトの完了時に非表示にします。<br/>
+ * メインスレッドから呼び出します。
+ */
+class WindowFader implements FrameClock.Callback {
+
+    /**
+     * 不透明
+     */
+    private static final float OPAQUE = 1.0f;
+
+    /**
+     * 透明
+     */
+    private static final float TRANSPARENT = 0.0f;
+
+    /**
+     * フェード中のFloatingView
+     */
+    private final ArrayList<Fade> mFades;
+
+    /**
+     * フェードを更新するフレームの時計
+     */
+    private final FrameClock mFrameClock;
+
+    /**
+     * フェードの経過時間の計算に使用する時計
+     */
+    private final Clock mClock;
+
+    /**
+     * システムのアニメーション速度の設定
+     */
+    private final FramePacing mFramePacing;
+
+    /**
+     * フェードの時間(ミリ秒、0の場合はフェードしない)
+     */
+    private long mDuration;
+
+    /**
+     * コンストラクタ
+     *
+     * @param clock       フェードの経過時間の計算に使用する時計
+     * @param framePacing システムのアニメーション速度の設定
+     */
+    WindowFader(Clock clock, FramePacing framePacing) {
+        mClock = clock;
+        mFramePacing = framePacing;
+        mFades = new ArrayList<>();
+        mFrameClock = new FrameClock(this);
+    }
+
+    /**
+     * フェードの時間を設定します。フェード中のFloatingViewには影響しません。
+     *
+     * @param durationMillis フェードの時間(ミリ秒、0の場合はフェードしない)
+     */
+    void setDuration(long durationMillis) {
+        mDuration = durationMillis;
+    }
+
+    /**
+     * FloatingViewの表示状態をフェードさせながら変更します。
+     *
+     * @param floatingView FloatingView
+     * @param visibility   View.VISIBLE or View.GONE
+     */
+    void setVisibility(FloatingView floatingView, int visibility) {
+        Fade fade = findFade(floatingView);
+        final int currentVisibility = fade != null ? fade.targetVisibility : floatingView.getVisibility();
+        if (currentVisibility == visibility) {
+            return;
+        }
+        // フェードしない場合（アニメーションがオフの場合を含む）は直ちに変更
+        final long duration = mFramePacing.scaleDuration(mDuration);
+        if (duration <= 0) {
+            if (fade != null) {
+                mFades.remove(fade);
+                floatingView.setWindowAlpha(OPAQUE);
+            }
+            floatingView.setVisibility(visibility);
+            return;
+        }
+        if (fade == null) {
+            fade = new Fade(floatingView);
+            mFades.add(fade);
+        }
+        if (visibility == View.VISIBLE) {
+            // 非表示の状態からは透明な状態で表示を開始
+            if (floatingView.getVisibility() != View.VISIBLE) {
+                floatingView.setWindowAlpha(TRANSPARENT);
+                floatingView.setVisibility(View.VISIBLE);
+            }
+        } else {
+            // 操作中の場合はフェードの開始時に終了させる
+            floatingView.prepareToHide();
+        }
+        fade.targetVisibility = visibility;
+        fade.startAlpha = floatingView.getWindowAlpha();
+        fade.startTime = mClock.uptimeMillis();
+        fade.duration = duration;
+        mFrameClock.scheduleFrame();
+    }
+
+    /**
+     * FloatingViewのフェードを取り消します。（Windowから取り外す場合）
+     *
+     * @param floatingView FloatingView
+     */
+    void cancel(FloatingView floatingView) {
+        final Fade fade = findFade(floatingView);
+        if (fade != null) {
+            mFades.remove(fade);
+        }
+        if (mFades.isEmpty()) {
+            mFrameClock.cancelFrame();
+        }
+    }
+
+    /**
+     * 全てのフェードを直ちに完了させます。
+     */
+    void finishAll() {
+        final int size = mFades.size();
+        for (int i = 0; i < size; i++) {
+            final Fade fade = mFades.get(i);
+            if (fade.targetVisibility == View.VISIBLE) {
+                fade.floatingView.setWindowAlpha(OPAQUE);
+            } else {
+                fade.floatingView.setVisibility(fade.targetVisibility);
+                fade.floatingView.setWindowAlpha(OPAQUE);
+            }
+        }
+        cancelAll();
+    }
+
+    /**
+     * 全てのフェードを取り消します。（全てのWindowを取り外す場合）
+     */
+    void cancelAll() {
+        mFades.clear();
+        mFrameClock.cancelFrame();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void doFrame(long frameTimeMillis) {
+        final long now = mClock.uptimeMillis();
+        for (int i = mFades.size() - 1; i >= 0; i--) {
+            final Fade fade = mFades.get(i);
+            final float progress = Math.min((float) (now - fade.startTime) / fade.duration, 1.0f);
+            final float targetAlpha = fade.targetVisibility == View.VISIBLE ? OPAQUE : TRANSPARENT;
+            fade.floatingView.setWindowAlpha(fade.startAlpha + (targetAlpha - fade.startAlpha) * progress);
+            if (progress >= 1.0f) {
+                mFades.remove(i);
+                // フェードアウトの完了時に非表示にし、次の表示に備えて不透明に戻す
+                if (fade.targetVisibility != View.VISIBLE) {
+                    fade.floatingView.setVisibility(fade.targetVisibility);
+                    fade.floatingView.setWindowAlpha(OPAQUE);
+                }
+            }
+        }
+        if (!mFades.isEmpty()) {
+            mFrameClock.scheduleFrame();
+        }
+    }
+
+    /**
+     * FloatingViewのフェードを検索します。
+     *
+     * @param floatingView FloatingView
+     * @return フェード（フェード中でない場合はnull）
+     */
+    private Fade findFade(FloatingView floatingView) {
+        final int size = mFades.size();
+        for (int i = 0; i < size; i++) {
+            final Fade fade = mFades.get(i);
+            if (fade.floatingView == floatingView) {
+                return fade;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * FloatingViewごとのフェードの状態です。
+     */
+    private static class Fade {
+
+        /**
+         * 対象のFloatingView
+         */
+        final FloatingView floatingView;
+
+        /**
+         * フェード完了後の表示状態
+         */
+        int targetVisibility;
+
+        /**
+         * 開始時の透明度
+         */
+        float startAlpha;
+
+        /**
+         * 開始時刻
+         */
+        long startTime;
+
+        /**
+         * フェードの時間(ミリ秒)
+         */
+        long duration;
+
+        /**
+         * コンストラクタ
+         *
+         * @param floatingView 対象のFloatingView
+         */
+        Fade(FloatingView floatingView) {
+            this.floatingView = floatingView;
+        }
+    }
+}
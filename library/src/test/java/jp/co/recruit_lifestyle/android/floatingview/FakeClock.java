@@ -0,0 +1,68 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * テストから任意に進められる時計です。<br/>
+ * 時間を進める際はメインスレッドのLooperも1ミリ秒ずつ同じだけ進め、アニメーションのメッセージを決定的に処理します。
+ */
+class FakeClock implements Clock {
+
+    /**
+     * 現在時刻
+     */
+    private long mUptimeMillis;
+
+    /**
+     * コンストラクタ
+     *
+     * @param startMillis 開始時刻
+     */
+    FakeClock(long startMillis) {
+        mUptimeMillis = startMillis;
+        ShadowLooper.pauseMainLooper();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long uptimeMillis() {
+        return mUptimeMillis;
+    }
+
+    /**
+     * 時間を進めます。
+     *
+     * @param millis 進める時間(ミリ秒)
+     */
+    void advance(long millis) {
+        for (long i = 0; i < millis; i++) {
+            mUptimeMillis++;
+            ShadowLooper.idleMainLooper(1);
+        }
+    }
+
+    /**
+     * 現在時刻までに実行可能なメッセージを処理します。
+     */
+    void runPending() {
+        ShadowLooper.idleMainLooper(0);
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.content.Context;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+
+/**
+ * FloatingViewManagerを決定的に動かすためのシミュレーション環境です。<br/>
+ * 時計・WindowManagerを差し替え、MotionEventによるドラッグを時刻付きで再生します。
+ */
+class FloatingViewHarness {
+
+    /**
+     * 時計の開始時刻
+     */
+    static final long START_TIME_MILLIS = 100000L;
+
+    /**
+     * ドラッグ時のタッチイベントの間隔(ミリ秒)
+     */
+    static final long TOUCH_INTERVAL_MILLIS = 16L;
+
+    /**
+     * 時計
+     */
+    final FakeClock clock;
+
+    /**
+     * WindowManager
+     */
+    final RecordingWindowManager windowManager;
+
+    /**
+     * FloatingViewManager
+     */
+    final FloatingViewManager manager;
+
+    /**
+     * Context
+     */
+    private final Context mContext;
+
+    /**
+     * 押下時刻
+     */
+    private long mDownTime;
+
+    /**
+     * 現在のタッチX座標
+     */
+    private float mTouchX;
+
+    /**
+     * 現在のタッチY座標
+     */
+    private float mTouchY;
+
+    /**
+     * コンストラクタ
+     *
+     * @param context Context
+     */
+    FloatingViewHarness(Context context) {
+        mContext = context;
+        clock = new FakeClock(START_TIME_MILLIS);
+        windowManager = new RecordingWindowManager((WindowManager) context.getSystemService(Context.WINDOW_SERVICE), clock);
+        manager = new FloatingViewManager(context, null, windowManager, clock);
+    }
+
+    /**
+     * 指定サイズのViewをFloatingViewとして貼り付けます。
+     *
+     * @param size    Viewの幅・高さ(px)
+     * @param options Options
+     * @return 貼り付けられたFloatingView
+     */
+    FloatingView addFloatingView(int size, FloatingViewManager.Options options) {
+        final View view = new View(mContext);
+        view.setLayoutParams(new FrameLayout.LayoutParams(size, size));
+        manager.addViewToWindow(view, options);
+        clock.runPending();
+        return windowManager.findLastAttachedView(FloatingView.class);
+    }
+
+    /**
+     * 押下します。
+     *
+     * @param view FloatingView
+     * @param x    スクリーンのX座標
+     * @param y    スクリーンのY座標
+     */
+    void down(FloatingView view, float x, float y) {
+        mDownTime = clock.uptimeMillis();
+        mTouchX = x;
+        mTouchY = y;
+        dispatch(view, MotionEvent.ACTION_DOWN);
+    }
+
+    /**
+     * 現在の位置から指定位置まで一定速度でドラッグします。
+     *
+     * @param view           FloatingView
+     * @param x              移動先のスクリーンのX座標
+     * @param y              移動先のスクリーンのY座標
+     * @param durationMillis 移動時間(ミリ秒)
+     */
+    void dragTo(FloatingView view, float x, float y, long durationMillis) {
+        final float startX = mTouchX;
+        final float startY = mTouchY;
+        final int steps = (int) Math.max(1, durationMillis / TOUCH_INTERVAL_MILLIS);
+        for (int i = 1; i <= steps; i++) {
+            clock.advance(durationMillis * i / steps - durationMillis * (i - 1) / steps);
+            mTouchX = startX + (x - startX) * i / steps;
+            mTouchY = startY + (y - startY) * i / steps;
+            dispatch(view, MotionEvent.ACTION_MOVE);
+        }
+    }
+
+    /**
+     * 押上します。
+     *
+     * @param view FloatingView
+     */
+    void up(FloatingView view) {
+        dispatch(view, MotionEvent.ACTION_UP);
+    }
+
+    /**
+     * 現在の状態でタッチイベントを送信します。
+     *
+     * @param view   FloatingView
+     * @param action MotionEventのアクション
+     */
+    private void dispatch(FloatingView view, int action) {
+        final MotionEvent event = MotionEvent.obtain(mDownTime, clock.uptimeMillis(), action, mTouchX, mTouchY, 0);
+        view.dispatchTouchEvent(event);
+        event.recycle();
+        clock.runPending();
+    }
+}
@@ -0,0 +1,1025 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.ShapeDrawable;
+import android.graphics.drawable.shapes.OvalShape;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.view.MotionEvent;
+import android.view.TextureView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * FloatingViewManagerのドラッグ時のWindowManagerへの呼び出しを検証します。
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class FloatingViewManagerTest {
+
+    /**
+     * FloatingViewの大きさ(px)
+     */
+    private static final int VIEW_SIZE = 96;
+
+    /**
+     * 追従アニメーションの更新間隔(ミリ秒)
+     */
+    private static final long FRAME_MILLIS = 17L;
+
+    /**
+     * ドラッグの時間(ミリ秒)
+     */
+    private static final long DRAG_MILLIS = 320L;
+
+    /**
+     * 削除アイコンの大きさ(px)
+     */
+    private static final int TRASH_ICON_SIZE = 56;
+
+    private FloatingViewHarness mHarness;
+
+    private FloatingView mFloatingView;
+
+    @Before
+    public void setUp() {
+        mHarness = new FloatingViewHarness(RuntimeEnvironment.application);
+        mFloatingView = mHarness.addFloatingView(VIEW_SIZE, new FloatingViewManager.Options());
+        assertNotNull(mFloatingView);
+    }
+
+    /**
+     * 押下からドラッグ終了までを行います。
+     */
+    private void drag(FloatingViewHarness harness, FloatingView floatingView) {
+        harness.down(floatingView, 40, 400);
+        harness.dragTo(floatingView, 240, 300, DRAG_MILLIS);
+        harness.up(floatingView);
+    }
+
+    @Test
+    public void addViewToWindow_attachesFloatingObserverAndTrashWindows() {
+        assertEquals(3, mHarness.windowManager.count(RecordingWindowManager.CALL_ADD, null));
+        final FloatingViewMetrics metrics = mHarness.manager.getMetrics();
+        final FloatingViewMetrics.Snapshot snapshot = metrics.createSnapshot();
+        metrics.snapshot(snapshot);
+        assertEquals(1, snapshot.getCount(FloatingViewMetrics.HISTOGRAM_TIME_TO_FIRST_FRAME));
+    }
+
+    @Test
+    public void drag_updatesWindowAtMostOncePerFrame() {
+        mHarness.windowManager.clear();
+        drag(mHarness, mFloatingView);
+        mHarness.clock.advance(1000);
+        assertEquals(1, mHarness.windowManager.maxUpdatesPerFrame());
+    }
+
+    @Test
+    public void drag_layoutUpdatesStayWithinFrameBudget() {
+        mHarness.windowManager.clear();
+        mHarness.down(mFloatingView, 40, 400);
+        mHarness.dragTo(mFloatingView, 240, 300, DRAG_MILLIS);
+        final int updates = mHarness.windowManager.count(RecordingWindowManager.CALL_UPDATE, mFloatingView);
+        // 追従アニメーションは押下中のフレームごとに1回のみWindowを更新する
+        assertTrue("updates=" + updates, updates <= DRAG_MILLIS / FRAME_MILLIS + 2);
+        mHarness.up(mFloatingView);
+    }
+
+    @Test
+    public void drag_recordsLayoutUpdatesPerGesture() {
+        drag(mHarness, mFloatingView);
+        mHarness.clock.advance(1000);
+        final FloatingViewMetrics metrics = mHarness.manager.getMetrics();
+        final FloatingViewMetrics.Snapshot snapshot = metrics.createSnapshot();
+        metrics.snapshot(snapshot);
+        assertEquals(1, snapshot.getCount(FloatingViewMetrics.HISTOGRAM_LAYOUT_UPDATES_PER_DRAG));
+        assertTrue(snapshot.getSum(FloatingViewMetrics.HISTOGRAM_LAYOUT_UPDATES_PER_DRAG) > 0);
+    }
+
+    @Test
+    public void idle_doesNotUpdateWindow() {
+        drag(mHarness, mFloatingView);
+        mHarness.clock.advance(1000);
+        mHarness.windowManager.clear();
+        mHarness.clock.advance(1000);
+        assertEquals(0, mHarness.windowManager.count(RecordingWindowManager.CALL_UPDATE, null));
+    }
+
+    @Test
+    public void drag_dispatchesConflatedEvents() {
+        final int[] counts = new int[FloatingViewEvent.TYPE_POSITION + 1];
+        mHarness.manager.addFloatingViewEventListener(new FloatingViewEventListener() {
+            @Override
+            public void onFloatingViewEvent(FloatingViewEvent event) {
+                counts[event.getType()]++;
+            }
+        });
+        mHarness.windowManager.clear();
+        drag(mHarness, mFloatingView);
+        mHarness.clock.advance(1000);
+        assertEquals(1, counts[FloatingViewEvent.TYPE_DRAG_START]);
+        assertEquals(1, counts[FloatingViewEvent.TYPE_DRAG_END]);
+        assertEquals(1, counts[FloatingViewEvent.TYPE_SETTLE]);
+        // 位置の変化はWindowの更新回数を超えない
+        final int updates = mHarness.windowManager.count(RecordingWindowManager.CALL_UPDATE, mFloatingView);
+        assertTrue(counts[FloatingViewEvent.TYPE_POSITION] > 0);
+        assertTrue("positions=" + counts[FloatingViewEvent.TYPE_POSITION], counts[FloatingViewEvent.TYPE_POSITION] <= updates);
+    }
+
+    @Test
+    public void drag_overDropTargetDispatchesEnterAndDrop() {
+        final int[] counts = new int[FloatingViewEvent.TYPE_DROP + 1];
+        final int[] dropTargetId = {FloatingViewEvent.NO_DROP_TARGET};
+        mHarness.manager.addFloatingViewEventListener(new FloatingViewEventListener() {
+            @Override
+            public void onFloatingViewEvent(FloatingViewEvent event) {
+                counts[event.getType()]++;
+                if (event.getType() == FloatingViewEvent.TYPE_DROP) {
+                    dropTargetId[0] = event.getDropTargetId();
+                }
+            }
+        });
+        // ドラッグ範囲全体を覆うドロップ先
+        mHarness.manager.addDropTarget(7, new Rect(-10000, -10000, 10000, 10000));
+        drag(mHarness, mFloatingView);
+        mHarness.clock.advance(1000);
+        assertEquals(1, counts[FloatingViewEvent.TYPE_DROP_TARGET_ENTER]);
+        assertEquals(0, counts[FloatingViewEvent.TYPE_DROP_TARGET_EXIT]);
+        assertEquals(1, counts[FloatingViewEvent.TYPE_DROP]);
+        assertEquals(7, dropTargetId[0]);
+    }
+
+    @Test
+    public void drag_withSnapshotProxyReportsHostViewInEveryEvent() {
+        final FloatingViewManager.Options options = new FloatingViewManager.Options();
+        options.useSnapshotProxy = true;
+        final FloatingView floatingView = mHarness.addFloatingView(VIEW_SIZE, options);
+        floatingView.measure(View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY));
+        floatingView.layout(0, 0, VIEW_SIZE, VIEW_SIZE);
+        final View content = floatingView.getChildAt(0);
+        mHarness.clock.advance(IdleWorkScheduler.MAX_DELAY_MILLIS);
+        final View otherContent = mFloatingView.getChildAt(0);
+        final List<View> views = new ArrayList<>();
+        mHarness.manager.addFloatingViewEventListener(new FloatingViewEventListener() {
+            @Override
+            public void onFloatingViewEvent(FloatingViewEvent event) {
+                // 最初から貼り付けているFloatingViewのイベントは除外
+                if (event.getView() != otherContent) {
+                    views.add(event.getView());
+                }
+            }
+        });
+        mHarness.manager.addDropTarget(7, new Rect(-10000, -10000, 10000, 10000));
+        mHarness.down(floatingView, 40, 400);
+        mHarness.dragTo(floatingView, 240, 300, DRAG_MILLIS);
+        // 移動中はスナップショットを表示している
+        assertNull(content.getParent());
+        mHarness.up(floatingView);
+        mHarness.clock.advance(1000);
+        // 非表示中もスナップショットのみ
+        floatingView.setVisibility(View.GONE);
+        assertNull(content.getParent());
+        assertTrue(views.size() > 3);
+        for (View view : views) {
+            assertSame(content, view);
+        }
+    }
+
+    @Test
+    public void release_snapsToNearestCornerAnchor() {
+        final FloatingViewHarness harness = new FloatingViewHarness(RuntimeEnvironment.application);
+        final FloatingViewManager.Options options = new FloatingViewManager.Options();
+        options.anchors = new FloatingViewAnchors().addCorners().setVelocityProjectionMillis(0);
+        final FloatingView floatingView = harness.addFloatingView(VIEW_SIZE, options);
+        // 画面右上に向かってドラッグ
+        harness.down(floatingView, 40, 400);
+        harness.dragTo(floatingView, 400, 300, DRAG_MILLIS);
+        harness.up(floatingView);
+        harness.clock.advance(1000);
+        final DisplayMetrics metrics = RuntimeEnvironment.application.getResources().getDisplayMetrics();
+        final WindowManager.LayoutParams params = floatingView.getWindowLayoutParams();
+        // 右上の隅（Windowの座標は左下が原点）
+        assertEquals(metrics.widthPixels - VIEW_SIZE, params.x);
+        assertTrue("y=" + params.y, params.y > metrics.heightPixels / 2);
+    }
+
+    @Test
+    public void release_projectsVelocityToChooseAnchor() {
+        final int metricsMiddle = (RuntimeEnvironment.application.getResources().getDisplayMetrics().heightPixels - VIEW_SIZE) / 2;
+        // 下半分で離しても、上向きに速く動かしていれば上の隅に吸着する
+        assertTrue(flickUpAndRelease(FloatingViewAnchors.DEFAULT_VELOCITY_PROJECTION_MILLIS, metricsMiddle) > metricsMiddle);
+        // 速度を考慮しない場合は離した位置に最も近い下の隅に吸着する
+        assertTrue(flickUpAndRelease(0, metricsMiddle) < metricsMiddle);
+    }
+
+    /**
+     * 画面の中央より下まで上向きに速く動かして離し、吸着後のWindowのY座標を取得します。
+     */
+    private int flickUpAndRelease(int velocityProjectionMillis, int middle) {
+        final FloatingViewHarness harness = new FloatingViewHarness(RuntimeEnvironment.application);
+        final FloatingViewManager.Options options = new FloatingViewManager.Options();
+        options.anchors = new FloatingViewAnchors().addCorners().setVelocityProjectionMillis(velocityProjectionMillis);
+        final FloatingView floatingView = harness.addFloatingView(VIEW_SIZE, options);
+        final int startY = floatingView.getWindowLayoutParams().y;
+        // Windowの座標は上向きなので、スクリーン座標で上に動かすとWindowのY座標は増える
+        final float releaseTouchY = 400 - (middle - 60 - startY);
+        harness.down(floatingView, 40, 400);
+        harness.dragTo(floatingView, 40, releaseTouchY + 120, 600);
+        harness.dragTo(floatingView, 40, releaseTouchY, 48);
+        harness.up(floatingView);
+        harness.clock.advance(1000);
+        return floatingView.getWindowLayoutParams().y;
+    }
+
+    @Test
+    public void fling_towardTrashFinishesWithoutOverlap() {
+        final FloatingViewHarness harness = new FloatingViewHarness(RuntimeEnvironment.application);
+        harness.manager.setTrashCapturePredictionEnabled(true);
+        final FloatingView floatingView = harness.addFloatingView(VIEW_SIZE, new FloatingViewManager.Options());
+        final DisplayMetrics metrics = RuntimeEnvironment.application.getResources().getDisplayMetrics();
+        // 画面下部中央の削除アイコンに向かって素早く投げる
+        harness.down(floatingView, metrics.widthPixels / 2, metrics.heightPixels / 5);
+        harness.dragTo(floatingView, metrics.widthPixels / 2, metrics.heightPixels / 2, 48);
+        harness.up(floatingView);
+        assertEquals(FloatingView.STATE_FINISHING, floatingView.getState());
+    }
+
+    @Test
+    public void predictiveReveal_opensTrashOnlyWhenHeadingToTrash() {
+        final FloatingViewHarness harness = new FloatingViewHarness(RuntimeEnvironment.application);
+        harness.manager.setTrashRevealPolicy(FloatingViewManager.TRASH_REVEAL_PREDICTIVE);
+        harness.manager.setTrashRevealThresholds(400, 35, 2000);
+        final FloatingView floatingView = harness.addFloatingView(VIEW_SIZE, new FloatingViewManager.Options());
+        final TrashView trashView = harness.windowManager.findLastAttachedView(TrashView.class);
+        final DisplayMetrics metrics = RuntimeEnvironment.application.getResources().getDisplayMetrics();
+        // 画面上部を横に移動（位置の調整）
+        harness.down(floatingView, 40, metrics.heightPixels / 5);
+        harness.dragTo(floatingView, metrics.widthPixels / 2, metrics.heightPixels / 5, DRAG_MILLIS);
+        assertFalse(trashView.isOpening());
+        // 画面下部中央の削除アイコンに向かって移動
+        harness.dragTo(floatingView, metrics.widthPixels / 2, metrics.heightPixels / 2, DRAG_MILLIS / 2);
+        assertTrue(trashView.isOpening());
+        harness.up(floatingView);
+    }
+
+    @Test
+    public void flatTrashRendering_drawsWithoutChildViews() {
+        final ShapeDrawable icon = new ShapeDrawable(new OvalShape());
+        icon.setIntrinsicWidth(TRASH_ICON_SIZE);
+        icon.setIntrinsicHeight(TRASH_ICON_SIZE);
+        mHarness.manager.setFixedTrashIconImage(icon);
+        mHarness.manager.setTrashViewFlatRenderingEnabled(true);
+        final TrashView trashView = mHarness.windowManager.findLastAttachedView(TrashView.class);
+        assertEquals(0, trashView.getChildCount());
+        final DisplayMetrics metrics = RuntimeEnvironment.application.getResources().getDisplayMetrics();
+        trashView.measure(View.MeasureSpec.makeMeasureSpec(metrics.widthPixels, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        trashView.layout(0, 0, trashView.getMeasuredWidth(), trashView.getMeasuredHeight());
+        // 削除アイコンは下端中央
+        final Rect rect = new Rect();
+        trashView.getWindowDrawingRect(rect, 0.0f);
+        assertEquals(metrics.widthPixels / 2.0f, trashView.getTrashIconCenterX(), 1.0f);
+        assertEquals(TRASH_ICON_SIZE, rect.width());
+    }
+
+    @Test
+    public void addViewToWindow_appliesShapeToHeadView() {
+        final FloatingHeadView headView = new FloatingHeadView(RuntimeEnvironment.application);
+        headView.setBadgeCount(120);
+        final FloatingViewManager.Options options = new FloatingViewManager.Options();
+        options.shape = FloatingViewManager.SHAPE_RECTANGLE;
+        mHarness.manager.addViewToWindow(headView, options);
+        assertEquals(FloatingViewManager.SHAPE_RECTANGLE, headView.getShape(), 0.0f);
+        assertEquals(120, headView.getBadgeCount());
+        // 四角形の場合はアバターを矩形で描画する
+        headView.measure(View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY));
+        headView.layout(0, 0, VIEW_SIZE, VIEW_SIZE);
+        final RecordingCanvas canvas = new RecordingCanvas();
+        headView.draw(canvas);
+        assertEquals(0, canvas.circleCount);
+        assertEquals(1, canvas.rectCount);
+        assertEquals(1, canvas.roundRectCount);
+    }
+
+    @Test
+    public void floatingHeadView_drawsBadgeAndRingWithoutChildViews() {
+        final FloatingHeadView headView = new FloatingHeadView(RuntimeEnvironment.application);
+        mHarness.manager.addViewToWindow(headView, new FloatingViewManager.Options());
+        mHarness.clock.runPending();
+        // FloatingViewの子Viewはアイコン用Viewのみ
+        final FloatingView floatingView = mHarness.windowManager.findLastAttachedView(FloatingView.class);
+        assertEquals(1, floatingView.getChildCount());
+        assertTrue(floatingView.getChildAt(0) == headView);
+        headView.measure(View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY));
+        headView.layout(0, 0, VIEW_SIZE, VIEW_SIZE);
+
+        // アバター・進捗リング・バッジを1回の描画で描く
+        headView.setBadgeCount(120);
+        headView.setProgress(0.25f);
+        RecordingCanvas canvas = new RecordingCanvas();
+        headView.draw(canvas);
+        assertEquals(1, canvas.circleCount);
+        assertEquals(1, canvas.arcCount);
+        assertEquals(90.0f, canvas.lastSweepAngle, 0.01f);
+        assertEquals(1, canvas.roundRectCount);
+        assertEquals(FloatingHeadView.MAX_BADGE_COUNT + "+", canvas.lastText);
+
+        // 表示しない場合は描画しない
+        headView.setBadgeCount(0);
+        headView.setProgress(FloatingHeadView.NO_PROGRESS);
+        canvas = new RecordingCanvas();
+        headView.draw(canvas);
+        assertEquals(1, canvas.circleCount);
+        assertEquals(0, canvas.arcCount);
+        assertEquals(0, canvas.roundRectCount);
+        assertNull(canvas.lastText);
+    }
+
+    /**
+     * 描画命令を記録するCanvasです。
+     */
+    private static class RecordingCanvas extends Canvas {
+
+        int circleCount;
+
+        int rectCount;
+
+        int arcCount;
+
+        float lastSweepAngle;
+
+        int roundRectCount;
+
+        String lastText;
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, Paint paint) {
+            circleCount++;
+        }
+
+        @Override
+        public void drawRect(RectF rect, Paint paint) {
+            rectCount++;
+        }
+
+        @Override
+        public void drawArc(RectF oval, float startAngle, float sweepAngle, boolean useCenter, Paint paint) {
+            arcCount++;
+            lastSweepAngle = sweepAngle;
+        }
+
+        @Override
+        public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+            roundRectCount++;
+        }
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+            lastText = text;
+        }
+    }
+
+    @Test
+    public void headUpdater_appliesLatestContentOncePerFrame() {
+        final FloatingHeadView headView = new FloatingHeadView(RuntimeEnvironment.application);
+        mHarness.manager.addViewToWindow(headView, new FloatingViewManager.Options());
+        mHarness.clock.runPending();
+        final int[] applyCount = new int[1];
+        final FloatingHeadUpdater<FloatingHeadContent> updater = mHarness.manager.createHeadUpdater(headView, new FloatingHeadUpdater.Renderer<FloatingHeadContent>() {
+            @Override
+            public boolean isRenderedEqual(FloatingHeadContent current, FloatingHeadContent next) {
+                return FloatingHeadContent.RENDERER.isRenderedEqual(current, next);
+            }
+
+            @Override
+            public boolean isSizeChanging(FloatingHeadContent current, FloatingHeadContent next) {
+                return false;
+            }
+
+            @Override
+            public void apply(View view, FloatingHeadContent content) {
+                applyCount[0]++;
+                FloatingHeadContent.RENDERER.apply(view, content);
+            }
+        });
+        // 連続した更新は最後の内容のみ反映
+        FloatingHeadContent content = new FloatingHeadContent(null, 0, FloatingHeadView.NO_PROGRESS);
+        for (int i = 1; i <= 10; i++) {
+            content = content.withBadgeCount(i);
+            updater.post(content);
+        }
+        mHarness.clock.advance(FRAME_MILLIS * 2);
+        assertEquals(1, applyCount[0]);
+        assertEquals(10, headView.getBadgeCount());
+        // 最大の数を超えている間は表示が変わらないため反映しない
+        updater.post(content.withBadgeCount(150));
+        mHarness.clock.advance(FRAME_MILLIS * 2);
+        updater.post(content.withBadgeCount(160));
+        mHarness.clock.advance(FRAME_MILLIS * 2);
+        assertEquals(2, applyCount[0]);
+    }
+
+    @Test
+    public void headUpdater_defersSizeChangingContentUntilSettled() {
+        final FloatingHeadView headView = new FloatingHeadView(RuntimeEnvironment.application);
+        mHarness.manager.addViewToWindow(headView, new FloatingViewManager.Options());
+        mHarness.clock.runPending();
+        final FloatingView floatingView = mHarness.windowManager.findLastAttachedView(FloatingView.class);
+        final int[] applyCount = new int[1];
+        final FloatingHeadUpdater<FloatingHeadContent> updater = mHarness.manager.createHeadUpdater(headView, new FloatingHeadUpdater.Renderer<FloatingHeadContent>() {
+            @Override
+            public boolean isRenderedEqual(FloatingHeadContent current, FloatingHeadContent next) {
+                return FloatingHeadContent.RENDERER.isRenderedEqual(current, next);
+            }
+
+            @Override
+            public boolean isSizeChanging(FloatingHeadContent current, FloatingHeadContent next) {
+                return true;
+            }
+
+            @Override
+            public void apply(View view, FloatingHeadContent content) {
+                applyCount[0]++;
+                FloatingHeadContent.RENDERER.apply(view, content);
+            }
+        });
+        final FloatingHeadContent content = new FloatingHeadContent(null, 1, FloatingHeadView.NO_PROGRESS);
+        updater.post(content);
+        mHarness.clock.advance(FRAME_MILLIS * 2);
+        assertEquals(1, applyCount[0]);
+        // 移動中はWindowの大きさが変わる内容を反映しない
+        mHarness.down(floatingView, 40, 400);
+        mHarness.dragTo(floatingView, 240, 300, DRAG_MILLIS);
+        updater.post(content.withBadgeCount(2));
+        mHarness.clock.advance(FRAME_MILLIS * 2);
+        assertEquals(1, applyCount[0]);
+        assertEquals(1, headView.getBadgeCount());
+        // 移動アニメーション中も反映しない
+        mHarness.up(floatingView);
+        mHarness.clock.advance(FRAME_MILLIS * 2);
+        assertFalse(floatingView.isIdle());
+        assertEquals(1, applyCount[0]);
+        // 画面端に戻った後に反映
+        mHarness.clock.advance(1000);
+        assertTrue(floatingView.isIdle());
+        assertEquals(2, applyCount[0]);
+        assertEquals(2, headView.getBadgeCount());
+    }
+
+    @Test
+    public void hardwareLayer_heldFromPressUntilSettled() {
+        final FloatingViewManager.Options options = new FloatingViewManager.Options();
+        options.useHardwareLayer = true;
+        final FloatingView floatingView = mHarness.addFloatingView(VIEW_SIZE, options);
+        floatingView.measure(View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY));
+        floatingView.layout(0, 0, VIEW_SIZE, VIEW_SIZE);
+        final View child = floatingView.getChildAt(0);
+        mHarness.down(floatingView, 40, 400);
+        assertEquals(View.LAYER_TYPE_HARDWARE, child.getLayerType());
+        mHarness.dragTo(floatingView, 240, 300, DRAG_MILLIS);
+        assertEquals(View.LAYER_TYPE_HARDWARE, child.getLayerType());
+        mHarness.up(floatingView);
+        mHarness.clock.advance(1000);
+        assertEquals(View.LAYER_TYPE_NONE, child.getLayerType());
+        final FloatingViewMetrics.Snapshot snapshot = mHarness.manager.getMetrics().createSnapshot();
+        mHarness.manager.getMetrics().snapshot(snapshot);
+        assertEquals(1, snapshot.getCount(FloatingViewMetrics.HISTOGRAM_HARDWARE_LAYER_DURATION));
+        assertEquals(VIEW_SIZE * VIEW_SIZE * 4 / 1024, snapshot.getMax(FloatingViewMetrics.HISTOGRAM_HARDWARE_LAYER_KILOBYTES));
+        // 上限を超える場合はレイヤーを使用しない
+        mHarness.manager.setHardwareLayerBudget(0);
+        mHarness.down(floatingView, 40, 400);
+        assertEquals(View.LAYER_TYPE_NONE, child.getLayerType());
+        mHarness.up(floatingView);
+    }
+
+    @Test
+    public void snapshotProxy_replacesContentUntilSettled() {
+        final FloatingViewManager.Options options = new FloatingViewManager.Options();
+        options.useSnapshotProxy = true;
+        final FloatingView floatingView = mHarness.addFloatingView(VIEW_SIZE, options);
+        floatingView.measure(View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY));
+        floatingView.layout(0, 0, VIEW_SIZE, VIEW_SIZE);
+        final View content = floatingView.getChildAt(0);
+        // スナップショットはメインスレッドが空いた時に撮る
+        mHarness.clock.advance(IdleWorkScheduler.MAX_DELAY_MILLIS);
+        // 押下のみでは子Viewのまま
+        mHarness.down(floatingView, 40, 400);
+        assertEquals(content, floatingView.getChildAt(0));
+        mHarness.dragTo(floatingView, 240, 300, DRAG_MILLIS);
+        assertEquals(1, floatingView.getChildCount());
+        assertNull(content.getParent());
+        assertTrue(floatingView.isContentView(content));
+        mHarness.up(floatingView);
+        mHarness.clock.advance(1000);
+        assertEquals(content, floatingView.getChildAt(0));
+        // 内容の変更直後の移動では撮り直さずに子Viewのまま
+        mHarness.manager.notifyContentChanged(content);
+        drag(mHarness, floatingView);
+        assertEquals(content, floatingView.getChildAt(0));
+        // 画面端に戻った後に撮り直し、次の移動からスナップショットを表示
+        mHarness.clock.advance(1000);
+        mHarness.down(floatingView, 40, 400);
+        mHarness.dragTo(floatingView, 240, 300, DRAG_MILLIS);
+        assertNull(content.getParent());
+        mHarness.up(floatingView);
+        mHarness.clock.advance(1000);
+        assertEquals(content, floatingView.getChildAt(0));
+        // 非表示中はスナップショットのみ
+        floatingView.setVisibility(View.GONE);
+        assertNull(content.getParent());
+        floatingView.setVisibility(View.VISIBLE);
+        assertEquals(content, floatingView.getChildAt(0));
+    }
+
+    @Test
+    public void snapshotProxy_skipsSurfaceContent() {
+        final FloatingViewManager.Options options = new FloatingViewManager.Options();
+        options.useSnapshotProxy = true;
+        final FrameLayout content = new FrameLayout(RuntimeEnvironment.application);
+        content.setLayoutParams(new FrameLayout.LayoutParams(VIEW_SIZE, VIEW_SIZE));
+        content.addView(new TextureView(RuntimeEnvironment.application));
+        mHarness.manager.addViewToWindow(content, options);
+        mHarness.clock.runPending();
+        final FloatingView floatingView = mHarness.windowManager.findLastAttachedView(FloatingView.class);
+        mHarness.clock.advance(IdleWorkScheduler.MAX_DELAY_MILLIS);
+        // Surfaceに描画するViewはスナップショットを撮れないため子Viewのまま
+        mHarness.down(floatingView, 40, 400);
+        mHarness.dragTo(floatingView, 240, 300, DRAG_MILLIS);
+        assertEquals(content, floatingView.getChildAt(0));
+        mHarness.up(floatingView);
+        mHarness.clock.advance(1000);
+        floatingView.setVisibility(View.GONE);
+        assertEquals(content, floatingView.getChildAt(0));
+    }
+
+    @Test
+    public void displayMode_fadesWindowAlphaBeforeHiding() {
+        mHarness.manager.setVisibilityFadeDuration(150);
+        mHarness.manager.setDisplayMode(FloatingViewManager.DISPLAY_MODE_HIDE_ALWAYS);
+        mHarness.clock.advance(75);
+        assertEquals(View.VISIBLE, mFloatingView.getVisibility());
+        assertTrue(mFloatingView.getWindowAlpha() < 1.0f);
+        mHarness.clock.advance(150);
+        assertEquals(View.GONE, mFloatingView.getVisibility());
+        assertEquals(1.0f, mFloatingView.getWindowAlpha(), 0.0f);
+        // 表示は透明な状態から開始
+        mHarness.manager.setDisplayMode(FloatingViewManager.DISPLAY_MODE_SHOW_ALWAYS);
+        assertEquals(View.VISIBLE, mFloatingView.getVisibility());
+        assertEquals(0.0f, mFloatingView.getWindowAlpha(), 0.0f);
+        mHarness.clock.advance(200);
+        assertEquals(1.0f, mFloatingView.getWindowAlpha(), 0.0f);
+    }
+
+    @Test
+    public void idleTuck_parksAtEdgeAndRestoresOnTouch() {
+        final FloatingViewManager.Options options = new FloatingViewManager.Options();
+        options.idleTuckMillis = 1000;
+        options.idleTuckAlpha = 0.5f;
+        final FloatingView floatingView = mHarness.addFloatingView(VIEW_SIZE, options);
+        floatingView.measure(View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY));
+        floatingView.layout(0, 0, VIEW_SIZE, VIEW_SIZE);
+        drag(mHarness, floatingView);
+        mHarness.clock.advance(1000);
+        final int settledX = floatingView.getWindowLayoutParams().x;
+        assertEquals(1.0f, floatingView.getWindowAlpha(), 0.0f);
+        // 操作されていない時間が経過すると画面端の外に寄せる
+        mHarness.clock.advance(1000);
+        assertEquals(0.5f, floatingView.getWindowAlpha(), 0.0f);
+        assertTrue(floatingView.getWindowLayoutParams().x != settledX);
+        assertTrue(floatingView.isIdle());
+        // タッチで元に戻す
+        mHarness.down(floatingView, 10, 400);
+        mHarness.up(floatingView);
+        mHarness.clock.advance(500);
+        assertEquals(1.0f, floatingView.getWindowAlpha(), 0.0f);
+        assertEquals(settledX, floatingView.getWindowLayoutParams().x);
+    }
+
+    @Test
+    public void idleTuck_notScheduledAfterRemovedDuringSettle() {
+        final FloatingViewManager.Options options = new FloatingViewManager.Options();
+        options.idleTuckMillis = 1000;
+        final FloatingView floatingView = mHarness.addFloatingView(VIEW_SIZE, options);
+        floatingView.measure(View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY));
+        floatingView.layout(0, 0, VIEW_SIZE, VIEW_SIZE);
+        drag(mHarness, floatingView);
+        mHarness.clock.advance(FRAME_MILLIS * 2);
+        assertFalse(floatingView.isIdle());
+        // 画面端に戻るアニメーション中に取り外す
+        mHarness.manager.removeAllViewToWindow();
+        mHarness.windowManager.clear();
+        assertTrue(floatingView.isIdle());
+        // 取り外したWindowは移動アニメーションの続き・画面端に寄せる処理で更新しない
+        mHarness.clock.advance(3000);
+        assertEquals(0, mHarness.windowManager.count(RecordingWindowManager.CALL_UPDATE, floatingView));
+        assertEquals(1.0f, floatingView.getWindowAlpha(), 0.0f);
+    }
+
+    @Test
+    public void framePacing_followsRefreshRateUnderCap() {
+        assertEquals(17, FramePacing.calcFrameIntervalMillis(60.0f, FramePacing.NO_FRAME_RATE_LIMIT));
+        assertEquals(11, FramePacing.calcFrameIntervalMillis(90.0f, FramePacing.NO_FRAME_RATE_LIMIT));
+        assertEquals(8, FramePacing.calcFrameIntervalMillis(120.0f, FramePacing.NO_FRAME_RATE_LIMIT));
+        assertEquals(33, FramePacing.calcFrameIntervalMillis(120.0f, 30));
+        assertEquals(1.0f, FramePacing.calcProgress(10, 0), 0.0f);
+        // 次のフレームはフレーム間隔に最も近い垂直同期で処理
+        assertEquals(9, FramePacing.calcFrameDelayMillis(60.0f, 17));
+        assertEquals(4, FramePacing.calcFrameDelayMillis(120.0f, 8));
+        assertEquals(29, FramePacing.calcFrameDelayMillis(120.0f, 33));
+    }
+
+    @Test
+    public void framePacing_appliesOnAttachAndWhenCapChanges() {
+        final FloatingViewMetrics metrics = mHarness.manager.getMetrics();
+        final FloatingViewMetrics.Snapshot snapshot = metrics.createSnapshot();
+        // 最初の貼り付け時に読み込み済み
+        metrics.snapshot(snapshot);
+        final long count = snapshot.getCount(FloatingViewMetrics.HISTOGRAM_FRAME_INTERVAL);
+        assertTrue(count > 0);
+        // 上限の変更は次の操作を待たずに反映
+        mHarness.manager.setMaxFrameRate(30);
+        metrics.snapshot(snapshot);
+        assertEquals(count + 1, snapshot.getCount(FloatingViewMetrics.HISTOGRAM_FRAME_INTERVAL));
+        assertEquals(33, snapshot.getMax(FloatingViewMetrics.HISTOGRAM_FRAME_INTERVAL));
+        // 追従のフレームは上限のフレーム間隔で処理
+        mHarness.windowManager.clear();
+        mHarness.down(mFloatingView, 40, 400);
+        mHarness.dragTo(mFloatingView, 240, 300, DRAG_MILLIS);
+        final int updates = mHarness.windowManager.count(RecordingWindowManager.CALL_UPDATE, mFloatingView);
+        mHarness.up(mFloatingView);
+        mHarness.clock.advance(1000);
+        assertTrue("updates=" + updates, updates <= DRAG_MILLIS / FramePacing.calcFrameDelayMillis(60.0f, 33) + 2);
+    }
+
+    @Test
+    public void screenOff_suspendsUntilScreenOn() {
+        RuntimeEnvironment.application.sendBroadcast(new Intent(Intent.ACTION_SCREEN_OFF));
+        mHarness.clock.runPending();
+        assertTrue(mHarness.manager.isSuspended());
+        // 停止中は操作・Windowの更新を行わない
+        mHarness.windowManager.clear();
+        drag(mHarness, mFloatingView);
+        mHarness.clock.advance(1000);
+        assertEquals(0, mHarness.windowManager.count(RecordingWindowManager.CALL_UPDATE, mFloatingView));
+        RuntimeEnvironment.application.sendBroadcast(new Intent(Intent.ACTION_SCREEN_ON));
+        mHarness.clock.runPending();
+        assertFalse(mHarness.manager.isSuspended());
+        // ホストによる一時停止は画面の状態と独立
+        mHarness.manager.pause();
+        assertTrue(mHarness.manager.isSuspended());
+        mHarness.manager.resume();
+        assertFalse(mHarness.manager.isSuspended());
+    }
+
+    @Test
+    public void avatarLoader_samplesDownWithoutGoingBelowTarget() {
+        assertEquals(1, AvatarLoader.calcInSampleSize(100, 100, 112, 112));
+        assertEquals(4, AvatarLoader.calcInSampleSize(1024, 768, 112, 112));
+        assertEquals(2, AvatarLoader.calcInSampleSize(1024, 200, 112, 112));
+    }
+
+    @Test
+    public void avatarLoader_mergesRequestsAndShowsPlaceholderUntilDecoded() {
+        final AvatarLoader loader = new AvatarLoader(RuntimeEnvironment.application, Integer.MAX_VALUE, Looper.getMainLooper());
+        final File file = new File("avatar.png");
+        final FloatingHeadView first = new FloatingHeadView(RuntimeEnvironment.application);
+        final FloatingHeadView second = new FloatingHeadView(RuntimeEnvironment.application);
+        // 読み込みが完了するまでは単色で表示し、同じ画像の読み込みはまとめる
+        loader.load(first, file);
+        loader.load(second, file);
+        assertNull(first.getAvatarBitmap());
+        assertNull(second.getAvatarBitmap());
+        mHarness.clock.advance(FRAME_MILLIS);
+        assertEquals(1, loader.getDecodedCount());
+        assertNotNull(first.getAvatarBitmap());
+        assertSame(first.getAvatarBitmap(), second.getAvatarBitmap());
+        // キャッシュにある場合は即時に表示
+        final FloatingHeadView third = new FloatingHeadView(RuntimeEnvironment.application);
+        loader.load(third, file);
+        assertSame(first.getAvatarBitmap(), third.getAvatarBitmap());
+        mHarness.clock.advance(FRAME_MILLIS);
+        assertEquals(1, loader.getDecodedCount());
+    }
+
+    @Test
+    public void avatarLoader_neverReusesDisplayedBitmap() {
+        final FloatingHeadView canceled = new FloatingHeadView(RuntimeEnvironment.application);
+        final FloatingHeadView rebound = new FloatingHeadView(RuntimeEnvironment.application);
+        final int bitmapBytes = canceled.getAvatarWidth() * canceled.getAvatarHeight() * 4;
+        // キャッシュには4枚、再利用する画像は1枚まで保持
+        final AvatarLoader loader = new AvatarLoader(RuntimeEnvironment.application, bitmapBytes * 4, Looper.getMainLooper());
+        loader.load(canceled, new File("canceled.png"));
+        mHarness.clock.advance(FRAME_MILLIS);
+        final Bitmap displayed = canceled.getAvatarBitmap();
+        assertNotNull(displayed);
+        // 取り消し後も表示中の画像はキャッシュから外れても再利用しない
+        loader.cancel(canceled);
+        for (int i = 0; i < 5; i++) {
+            loader.load(rebound, new File("rebound" + i + ".png"));
+            mHarness.clock.advance(FRAME_MILLIS);
+            assertNotSame(displayed, rebound.getAvatarBitmap());
+        }
+        assertSame(displayed, canceled.getAvatarBitmap());
+        // 別の画像に切り替えた後も、切り替え前の画像を表示中のViewがあれば再利用しない
+        final FloatingHeadView other = new FloatingHeadView(RuntimeEnvironment.application);
+        loader.load(other, new File("rebound4.png"));
+        final Bitmap shared = other.getAvatarBitmap();
+        assertSame(shared, rebound.getAvatarBitmap());
+        loader.load(rebound, new File("switched.png"));
+        mHarness.clock.advance(FRAME_MILLIS);
+        for (int i = 0; i < 5; i++) {
+            final FloatingHeadView view = new FloatingHeadView(RuntimeEnvironment.application);
+            loader.load(view, new File("other" + i + ".png"));
+            mHarness.clock.advance(FRAME_MILLIS);
+            assertNotSame(displayed, view.getAvatarBitmap());
+            assertNotSame(shared, view.getAvatarBitmap());
+        }
+        assertSame(shared, other.getAvatarBitmap());
+    }
+
+    @Test
+    public void timerWheel_firesAtDeadlineAcrossRotationsAndCancels() {
+        final TimerWheel timerWheel = new TimerWheel(mHarness.clock);
+        final int[] fired = new int[2];
+        final TimerWheel.Timer longTimer = new TimerWheel.Timer(new Runnable() {
+            @Override
+            public void run() {
+                fired[0]++;
+            }
+        });
+        final TimerWheel.Timer shortTimer = new TimerWheel.Timer(new Runnable() {
+            @Override
+            public void run() {
+                fired[1]++;
+            }
+        });
+        timerWheel.schedule(longTimer, 3000);
+        timerWheel.schedule(shortTimer, 50);
+        timerWheel.cancel(shortTimer);
+        assertEquals(1, timerWheel.getScheduledCount());
+        mHarness.clock.advance(2999);
+        assertEquals(0, fired[0]);
+        mHarness.clock.advance(1);
+        assertEquals(1, fired[0]);
+        assertEquals(0, fired[1]);
+        assertFalse(longTimer.isScheduled());
+        assertEquals(0, timerWheel.getScheduledCount());
+    }
+
+    @Test
+    public void idleWork_runsOnceInPriorityOrderWithinMaxDelay() {
+        final IdleWorkScheduler scheduler = new IdleWorkScheduler(mHarness.clock, new TimerWheel(mHarness.clock));
+        final StringBuilder order = new StringBuilder();
+        final Runnable lowTask = new Runnable() {
+            @Override
+            public void run() {
+                order.append('L');
+            }
+        };
+        final Runnable highTask = new Runnable() {
+            @Override
+            public void run() {
+                order.append('H');
+            }
+        };
+        scheduler.post(lowTask, IdleWorkScheduler.PRIORITY_LOW);
+        scheduler.post(highTask, IdleWorkScheduler.PRIORITY_HIGH);
+        scheduler.post(lowTask, IdleWorkScheduler.PRIORITY_LOW);
+        mHarness.clock.advance(IdleWorkScheduler.MAX_DELAY_MILLIS);
+        assertEquals("HL", order.toString());
+    }
+
+    @Test
+    public void haptics_rateLimitsRepeatedTriggersPerType() {
+        final HapticFeedbackDispatcher dispatcher = new HapticFeedbackDispatcher(RuntimeEnvironment.application, mHarness.clock);
+        dispatcher.setEffect(FloatingViewManager.HAPTIC_TRASH_ENTER, new long[]{15});
+        assertFalse(dispatcher.perform(FloatingViewManager.HAPTIC_SNAP));
+        assertTrue(dispatcher.perform(FloatingViewManager.HAPTIC_TRASH_ENTER));
+        mHarness.clock.advance(50);
+        assertFalse(dispatcher.perform(FloatingViewManager.HAPTIC_TRASH_ENTER));
+        mHarness.clock.advance(50);
+        assertTrue(dispatcher.perform(FloatingViewManager.HAPTIC_TRASH_ENTER));
+        dispatcher.release();
+        // 終了後はprepareを呼び出すまで振動させない
+        mHarness.clock.advance(100);
+        assertFalse(dispatcher.perform(FloatingViewManager.HAPTIC_TRASH_ENTER));
+        dispatcher.prepare();
+        assertTrue(dispatcher.perform(FloatingViewManager.HAPTIC_TRASH_ENTER));
+        dispatcher.release();
+    }
+
+    @Test
+    public void stallWatchdog_recordsFramesDelayedBeyondThreshold() {
+        final StallWatchdog watchdog = new StallWatchdog(mHarness.clock);
+        watchdog.setEnabled(true);
+        watchdog.setThresholdMillis(100);
+        watchdog.onAnimationStarted();
+        watchdog.onFrame(16);
+        mHarness.clock.advance(50);
+        watchdog.onFrame(16);
+        assertEquals(0, watchdog.getStalls().size());
+        mHarness.clock.advance(216);
+        watchdog.onFrame(16);
+        watchdog.onAnimationStopped();
+        watchdog.setEnabled(false);
+        final List<FloatingViewStall> stalls = watchdog.getStalls();
+        assertEquals(1, stalls.size());
+        assertEquals(200, stalls.get(0).getDurationMillis());
+    }
+
+    @Test
+    public void touchTrace_roundTripsThroughFileAndReplays() throws Exception {
+        mHarness.manager.startTouchTrace(256);
+        drag(mHarness, mFloatingView);
+        mHarness.clock.advance(1000);
+        final File file = File.createTempFile("touch", ".trace");
+        file.deleteOnExit();
+        assertTrue(mHarness.manager.flushTouchTrace(file));
+        final TouchTracePlayer player = loadTouchTrace(file);
+        assertEquals(0, player.getDroppedCount());
+        assertEquals(TouchTracePlayer.RECORD_DISPLAY, player.getRecordType(0));
+        int downCount = 0;
+        int upCount = 0;
+        for (int i = 1; i < player.getRecordCount(); i++) {
+            assertTrue(player.getRecordTime(i) >= player.getRecordTime(i - 1));
+            if (player.getRecordType(i) == TouchTracePlayer.RECORD_TOUCH) {
+                downCount += player.getRecordValue(i) == MotionEvent.ACTION_DOWN ? 1 : 0;
+                upCount += player.getRecordValue(i) == MotionEvent.ACTION_UP ? 1 : 0;
+            }
+        }
+        assertEquals(1, downCount);
+        assertEquals(1, upCount);
+
+        // 再生すると記録時と同じようにWindowが移動する
+        mHarness.manager.stopTouchTrace();
+        mHarness.windowManager.clear();
+        player.play(mHarness.manager);
+        mHarness.clock.advance(DRAG_MILLIS + 1000);
+        assertFalse(player.isPlaying());
+        assertTrue(mHarness.windowManager.count(RecordingWindowManager.CALL_UPDATE, mFloatingView) > 0);
+    }
+
+    @Test
+    public void touchTrace_keepsDisplayRecordAfterWrapping() throws Exception {
+        mHarness.manager.startTouchTrace(4);
+        drag(mHarness, mFloatingView);
+        final File file = File.createTempFile("touch", ".trace");
+        file.deleteOnExit();
+        assertTrue(mHarness.manager.flushTouchTrace(file));
+        final TouchTracePlayer player = loadTouchTrace(file);
+        assertTrue(player.getDroppedCount() > 0);
+        // 上書きされた画面情報が先頭に補われる
+        assertEquals(5, player.getRecordCount());
+        assertEquals(TouchTracePlayer.RECORD_DISPLAY, player.getRecordType(0));
+        final DisplayMetrics metrics = new DisplayMetrics();
+        mHarness.manager.getDisplayMetrics(metrics);
+        assertEquals(metrics.widthPixels, player.getRecordValue(0));
+        assertEquals(player.getRecordTime(1), player.getRecordTime(0));
+        for (int i = 1; i < player.getRecordCount(); i++) {
+            assertTrue(player.getRecordType(i) != TouchTracePlayer.RECORD_DISPLAY);
+        }
+    }
+
+    @Test
+    public void touchTrace_ignoresTargetsBeyondRecordableRange() throws Exception {
+        final TouchTraceRecorder recorder = new TouchTraceRecorder(4);
+        final MotionEvent event = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 10, 10, 0);
+        recorder.recordTouch(200, event);
+        recorder.recordTouch(TouchTraceRecorder.MAX_TARGET + 1, event);
+        event.recycle();
+        final File file = File.createTempFile("touch", ".trace");
+        file.deleteOnExit();
+        assertTrue(recorder.flush(file));
+        final TouchTracePlayer player = loadTouchTrace(file);
+        recorder.release();
+        assertEquals(2, player.getRecordCount());
+        // 存在しないFloatingViewへのタッチは再生しない
+        player.play(mHarness.manager);
+        assertFalse(player.isPlaying());
+        assertNull(mHarness.manager.getTraceTargetFloatingView(TouchTraceRecorder.NO_TARGET));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void touchTrace_rejectsNonPositiveCapacity() {
+        mHarness.manager.startTouchTrace(0);
+    }
+
+    /**
+     * 別スレッドでの書き出しの完了を待ってから記録を読み込みます。
+     */
+    private static TouchTracePlayer loadTouchTrace(File file) throws Exception {
+        IOException lastException = null;
+        for (int i = 0; i < 200; i++) {
+            try {
+                return TouchTracePlayer.load(file);
+            } catch (IOException e) {
+                lastException = e;
+                Thread.sleep(10);
+            }
+        }
+        throw lastException;
+    }
+
+    @Test
+    public void trashPrepare_buildsLayersBeforeDragAndReleasesOnDetach() {
+        // ハードウェアアクセラレーションが有効な環境を再現
+        final TrashView trashView = new TrashView(RuntimeEnvironment.application, mHarness.windowManager, mHarness.clock) {
+            @Override
+            public boolean isHardwareAccelerated() {
+                return true;
+            }
+        };
+        assertFalse(trashView.isPrepared());
+        assertEquals(0, countHardwareLayers(trashView));
+        trashView.prepare(VIEW_SIZE, VIEW_SIZE, FloatingViewManager.SHAPE_CIRCLE);
+        assertTrue(trashView.isPrepared());
+        assertEquals(2, countHardwareLayers(trashView));
+        trashView.onDetachedFromWindow();
+        assertFalse(trashView.isPrepared());
+        assertEquals(0, countHardwareLayers(trashView));
+    }
+
+    /**
+     * ハードウェアレイヤーを使用しているViewの数を数えます。
+     */
+    private static int countHardwareLayers(View view) {
+        int count = view.getLayerType() == View.LAYER_TYPE_HARDWARE ? 1 : 0;
+        if (view instanceof ViewGroup) {
+            final ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                count += countHardwareLayers(viewGroup.getChildAt(i));
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void drag_trajectoryIsDeterministic() {
+        final List<RecordingWindowManager.Call> first = recordDrag(mHarness, mFloatingView);
+        final FloatingViewHarness other = new FloatingViewHarness(RuntimeEnvironment.application);
+        final FloatingView otherView = other.addFloatingView(VIEW_SIZE, new FloatingViewManager.Options());
+        final List<RecordingWindowManager.Call> second = recordDrag(other, otherView);
+        assertTrue(first.size() > 0);
+        assertEquals(first, second);
+    }
+
+    /**
+     * 押下中のFloatingViewの軌跡を記録します。
+     */
+    private List<RecordingWindowManager.Call> recordDrag(FloatingViewHarness harness, FloatingView floatingView) {
+        harness.windowManager.clear();
+        harness.down(floatingView, 40, 400);
+        harness.dragTo(floatingView, 240, 300, DRAG_MILLIS);
+        final List<RecordingWindowManager.Call> calls = new ArrayList<>();
+        for (RecordingWindowManager.Call call : harness.windowManager.getCalls()) {
+            if (call.view == floatingView) {
+                calls.add(call);
+            }
+        }
+        harness.up(floatingView);
+        harness.clock.advance(1000);
+        return calls;
+    }
+}
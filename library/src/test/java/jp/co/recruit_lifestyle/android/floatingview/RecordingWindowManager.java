@@ -0,0 +1,277 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.util.DisplayMetrics;
+import android.view.Display;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WindowManagerへの呼び出しを全て記録するWindowManagerです。<br/>
+ * addView時には実際のWindowの代わりに計測・レイアウト・初回描画前の通知を同期的に行います。
+ */
+class RecordingWindowManager implements WindowManager {
+
+    /**
+     * addView
+     */
+    static final int CALL_ADD = 1;
+
+    /**
+     * updateViewLayout
+     */
+    static final int CALL_UPDATE = 2;
+
+    /**
+     * removeView/removeViewImmediate
+     */
+    static final int CALL_REMOVE = 3;
+
+    /**
+     * 画面情報の取得に使用するWindowManager
+     */
+    private final WindowManager mDisplayWindowManager;
+
+    /**
+     * 呼び出し時刻の取得に使用する時計
+     */
+    private final Clock mClock;
+
+    /**
+     * 呼び出しの記録
+     */
+    private final List<Call> mCalls;
+
+    /**
+     * 貼り付けられているView
+     */
+    private final List<View> mAttachedViews;
+
+    /**
+     * コンストラクタ
+     *
+     * @param displayWindowManager 画面情報の取得に使用するWindowManager
+     * @param clock                呼び出し時刻の取得に使用する時計
+     */
+    RecordingWindowManager(WindowManager displayWindowManager, Clock clock) {
+        mDisplayWindowManager = displayWindowManager;
+        mClock = clock;
+        mCalls = new ArrayList<>();
+        mAttachedViews = new ArrayList<>();
+    }
+
+    @Override
+    public Display getDefaultDisplay() {
+        return mDisplayWindowManager.getDefaultDisplay();
+    }
+
+    @Override
+    public void addView(View view, ViewGroup.LayoutParams params) {
+        record(CALL_ADD, view, params);
+        mAttachedViews.add(view);
+        // Windowの代わりに計測・レイアウト・初回描画前の通知を行う
+        final DisplayMetrics metrics = new DisplayMetrics();
+        getDefaultDisplay().getMetrics(metrics);
+        view.measure(makeMeasureSpec(params.width, metrics.widthPixels), makeMeasureSpec(params.height, metrics.heightPixels));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        view.getViewTreeObserver().dispatchOnPreDraw();
+    }
+
+    @Override
+    public void updateViewLayout(View view, ViewGroup.LayoutParams params) {
+        record(CALL_UPDATE, view, params);
+    }
+
+    @Override
+    public void removeView(View view) {
+        removeViewImmediate(view);
+    }
+
+    @Override
+    public void removeViewImmediate(View view) {
+        record(CALL_REMOVE, view, null);
+        mAttachedViews.remove(view);
+    }
+
+    /**
+     * LayoutParamsの大きさからMeasureSpecを作成します。
+     *
+     * @param size        LayoutParamsの幅または高さ
+     * @param displaySize 画面の幅または高さ
+     * @return MeasureSpec
+     */
+    private static int makeMeasureSpec(int size, int displaySize) {
+        if (size == ViewGroup.LayoutParams.MATCH_PARENT) {
+            return View.MeasureSpec.makeMeasureSpec(displaySize, View.MeasureSpec.EXACTLY);
+        }
+        if (size == ViewGroup.LayoutParams.WRAP_CONTENT) {
+            return View.MeasureSpec.makeMeasureSpec(displaySize, View.MeasureSpec.AT_MOST);
+        }
+        return View.MeasureSpec.makeMeasureSpec(size, View.MeasureSpec.EXACTLY);
+    }
+
+    /**
+     * 呼び出しを記録します。
+     */
+    private void record(int type, View view, ViewGroup.LayoutParams params) {
+        mCalls.add(new Call(type, view, params instanceof WindowManager.LayoutParams ? (WindowManager.LayoutParams) params : null, mClock.uptimeMillis()));
+    }
+
+    /**
+     * 記録を全て破棄します。
+     */
+    void clear() {
+        mCalls.clear();
+    }
+
+    /**
+     * 呼び出しの記録を取得します。
+     *
+     * @return 呼び出しの記録
+     */
+    List<Call> getCalls() {
+        return mCalls;
+    }
+
+    /**
+     * 指定Viewへの呼び出しの回数を取得します。
+     *
+     * @param type CALL_ADD, CALL_UPDATE, CALL_REMOVE
+     * @param view View(nullの場合は全てのView)
+     * @return 呼び出しの回数
+     */
+    int count(int type, View view) {
+        int count = 0;
+        for (Call call : mCalls) {
+            if (call.type == type && (view == null || call.view == view)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 同じ時刻（フレーム）に同じViewへ行われたupdateViewLayoutの最大回数を取得します。
+     *
+     * @return 1フレームあたりの最大更新回数
+     */
+    int maxUpdatesPerFrame() {
+        int max = 0;
+        final int size = mCalls.size();
+        for (int i = 0; i < size; i++) {
+            final Call call = mCalls.get(i);
+            if (call.type != CALL_UPDATE) {
+                continue;
+            }
+            int count = 0;
+            for (int j = i; j < size && mCalls.get(j).time == call.time; j++) {
+                final Call other = mCalls.get(j);
+                if (other.type == CALL_UPDATE && other.view == call.view) {
+                    count++;
+                }
+            }
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+
+    /**
+     * 貼り付けられているViewのうち、指定クラスの最後に貼り付けられたViewを取得します。
+     *
+     * @param clazz Viewのクラス
+     * @return View(見つからない場合はnull)
+     */
+    <T extends View> T findLastAttachedView(Class<T> clazz) {
+        for (int i = mAttachedViews.size() - 1; i >= 0; i--) {
+            final View view = mAttachedViews.get(i);
+            if (clazz.isInstance(view)) {
+                return clazz.cast(view);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * WindowManagerへの呼び出しを表すクラスです。
+     */
+    static class Call {
+
+        /**
+         * CALL_ADD, CALL_UPDATE, CALL_REMOVE
+         */
+        final int type;
+
+        /**
+         * 対象のView
+         */
+        final View view;
+
+        /**
+         * 呼び出し時点のX座標
+         */
+        final int x;
+
+        /**
+         * 呼び出し時点のY座標
+         */
+        final int y;
+
+        /**
+         * 呼び出し時点のアルファ値
+         */
+        final float alpha;
+
+        /**
+         * 呼び出し時刻
+         */
+        final long time;
+
+        Call(int type, View view, WindowManager.LayoutParams params, long time) {
+            this.type = type;
+            this.view = view;
+            this.x = params != null ? params.x : 0;
+            this.y = params != null ? params.y : 0;
+            this.alpha = params != null ? params.alpha : 1.0f;
+            this.time = time;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Call)) {
+                return false;
+            }
+            final Call other = (Call) o;
+            return type == other.type && x == other.x && y == other.y && alpha == other.alpha && time == other.time
+                    && view.getClass() == other.view.getClass();
+        }
+
+        @Override
+        public int hashCode() {
+            return ((type * 31 + x) * 31 + y) * 31 + (int) time;
+        }
+
+        @Override
+        public String toString() {
+            return "Call{type=" + type + ", view=" + view.getClass().getSimpleName() + ", x=" + x + ", y=" + y + ", alpha=" + alpha + ", time=" + time + "}";
+        }
+    }
+}